@@ -0,0 +1,104 @@
+package com.questiongenerator.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares two benchmark reports of the same kind, either JMH JSON results ({@code -rf json}) or
+ * {@link LoadBenchmark} reports, and prints the relative change of every figure.
+ * <p>
+ * Usage: {@code BenchCompare <baseline.json> <current.json> [threshold]}. A change for the worse larger than the
+ * threshold (default 0.10, i.e. 10%) is a regression, and the exit status is then 1, so a build can fail on it.
+ */
+public class BenchCompare {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchCompare <baseline.json> <current.json> [threshold]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, Figure> baseline = figures(objectMapper.readTree(new File(args[0])));
+        Map<String, Figure> current = figures(objectMapper.readTree(new File(args[1])));
+
+        int regressions = 0;
+        System.out.printf("%-70s %14s %14s %9s%n", "figure", "baseline", "current", "change");
+        for (Map.Entry<String, Figure> entry : baseline.entrySet()) {
+            Figure before = entry.getValue();
+            Figure after = current.get(entry.getKey());
+            if (after == null) {
+                System.out.printf("%-70s %14.3f %14s%n", entry.getKey(), before.value, "missing");
+                continue;
+            }
+            // From zero (e.g. no errors) any increase counts as +100%
+            double change = before.value == 0 ? Math.signum(after.value)
+                    : (after.value - before.value) / before.value;
+            // Positive means worse, whichever direction is better for this figure
+            double worse = before.lowerIsBetter ? change : -change;
+            boolean regression = worse > threshold;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-70s %14.3f %14.3f %+8.1f%%%s%n", entry.getKey(), before.value, after.value,
+                    change * 100, regression ? "  REGRESSION" : "");
+        }
+        for (String name : current.keySet()) {
+            if (!baseline.containsKey(name)) {
+                System.out.printf("%-70s %14s %14.3f%n", name, "new", current.get(name).value);
+            }
+        }
+
+        System.out.printf("%d regression(s) beyond %.0f%%%n", regressions, threshold * 100);
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+
+    private static Map<String, Figure> figures(JsonNode report) {
+        Map<String, Figure> figures = new LinkedHashMap<>();
+        if (report.isArray()) {
+            // JMH: one entry per benchmark method and parameter combination
+            for (JsonNode result : report) {
+                StringBuilder name = new StringBuilder(result.path("benchmark").asText());
+                Iterator<Map.Entry<String, JsonNode>> params = result.path("params").fields();
+                while (params.hasNext()) {
+                    Map.Entry<String, JsonNode> param = params.next();
+                    name.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+                }
+                JsonNode metric = result.path("primaryMetric");
+                name.append(" [").append(metric.path("scoreUnit").asText()).append(']');
+                // Throughput modes report operations per time unit; the others report time per operation
+                boolean lowerIsBetter = !"thrpt".equals(result.path("mode").asText());
+                figures.put(name.toString(), new Figure(metric.path("score").asDouble(), lowerIsBetter));
+            }
+            return figures;
+        }
+
+        JsonNode results = report.path("results");
+        figures.put("throughputPerSecond", new Figure(results.path("throughputPerSecond").asDouble(), false));
+        figures.put("errorRate", new Figure(results.path("errorRate").asDouble(), true));
+        for (String section : new String[] {"latencyMs", "firstQuestionMs"}) {
+            Iterator<Map.Entry<String, JsonNode>> percentiles = results.path(section).fields();
+            while (percentiles.hasNext()) {
+                Map.Entry<String, JsonNode> percentile = percentiles.next();
+                figures.put(section + "." + percentile.getKey(), new Figure(percentile.getValue().asDouble(), true));
+            }
+        }
+        return figures;
+    }
+
+    private static final class Figure {
+        private final double value;
+        private final boolean lowerIsBetter;
+
+        private Figure(double value, boolean lowerIsBetter) {
+            this.value = value;
+            this.lowerIsBetter = lowerIsBetter;
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.questiongenerator.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Closed-loop HTTP load against a running instance: each of {@code concurrency} clients sends its next request as
+ * soon as the previous one completes. Requests during the warmup are sent but not recorded. Meant to run against
+ * the {@code stub-llm} profile, so the numbers measure this service and not a real provider.
+ * <p>
+ * Options are {@code key=value} arguments:
+ * <ul>
+ *   <li>{@code url} base URL, default {@code http://localhost:8080}</li>
+ *   <li>{@code mode} {@code generate}, {@code stream}, {@code batch} (one {@code /generate/batch} call of
+ *       {@code batch-size} sets per request) or {@code loop} (the same sets sent one by one to {@code /generate}, as
+ *       callers did before the batch endpoint), default {@code generate}</li>
+ *   <li>{@code batch-size} sets per request in the batch and loop modes, default 10</li>
+ *   <li>{@code concurrency} default 16, or a comma-separated list to step through (e.g. {@code 100,200,400,800}),
+ *       one run per value, to find the concurrency at which throughput stops growing; {@code duration} default {@code PT30S}; {@code warmup} default {@code PT5S}</li>
+ *   <li>{@code distinct-ratio} fraction of requests with a topic never sent before (the rest repeat a few topics
+ *       and can be served from the cache and bank), default 1.0</li>
+ *   <li>{@code include-answers} default true; {@code difficulty} default medium</li>
+ *   <li>{@code out} report file, default {@code target/load.json}</li>
+ * </ul>
+ * The report holds the configuration, throughput and latency percentiles of successful requests (and time to first
+ * question when streaming), question sets per second, so the batch and loop modes compare directly, the error rate, response status counts and a snapshot of the service's own generation and provider timers.
+ */
+public class LoadBenchmark {
+
+    private static final String[] REPEATED_TOPICS = {"Caching", "Databases", "Concurrency", "Networking"};
+    private static final String[] METRICS = {"question.generation", "question.generation.stage", "ai.provider.call",
+            "question.history.write", "question.cache.requests", "question.parse.failures", "question.topup.calls"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final HttpClient client;
+    private final Map<String, String> options;
+    private final String baseUrl;
+    private final String mode;
+    private final boolean stream;
+    private final int setsPerRequest;
+    private final double distinctRatio;
+    private final AtomicLong topicSequence = new AtomicLong();
+
+    private LoadBenchmark(Map<String, String> options) {
+        this.options = options;
+        this.baseUrl = option("url", "http://localhost:8080").replaceAll("/+$", "");
+        this.mode = option("mode", "generate");
+        this.stream = "stream".equals(mode);
+        this.setsPerRequest = "batch".equals(mode) || "loop".equals(mode)
+                ? Integer.parseInt(option("batch-size", "10"))
+                : 1;
+        this.distinctRatio = Double.parseDouble(option("distinct-ratio", "1.0"));
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newCachedThreadPool())
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value, got: " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        Map<String, Object> report = new LoadBenchmark(options).run();
+        System.out.println(new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(report.get("results")));
+        // exec:java leaves the client's selector thread behind otherwise
+        System.exit(0);
+    }
+
+    private Map<String, Object> run() throws Exception {
+        int[] steps = Arrays.stream(option("concurrency", "16").split(",")).map(String::trim)
+                .mapToInt(Integer::parseInt).toArray();
+        Duration duration = Duration.parse(option("duration", "PT30S"));
+        Duration warmup = Duration.parse(option("warmup", "PT5S"));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("benchmark", "load");
+        report.put("timestamp", Instant.now().toString());
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("url", baseUrl);
+        config.put("mode", mode);
+        if (setsPerRequest > 1) {
+            config.put("batchSize", setsPerRequest);
+        }
+        config.put("concurrency", steps.length == 1 ? steps[0] : steps);
+        config.put("duration", duration.toString());
+        config.put("warmup", warmup.toString());
+        config.put("distinctRatio", distinctRatio);
+        config.put("includeAnswers", Boolean.parseBoolean(option("include-answers", "true")));
+        config.put("difficulty", option("difficulty", "medium"));
+        report.put("config", config);
+        if (steps.length == 1) {
+            report.put("results", step(steps[0], duration, warmup));
+        } else {
+            // Each step gets its own warmup, so the service settles at the new concurrency before it is measured
+            List<Map<String, Object>> results = new ArrayList<>();
+            for (int concurrency : steps) {
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("concurrency", concurrency);
+                result.putAll(step(concurrency, duration, warmup));
+                results.add(result);
+                System.out.println("Step " + concurrency + ": " + result.get("throughputPerSecond") + " req/s, "
+                        + result.get("meanInFlight") + " in flight");
+            }
+            report.put("results", results);
+        }
+        report.put("metrics", metrics());
+
+        Path out = Path.of(option("out", "target/load.json"));
+        if (out.getParent() != null) {
+            Files.createDirectories(out.getParent());
+        }
+        objectMapper.writeValue(out.toFile(), report);
+        System.out.println("Report written to " + out.toAbsolutePath());
+        return report;
+    }
+
+    private Map<String, Object> step(int concurrency, Duration duration, Duration warmup) throws InterruptedException {
+        long start = System.nanoTime();
+        long recordFrom = start + warmup.toNanos();
+        long end = recordFrom + duration.toNanos();
+        Recorder[] recorders = new Recorder[concurrency];
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Recorder recorder = new Recorder();
+            recorders[i] = recorder;
+            workers.execute(() -> {
+                while (System.nanoTime() < end) {
+                    long sent = System.nanoTime();
+                    Sample sample = send();
+                    if (sent >= recordFrom) {
+                        recorder.add(sample, System.nanoTime() - sent);
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        // Requests still running at the end are waited for but, like those started in the warmup, not counted
+        workers.awaitTermination(duration.plus(warmup).toSeconds() + 300, TimeUnit.SECONDS);
+        return results(recorders, duration);
+    }
+
+    private Sample send() {
+        if ("batch".equals(mode)) {
+            return sendBatch();
+        }
+        if ("loop".equals(mode)) {
+            for (int i = 0; i < setsPerRequest; i++) {
+                Sample sample = sendOne();
+                if (!"200".equals(sample.status)) {
+                    return sample;
+                }
+            }
+            return new Sample("200", -1);
+        }
+        return sendOne();
+    }
+
+    private Map<String, Object> requestBody() {
+        String topic = ThreadLocalRandom.current().nextDouble() < distinctRatio
+                ? "Topic " + topicSequence.incrementAndGet()
+                : REPEATED_TOPICS[ThreadLocalRandom.current().nextInt(REPEATED_TOPICS.length)];
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("role", "Software Engineer");
+        body.put("topic", topic);
+        body.put("difficulty", option("difficulty", "medium"));
+        body.put("includeAnswers", Boolean.parseBoolean(option("include-answers", "true")));
+        return body;
+    }
+
+    private Sample sendOne() {
+        Map<String, Object> body = requestBody();
+        long sent = System.nanoTime();
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl
+                            + (stream ? "/api/questions/generate/stream" : "/api/questions/generate")))
+                    .timeout(Duration.ofMinutes(3))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                    .build();
+            if (!stream) {
+                HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                return new Sample(String.valueOf(response.statusCode()), -1);
+            }
+            HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            long firstQuestion = -1;
+            String status = String.valueOf(response.statusCode());
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (firstQuestion < 0 && line.startsWith("event:question")) {
+                        firstQuestion = System.nanoTime() - sent;
+                    } else if (line.startsWith("event:error")) {
+                        // Failures after the stream has started still arrive with status 200
+                        status = "stream-error";
+                    }
+                }
+            }
+            return new Sample(status, firstQuestion);
+        } catch (IOException e) {
+            return new Sample(e.getClass().getSimpleName(), -1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Sample("interrupted", -1);
+        }
+    }
+
+    private Sample sendBatch() {
+        List<Map<String, Object>> requests = new ArrayList<>(setsPerRequest);
+        for (int i = 0; i < setsPerRequest; i++) {
+            requests.add(requestBody());
+        }
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/questions/generate/batch"))
+                    .timeout(Duration.ofMinutes(5))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(Map.of("requests", requests))))
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            // A batch answers 200 even when some of its items failed
+            if (response.statusCode() == 200 && objectMapper.readTree(response.body()).path("failed").asInt() > 0) {
+                return new Sample("item-errors", -1);
+            }
+            return new Sample(String.valueOf(response.statusCode()), -1);
+        } catch (IOException e) {
+            return new Sample(e.getClass().getSimpleName(), -1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Sample("interrupted", -1);
+        }
+    }
+
+    private Map<String, Object> results(Recorder[] recorders, Duration duration) {
+        List<Long> latencies = new ArrayList<>();
+        long requests = 0;
+        List<Long> firstQuestions = new ArrayList<>();
+        Map<String, Long> statuses = new TreeMap<>();
+        long errors = 0;
+        for (Recorder recorder : recorders) {
+            latencies.addAll(recorder.latencies);
+            firstQuestions.addAll(recorder.firstQuestions);
+            recorder.statuses.forEach((status, count) -> statuses.merge(status, count, Long::sum));
+            errors += recorder.errors;
+            requests += recorder.requests;
+        }
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("requests", requests);
+        results.put("errors", errors);
+        results.put("errorRate", requests == 0 ? 0.0 : (double) errors / requests);
+        // Rejections are fast, so throughput and latency only count successful requests
+        results.put("throughputPerSecond", latencies.size() * 1000.0 / duration.toMillis());
+        results.put("setsPerSecond", (double) latencies.size() * setsPerRequest * 1000.0 / duration.toMillis());
+        results.put("latencyMs", percentiles(latencies));
+        // Little's law: successful requests the service held at once, on average
+        results.put("meanInFlight", latencies.stream().mapToLong(Long::longValue).sum() / 1e6 / duration.toMillis());
+        if (stream) {
+            results.put("firstQuestionMs", percentiles(firstQuestions));
+        }
+        results.put("statuses", statuses);
+        return results;
+    }
+
+    private static Map<String, Object> percentiles(List<Long> nanos) {
+        long[] sorted = nanos.stream().mapToLong(Long::longValue).sorted().toArray();
+        Map<String, Object> percentiles = new LinkedHashMap<>();
+        if (sorted.length == 0) {
+            return percentiles;
+        }
+        percentiles.put("mean", Arrays.stream(sorted).average().orElse(0) / 1e6);
+        for (double p : new double[] {0.5, 0.9, 0.95, 0.99}) {
+            int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+            percentiles.put("p" + Math.round(p * 100), sorted[Math.max(0, index)] / 1e6);
+        }
+        percentiles.put("max", sorted[sorted.length - 1] / 1e6);
+        return percentiles;
+    }
+
+    // Server-side view of the same run, from the actuator; missing metrics are left out
+    private Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        for (String name : METRICS) {
+            try {
+                HttpResponse<String> response = client.send(
+                        HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/metrics/" + name)).GET().build(),
+                        HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 200) {
+                    continue;
+                }
+                Map<String, Double> measurements = new LinkedHashMap<>();
+                for (JsonNode measurement : objectMapper.readTree(response.body()).path("measurements")) {
+                    measurements.put(measurement.path("statistic").asText(), measurement.path("value").asDouble());
+                }
+                metrics.put(name, measurements);
+            } catch (IOException e) {
+                System.err.println("Could not read metric " + name + ": " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return metrics;
+    }
+
+    private String option(String key, String defaultValue) {
+        return options.getOrDefault(key, defaultValue);
+    }
+
+    private static final class Sample {
+        private final String status;
+        private final long firstQuestionNanos;
+
+        private Sample(String status, long firstQuestionNanos) {
+            this.status = status;
+            this.firstQuestionNanos = firstQuestionNanos;
+        }
+    }
+
+    // One per client thread, so recording needs no synchronization
+    private static final class Recorder {
+        private final List<Long> latencies = new ArrayList<>();
+        private final List<Long> firstQuestions = new ArrayList<>();
+        private final Map<String, Long> statuses = new HashMap<>();
+        private long requests;
+        private long errors;
+
+        private void add(Sample sample, long latencyNanos) {
+            requests++;
+            statuses.merge(sample.status, 1L, Long::sum);
+            if (!"200".equals(sample.status)) {
+                errors++;
+                return;
+            }
+            latencies.add(latencyNanos);
+            if (sample.firstQuestionNanos >= 0) {
+                firstQuestions.add(sample.firstQuestionNanos);
+            }
+        }
+    }
+}
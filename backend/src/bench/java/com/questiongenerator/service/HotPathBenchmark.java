@@ -0,0 +1,151 @@
+package com.questiongenerator.service;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.questiongenerator.dto.QuestionRequest;
+import com.questiongenerator.dto.QuestionResponse;
+
+/**
+ * In-process hot paths of a generation: building the prompt, counting tokens, parsing the response (in one pass or
+ * incrementally as it streams) and signing questions for near-duplicate detection. The responses are shaped like
+ * what the models return, including the usual defects the parser has to repair. {@code parseResponseBaseline} runs
+ * the multi-pass parsing that the single-pass parser replaced, so one run gives the before and after.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HotPathBenchmark {
+
+    private String question;
+    private TokenEstimator tokenEstimator;
+    private PromptTemplates promptTemplates;
+    private QuestionRequest request;
+
+    /**
+     * A full five plus three response with answers, in the given shape.
+     */
+    @State(Scope.Benchmark)
+    public static class Response {
+
+        @Param({"clean", "fenced", "truncated", "malformed"})
+        public String shape;
+
+        private String text;
+
+        @Setup
+        public void setUp() {
+            String clean = response(5, 3);
+            text = switch (shape) {
+                case "fenced" -> "Here are your questions:\n```json\n" + clean + "\n```\nLet me know if you need more.";
+                case "truncated" -> clean.substring(0, clean.length() * 2 / 3);
+                case "malformed" -> clean.replace("\"question\": \"How", "// next\n\"question\": \"How\n")
+                        .replace("\"\n      }", "\",\n      }");
+                default -> clean;
+            };
+        }
+    }
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        question = "How would you design a cache eviction policy for a read-heavy service with strict latency targets?";
+
+        tokenEstimator = new TokenEstimator();
+        promptTemplates = new PromptTemplates();
+        set(promptTemplates, "tokenEstimator", tokenEstimator);
+        set(promptTemplates, "tokensPerQuestion", 40);
+        set(promptTemplates, "tokensPerAnswer", 120);
+        set(promptTemplates, "overheadTokens", 30);
+        set(promptTemplates, "margin", 1.5);
+        set(promptTemplates, "minTokens", 256);
+        promptTemplates.init();
+        request = new QuestionRequest("Backend Engineer", "Distributed Systems", "medium", true);
+    }
+
+    @Benchmark
+    public int parseResponse(Response response) {
+        List<QuestionResponse.Question> technical = new ArrayList<>();
+        List<QuestionResponse.Question> behavioral = new ArrayList<>();
+        try {
+            QuestionResponseParser.parse(response.text, technical, behavioral);
+        } catch (IOException e) {
+            // Questions read before the error are kept, as in QuestionService
+        }
+        return technical.size() + behavioral.size();
+    }
+
+    @Benchmark
+    public int parseResponseBaseline(Response response) {
+        QuestionResponse parsed = BaselineResponseParser.parse(response.text);
+        return parsed.getTechnicalQuestions().size() + parsed.getBehavioralQuestions().size();
+    }
+
+    @Benchmark
+    public int parseIncrementally(Response response, Blackhole blackhole) {
+        IncrementalQuestionParser parser = new IncrementalQuestionParser(
+                (section, index, parsed) -> blackhole.consume(parsed));
+        // Fed in chunks of the size a streaming provider sends
+        String text = response.text;
+        for (int start = 0; start < text.length(); start += 16) {
+            parser.feed(text.subSequence(start, Math.min(text.length(), start + 16)));
+        }
+        return parser.getQuestionCount();
+    }
+
+    @Benchmark
+    public int countTokens(Response response) {
+        return tokenEstimator.count(response.text);
+    }
+
+    @Benchmark
+    public Prompt buildPrompt() {
+        return promptTemplates.build(request, 5, 3, List.of());
+    }
+
+    @Benchmark
+    public long[] signQuestion() {
+        return QuestionSignature.of(question);
+    }
+
+    private static String response(int technical, int behavioral) {
+        StringBuilder json = new StringBuilder("{\n  \"technicalQuestions\": [\n");
+        appendQuestions(json, technical, "How would you partition a write-heavy table");
+        json.append("  ],\n  \"behavioralQuestions\": [\n");
+        appendQuestions(json, behavioral, "How did you handle a disagreement about a deadline");
+        return json.append("  ]\n}").toString();
+    }
+
+    private static void appendQuestions(StringBuilder json, int count, String stem) {
+        for (int i = 0; i < count; i++) {
+            json.append("    {\n      \"question\": \"").append(stem).append(" (variant ").append(i).append(")?\",\n")
+                    .append("      \"answer\": \"Start by stating the constraints, then walk through the trade-offs, ")
+                    .append("the failure modes and how you would measure the result.\"\n      }")
+                    .append(i < count - 1 ? ",\n" : "\n");
+        }
+    }
+
+    private static void set(Object target, String name, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
@@ -0,0 +1,161 @@
+package com.questiongenerator.service;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Near-duplicate lookups against a large similarity index. The index is filled with templated questions like the
+ * ones the models produce, and each lookup is a stored question with one word changed, so it has true neighbours.
+ * Sampled time gives the latency percentiles; the top-10 recall against a brute-force scan of the same signatures
+ * is printed once the index is built, so the scan budget ({@code maxCandidates}) can be traded against it:
+ * <pre>
+ * mvn -Pbench compile exec:exec@jmh -Dbench.args="SimilarityLookup -p maxCandidates=5000,10000,20000"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SimilarityLookupBenchmark {
+
+    private static final int QUERIES = 1024;
+    private static final int RECALL_QUERIES = 200;
+    private static final int LIMIT = 10;
+
+    private static final String[] OPENINGS = {"How would you", "Explain how you would", "Describe how to",
+            "What is the best way to", "Walk me through how you would", "Tell me about a time you had to",
+            "What trade-offs matter when you", "How do you decide how to"};
+    private static final String[] ACTIONS = {"design", "scale", "debug", "test", "monitor", "secure", "migrate",
+            "optimize", "partition", "cache", "replicate", "deploy", "refactor", "document", "review", "profile"};
+    private static final String[] OBJECTS = {"queue", "database", "service", "cache", "API", "scheduler", "index",
+            "pipeline", "gateway", "cluster", "ledger", "feed", "search engine", "rate limiter", "load balancer",
+            "message broker", "job runner", "session store", "event log", "payment flow"};
+    private static final String[] CONTEXTS = {"under heavy load", "with strict latency targets", "across regions",
+            "for a small team", "with limited memory", "during an outage", "without downtime", "on a tight deadline"};
+    private static final String[] SYLLABLES = {"ka", "lo", "mi", "ter", "van", "sol", "rin", "dex", "pho", "tan",
+            "gru", "bel", "nor", "qui", "zen", "mar", "fil", "op", "tra", "cy"};
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"0.75"})
+    public double threshold;
+
+    @Param({"10000"})
+    public int maxCandidates;
+
+    private QuestionSimilarityIndex index;
+    private float[][] queries;
+    private int next;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        index = new QuestionSimilarityIndex();
+        set(index, "enabled", true);
+        set(index, "maxCandidates", maxCandidates);
+
+        Random random = new Random(42);
+        long[] signatures = new long[size * QuestionSignature.WORDS];
+        String[] sampled = new String[QUERIES];
+        for (int id = 0; id < size; id++) {
+            String text = question(random);
+            long[] signature = QuestionSignature.of(text);
+            System.arraycopy(signature, 0, signatures, id * QuestionSignature.WORDS, QuestionSignature.WORDS);
+            index.add(id, QuestionCatalog.hash(text), text);
+            if (id % (size / QUERIES) == 0 && id / (size / QUERIES) < QUERIES) {
+                sampled[id / (size / QUERIES)] = text;
+            }
+        }
+
+        queries = new float[QUERIES][];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = QuestionSignature.project(changeOneWord(sampled[i], random));
+        }
+        System.out.printf("%nTop-%d recall at %.2f with %d candidates over %d lookups: %.3f%n", LIMIT, threshold,
+                maxCandidates, RECALL_QUERIES, recall(signatures));
+    }
+
+    @Benchmark
+    public List<QuestionSimilarityIndex.Match> findSimilar() {
+        float[] query = queries[next++ & (QUERIES - 1)];
+        return index.findSimilar(query, threshold, LIMIT);
+    }
+
+    /**
+     * Share of the true top matches (ties at the cut included) that the index returns.
+     */
+    private double recall(long[] signatures) {
+        int maxDistance = QuestionSignature.maxDistance(threshold);
+        long expected = 0;
+        long hits = 0;
+        for (int i = 0; i < RECALL_QUERIES; i++) {
+            long[] query = QuestionSignature.pack(queries[i]);
+            int[] distances = new int[size];
+            int within = 0;
+            for (int id = 0; id < size; id++) {
+                int distance = QuestionSignature.distance(query, 0, signatures, id * QuestionSignature.WORDS);
+                if (distance <= maxDistance) {
+                    distances[within++] = distance;
+                }
+            }
+            if (within == 0) {
+                continue;
+            }
+            Arrays.sort(distances, 0, within);
+            int wanted = Math.min(LIMIT, within);
+            double cut = QuestionSignature.similarity(distances[wanted - 1]);
+            expected += wanted;
+            hits += Math.min(wanted, index.findSimilar(queries[i], threshold, LIMIT).stream()
+                    .filter(match -> match.getSimilarity() >= cut)
+                    .count());
+        }
+        return expected == 0 ? 1.0 : (double) hits / expected;
+    }
+
+    private static String question(Random random) {
+        return pick(OPENINGS, random) + " " + pick(ACTIONS, random) + " a " + word(random) + " "
+                + pick(OBJECTS, random) + " " + pick(CONTEXTS, random) + " for the " + word(random) + " team?";
+    }
+
+    private static String changeOneWord(String text, Random random) {
+        String[] words = text.split(" ");
+        words[random.nextInt(words.length)] = word(random);
+        return String.join(" ", words);
+    }
+
+    private static String word(Random random) {
+        int syllables = 2 + random.nextInt(2);
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < syllables; i++) {
+            word.append(pick(SYLLABLES, random));
+        }
+        return word.toString();
+    }
+
+    private static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static void set(Object target, String name, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
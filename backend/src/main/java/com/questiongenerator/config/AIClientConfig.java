@@ -0,0 +1,182 @@
+package com.questiongenerator.config;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.http.HttpClient;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.questiongenerator.service.ProviderQuotaRegistry;
+import com.theokanning.openai.client.OpenAiApi;
+import com.theokanning.openai.service.OpenAiService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import retrofit2.Retrofit;
+import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
+
+/**
+ * Long-lived HTTP clients for the AI providers. Both are built once so connections (and their TLS
+ * sessions) are kept alive and reused across generations instead of being set up per request.
+ */
+@Configuration
+public class AIClientConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(AIClientConfig.class);
+
+    // java.net.http.HttpClient reads its pool settings from system properties once, when its classes are first
+    // loaded, and for the whole JVM; they can only be given on the command line (-D), not set from here
+    private static final String JDK_KEEPALIVE_PROPERTY = "jdk.httpclient.keepalive.timeout";
+    private static final String JDK_POOL_SIZE_PROPERTY = "jdk.httpclient.connectionPoolSize";
+
+    @Value("${ai.http.keep-alive:PT5M}")
+    private Duration keepAlive;
+
+    @Value("${ai.http.max-idle-connections:20}")
+    private int maxIdleConnections;
+
+    @Value("${huggingface.http.connect-timeout:PT10S}")
+    private Duration huggingFaceConnectTimeout;
+
+    @Value("${openai.api.key:}")
+    private String openAiApiKey;
+
+    @Value("${openai.api.base-url:https://api.openai.com/}")
+    private String openAiBaseUrl;
+
+    @Value("${openai.http.connect-timeout:PT10S}")
+    private Duration openAiConnectTimeout;
+
+    @Value("${openai.http.read-timeout:PT2M}")
+    private Duration openAiReadTimeout;
+
+    @Value("${openai.http.max-requests:256}")
+    private int openAiMaxRequests;
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService huggingFaceHttpExecutor() {
+        // Only runs response callbacks; the client itself is non-blocking
+        return Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()),
+                new CustomizableThreadFactory("hf-http-"));
+    }
+
+    @Bean
+    public HttpClient huggingFaceHttpClient(ExecutorService huggingFaceHttpExecutor, MeterRegistry meterRegistry)
+            throws NoSuchAlgorithmException {
+        if (System.getProperty(JDK_KEEPALIVE_PROPERTY) == null || System.getProperty(JDK_POOL_SIZE_PROPERTY) == null) {
+            logger.info("Hugging Face client uses the JDK's default connection pool; start the JVM with -D{}={} -D{}={} "
+                    + "to match ai.http.*", JDK_KEEPALIVE_PROPERTY, keepAlive.toSeconds(), JDK_POOL_SIZE_PROPERTY,
+                    maxIdleConnections);
+        }
+
+        Counter handshakes = handshakeCounter(meterRegistry, "huggingface");
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(huggingFaceConnectTimeout)
+                .executor(huggingFaceHttpExecutor)
+                .sslContext(new HandshakeCountingSSLContext(SSLContext.getDefault(), handshakes::increment))
+                .build();
+    }
+
+    @Bean
+    public OkHttpClient openAiHttpClient(MeterRegistry meterRegistry, ProviderQuotaRegistry quotaRegistry) {
+        ConnectionPool connectionPool = new ConnectionPool(maxIdleConnections, keepAlive.toMillis(), TimeUnit.MILLISECONDS);
+        Gauge.builder("ai.client.pool.connections", connectionPool, ConnectionPool::connectionCount)
+                .tag("provider", "openai").tag("state", "total")
+                .description("Connections held in the provider client's pool")
+                .register(meterRegistry);
+        Gauge.builder("ai.client.pool.connections", connectionPool, ConnectionPool::idleConnectionCount)
+                .tag("provider", "openai").tag("state", "idle")
+                .description("Connections held in the provider client's pool")
+                .register(meterRegistry);
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(openAiMaxRequests);
+        dispatcher.setMaxRequestsPerHost(openAiMaxRequests);
+        Gauge.builder("ai.client.requests.active", dispatcher, Dispatcher::runningCallsCount)
+                .tag("provider", "openai")
+                .register(meterRegistry);
+
+        Counter handshakes = handshakeCounter(meterRegistry, "openai");
+        Counter connections = Counter.builder("ai.client.connections.created")
+                .tag("provider", "openai")
+                .description("New connections opened (pool misses)")
+                .register(meterRegistry);
+
+        return new OkHttpClient.Builder()
+                .connectionPool(connectionPool)
+                .dispatcher(dispatcher)
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(openAiConnectTimeout)
+                .readTimeout(openAiReadTimeout)
+                .writeTimeout(openAiReadTimeout)
+                .addInterceptor(chain -> {
+                    Request.Builder request = chain.request().newBuilder();
+                    if (openAiApiKey != null && !openAiApiKey.isBlank()) {
+                        request.header("Authorization", "Bearer " + openAiApiKey.trim());
+                    }
+                    Response response = chain.proceed(request.build());
+                    // Rate-limit headers and 429s adjust the provider's quota (streamed responses included)
+                    quotaRegistry.onResponse("openai", response.code(), response::header);
+                    return response;
+                })
+                .eventListener(new EventListener() {
+                    @Override
+                    public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+                        connections.increment();
+                    }
+
+                    @Override
+                    public void secureConnectEnd(Call call, Handshake handshake) {
+                        handshakes.increment();
+                    }
+                })
+                .build();
+    }
+
+    // Async call adapter so Single-returning API methods complete on OkHttp's dispatcher, not the caller
+    @Bean
+    public OpenAiApi openAiApi(OkHttpClient openAiHttpClient) {
+        Retrofit.Builder builder = OpenAiService.defaultRetrofit(openAiHttpClient, OpenAiService.defaultObjectMapper())
+                .newBuilder()
+                .baseUrl(openAiBaseUrl);
+        builder.callAdapterFactories().clear();
+        builder.addCallAdapterFactory(RxJava2CallAdapterFactory.createAsync());
+        return builder.build().create(OpenAiApi.class);
+    }
+
+    @Bean
+    public OpenAiService openAiService(OpenAiApi openAiApi) {
+        return new OpenAiService(openAiApi);
+    }
+
+    private static Counter handshakeCounter(MeterRegistry meterRegistry, String provider) {
+        return Counter.builder("ai.client.tls.handshakes")
+                .tag("provider", provider)
+                .description("TLS handshakes performed by the provider client")
+                .register(meterRegistry);
+    }
+}
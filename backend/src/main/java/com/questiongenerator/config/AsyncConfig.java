@@ -0,0 +1,32 @@
+package com.questiongenerator.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class AsyncConfig {
+
+    @Value("${question.executor.core-size:8}")
+    private int coreSize;
+
+    @Value("${question.executor.max-size:32}")
+    private int maxSize;
+
+    @Value("${question.executor.queue-capacity:100}")
+    private int queueCapacity;
+
+    // Runs generations that outlive the request thread (e.g. streaming responses)
+    @Bean
+    public ThreadPoolTaskExecutor generationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("generation-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -0,0 +1,38 @@
+package com.questiongenerator.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.questiongenerator.service.QuestionCache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+@Configuration
+public class CacheMetricsConfig {
+
+    @Bean
+    public MeterBinder questionCacheMetrics(QuestionCache cache) {
+        return registry -> {
+            FunctionCounter.builder("question.cache.requests", cache, QuestionCache::hitCount)
+                    .tag("result", "hit")
+                    .description("Question cache lookups served from the cache")
+                    .register(registry);
+            FunctionCounter.builder("question.cache.requests", cache, QuestionCache::missCount)
+                    .tag("result", "miss")
+                    .description("Question cache lookups that went to the AI provider")
+                    .register(registry);
+            FunctionCounter.builder("question.cache.requests", cache, QuestionCache::refreshCount)
+                    .tag("result", "refresh")
+                    .description("Cache hits deliberately regenerated by the freshness policy")
+                    .register(registry);
+            FunctionCounter.builder("question.cache.evictions", cache, QuestionCache::evictionCount)
+                    .description("Entries evicted for size or TTL")
+                    .register(registry);
+            Gauge.builder("question.cache.size", cache, QuestionCache::size)
+                    .description("Current number of cached question sets")
+                    .register(registry);
+        };
+    }
+}
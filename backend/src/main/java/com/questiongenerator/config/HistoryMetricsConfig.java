@@ -0,0 +1,37 @@
+package com.questiongenerator.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.questiongenerator.service.HistoryWriter;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+@Configuration
+public class HistoryMetricsConfig {
+
+    @Bean
+    public MeterBinder historyWriterMetrics(HistoryWriter writer) {
+        return registry -> {
+            Gauge.builder("question.history.queue.size", writer, HistoryWriter::queueSize)
+                    .description("History rows waiting to be written")
+                    .register(registry);
+            FunctionCounter.builder("question.history.writes", writer, HistoryWriter::writtenCount)
+                    .tag("result", "success")
+                    .description("History rows written to the database")
+                    .register(registry);
+            FunctionCounter.builder("question.history.writes", writer, HistoryWriter::failedCount)
+                    .tag("result", "failure")
+                    .description("History rows that could not be written")
+                    .register(registry);
+            FunctionCounter.builder("question.history.caller.writes", writer, HistoryWriter::writtenByCallerCount)
+                    .description("History rows written synchronously because the queue was full")
+                    .register(registry);
+            FunctionCounter.builder("question.history.batches", writer, HistoryWriter::batchCount)
+                    .description("saveAll calls issued by the history writer")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package com.questiongenerator.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.questiongenerator.service.QuestionBank;
+import com.questiongenerator.service.QuestionSimilarityIndex;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+@Configuration
+public class QuestionBankMetricsConfig {
+
+    @Bean
+    public MeterBinder questionBankMetrics(QuestionBank bank) {
+        return registry -> {
+            FunctionCounter.builder("question.bank.requests", bank, QuestionBank::fullHitCount)
+                    .tag("result", "full")
+                    .description("Requests served entirely from the question bank")
+                    .register(registry);
+            FunctionCounter.builder("question.bank.requests", bank, QuestionBank::partialHitCount)
+                    .tag("result", "partial")
+                    .description("Requests partly served from the question bank and topped up by the provider")
+                    .register(registry);
+            FunctionCounter.builder("question.bank.requests", bank, QuestionBank::missCount)
+                    .tag("result", "miss")
+                    .description("Requests the question bank could not serve")
+                    .register(registry);
+            FunctionCounter.builder("question.bank.questions", bank, QuestionBank::questionsFromBankCount)
+                    .tag("source", "bank")
+                    .description("Questions served from the question bank")
+                    .register(registry);
+            FunctionCounter.builder("question.bank.questions", bank, QuestionBank::questionsGeneratedCount)
+                    .tag("source", "generated")
+                    .description("Questions generated by the provider")
+                    .register(registry);
+            FunctionCounter.builder("question.bank.tokens.saved", bank, QuestionBank::estimatedTokensSaved)
+                    .description("Estimated completion tokens not spent thanks to the question bank")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder questionSimilarityMetrics(QuestionSimilarityIndex index) {
+        return registry -> Gauge.builder("question.similarity.index.size", index, QuestionSimilarityIndex::size)
+                .description("Stored questions in the near-duplicate index")
+                .register(registry);
+    }
+}
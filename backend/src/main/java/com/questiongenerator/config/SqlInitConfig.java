@@ -0,0 +1,53 @@
+package com.questiongenerator.config;
+
+import java.sql.DatabaseMetaData;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.sql.init.SqlDataSourceScriptDatabaseInitializer;
+import org.springframework.boot.autoconfigure.sql.init.SqlInitializationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.boot.sql.init.DatabaseInitializationMode;
+import org.springframework.boot.sql.init.DatabaseInitializationSettings;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+/**
+ * Runs schema-{platform}.sql for the database actually connected, so PostgreSQL-only DDL never reaches H2 or
+ * any other database. The platform comes from spring.sql.init.platform when set, otherwise from the datasource's
+ * product name (postgresql, h2, mysql, ...); a platform without a script runs nothing. Replaces Spring Boot's own
+ * initializer, which would use the fixed platform "all"; it still runs after Hibernate's ddl update.
+ */
+@Configuration
+@EnableConfigurationProperties(SqlInitializationProperties.class)
+public class SqlInitConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlInitConfig.class);
+
+    @Bean
+    public SqlDataSourceScriptDatabaseInitializer dataSourceScriptDatabaseInitializer(DataSource dataSource,
+                                                                                   SqlInitializationProperties properties) {
+        DatabaseInitializationSettings settings = SqlDataSourceScriptDatabaseInitializer.getSettings(properties);
+        if (properties.getMode() != DatabaseInitializationMode.NEVER && properties.getSchemaLocations() == null) {
+            String platform = "all".equals(properties.getPlatform()) ? detectPlatform(dataSource) : properties.getPlatform();
+            logger.info("Schema script platform: {}", platform);
+            settings.setSchemaLocations(List.of("optional:classpath*:schema-" + platform + ".sql"));
+        }
+        return new SqlDataSourceScriptDatabaseInitializer(dataSource, settings);
+    }
+
+    private static String detectPlatform(DataSource dataSource) {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            return DatabaseDriver.fromProductName(product).getId();
+        } catch (MetaDataAccessException e) {
+            throw new IllegalStateException("Could not detect the database platform for schema scripts", e);
+        }
+    }
+}
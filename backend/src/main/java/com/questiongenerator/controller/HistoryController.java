@@ -2,20 +2,31 @@ package com.questiongenerator.controller;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.questiongenerator.dto.HistoryCursor;
+import com.questiongenerator.dto.HistoryPage;
 import com.questiongenerator.dto.HistoryResponse;
+import com.questiongenerator.dto.HistorySearchCriteria;
+import com.questiongenerator.dto.HistorySummary;
 import com.questiongenerator.dto.QuestionResponse;
+import com.questiongenerator.entity.HistoryQuestion;
 import com.questiongenerator.entity.QuestionHistory;
+import com.questiongenerator.repository.HistoryQuestionRepository;
 import com.questiongenerator.repository.QuestionHistoryRepository;
+import com.questiongenerator.service.HistorySearchService;
+import com.questiongenerator.service.IncrementalQuestionParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/history")
@@ -28,14 +39,39 @@ public class HistoryController {
     @Autowired
     private QuestionHistoryRepository historyRepository;
     
+    @Autowired
+    private HistoryQuestionRepository historyQuestionRepository;
+    
+    @Autowired
+    private HistorySearchService historySearchService;
+    
+    @Value("${question.history.page.default-size:20}")
+    private int defaultPageSize;
+    
+    @Value("${question.history.page.max-size:100}")
+    private int maxPageSize;
+    
+    /**
+     * Newest-first history summaries, one keyset page at a time. Pass the returned nextCursor to get
+     * the next page; cost stays flat however deep the client pages.
+     */
     @GetMapping
-    public ResponseEntity<List<HistoryResponse>> getRecentHistory() {
+    public ResponseEntity<HistoryPage> getRecentHistory(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
         try {
-            List<QuestionHistory> historyList = historyRepository.findTop20ByOrderByCreatedAtDesc();
-            List<HistoryResponse> responseList = historyList.stream()
-                    .map(this::convertToResponse)
-                    .collect(Collectors.toList());
-            return ResponseEntity.ok(responseList);
+            int pageSize = pageSize(limit);
+            PageRequest page = PageRequest.of(0, pageSize + 1);
+            List<HistorySummary> rows;
+            if (cursor == null || cursor.isEmpty()) {
+                rows = historyRepository.findSummaries(page);
+            } else {
+                HistoryCursor after = HistoryCursor.decode(cursor);
+                rows = historyRepository.findSummariesBefore(after.getCreatedAt(), after.getId(), page);
+            }
+            return ResponseEntity.ok(toPage(rows, pageSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             logger.error("Error fetching history: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().build();
@@ -70,34 +106,57 @@ public class HistoryController {
         }
     }
     
+    /**
+     * Combined search: every given filter must match. role and topic match substrings, difficulty exactly
+     * (all case-insensitive); from/to bound createdAt (ISO date-time, to is exclusive) and q is free text
+     * across role, topic and the questions themselves. Paged like the listing above.
+     */
     @GetMapping("/search")
-    public ResponseEntity<List<HistoryResponse>> searchHistory(
+    public ResponseEntity<HistoryPage> searchHistory(
             @RequestParam(required = false) String role,
             @RequestParam(required = false) String topic,
-            @RequestParam(required = false) String difficulty) {
+            @RequestParam(required = false) String difficulty,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
         try {
-            List<QuestionHistory> results;
-            
-            if (role != null && !role.isEmpty()) {
-                results = historyRepository.findByRoleContainingIgnoreCaseOrderByCreatedAtDesc(role);
-            } else if (topic != null && !topic.isEmpty()) {
-                results = historyRepository.findByTopicContainingIgnoreCaseOrderByCreatedAtDesc(topic);
-            } else if (difficulty != null && !difficulty.isEmpty()) {
-                results = historyRepository.findByDifficultyIgnoreCaseOrderByCreatedAtDesc(difficulty);
-            } else {
-                results = historyRepository.findTop20ByOrderByCreatedAtDesc();
-            }
+            HistorySearchCriteria criteria = new HistorySearchCriteria(
+                    emptyToNull(role), emptyToNull(topic), emptyToNull(difficulty), from, to, emptyToNull(q));
+            HistoryCursor after = cursor == null || cursor.isEmpty() ? null : HistoryCursor.decode(cursor);
             
-            List<HistoryResponse> responseList = results.stream()
-                    .map(this::convertToResponse)
-                    .collect(Collectors.toList());
-            return ResponseEntity.ok(responseList);
+            int pageSize = pageSize(limit);
+            List<HistorySummary> rows = historySearchService.search(criteria, after, pageSize + 1);
+            return ResponseEntity.ok(toPage(rows, pageSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             logger.error("Error searching history: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().build();
         }
     }
     
+    private int pageSize(Integer limit) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+        return Math.max(1, Math.min(limit, maxPageSize));
+    }
+    
+    // One extra row is fetched to tell whether another page exists
+    private HistoryPage toPage(List<HistorySummary> rows, int pageSize) {
+        if (rows.size() <= pageSize) {
+            return new HistoryPage(rows, null);
+        }
+        List<HistorySummary> items = new ArrayList<>(rows.subList(0, pageSize));
+        return new HistoryPage(items, HistoryCursor.after(items.get(pageSize - 1)).encode());
+    }
+    
+    private static String emptyToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+    
     private HistoryResponse convertToResponse(QuestionHistory history) {
         HistoryResponse response = new HistoryResponse();
         response.setId(history.getId());
@@ -107,6 +166,25 @@ public class HistoryController {
         response.setIncludeAnswers(history.isIncludeAnswers());
         response.setCreatedAt(history.getCreatedAt());
         
+        // Normalized rows when present; entries not yet migrated still only have the JSON columns
+        List<HistoryQuestion> items = historyQuestionRepository.findWithQuestionsByHistoryId(history.getId());
+        if (!items.isEmpty()) {
+            List<QuestionResponse.Question> technical = new ArrayList<>();
+            List<QuestionResponse.Question> behavioral = new ArrayList<>();
+            for (HistoryQuestion item : items) {
+                QuestionResponse.Question question = new QuestionResponse.Question(
+                        item.getQuestion().getQuestionText(), item.getAnswer());
+                if (IncrementalQuestionParser.BEHAVIORAL.equals(item.getSection())) {
+                    behavioral.add(question);
+                } else {
+                    technical.add(question);
+                }
+            }
+            response.setTechnicalQuestions(technical);
+            response.setBehavioralQuestions(behavioral);
+            return response;
+        }
+        
         // Parse JSON strings to Question lists
         try {
             if (history.getTechnicalQuestions() != null) {
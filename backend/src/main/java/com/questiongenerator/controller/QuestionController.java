@@ -1,16 +1,43 @@
 package com.questiongenerator.controller;
 
+import com.questiongenerator.dto.BatchQuestionRequest;
+import com.questiongenerator.dto.BatchQuestionResponse;
+import com.questiongenerator.dto.GenerationJobRequest;
+import com.questiongenerator.dto.GenerationJobResponse;
+import com.questiongenerator.dto.HealthResponse;
+import com.questiongenerator.dto.QuestionBankStats;
 import com.questiongenerator.dto.QuestionRequest;
 import com.questiongenerator.dto.QuestionResponse;
+import com.questiongenerator.dto.QuestionStreamEvent;
+import com.questiongenerator.service.BatchGenerationService;
+import com.questiongenerator.service.Caller;
+import com.questiongenerator.service.GenerationJobService;
+import com.questiongenerator.service.ProviderResponseException;
+import com.questiongenerator.service.QuestionBank;
 import com.questiongenerator.service.QuestionService;
+import com.questiongenerator.service.QuestionSimilarityIndex;
+import com.questiongenerator.service.QueueFullException;
+import com.questiongenerator.service.RateLimitedException;
+import com.questiongenerator.service.RetryPolicy;
+import com.questiongenerator.service.UnusableResponseException;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
 @RestController
 @RequestMapping("/api/questions")
 @CrossOrigin(origins = "http://localhost:3000")
@@ -18,24 +45,259 @@ public class QuestionController {
     
     private static final Logger logger = LoggerFactory.getLogger(QuestionController.class);
     
+    // Optional caller identity; questions served from the question bank are not repeated for the same id
+    private static final String USER_ID_HEADER = "X-User-Id";
+    
+    // Client identity for fair sharing of provider capacity (see GenerationScheduler); the tenant id wins
+    private static final String TENANT_ID_HEADER = "X-Tenant-Id";
+    private static final String API_KEY_HEADER = "X-API-Key";
+    
+    private static final int MAX_SIMILAR = 50;
+    
     @Autowired
     private QuestionService questionService;
     
+    @Autowired
+    private BatchGenerationService batchGenerationService;
+    
+    @Autowired
+    private GenerationJobService generationJobService;
+    
+    @Autowired
+    private QuestionBank questionBank;
+    
+    @Autowired
+    private QuestionSimilarityIndex similarityIndex;
+    
+    @Autowired
+    private RetryPolicy retryPolicy;
+    
+    @Value("${question.stream.timeout-ms:180000}")
+    private long streamTimeoutMs;
+    
+    // Returning a future releases the servlet thread while the provider call is in flight
     @PostMapping("/generate")
-    public ResponseEntity<?> generateQuestions(@Valid @RequestBody QuestionRequest request) {
+    public CompletableFuture<ResponseEntity<?>> generateQuestions(@Valid @RequestBody QuestionRequest request,
+                                                                  @RequestHeader(value = USER_ID_HEADER, required = false) String userId,
+                                                                  @RequestHeader(value = TENANT_ID_HEADER, required = false) String tenantId,
+                                                                  @RequestHeader(value = API_KEY_HEADER, required = false) String apiKey) {
+        CompletableFuture<QuestionResponse> generation;
         try {
-            QuestionResponse response = questionService.generateQuestions(request);
-            return ResponseEntity.ok(response);
+            generation = questionService.generateQuestionsAsync(request, userId,
+                    Caller.interactive(Caller.tenantOf(tenantId, apiKey)));
         } catch (Exception e) {
-            logger.error("Error generating questions: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("Error generating questions: " + e.getMessage());
+            generation = CompletableFuture.failedFuture(e);
+        }
+        return generation
+                .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    QueueFullException queueFull = queueFull(cause);
+                    if (queueFull != null) {
+                        logger.warn("Generation not queued: {}", queueFull.getMessage());
+                        return tooManyRequests(queueFull);
+                    }
+                    RateLimitedException rateLimited = RateLimitedException.find(cause);
+                    if (rateLimited != null) {
+                        logger.warn("Provider rate limited: {}", rateLimited.getMessage());
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header("Retry-After", String.valueOf(Math.max(1, rateLimited.getRetryAfter().toSeconds())))
+                                .body("Error generating questions: " + rateLimited.getMessage());
+                    }
+                    if (providerResponse(cause) instanceof UnusableResponseException unusable) {
+                        // Already retried here; the provider answered, but nothing in it was a question
+                        logger.warn("Unusable provider response: {}", unusable.getMessage());
+                        return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+                                .body("Error generating questions: " + unusable.getMessage());
+                    }
+                    logger.error("Error generating questions: {}", cause.getMessage(), cause);
+                    if (retryPolicy.isRetryable(cause)) {
+                        // Already retried here; tell the client when trying again is worthwhile
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header("Retry-After", String.valueOf(Math.max(1, retryPolicy.getClientRetryAfter().toSeconds())))
+                                .body("Error generating questions: " + cause.getMessage());
+                    }
+                    // The provider refused the request itself: retrying it unchanged cannot help
+                    HttpStatus status = providerResponse(cause) != null
+                            ? HttpStatus.BAD_GATEWAY
+                            : HttpStatus.INTERNAL_SERVER_ERROR;
+                    return ResponseEntity.status(status)
+                            .body("Error generating questions: " + cause.getMessage());
+                });
+    }
+    
+    /**
+     * Server-sent events: one "question" event per question as soon as the model finishes it,
+     * then a "complete" event carrying the full set (or an "error" event). A full queue is answered
+     * with 429 before the stream starts; a stream that times out in the queue ends with an "error" event.
+     */
+    @PostMapping(value = "/generate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> generateQuestionsStream(@Valid @RequestBody QuestionRequest request,
+                                                              @RequestHeader(value = USER_ID_HEADER, required = false) String userId,
+                                                              @RequestHeader(value = TENANT_ID_HEADER, required = false) String tenantId,
+                                                              @RequestHeader(value = API_KEY_HEADER, required = false) String apiKey) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        CompletableFuture<QuestionResponse> generation = questionService.generateQuestionsStreamingAsync(request, userId,
+                Caller.interactive(Caller.tenantOf(tenantId, apiKey)), (section, index, question) -> {
+                    try {
+                        emitter.send(SseEmitter.event().name("question")
+                                .data(new QuestionStreamEvent(section, index, question), MediaType.APPLICATION_JSON));
+                    } catch (IOException e) {
+                        // Client went away; abort the upstream stream too
+                        throw new UncheckedIOException(e);
+                    }
+                });
+        if (generation.isCompletedExceptionally()) {
+            QueueFullException queueFull = queueFull(generation.handle((response, e) -> e).join());
+            if (queueFull != null) {
+                logger.warn("Streaming generation not queued: {}", queueFull.getMessage());
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header("Retry-After", String.valueOf(queueFull.getRetryAfter().toSeconds()))
+                        .build();
+            }
         }
+        generation.whenComplete((response, e) -> {
+            if (e == null) {
+                try {
+                    emitter.send(SseEmitter.event().name("complete").data(response, MediaType.APPLICATION_JSON));
+                    emitter.complete();
+                } catch (Exception sendFailure) {
+                    emitter.completeWithError(sendFailure);
+                }
+                return;
+            }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RejectedExecutionException) {
+                logger.warn("Rejected streaming generation, executor is saturated");
+                sendError(emitter, "Server is busy, please try again shortly");
+            } else {
+                logger.error("Error streaming questions: {}", cause.getMessage(), cause);
+                sendError(emitter, "Error generating questions: " + cause.getMessage());
+            }
+        });
+        return ResponseEntity.ok(emitter);
+    }
+    
+    private void sendError(SseEmitter emitter, String message) {
+        try {
+            emitter.send(SseEmitter.event().name("error").data(message));
+            emitter.complete();
+        } catch (Exception sendFailure) {
+            emitter.completeWithError(sendFailure);
+        }
+    }
+    
+    /**
+     * Generates questions for many role/topic combinations in one call. With "async": true the batch
+     * runs in the background and 202 is returned with a job id to poll.
+     */
+    @PostMapping("/generate/batch")
+    public CompletableFuture<ResponseEntity<?>> generateBatch(@Valid @RequestBody BatchQuestionRequest request,
+                                                              @RequestHeader(value = TENANT_ID_HEADER, required = false) String tenantId,
+                                                              @RequestHeader(value = API_KEY_HEADER, required = false) String apiKey) {
+        String tenant = Caller.tenantOf(tenantId, apiKey);
+        try {
+            if (request.isAsync()) {
+                BatchQuestionResponse job = batchGenerationService.submitBatch(request.getRequests(), tenant);
+                return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.ACCEPTED).body(job));
+            }
+            return batchGenerationService.generateBatch(request.getRequests(), tenant)
+                    .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                    .exceptionally(e -> {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        logger.error("Error generating batch: {}", cause.getMessage(), cause);
+                        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body("Error generating batch: " + cause.getMessage());
+                    });
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/generate/batch/{jobId}")
+    public ResponseEntity<BatchQuestionResponse> getBatch(@PathVariable String jobId) {
+        return batchGenerationService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Queues a generation and returns 202 at once with the job id; the job's state and, once finished, its result
+     * are at the Location URL. With a callbackUrl the finished job is also POSTed there.
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitJob(@Valid @RequestBody GenerationJobRequest request,
+                                       @RequestHeader(value = USER_ID_HEADER, required = false) String userId,
+                                       @RequestHeader(value = TENANT_ID_HEADER, required = false) String tenantId,
+                                       @RequestHeader(value = API_KEY_HEADER, required = false) String apiKey) {
+        try {
+            GenerationJobResponse job = generationJobService.submit(request, request.getPriority(),
+                    request.getCallbackUrl(), userId, Caller.tenantOf(tenantId, apiKey));
+            return ResponseEntity.accepted().location(URI.create("/api/questions/jobs/" + job.getJobId())).body(job);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (RejectedExecutionException e) {
+            logger.warn("Rejected job: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header("Retry-After", String.valueOf(Math.max(1, generationJobService.getPollInterval().toSeconds())))
+                    .body("Server is busy, please try again shortly");
+        }
+    }
+    
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<GenerationJobResponse> getJob(@PathVariable String jobId) {
+        return generationJobService.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Stored questions worded like the given text, most similar first (see QuestionSimilarityIndex).
+     */
+    @GetMapping("/similar")
+    public ResponseEntity<?> similarQuestions(@RequestParam("q") String text,
+                                              @RequestParam(defaultValue = "10") int limit,
+                                              @RequestParam(defaultValue = "0.5") double minSimilarity) {
+        if (text.isBlank() || limit < 1 || limit > MAX_SIMILAR) {
+            return ResponseEntity.badRequest().body("q must not be blank and limit must be between 1 and " + MAX_SIMILAR);
+        }
+        return ResponseEntity.ok(similarityIndex.similarQuestions(text, minSimilarity, limit));
+    }
+    
+    @GetMapping("/bank/stats")
+    public ResponseEntity<QuestionBankStats> bankStats() {
+        return ResponseEntity.ok(questionBank.getStats());
     }
     
     @GetMapping("/health")
-    public ResponseEntity<String> health() {
-        return ResponseEntity.ok("Service is running");
+    public ResponseEntity<HealthResponse> health() {
+        HealthResponse health = questionService.getHealth();
+        HttpStatus status = "DOWN".equals(health.getStatus()) ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.OK;
+        return ResponseEntity.status(status).body(health);
+    }
+    
+    private static ResponseEntity<?> tooManyRequests(QueueFullException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header("Retry-After", String.valueOf(e.getRetryAfter().toSeconds()))
+                .body("Server is busy, please try again shortly: " + e.getMessage());
+    }
+    
+    private static QueueFullException queueFull(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof QueueFullException queueFull) {
+                return queueFull;
+            }
+        }
+        return null;
+    }
+    
+    private static ProviderResponseException providerResponse(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ProviderResponseException response) {
+                return response;
+            }
+        }
+        return null;
     }
 }
 
@@ -0,0 +1,344 @@
+package com.questiongenerator.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.questiongenerator.service.TokenEstimator;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stand-in for an OpenAI-compatible chat completions endpoint (the Hugging Face router and OpenAI both speak
+ * it), active only with the {@code stub-llm} profile. It answers generation prompts with made-up questions in
+ * the requested counts, paced like a real model: a first-token latency plus a fixed token rate, cut off at
+ * {@code max_tokens}. Configurable fractions of responses are truncated, malformed, replaced by prose, or
+ * fail with 429/500, and a per-minute account quota can be set, so load and latency can be measured, and
+ * failure handling exercised, without a real provider. See {@code application-stub-llm.properties}.
+ */
+@RestController
+@Profile("stub-llm")
+public class StubLlmController {
+
+    private static final Logger logger = LoggerFactory.getLogger(StubLlmController.class);
+
+    private static final Pattern TECHNICAL_COUNT = Pattern.compile("- (\\d+) technical questions");
+    private static final Pattern BEHAVIORAL_COUNT = Pattern.compile("- (\\d+) behavioral questions");
+
+    private static final String[] WORDS = ("cache eviction latency throughput index transaction isolation deadlock "
+            + "thread pool queue backpressure retry idempotency schema migration replica partition consistency "
+            + "heap allocation garbage collector profiler lock contention api versioning pagination rate limit "
+            + "circuit breaker timeout serialization protocol compression encryption token session cookie "
+            + "deployment rollback canary monitoring alert incident postmortem deadline conflict mentoring "
+            + "feedback ownership priority stakeholder estimate tradeoff review refactoring ambiguity").split(" ");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "stub-llm");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    private TokenEstimator tokenEstimator;
+
+    @Value("${stub.llm.first-token-latency:PT0.3S}")
+    private Duration firstTokenLatency;
+
+    @Value("${stub.llm.tokens-per-second:80}")
+    private double tokensPerSecond;
+
+    @Value("${stub.llm.stream-interval:PT0.05S}")
+    private Duration streamInterval;
+
+    @Value("${stub.llm.truncate-ratio:0}")
+    private double truncateRatio;
+
+    @Value("${stub.llm.malformed-ratio:0}")
+    private double malformedRatio;
+
+    @Value("${stub.llm.prose-ratio:0}")
+    private double proseRatio;
+
+    @Value("${stub.llm.error-ratio:0}")
+    private double errorRatio;
+
+    @Value("${stub.llm.requests-per-minute:0}")
+    private long requestsPerMinute;
+
+    @Value("${stub.llm.tokens-per-minute:0}")
+    private long tokensPerMinute;
+
+    // Account quota, counted in fixed one-minute windows
+    private long windowStart;
+    private long windowRequests;
+    private long windowTokens;
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    // JSON or, with "stream": true, server-sent events
+    @PostMapping("/v1/chat/completions")
+    public Object chatCompletions(@RequestBody JsonNode body) {
+        Random random = ThreadLocalRandom.current();
+        if (random.nextDouble() < errorRatio) {
+            return error(random);
+        }
+
+        Completion completion = complete(body, random);
+        HttpHeaders quotaHeaders = new HttpHeaders();
+        if (!admit(completion.promptTokens + body.path("max_tokens").asInt(0), quotaHeaders)) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).headers(quotaHeaders)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(Map.of("error", Map.of("message", "Rate limit reached (stub quota)", "type", "rate_limit")));
+        }
+        long delayMillis = firstTokenLatency.toMillis() + (long) (completion.tokens * 1000 / tokensPerSecond);
+        if (body.path("stream").asBoolean(false)) {
+            return stream(completion, delayMillis);
+        }
+
+        CompletableFuture<ResponseEntity<?>> response = new CompletableFuture<>();
+        scheduler.schedule(() -> response.complete(ResponseEntity.ok().headers(quotaHeaders).body(toResponse(completion))),
+                delayMillis, TimeUnit.MILLISECONDS);
+        return response;
+    }
+
+    /**
+     * Charges a request of the given cost (prompt plus max_tokens, as OpenAI counts it) to the quota and fills in
+     * OpenAI's rate-limit headers. False, with Retry-After set to the end of the window, if it does not fit.
+     */
+    private synchronized boolean admit(int cost, HttpHeaders headers) {
+        if (requestsPerMinute <= 0 && tokensPerMinute <= 0) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now - windowStart >= 60_000) {
+            windowStart = now;
+            windowRequests = 0;
+            windowTokens = 0;
+        }
+        long resetMillis = windowStart + 60_000 - now;
+        boolean admitted = (requestsPerMinute <= 0 || windowRequests + 1 <= requestsPerMinute)
+                && (tokensPerMinute <= 0 || windowTokens + cost <= tokensPerMinute);
+        if (admitted) {
+            windowRequests++;
+            windowTokens += cost;
+        } else {
+            headers.set("Retry-After", String.valueOf((resetMillis + 999) / 1000));
+        }
+        if (requestsPerMinute > 0) {
+            headers.set("x-ratelimit-limit-requests", String.valueOf(requestsPerMinute));
+            headers.set("x-ratelimit-remaining-requests", String.valueOf(Math.max(0, requestsPerMinute - windowRequests)));
+            headers.set("x-ratelimit-reset-requests", resetMillis + "ms");
+        }
+        if (tokensPerMinute > 0) {
+            headers.set("x-ratelimit-limit-tokens", String.valueOf(tokensPerMinute));
+            headers.set("x-ratelimit-remaining-tokens", String.valueOf(Math.max(0, tokensPerMinute - windowTokens)));
+            headers.set("x-ratelimit-reset-tokens", resetMillis + "ms");
+        }
+        return admitted;
+    }
+
+    private ResponseEntity<?> error(Random random) {
+        if (random.nextBoolean()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header("Retry-After", "1")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(Map.of("error", Map.of("message", "Rate limit reached (stub)", "type", "rate_limit")));
+        }
+        // Errors are JSON even for stream requests, as upstream; a preset type skips content negotiation
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", Map.of("message", "Internal error (stub)", "type", "server_error")));
+    }
+
+    // Streams the completion as chat.completion.chunk events at the configured token rate
+    private SseEmitter stream(Completion completion, long delayMillis) {
+        SseEmitter emitter = new SseEmitter(delayMillis + 60_000);
+        String content = completion.content;
+        long intervalMillis = Math.max(1, streamInterval.toMillis());
+        double charsPerToken = completion.tokens == 0 ? 4 : (double) content.length() / completion.tokens;
+        int charsPerChunk = Math.max(1, (int) (tokensPerSecond * intervalMillis / 1000.0 * charsPerToken));
+        int[] position = {0};
+
+        Runnable[] emitNext = new Runnable[1];
+        emitNext[0] = () -> {
+            try {
+                if (position[0] >= content.length()) {
+                    emitter.send(SseEmitter.event().data(objectMapper.writeValueAsString(
+                            chunk(null, completion.finishReason))));
+                    emitter.send(SseEmitter.event().data("[DONE]"));
+                    emitter.complete();
+                    return;
+                }
+                int end = Math.min(content.length(), position[0] + charsPerChunk);
+                String delta = content.substring(position[0], end);
+                position[0] = end;
+                emitter.send(SseEmitter.event().data(objectMapper.writeValueAsString(chunk(delta, null))));
+                scheduler.schedule(emitNext[0], intervalMillis, TimeUnit.MILLISECONDS);
+            } catch (IOException | IllegalStateException e) {
+                // Client went away
+                emitter.completeWithError(e);
+            }
+        };
+        scheduler.schedule(emitNext[0], firstTokenLatency.toMillis(), TimeUnit.MILLISECONDS);
+        return emitter;
+    }
+
+    private Map<String, Object> chunk(String delta, String finishReason) {
+        Map<String, Object> deltaNode = new LinkedHashMap<>();
+        if (delta != null) {
+            deltaNode.put("content", delta);
+        }
+        Map<String, Object> choice = new LinkedHashMap<>();
+        choice.put("index", 0);
+        choice.put("delta", deltaNode);
+        choice.put("finish_reason", finishReason);
+        Map<String, Object> chunk = new LinkedHashMap<>();
+        chunk.put("object", "chat.completion.chunk");
+        chunk.put("model", "stub");
+        chunk.put("choices", List.of(choice));
+        return chunk;
+    }
+
+    private Map<String, Object> toResponse(Completion completion) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("role", "assistant");
+        message.put("content", completion.content);
+        Map<String, Object> choice = new LinkedHashMap<>();
+        choice.put("index", 0);
+        choice.put("message", message);
+        choice.put("finish_reason", completion.finishReason);
+        Map<String, Object> usage = new LinkedHashMap<>();
+        usage.put("prompt_tokens", completion.promptTokens);
+        usage.put("completion_tokens", completion.tokens);
+        usage.put("total_tokens", completion.promptTokens + completion.tokens);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("object", "chat.completion");
+        response.put("model", "stub");
+        response.put("choices", List.of(choice));
+        response.put("usage", usage);
+        return response;
+    }
+
+    private Completion complete(JsonNode body, Random random) {
+        String prompt = "";
+        for (JsonNode message : body.path("messages")) {
+            prompt = message.path("content").asText("");
+        }
+        int technical = count(TECHNICAL_COUNT, prompt);
+        int behavioral = count(BEHAVIORAL_COUNT, prompt);
+        boolean answers = prompt.contains("Include sample answers");
+
+        String content;
+        try {
+            Map<String, Object> questions = new LinkedHashMap<>();
+            questions.put("technicalQuestions", questions(technical, answers, random));
+            questions.put("behavioralQuestions", questions(behavioral, answers, random));
+            content = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(questions);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+
+        double fault = random.nextDouble();
+        if (fault < proseRatio) {
+            content = "I'm sorry, but I can't produce that list right now. Please try again.";
+        } else if (fault < proseRatio + malformedRatio) {
+            content = malform(content, random);
+        }
+
+        String finishReason = "stop";
+        int tokens = tokenEstimator.count(content);
+        int maxTokens = body.path("max_tokens").asInt(0);
+        if (maxTokens > 0 && tokens > maxTokens) {
+            content = content.substring(0, (int) ((long) content.length() * maxTokens / tokens));
+            tokens = maxTokens;
+            finishReason = "length";
+        } else if (random.nextDouble() < truncateRatio) {
+            content = content.substring(0, random.nextInt(content.length() / 4, content.length()));
+            tokens = tokenEstimator.count(content);
+            finishReason = "length";
+        }
+        logger.debug("Stub completion: {} technical, {} behavioral, {} tokens, finish_reason={}",
+                technical, behavioral, tokens, finishReason);
+        return new Completion(content, tokens, tokenEstimator.count(prompt), finishReason);
+    }
+
+    private static int count(Pattern pattern, String prompt) {
+        Matcher matcher = pattern.matcher(prompt);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+    }
+
+    private static List<Map<String, Object>> questions(int count, boolean answers, Random random) {
+        List<Map<String, Object>> questions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> question = new LinkedHashMap<>();
+            question.put("question", "How would you approach " + words(random, 6) + "?");
+            question.put("answer", answers ? "I would start with " + words(random, 40) + "." : null);
+            questions.add(question);
+        }
+        return questions;
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    // The usual ways models break JSON; all of them are expected to be repaired by the response parser
+    private static String malform(String content, Random random) {
+        return switch (random.nextInt(5)) {
+            case 0 -> "Here are the questions you asked for:\n```json\n" + content + "\n```\nGood luck!";
+            case 1 -> content.replaceFirst("\\n  \\]", ",\n  ]");
+            case 2 -> content.replaceFirst("\\{", "{\n  // generated questions");
+            case 3 -> content.replaceFirst("How would you", "How would\nyou");
+            default -> content.replaceFirst("approach ", "approach \\\\q ");
+        };
+    }
+
+    private static final class Completion {
+        private final String content;
+        private final int tokens;
+        private final int promptTokens;
+        private final String finishReason;
+
+        private Completion(String content, int tokens, int promptTokens, String finishReason) {
+            this.content = content;
+            this.tokens = tokens;
+            this.promptTokens = promptTokens;
+            this.finishReason = finishReason;
+        }
+    }
+}
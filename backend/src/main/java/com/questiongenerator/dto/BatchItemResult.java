@@ -0,0 +1,39 @@
+package com.questiongenerator.dto;
+
+public class BatchItemResult {
+    private QuestionRequest request;
+    private QuestionResponse questions;
+    private String error;
+    
+    public BatchItemResult() {}
+    
+    public BatchItemResult(QuestionRequest request, QuestionResponse questions, String error) {
+        this.request = request;
+        this.questions = questions;
+        this.error = error;
+    }
+    
+    public QuestionRequest getRequest() {
+        return request;
+    }
+    
+    public void setRequest(QuestionRequest request) {
+        this.request = request;
+    }
+    
+    public QuestionResponse getQuestions() {
+        return questions;
+    }
+    
+    public void setQuestions(QuestionResponse questions) {
+        this.questions = questions;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,37 @@
+package com.questiongenerator.dto;
+
+import java.util.List;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+public class BatchQuestionRequest {
+    @NotEmpty(message = "At least one request is required")
+    private List<@Valid QuestionRequest> requests;
+    
+    // When true the call returns a job id immediately; poll /api/questions/generate/batch/{jobId}
+    private boolean async = false;
+    
+    public BatchQuestionRequest() {}
+    
+    public BatchQuestionRequest(List<QuestionRequest> requests, boolean async) {
+        this.requests = requests;
+        this.async = async;
+    }
+    
+    public List<QuestionRequest> getRequests() {
+        return requests;
+    }
+    
+    public void setRequests(List<QuestionRequest> requests) {
+        this.requests = requests;
+    }
+    
+    public boolean isAsync() {
+        return async;
+    }
+    
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+}
@@ -0,0 +1,73 @@
+package com.questiongenerator.dto;
+
+import java.util.List;
+
+public class BatchQuestionResponse {
+    private String jobId;
+    // RUNNING or COMPLETED
+    private String status;
+    private int total;
+    private int unique;
+    private int completed;
+    private int failed;
+    // In request order; null while the job is still running
+    private List<BatchItemResult> results;
+    
+    public BatchQuestionResponse() {}
+    
+    public String getJobId() {
+        return jobId;
+    }
+    
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public int getTotal() {
+        return total;
+    }
+    
+    public void setTotal(int total) {
+        this.total = total;
+    }
+    
+    public int getUnique() {
+        return unique;
+    }
+    
+    public void setUnique(int unique) {
+        this.unique = unique;
+    }
+    
+    public int getCompleted() {
+        return completed;
+    }
+    
+    public void setCompleted(int completed) {
+        this.completed = completed;
+    }
+    
+    public int getFailed() {
+        return failed;
+    }
+    
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+    
+    public List<BatchItemResult> getResults() {
+        return results;
+    }
+    
+    public void setResults(List<BatchItemResult> results) {
+        this.results = results;
+    }
+}
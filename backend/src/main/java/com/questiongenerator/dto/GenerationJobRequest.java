@@ -0,0 +1,31 @@
+package com.questiongenerator.dto;
+
+import jakarta.validation.constraints.Pattern;
+
+// A question request run as a background job; poll /api/questions/jobs/{jobId} or wait for the callback
+public class GenerationJobRequest extends QuestionRequest {
+    // high, normal (default) or low
+    @Pattern(regexp = "(?i)high|normal|low", message = "Priority must be high, normal or low")
+    private String priority;
+    
+    // Receives the finished job as a JSON POST
+    private String callbackUrl;
+    
+    public GenerationJobRequest() {}
+    
+    public String getPriority() {
+        return priority;
+    }
+    
+    public void setPriority(String priority) {
+        this.priority = priority;
+    }
+    
+    public String getCallbackUrl() {
+        return callbackUrl;
+    }
+    
+    public void setCallbackUrl(String callbackUrl) {
+        this.callbackUrl = callbackUrl;
+    }
+}
@@ -0,0 +1,129 @@
+package com.questiongenerator.dto;
+
+import java.time.LocalDateTime;
+
+public class GenerationJobResponse {
+    private String jobId;
+    // QUEUED, RUNNING, SUCCEEDED or FAILED
+    private String status;
+    private String priority;
+    private String role;
+    private String topic;
+    private String difficulty;
+    private boolean includeAnswers;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+    // Set once SUCCEEDED
+    private QuestionResponse result;
+    // Set once FAILED
+    private String error;
+    // PENDING, DELIVERED or FAILED; null without a callback URL
+    private String callbackStatus;
+    
+    public GenerationJobResponse() {}
+    
+    public String getJobId() {
+        return jobId;
+    }
+    
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public String getPriority() {
+        return priority;
+    }
+    
+    public void setPriority(String priority) {
+        this.priority = priority;
+    }
+    
+    public String getRole() {
+        return role;
+    }
+    
+    public void setRole(String role) {
+        this.role = role;
+    }
+    
+    public String getTopic() {
+        return topic;
+    }
+    
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+    
+    public String getDifficulty() {
+        return difficulty;
+    }
+    
+    public void setDifficulty(String difficulty) {
+        this.difficulty = difficulty;
+    }
+    
+    public boolean isIncludeAnswers() {
+        return includeAnswers;
+    }
+    
+    public void setIncludeAnswers(boolean includeAnswers) {
+        this.includeAnswers = includeAnswers;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+    
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+    
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+    
+    public QuestionResponse getResult() {
+        return result;
+    }
+    
+    public void setResult(QuestionResponse result) {
+        this.result = result;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+    
+    public String getCallbackStatus() {
+        return callbackStatus;
+    }
+    
+    public void setCallbackStatus(String callbackStatus) {
+        this.callbackStatus = callbackStatus;
+    }
+}
@@ -0,0 +1,42 @@
+package com.questiongenerator.dto;
+
+import java.util.List;
+
+public class HealthResponse {
+    // UP: every provider accepts calls, DEGRADED: some do, DOWN: none do
+    private String status;
+    private String message;
+    private List<ProviderHealth> providers;
+    
+    public HealthResponse() {}
+    
+    public HealthResponse(String status, String message, List<ProviderHealth> providers) {
+        this.status = status;
+        this.message = message;
+        this.providers = providers;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public String getMessage() {
+        return message;
+    }
+    
+    public void setMessage(String message) {
+        this.message = message;
+    }
+    
+    public List<ProviderHealth> getProviders() {
+        return providers;
+    }
+    
+    public void setProviders(List<ProviderHealth> providers) {
+        this.providers = providers;
+    }
+}
@@ -0,0 +1,39 @@
+package com.questiongenerator.dto;
+
+import java.util.List;
+
+/**
+ * One page of history summaries. Pass {@code nextCursor} back as the {@code cursor} parameter to get the
+ * next (older) page; it is null on the last page.
+ */
+public class HistoryPage {
+    private List<HistorySummary> items;
+    private String nextCursor;
+    
+    public HistoryPage() {}
+    
+    public HistoryPage(List<HistorySummary> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+    
+    public List<HistorySummary> getItems() {
+        return items;
+    }
+    
+    public void setItems(List<HistorySummary> items) {
+        this.items = items;
+    }
+    
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+    
+    public boolean isHasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,75 @@
+package com.questiongenerator.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Combined history search filters. Every non-null filter must match (AND); null filters are ignored.
+ */
+public class HistorySearchCriteria {
+    private String role;
+    private String topic;
+    private String difficulty;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private String text;
+    
+    public HistorySearchCriteria() {}
+    
+    public HistorySearchCriteria(String role, String topic, String difficulty,
+                                 LocalDateTime from, LocalDateTime to, String text) {
+        this.role = role;
+        this.topic = topic;
+        this.difficulty = difficulty;
+        this.from = from;
+        this.to = to;
+        this.text = text;
+    }
+    
+    public String getRole() {
+        return role;
+    }
+    
+    public void setRole(String role) {
+        this.role = role;
+    }
+    
+    public String getTopic() {
+        return topic;
+    }
+    
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+    
+    public String getDifficulty() {
+        return difficulty;
+    }
+    
+    public void setDifficulty(String difficulty) {
+        this.difficulty = difficulty;
+    }
+    
+    public LocalDateTime getFrom() {
+        return from;
+    }
+    
+    public void setFrom(LocalDateTime from) {
+        this.from = from;
+    }
+    
+    public LocalDateTime getTo() {
+        return to;
+    }
+    
+    public void setTo(LocalDateTime to) {
+        this.to = to;
+    }
+    
+    public String getText() {
+        return text;
+    }
+    
+    public void setText(String text) {
+        this.text = text;
+    }
+}
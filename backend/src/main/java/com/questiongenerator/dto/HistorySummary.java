@@ -0,0 +1,97 @@
+package com.questiongenerator.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lightweight history row for list views; the question payload is only returned by /api/history/{id}.
+ */
+public class HistorySummary {
+    private Long id;
+    private String role;
+    private String topic;
+    private String difficulty;
+    private boolean includeAnswers;
+    private Integer technicalCount;
+    private Integer behavioralCount;
+    private LocalDateTime createdAt;
+    
+    public HistorySummary() {}
+    
+    // Used by the JPQL constructor expressions in QuestionHistoryRepository
+    public HistorySummary(Long id, String role, String topic, String difficulty, boolean includeAnswers,
+                          Integer technicalCount, Integer behavioralCount, LocalDateTime createdAt) {
+        this.id = id;
+        this.role = role;
+        this.topic = topic;
+        this.difficulty = difficulty;
+        this.includeAnswers = includeAnswers;
+        this.technicalCount = technicalCount;
+        this.behavioralCount = behavioralCount;
+        this.createdAt = createdAt;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getRole() {
+        return role;
+    }
+    
+    public void setRole(String role) {
+        this.role = role;
+    }
+    
+    public String getTopic() {
+        return topic;
+    }
+    
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+    
+    public String getDifficulty() {
+        return difficulty;
+    }
+    
+    public void setDifficulty(String difficulty) {
+        this.difficulty = difficulty;
+    }
+    
+    public boolean isIncludeAnswers() {
+        return includeAnswers;
+    }
+    
+    public void setIncludeAnswers(boolean includeAnswers) {
+        this.includeAnswers = includeAnswers;
+    }
+    
+    public Integer getTechnicalCount() {
+        return technicalCount;
+    }
+    
+    public void setTechnicalCount(Integer technicalCount) {
+        this.technicalCount = technicalCount;
+    }
+    
+    public Integer getBehavioralCount() {
+        return behavioralCount;
+    }
+    
+    public void setBehavioralCount(Integer behavioralCount) {
+        this.behavioralCount = behavioralCount;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,78 @@
+package com.questiongenerator.dto;
+
+public class ProviderHealth {
+    private String provider;
+    private String circuitState;
+    private int inFlight;
+    private int concurrencyLimit;
+    private int maxConcurrent;
+    private double failureRate;
+    private long latencyP50Millis;
+    private long latencyP95Millis;
+    
+    public ProviderHealth() {}
+    
+    public String getProvider() {
+        return provider;
+    }
+    
+    public void setProvider(String provider) {
+        this.provider = provider;
+    }
+    
+    public String getCircuitState() {
+        return circuitState;
+    }
+    
+    public void setCircuitState(String circuitState) {
+        this.circuitState = circuitState;
+    }
+    
+    public int getInFlight() {
+        return inFlight;
+    }
+    
+    public void setInFlight(int inFlight) {
+        this.inFlight = inFlight;
+    }
+    
+    public int getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+    
+    public void setConcurrencyLimit(int concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+    }
+    
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+    
+    public void setMaxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+    
+    public double getFailureRate() {
+        return failureRate;
+    }
+    
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+    
+    public long getLatencyP50Millis() {
+        return latencyP50Millis;
+    }
+    
+    public void setLatencyP50Millis(long latencyP50Millis) {
+        this.latencyP50Millis = latencyP50Millis;
+    }
+    
+    public long getLatencyP95Millis() {
+        return latencyP95Millis;
+    }
+    
+    public void setLatencyP95Millis(long latencyP95Millis) {
+        this.latencyP95Millis = latencyP95Millis;
+    }
+}
@@ -0,0 +1,125 @@
+package com.questiongenerator.dto;
+
+/**
+ * Question bank effectiveness: how many requests it served fully or partly, what share of questions came
+ * from the bank instead of the AI provider, and an estimate of the LLM spend that saved.
+ */
+public class QuestionBankStats {
+    private boolean enabled;
+    private int combinations;
+    private int questions;
+    private long requests;
+    private long fullHits;
+    private long partialHits;
+    private long misses;
+    private double hitRatio;
+    private long questionsFromBank;
+    private long questionsGenerated;
+    private double questionHitRatio;
+    private long llmCallsAvoided;
+    private long estimatedTokensSaved;
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    public int getCombinations() {
+        return combinations;
+    }
+    
+    public void setCombinations(int combinations) {
+        this.combinations = combinations;
+    }
+    
+    public int getQuestions() {
+        return questions;
+    }
+    
+    public void setQuestions(int questions) {
+        this.questions = questions;
+    }
+    
+    public long getRequests() {
+        return requests;
+    }
+    
+    public void setRequests(long requests) {
+        this.requests = requests;
+    }
+    
+    public long getFullHits() {
+        return fullHits;
+    }
+    
+    public void setFullHits(long fullHits) {
+        this.fullHits = fullHits;
+    }
+    
+    public long getPartialHits() {
+        return partialHits;
+    }
+    
+    public void setPartialHits(long partialHits) {
+        this.partialHits = partialHits;
+    }
+    
+    public long getMisses() {
+        return misses;
+    }
+    
+    public void setMisses(long misses) {
+        this.misses = misses;
+    }
+    
+    public double getHitRatio() {
+        return hitRatio;
+    }
+    
+    public void setHitRatio(double hitRatio) {
+        this.hitRatio = hitRatio;
+    }
+    
+    public long getQuestionsFromBank() {
+        return questionsFromBank;
+    }
+    
+    public void setQuestionsFromBank(long questionsFromBank) {
+        this.questionsFromBank = questionsFromBank;
+    }
+    
+    public long getQuestionsGenerated() {
+        return questionsGenerated;
+    }
+    
+    public void setQuestionsGenerated(long questionsGenerated) {
+        this.questionsGenerated = questionsGenerated;
+    }
+    
+    public double getQuestionHitRatio() {
+        return questionHitRatio;
+    }
+    
+    public void setQuestionHitRatio(double questionHitRatio) {
+        this.questionHitRatio = questionHitRatio;
+    }
+    
+    public long getLlmCallsAvoided() {
+        return llmCallsAvoided;
+    }
+    
+    public void setLlmCallsAvoided(long llmCallsAvoided) {
+        this.llmCallsAvoided = llmCallsAvoided;
+    }
+    
+    public long getEstimatedTokensSaved() {
+        return estimatedTokensSaved;
+    }
+    
+    public void setEstimatedTokensSaved(long estimatedTokensSaved) {
+        this.estimatedTokensSaved = estimatedTokensSaved;
+    }
+}
@@ -0,0 +1,49 @@
+package com.questiongenerator.dto;
+
+public class QuestionStreamEvent {
+    private String section;
+    private int index;
+    private String question;
+    private String answer;
+    
+    public QuestionStreamEvent() {}
+    
+    public QuestionStreamEvent(String section, int index, QuestionResponse.Question question) {
+        this.section = section;
+        this.index = index;
+        this.question = question.getQuestion();
+        this.answer = question.getAnswer();
+    }
+    
+    public String getSection() {
+        return section;
+    }
+    
+    public void setSection(String section) {
+        this.section = section;
+    }
+    
+    public int getIndex() {
+        return index;
+    }
+    
+    public void setIndex(int index) {
+        this.index = index;
+    }
+    
+    public String getQuestion() {
+        return question;
+    }
+    
+    public void setQuestion(String question) {
+        this.question = question;
+    }
+    
+    public String getAnswer() {
+        return answer;
+    }
+    
+    public void setAnswer(String answer) {
+        this.answer = answer;
+    }
+}
@@ -0,0 +1,43 @@
+package com.questiongenerator.dto;
+
+/**
+ * A stored question returned by the similar-questions endpoint, with its estimated similarity (0 to 1) to the query.
+ */
+public class SimilarQuestion {
+    private Long id;
+    private String question;
+    private double similarity;
+    
+    public SimilarQuestion() {}
+    
+    public SimilarQuestion(Long id, String question, double similarity) {
+        this.id = id;
+        this.question = question;
+        this.similarity = similarity;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getQuestion() {
+        return question;
+    }
+    
+    public void setQuestion(String question) {
+        this.question = question;
+    }
+    
+    public double getSimilarity() {
+        return similarity;
+    }
+    
+    public void setSimilarity(double similarity) {
+        this.similarity = similarity;
+    }
+}
@@ -0,0 +1,245 @@
+package com.questiongenerator.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A question set generated in the background (see GenerationJobService). The row is the job's only durable
+ * state: it is created QUEUED, claimed as RUNNING, and ends SUCCEEDED with the result as JSON, or FAILED with
+ * the error. Jobs still QUEUED or RUNNING after a restart are picked up again.
+ */
+@Entity
+@Table(name = "generation_job", indexes = {
+    @Index(name = "idx_generation_job_status", columnList = "status, priority, created_at"),
+    @Index(name = "idx_generation_job_completed_at", columnList = "completed_at")
+})
+public class GenerationJob {
+    
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String SUCCEEDED = "SUCCEEDED";
+    public static final String FAILED = "FAILED";
+    
+    public static final String CALLBACK_PENDING = "PENDING";
+    public static final String CALLBACK_DELIVERED = "DELIVERED";
+    public static final String CALLBACK_FAILED = "FAILED";
+    
+    @Id
+    @Column(length = 36)
+    private String id;
+    
+    @Column(nullable = false, length = 16)
+    private String status;
+    
+    // 0 = high, 1 = normal, 2 = low; lower runs first
+    @Column(nullable = false)
+    private int priority;
+    
+    @Column(nullable = false)
+    private String role;
+    
+    @Column(nullable = false)
+    private String topic;
+    
+    @Column(nullable = false)
+    private String difficulty;
+    
+    @Column(nullable = false)
+    private boolean includeAnswers;
+    
+    private String userId;
+    
+    // Tenant the job's provider calls are charged to (see GenerationScheduler); null for the default tenant
+    @Column(length = 64)
+    private String tenant;
+    
+    @Column(length = 2048)
+    private String callbackUrl;
+    
+    @Column(length = 16)
+    private String callbackStatus;
+    
+    @Column(nullable = false)
+    private int callbackAttempts;
+    
+    // Times the job was started; more than one only if an instance stopped while running it
+    @Column(nullable = false)
+    private int attempts;
+    
+    @Column(columnDefinition = "TEXT")
+    private String result;
+    
+    @Column(columnDefinition = "TEXT")
+    private String error;
+    
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+    
+    private LocalDateTime startedAt;
+    
+    private LocalDateTime completedAt;
+    
+    // Constructors
+    public GenerationJob() {
+        this.createdAt = LocalDateTime.now();
+    }
+    
+    public GenerationJob(String id, int priority, String role, String topic, String difficulty,
+                         boolean includeAnswers, String userId, String callbackUrl) {
+        this.id = id;
+        this.status = QUEUED;
+        this.priority = priority;
+        this.role = role;
+        this.topic = topic;
+        this.difficulty = difficulty;
+        this.includeAnswers = includeAnswers;
+        this.userId = userId;
+        this.callbackUrl = callbackUrl;
+        this.createdAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public int getPriority() {
+        return priority;
+    }
+    
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+    
+    public String getRole() {
+        return role;
+    }
+    
+    public void setRole(String role) {
+        this.role = role;
+    }
+    
+    public String getTopic() {
+        return topic;
+    }
+    
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+    
+    public String getDifficulty() {
+        return difficulty;
+    }
+    
+    public void setDifficulty(String difficulty) {
+        this.difficulty = difficulty;
+    }
+    
+    public boolean isIncludeAnswers() {
+        return includeAnswers;
+    }
+    
+    public void setIncludeAnswers(boolean includeAnswers) {
+        this.includeAnswers = includeAnswers;
+    }
+    
+    public String getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+    
+    public String getTenant() {
+        return tenant;
+    }
+    
+    public void setTenant(String tenant) {
+        this.tenant = tenant;
+    }
+    
+    public String getCallbackUrl() {
+        return callbackUrl;
+    }
+    
+    public void setCallbackUrl(String callbackUrl) {
+        this.callbackUrl = callbackUrl;
+    }
+    
+    public String getCallbackStatus() {
+        return callbackStatus;
+    }
+    
+    public void setCallbackStatus(String callbackStatus) {
+        this.callbackStatus = callbackStatus;
+    }
+    
+    public int getCallbackAttempts() {
+        return callbackAttempts;
+    }
+    
+    public void setCallbackAttempts(int callbackAttempts) {
+        this.callbackAttempts = callbackAttempts;
+    }
+    
+    public int getAttempts() {
+        return attempts;
+    }
+    
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+    
+    public String getResult() {
+        return result;
+    }
+    
+    public void setResult(String result) {
+        this.result = result;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+    
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+    
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
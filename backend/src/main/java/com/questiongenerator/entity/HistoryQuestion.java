@@ -0,0 +1,114 @@
+package com.questiongenerator.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * One question within a history entry: which stored question, in which section and position, and the
+ * answer generated alongside it (answers are per generation, the question text is shared).
+ */
+@Entity
+@Table(name = "question_history_item", indexes = {
+    @Index(name = "idx_question_history_item_history", columnList = "history_id, section, position"),
+    @Index(name = "idx_question_history_item_question", columnList = "question_id")
+})
+public class HistoryQuestion {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "question_history_item_seq")
+    @SequenceGenerator(name = "question_history_item_seq", sequenceName = "question_history_item_seq", allocationSize = 50)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "history_id", nullable = false)
+    private QuestionHistory history;
+    
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "question_id", nullable = false)
+    private StoredQuestion question;
+    
+    // "technical" or "behavioral"
+    @Column(nullable = false, length = 20)
+    private String section;
+    
+    @Column(nullable = false)
+    private int position;
+    
+    @Column(columnDefinition = "TEXT")
+    private String answer;
+    
+    // Question text until the catalog has resolved it to a StoredQuestion
+    @Transient
+    private String pendingText;
+    
+    // Constructors
+    public HistoryQuestion() {}
+    
+    public HistoryQuestion(String section, int position, String questionText, String answer) {
+        this.section = section;
+        this.position = position;
+        this.pendingText = questionText;
+        this.answer = answer;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public QuestionHistory getHistory() {
+        return history;
+    }
+    
+    public void setHistory(QuestionHistory history) {
+        this.history = history;
+    }
+    
+    public StoredQuestion getQuestion() {
+        return question;
+    }
+    
+    public void setQuestion(StoredQuestion question) {
+        this.question = question;
+    }
+    
+    public String getSection() {
+        return section;
+    }
+    
+    public void setSection(String section) {
+        this.section = section;
+    }
+    
+    public int getPosition() {
+        return position;
+    }
+    
+    public void setPosition(int position) {
+        this.position = position;
+    }
+    
+    public String getAnswer() {
+        return answer;
+    }
+    
+    public void setAnswer(String answer) {
+        this.answer = answer;
+    }
+    
+    public String getPendingText() {
+        return pendingText;
+    }
+    
+    public void setPendingText(String pendingText) {
+        this.pendingText = pendingText;
+    }
+    
+    // The question text, whether or not it has been resolved yet
+    public String getQuestionText() {
+        return question != null ? question.getQuestionText() : pendingText;
+    }
+}
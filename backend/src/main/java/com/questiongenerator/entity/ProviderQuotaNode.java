@@ -0,0 +1,107 @@
+package com.questiongenerator.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One node's view of a provider's quota, shared with the other nodes using the same provider account (see
+ * ProviderQuotaRegistry). Each node writes only its own row; live rows tell the others how many nodes share the
+ * quota, what limits the provider reported and until when it asked for calls to stop.
+ */
+@Entity
+@Table(name = "provider_quota_node", indexes = {
+    @Index(name = "idx_provider_quota_node_provider", columnList = "provider, heartbeat_at")
+})
+public class ProviderQuotaNode {
+    
+    // provider@node
+    @Id
+    @Column(length = 200)
+    private String id;
+    
+    @Column(nullable = false, length = 32)
+    private String provider;
+    
+    @Column(nullable = false, length = 160)
+    private String nodeId;
+    
+    @Column(nullable = false)
+    private LocalDateTime heartbeatAt;
+    
+    // Set after a 429: no node calls the provider before this
+    private LocalDateTime blockedUntil;
+    
+    // Limits from the provider's rate-limit headers; 0 if it has not reported them
+    @Column(nullable = false)
+    private long upstreamRequestsPerMinute;
+    
+    @Column(nullable = false)
+    private long upstreamTokensPerMinute;
+    
+    // Constructors
+    public ProviderQuotaNode() {
+    }
+    
+    public ProviderQuotaNode(String provider, String nodeId) {
+        this.id = provider + "@" + nodeId;
+        this.provider = provider;
+        this.nodeId = nodeId;
+    }
+    
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public String getProvider() {
+        return provider;
+    }
+    
+    public void setProvider(String provider) {
+        this.provider = provider;
+    }
+    
+    public String getNodeId() {
+        return nodeId;
+    }
+    
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+    
+    public LocalDateTime getHeartbeatAt() {
+        return heartbeatAt;
+    }
+    
+    public void setHeartbeatAt(LocalDateTime heartbeatAt) {
+        this.heartbeatAt = heartbeatAt;
+    }
+    
+    public LocalDateTime getBlockedUntil() {
+        return blockedUntil;
+    }
+    
+    public void setBlockedUntil(LocalDateTime blockedUntil) {
+        this.blockedUntil = blockedUntil;
+    }
+    
+    public long getUpstreamRequestsPerMinute() {
+        return upstreamRequestsPerMinute;
+    }
+    
+    public void setUpstreamRequestsPerMinute(long upstreamRequestsPerMinute) {
+        this.upstreamRequestsPerMinute = upstreamRequestsPerMinute;
+    }
+    
+    public long getUpstreamTokensPerMinute() {
+        return upstreamTokensPerMinute;
+    }
+    
+    public void setUpstreamTokensPerMinute(long upstreamTokensPerMinute) {
+        this.upstreamTokensPerMinute = upstreamTokensPerMinute;
+    }
+}
@@ -2,13 +2,20 @@ package com.questiongenerator.entity;
 
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
-@Table(name = "question_history")
+@Table(name = "question_history", indexes = {
+    // Keyset pagination walks (created_at, id) newest first
+    @Index(name = "idx_question_history_created_at_id", columnList = "created_at, id")
+})
 public class QuestionHistory {
     
+    // Sequence ids (allocated 50 at a time) let Hibernate batch inserts; IDENTITY forces one round trip per row
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "question_history_seq")
+    @SequenceGenerator(name = "question_history_seq", sequenceName = "question_history_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
@@ -28,9 +35,19 @@ public class QuestionHistory {
     
     private boolean includeAnswers;
     
+    // Question counts, so list views don't have to load and parse the TEXT columns
+    private Integer technicalCount;
+    
+    private Integer behavioralCount;
+    
     @Column(nullable = false)
     private LocalDateTime createdAt;
     
+    // Normalized per-question rows; the TEXT columns above are kept as the full-text search document
+    @OneToMany(mappedBy = "history", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("section ASC, position ASC")
+    private List<HistoryQuestion> items = new ArrayList<>();
+    
     // Constructors
     public QuestionHistory() {
         this.createdAt = LocalDateTime.now();
@@ -105,6 +122,22 @@ public class QuestionHistory {
         this.includeAnswers = includeAnswers;
     }
     
+    public Integer getTechnicalCount() {
+        return technicalCount;
+    }
+    
+    public void setTechnicalCount(Integer technicalCount) {
+        this.technicalCount = technicalCount;
+    }
+    
+    public Integer getBehavioralCount() {
+        return behavioralCount;
+    }
+    
+    public void setBehavioralCount(Integer behavioralCount) {
+        this.behavioralCount = behavioralCount;
+    }
+    
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -112,4 +145,17 @@ public class QuestionHistory {
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
+    
+    public List<HistoryQuestion> getItems() {
+        return items;
+    }
+    
+    public void setItems(List<HistoryQuestion> items) {
+        this.items = items;
+    }
+    
+    public void addItem(HistoryQuestion item) {
+        item.setHistory(this);
+        items.add(item);
+    }
 }
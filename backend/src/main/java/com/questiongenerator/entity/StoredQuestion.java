@@ -0,0 +1,73 @@
+package com.questiongenerator.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A distinct question text, shared by every history entry that contains it. Identity is the hash of the
+ * normalized text (see QuestionCatalog), so the same question generated twice is stored once.
+ */
+@Entity
+@Table(name = "question", indexes = {
+    @Index(name = "uk_question_text_hash", columnList = "text_hash", unique = true)
+})
+public class StoredQuestion {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "question_seq")
+    @SequenceGenerator(name = "question_seq", sequenceName = "question_seq", allocationSize = 50)
+    private Long id;
+    
+    @Column(nullable = false, length = 64)
+    private String textHash;
+    
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String questionText;
+    
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+    
+    // Constructors
+    public StoredQuestion() {
+        this.createdAt = LocalDateTime.now();
+    }
+    
+    public StoredQuestion(String textHash, String questionText) {
+        this.textHash = textHash;
+        this.questionText = questionText;
+        this.createdAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getTextHash() {
+        return textHash;
+    }
+    
+    public void setTextHash(String textHash) {
+        this.textHash = textHash;
+    }
+    
+    public String getQuestionText() {
+        return questionText;
+    }
+    
+    public void setQuestionText(String questionText) {
+        this.questionText = questionText;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
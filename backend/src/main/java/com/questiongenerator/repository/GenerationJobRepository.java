@@ -0,0 +1,46 @@
+package com.questiongenerator.repository;
+
+import com.questiongenerator.entity.GenerationJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface GenerationJobRepository extends JpaRepository<GenerationJob, String> {
+    
+    long countByStatus(String status);
+    
+    // Oldest jobs in a status, highest priority first
+    List<GenerationJob> findByStatusOrderByPriorityAscCreatedAtAsc(String status, Pageable pageable);
+    
+    // Claims a queued job; returns 0 if another instance (or an earlier pass) already claimed it
+    @Modifying
+    @Transactional
+    @Query("update GenerationJob j set j.status = 'RUNNING', j.startedAt = :now, j.attempts = j.attempts + 1 "
+            + "where j.id = :id and j.status = 'QUEUED'")
+    int claim(@Param("id") String id, @Param("now") LocalDateTime now);
+    
+    // Jobs left RUNNING by an instance that stopped go back to the queue while they have attempts left
+    @Modifying
+    @Transactional
+    @Query("update GenerationJob j set j.status = 'QUEUED' "
+            + "where j.status = 'RUNNING' and j.startedAt < :before and j.attempts < :maxAttempts")
+    int requeueStale(@Param("before") LocalDateTime before, @Param("maxAttempts") int maxAttempts);
+    
+    List<GenerationJob> findByStatusAndStartedAtBefore(String status, LocalDateTime before);
+    
+    // Finished jobs whose webhook was not delivered before the instance stopped
+    List<GenerationJob> findByCallbackStatusAndCompletedAtBefore(String callbackStatus, LocalDateTime before);
+    
+    @Modifying
+    @Transactional
+    @Query("delete from GenerationJob j where j.completedAt < :before")
+    int deleteCompletedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,18 @@
+package com.questiongenerator.repository;
+
+import com.questiongenerator.entity.HistoryQuestion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface HistoryQuestionRepository extends JpaRepository<HistoryQuestion, Long> {
+    
+    // All questions of one history entry, with their shared text, in display order
+    @Query("select i from HistoryQuestion i join fetch i.question where i.history.id = :historyId "
+            + "order by i.section, i.position")
+    List<HistoryQuestion> findWithQuestionsByHistoryId(@Param("historyId") Long historyId);
+}
@@ -0,0 +1,25 @@
+package com.questiongenerator.repository;
+
+import com.questiongenerator.entity.ProviderQuotaNode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ProviderQuotaNodeRepository extends JpaRepository<ProviderQuotaNode, String> {
+    
+    // Nodes that reported recently, this one included
+    List<ProviderQuotaNode> findByProviderAndHeartbeatAtAfter(String provider, LocalDateTime since);
+    
+    // Rows of nodes that stopped
+    @Modifying
+    @Transactional
+    @Query("delete from ProviderQuotaNode n where n.heartbeatAt < :before")
+    int deleteStale(@Param("before") LocalDateTime before);
+}
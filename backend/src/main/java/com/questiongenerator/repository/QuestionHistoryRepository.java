@@ -1,23 +1,41 @@
 package com.questiongenerator.repository;
 
+import com.questiongenerator.dto.HistorySummary;
 import com.questiongenerator.entity.QuestionHistory;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface QuestionHistoryRepository extends JpaRepository<QuestionHistory, Long> {
     
-    // Get recent history ordered by creation date
-    List<QuestionHistory> findTop20ByOrderByCreatedAtDesc();
+    String SUMMARY = "select new com.questiongenerator.dto.HistorySummary(h.id, h.role, h.topic, h.difficulty, "
+            + "h.includeAnswers, h.technicalCount, h.behavioralCount, h.createdAt) from QuestionHistory h ";
     
-    // Search by role
-    List<QuestionHistory> findByRoleContainingIgnoreCaseOrderByCreatedAtDesc(String role);
+    // Row-value "(createdAt, id) < (:createdAt, :id)", written so the leading <= bounds the index range scan
+    String BEFORE_CURSOR = "h.createdAt <= :createdAt and (h.createdAt < :createdAt or h.id < :id) ";
     
-    // Search by topic
-    List<QuestionHistory> findByTopicContainingIgnoreCaseOrderByCreatedAtDesc(String topic);
+    String NEWEST_FIRST = "order by h.createdAt desc, h.id desc";
     
-    // Search by difficulty
-    List<QuestionHistory> findByDifficultyIgnoreCaseOrderByCreatedAtDesc(String difficulty);
+    // Get a page of the most recent history (used for cache warm-up)
+    List<QuestionHistory> findAllByOrderByCreatedAtDesc(Pageable pageable);
+    
+    // Keyset pagination: the first page, then every row strictly older than the cursor (createdAt, id).
+    // Only the summary columns are selected, so the TEXT question columns are never read for list views.
+    @Query(SUMMARY + NEWEST_FIRST)
+    List<HistorySummary> findSummaries(Pageable pageable);
+    
+    @Query(SUMMARY + "where " + BEFORE_CURSOR + NEWEST_FIRST)
+    List<HistorySummary> findSummariesBefore(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                                             Pageable pageable);
+    
+    // History ids with no normalized question rows yet, in id order (used by the question migration)
+    @Query("select h.id from QuestionHistory h where h.id > :after "
+            + "and not exists (select 1 from HistoryQuestion i where i.history = h) order by h.id")
+    List<Long> findIdsWithoutItems(@Param("after") Long after, Pageable pageable);
 }
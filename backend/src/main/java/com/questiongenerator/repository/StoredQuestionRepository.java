@@ -0,0 +1,15 @@
+package com.questiongenerator.repository;
+
+import com.questiongenerator.entity.StoredQuestion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StoredQuestionRepository extends JpaRepository<StoredQuestion, Long> {
+    
+    // Resolve a batch of normalized-text hashes to existing questions in one query
+    List<StoredQuestion> findByTextHashIn(Collection<String> textHashes);
+}
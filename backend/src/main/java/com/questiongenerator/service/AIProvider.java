@@ -1,6 +1,16 @@
 package com.questiongenerator.service;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface AIProvider {
-    String generateResponse(String prompt, double temperature) throws Exception;
-}
+    // Short identifier used in configuration, logs and metrics (e.g. "huggingface")
+    String getName();
 
+    String generateResponse(Prompt prompt) throws Exception;
+
+    /**
+     * Non-blocking variant of {@link #generateResponse}. The returned future completes with the
+     * generated text, or exceptionally with the provider error.
+     */
+    CompletableFuture<String> generateResponseAsync(Prompt prompt);
+}
@@ -0,0 +1,29 @@
+package com.questiongenerator.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import com.questiongenerator.dto.HealthResponse;
+
+/**
+ * Exposes provider circuit breaker state under /actuator/health (component "aiProviders").
+ * Degraded providers are reported as details but keep the instance UP; only "all open" is DOWN.
+ */
+@Component("aiProviders")
+public class AIProviderHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private RoutingAIProvider routingAIProvider;
+
+    @Override
+    public Health health() {
+        HealthResponse response = routingAIProvider.getHealth();
+        Health.Builder builder = "DOWN".equals(response.getStatus()) ? Health.down() : Health.up();
+        return builder
+                .withDetail("status", response.getStatus())
+                .withDetail("providers", response.getProviders())
+                .build();
+    }
+}
@@ -0,0 +1,208 @@
+package com.questiongenerator.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.questiongenerator.dto.BatchItemResult;
+import com.questiongenerator.dto.BatchQuestionResponse;
+import com.questiongenerator.dto.QuestionRequest;
+import com.questiongenerator.dto.QuestionResponse;
+
+/**
+ * Generates question sets for many role/topic combinations in one call. Duplicate requests (by normalized
+ * cache key) are generated once, at most {@code max-parallelism} generations run at a time, and all
+ * results are handed to the {@link HistoryWriter} in a single enqueueAll, which writes them in JDBC batches.
+ */
+@Service
+public class BatchGenerationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchGenerationService.class);
+
+    @Autowired
+    private QuestionService questionService;
+
+    @Value("${question.batch.max-size:100}")
+    private int maxBatchSize;
+
+    @Value("${question.batch.max-parallelism:4}")
+    private int maxParallelism;
+
+    @Value("${question.batch.job-retention:PT1H}")
+    private Duration jobRetention;
+
+    private final ConcurrentMap<String, BatchJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the batch and completes once every item has a result or an error. Provider calls wait in the batch lane
+     * of the {@link GenerationScheduler}, charged to the given tenant.
+     */
+    public CompletableFuture<BatchQuestionResponse> generateBatch(List<QuestionRequest> requests, String tenant) {
+        BatchJob job = start(requests, Caller.batch(tenant));
+        return job.completion.thenApply(v -> job.toResponse());
+    }
+
+    /** Starts the batch in the background and returns its job id for polling. */
+    public BatchQuestionResponse submitBatch(List<QuestionRequest> requests, String tenant) {
+        return start(requests, Caller.batch(tenant)).toResponse();
+    }
+
+    public Optional<BatchQuestionResponse> getJob(String jobId) {
+        BatchJob job = jobs.get(jobId);
+        return job == null ? Optional.empty() : Optional.of(job.toResponse());
+    }
+
+    private BatchJob start(List<QuestionRequest> requests, Caller caller) {
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Batch size " + requests.size() + " exceeds the maximum of " + maxBatchSize);
+        }
+        purgeExpiredJobs();
+
+        Map<QuestionCacheKey, Item> unique = new LinkedHashMap<>();
+        List<Item> ordered = new ArrayList<>(requests.size());
+        for (QuestionRequest request : requests) {
+            ordered.add(unique.computeIfAbsent(QuestionCacheKey.from(request), key -> new Item(request)));
+        }
+
+        BatchJob job = new BatchJob(UUID.randomUUID().toString(), requests, ordered, unique.values());
+        jobs.put(job.id, job);
+        logger.info("Starting batch {}: {} requests, {} unique, parallelism {}",
+                job.id, requests.size(), unique.size(), maxParallelism);
+
+        List<Item> work = new ArrayList<>(unique.values());
+        job.completion = runBounded(work, caller)
+                .thenRun(() -> persist(job))
+                .whenComplete((v, e) -> {
+                    job.completedAt = System.currentTimeMillis();
+                    if (e != null) {
+                        logger.error("Batch {} failed: {}", job.id, e.getMessage(), e);
+                    } else {
+                        logger.info("Batch {} completed: {} of {} unique requests failed", job.id, job.failedCount(), work.size());
+                    }
+                });
+        return job;
+    }
+
+    // Runs the items in at most maxParallelism lanes; each lane picks up the next item when its current one finishes
+    private CompletableFuture<Void> runBounded(List<Item> items, Caller caller) {
+        AtomicInteger next = new AtomicInteger();
+        int lanes = Math.max(1, Math.min(maxParallelism, items.size()));
+        CompletableFuture<?>[] running = new CompletableFuture<?>[lanes];
+        for (int i = 0; i < lanes; i++) {
+            running[i] = runLane(items, next, caller);
+        }
+        return CompletableFuture.allOf(running);
+    }
+
+    private CompletableFuture<Void> runLane(List<Item> items, AtomicInteger next, Caller caller) {
+        int index = next.getAndIncrement();
+        if (index >= items.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Item item = items.get(index);
+        CompletableFuture<QuestionResponse> generation;
+        try {
+            generation = questionService.generateWithoutHistory(item.request, caller);
+        } catch (RuntimeException e) {
+            generation = CompletableFuture.failedFuture(e);
+        }
+        return generation
+                .handle((result, e) -> {
+                    if (e != null) {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        item.error = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+                    } else {
+                        item.result = result;
+                    }
+                    return null;
+                })
+                .thenCompose(v -> runLane(items, next, caller));
+    }
+
+    private void persist(BatchJob job) {
+        Map<QuestionRequest, QuestionResponse> successes = new LinkedHashMap<>();
+        for (Item item : job.unique) {
+            if (item.result != null) {
+                successes.put(item.request, item.result);
+            }
+        }
+        if (!successes.isEmpty()) {
+            questionService.saveBatchToHistory(successes);
+        }
+    }
+
+    private void purgeExpiredJobs() {
+        long cutoff = System.currentTimeMillis() - jobRetention.toMillis();
+        jobs.values().removeIf(job -> job.completedAt > 0 && job.completedAt < cutoff);
+    }
+
+    private static final class Item {
+        private final QuestionRequest request;
+        private volatile QuestionResponse result;
+        private volatile String error;
+
+        private Item(QuestionRequest request) {
+            this.request = request;
+        }
+
+        private boolean isDone() {
+            return result != null || error != null;
+        }
+    }
+
+    private static final class BatchJob {
+        private final String id;
+        private final List<QuestionRequest> requests;
+        private final List<Item> ordered;
+        private final Collection<Item> unique;
+        private volatile CompletableFuture<Void> completion;
+        private volatile long completedAt;
+
+        private BatchJob(String id, List<QuestionRequest> requests, List<Item> ordered, Collection<Item> unique) {
+            this.id = id;
+            this.requests = requests;
+            this.ordered = ordered;
+            this.unique = unique;
+        }
+
+        private int failedCount() {
+            return (int) unique.stream().filter(item -> item.error != null).count();
+        }
+
+        private BatchQuestionResponse toResponse() {
+            boolean done = completedAt > 0;
+            BatchQuestionResponse response = new BatchQuestionResponse();
+            response.setJobId(id);
+            response.setStatus(done ? "COMPLETED" : "RUNNING");
+            response.setTotal(ordered.size());
+            response.setUnique(unique.size());
+            response.setCompleted((int) unique.stream().filter(Item::isDone).count());
+            response.setFailed(failedCount());
+            if (done) {
+                List<BatchItemResult> results = new ArrayList<>(ordered.size());
+                for (int i = 0; i < ordered.size(); i++) {
+                    Item item = ordered.get(i);
+                    results.add(new BatchItemResult(requests.get(i), item.result, item.error));
+                }
+                response.setResults(results);
+            }
+            return response;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.questiongenerator.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Who a generation runs for, as the {@link GenerationScheduler} sees it: the tenant its provider capacity is
+ * charged to, and its lane. Interactive generations have someone waiting on the response and are served before
+ * batch generations (batches and background jobs).
+ */
+public final class Caller {
+
+    // Requests that name no tenant share one
+    public static final String DEFAULT_TENANT = "default";
+
+    private static final int MAX_TENANT_LENGTH = 64;
+
+    private final String tenant;
+    private final boolean interactive;
+
+    private Caller(String tenant, boolean interactive) {
+        this.tenant = tenant;
+        this.interactive = interactive;
+    }
+
+    public static Caller interactive(String tenant) {
+        return new Caller(tenant != null ? tenant : DEFAULT_TENANT, true);
+    }
+
+    public static Caller batch(String tenant) {
+        return new Caller(tenant != null ? tenant : DEFAULT_TENANT, false);
+    }
+
+    /**
+     * The tenant named by a tenant id header, else by an API key, else the default tenant. API keys are not kept
+     * or logged as such: the tenant is "key:" followed by the first 16 hex digits of the key's SHA-256.
+     */
+    public static String tenantOf(String tenantId, String apiKey) {
+        if (tenantId != null && !tenantId.isBlank()) {
+            String trimmed = tenantId.trim();
+            return trimmed.length() > MAX_TENANT_LENGTH ? trimmed.substring(0, MAX_TENANT_LENGTH) : trimmed;
+        }
+        if (apiKey != null && !apiKey.isBlank()) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(apiKey.trim().getBytes(StandardCharsets.UTF_8));
+                return "key:" + HexFormat.of().formatHex(digest, 0, 8);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+        return DEFAULT_TENANT;
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public boolean isInteractive() {
+        return interactive;
+    }
+
+    public String getLane() {
+        return interactive ? "interactive" : "batch";
+    }
+
+    @Override
+    public String toString() {
+        return tenant + "/" + getLane();
+    }
+}
@@ -0,0 +1,561 @@
+package com.questiongenerator.service;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.questiongenerator.dto.GenerationJobResponse;
+import com.questiongenerator.dto.QuestionRequest;
+import com.questiongenerator.dto.QuestionResponse;
+import com.questiongenerator.entity.GenerationJob;
+import com.questiongenerator.repository.GenerationJobRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Background generation jobs. Submitting stores the job as QUEUED and returns at once; the result is polled from
+ * the database or POSTed to the job's callback URL.
+ * <p>
+ * At most {@code max-concurrent} jobs generate at a time. Waiting jobs are held in a priority queue of at most
+ * {@code queue-capacity} entries (high before normal before low, oldest first); anything beyond that stays in the
+ * database and is loaded by a poller as the queue drains, so a burst is absorbed up to {@code max-queued} jobs.
+ * A job is claimed with a conditional update before it starts, so several instances can share the table without
+ * running a job twice. Every generation is bounded by {@code timeout}; a job still RUNNING well after that belonged
+ * to an instance that stopped, and is queued again (up to {@code max-attempts} starts) by the poller.
+ * <p>
+ * Callbacks are delivered at least once: failed deliveries are retried with exponential backoff, and deliveries
+ * still pending when an instance stopped are resent on startup. With {@code callback.secret} set, each callback
+ * carries {@code X-Signature: sha256=<hex HMAC of the body>}.
+ */
+@Service
+public class GenerationJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationJobService.class);
+
+    private static final String[] PRIORITIES = {"high", "normal", "low"};
+    private static final int NORMAL_PRIORITY = 1;
+
+    @Autowired
+    private QuestionService questionService;
+
+    @Autowired
+    private GenerationJobRepository jobRepository;
+
+    @Autowired
+    private ThreadPoolTaskExecutor generationExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${question.jobs.max-concurrent:8}")
+    private int maxConcurrent;
+
+    @Value("${question.jobs.queue-capacity:500}")
+    private int queueCapacity;
+
+    @Value("${question.jobs.max-queued:10000}")
+    private long maxQueued;
+
+    @Value("${question.jobs.timeout:PT3M}")
+    private Duration timeout;
+
+    @Value("${question.jobs.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${question.jobs.poll-interval:PT10S}")
+    private Duration pollInterval;
+
+    @Value("${question.jobs.retention:PT24H}")
+    private Duration retention;
+
+    @Value("${question.jobs.callback.allowed-hosts:}")
+    private Set<String> allowedCallbackHosts;
+
+    @Value("${question.jobs.callback.secret:}")
+    private String callbackSecret;
+
+    @Value("${question.jobs.callback.max-attempts:5}")
+    private int callbackMaxAttempts;
+
+    @Value("${question.jobs.callback.initial-backoff:PT2S}")
+    private Duration callbackBackoff;
+
+    @Value("${question.jobs.callback.timeout:PT10S}")
+    private Duration callbackTimeout;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    // Runs the poller, callback retries and callback responses; generation itself runs on the provider's threads
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "generation-jobs");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final HttpClient callbackClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .executor(scheduler)
+            .build();
+
+    // Guarded by this
+    private final PriorityQueue<QueuedJob> queue = new PriorityQueue<>();
+    private final Set<String> queuedIds = new HashSet<>();
+    private int running;
+    private long sequence;
+
+    private Counter succeeded;
+    private Counter failed;
+    private Counter callbacksDelivered;
+    private Counter callbacksRetried;
+    private Counter callbacksFailed;
+    private Timer queueWait;
+
+    @PostConstruct
+    void init() {
+        succeeded = meterRegistry.counter("question.jobs.completed", "outcome", "succeeded");
+        failed = meterRegistry.counter("question.jobs.completed", "outcome", "failed");
+        callbacksDelivered = meterRegistry.counter("question.jobs.callbacks", "outcome", "delivered");
+        callbacksRetried = meterRegistry.counter("question.jobs.callbacks", "outcome", "retried");
+        callbacksFailed = meterRegistry.counter("question.jobs.callbacks", "outcome", "failed");
+        queueWait = meterRegistry.timer("question.jobs.queue.wait");
+        Gauge.builder("question.jobs.queued", this, GenerationJobService::queuedCount).register(meterRegistry);
+        Gauge.builder("question.jobs.running", this, GenerationJobService::runningCount).register(meterRegistry);
+    }
+
+    // Resends undelivered callbacks, then polls for stale and overflow jobs
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler.execute(this::resendPendingCallbacks);
+        scheduler.scheduleWithFixedDelay(this::poll, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Queued and running jobs stay in the database and are picked up again
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Stores the job and queues it. Throws IllegalArgumentException for an invalid priority or callback URL, and
+     * RejectedExecutionException when {@code max-queued} jobs are already waiting. The job's provider calls wait in
+     * the batch lane of the {@link GenerationScheduler}, charged to the given tenant.
+     */
+    public GenerationJobResponse submit(QuestionRequest request, String priority, String callbackUrl, String userId,
+                                        String tenant) {
+        int rank = priorityRank(priority);
+        String callback = validateCallbackUrl(callbackUrl);
+        if (jobRepository.countByStatus(GenerationJob.QUEUED) >= maxQueued) {
+            throw new RejectedExecutionException("Too many queued jobs");
+        }
+
+        GenerationJob job = new GenerationJob(UUID.randomUUID().toString(), rank, request.getRole(),
+                request.getTopic(), request.getDifficulty(), request.isIncludeAnswers(), userId, callback);
+        job.setTenant(tenant);
+        job = jobRepository.save(job);
+        logger.debug("Queued job {} with {} priority", job.getId(), PRIORITIES[rank]);
+        enqueue(job);
+        dispatch();
+        return toResponse(job);
+    }
+
+    public Optional<GenerationJobResponse> getJob(String jobId) {
+        return jobRepository.findById(jobId).map(this::toResponse);
+    }
+
+    public Duration getPollInterval() {
+        return pollInterval;
+    }
+
+    private synchronized void enqueue(GenerationJob job) {
+        // A full queue leaves the job in the database; the poller loads it once there is room
+        if (queue.size() < queueCapacity && queuedIds.add(job.getId())) {
+            queue.add(new QueuedJob(job.getId(), job.getPriority(), sequence++));
+        }
+    }
+
+    private void dispatch() {
+        while (true) {
+            QueuedJob next;
+            synchronized (this) {
+                if (running >= maxConcurrent || queue.isEmpty()) {
+                    return;
+                }
+                next = queue.poll();
+                queuedIds.remove(next.id);
+                running++;
+            }
+            try {
+                generationExecutor.execute(() -> run(next.id));
+            } catch (RejectedExecutionException e) {
+                // Still QUEUED in the database, so the poller retries it
+                logger.warn("Generation executor is saturated, job {} waits for the next poll", next.id);
+                release(false);
+                return;
+            }
+        }
+    }
+
+    private void run(String jobId) {
+        GenerationJob job;
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            if (jobRepository.claim(jobId, now) == 0) {
+                // Started elsewhere, or already finished
+                release(true);
+                return;
+            }
+            job = jobRepository.findById(jobId).orElseThrow();
+            queueWait.record(Duration.between(job.getCreatedAt(), now));
+        } catch (RuntimeException e) {
+            logger.error("Could not start job {}: {}", jobId, e.getMessage(), e);
+            release(true);
+            return;
+        }
+
+        QuestionRequest request = new QuestionRequest(job.getRole(), job.getTopic(), job.getDifficulty(),
+                job.isIncludeAnswers());
+        CompletableFuture<QuestionResponse> generation;
+        try {
+            generation = questionService.generateQuestionsAsync(request, job.getUserId(), Caller.batch(job.getTenant()));
+        } catch (RuntimeException e) {
+            generation = CompletableFuture.failedFuture(e);
+        }
+        generation.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).whenComplete((result, e) -> {
+            Runnable complete = () -> {
+                try {
+                    finish(job, result, e);
+                } finally {
+                    release(true);
+                }
+            };
+            // Off the provider's callback thread, since finishing writes to the database
+            try {
+                generationExecutor.execute(complete);
+            } catch (RejectedExecutionException rejected) {
+                complete.run();
+            }
+        });
+    }
+
+    private void finish(GenerationJob job, QuestionResponse result, Throwable error) {
+        try {
+            if (error == null) {
+                job.setStatus(GenerationJob.SUCCEEDED);
+                job.setResult(objectMapper.writeValueAsString(result));
+                succeeded.increment();
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                job.setStatus(GenerationJob.FAILED);
+                job.setError(cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName());
+                failed.increment();
+                logger.warn("Job {} failed: {}", job.getId(), job.getError());
+            }
+            job.setCompletedAt(LocalDateTime.now());
+            if (job.getCallbackUrl() != null) {
+                job.setCallbackStatus(GenerationJob.CALLBACK_PENDING);
+            }
+            jobRepository.save(job);
+            if (job.getCallbackUrl() != null) {
+                deliver(job);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Left RUNNING; the poller runs the job again once it is stale
+            logger.error("Could not record the result of job {}: {}", job.getId(), e.getMessage(), e);
+        }
+    }
+
+    private void release(boolean next) {
+        synchronized (this) {
+            running--;
+        }
+        if (next) {
+            dispatch();
+        }
+    }
+
+    private void poll() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            // A generation ends by its timeout, so a job running much longer lost its instance
+            LocalDateTime staleBefore = now.minus(timeout).minus(pollInterval.multipliedBy(2));
+            for (GenerationJob stale : jobRepository.findByStatusAndStartedAtBefore(GenerationJob.RUNNING, staleBefore)) {
+                if (stale.getAttempts() >= maxAttempts) {
+                    finish(stale, null, new IllegalStateException("Job was interrupted " + stale.getAttempts() + " times"));
+                }
+            }
+            int requeued = jobRepository.requeueStale(staleBefore, maxAttempts);
+            if (requeued > 0) {
+                logger.warn("Requeued {} jobs left running by a stopped instance", requeued);
+            }
+
+            int room;
+            synchronized (this) {
+                room = queueCapacity - queue.size();
+            }
+            if (room > 0) {
+                for (GenerationJob job : jobRepository.findByStatusOrderByPriorityAscCreatedAtAsc(
+                        GenerationJob.QUEUED, PageRequest.of(0, room))) {
+                    enqueue(job);
+                }
+            }
+            dispatch();
+
+            int purged = jobRepository.deleteCompletedBefore(now.minus(retention));
+            if (purged > 0) {
+                logger.info("Purged {} finished jobs older than {}", purged, retention);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Job poll failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void resendPendingCallbacks() {
+        try {
+            List<GenerationJob> pending = jobRepository.findByCallbackStatusAndCompletedAtBefore(
+                    GenerationJob.CALLBACK_PENDING, LocalDateTime.now());
+            if (!pending.isEmpty()) {
+                logger.info("Resending {} undelivered job callbacks", pending.size());
+            }
+            pending.forEach(this::deliver);
+        } catch (RuntimeException e) {
+            logger.error("Could not load undelivered job callbacks: {}", e.getMessage(), e);
+        }
+    }
+
+    private void deliver(GenerationJob job) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(toResponse(job));
+        } catch (IOException e) {
+            logger.error("Could not serialize callback for job {}: {}", job.getId(), e.getMessage());
+            return;
+        }
+        deliver(job, body, job.getCallbackAttempts() + 1);
+    }
+
+    private void deliver(GenerationJob job, byte[] body, int attempt) {
+        URI callbackUri = URI.create(job.getCallbackUrl());
+        // Checked again on every attempt: the host's DNS record may have changed since the job was submitted
+        try {
+            if (!isAllowListed(callbackUri.getHost()) && isPrivateHost(callbackUri.getHost())) {
+                callbacksFailed.increment();
+                logger.warn("Not delivering callback for job {}: {} resolves to a private address", job.getId(),
+                        callbackUri.getHost());
+                recordCallback(job.getId(), GenerationJob.CALLBACK_FAILED, attempt);
+                return;
+            }
+        } catch (UnknownHostException e) {
+            // Left to the HTTP client, which fails and retries like any other unreachable host
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(callbackUri)
+                .timeout(callbackTimeout)
+                .header("Content-Type", "application/json")
+                .header("X-Job-Id", job.getId())
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+        if (!callbackSecret.isEmpty()) {
+            request.header("X-Signature", "sha256=" + sign(body));
+        }
+
+        callbackClient.sendAsync(request.build(), HttpResponse.BodyHandlers.discarding()).whenComplete((response, e) -> {
+            boolean delivered = e == null && response.statusCode() / 100 == 2;
+            if (delivered) {
+                callbacksDelivered.increment();
+                recordCallback(job.getId(), GenerationJob.CALLBACK_DELIVERED, attempt);
+            } else if (attempt < callbackMaxAttempts) {
+                callbacksRetried.increment();
+                long backoff = callbackBackoff.toMillis() << Math.min(attempt - 1, 10);
+                logger.debug("Callback for job {} failed ({}), retrying in {} ms", job.getId(),
+                        e != null ? e.getMessage() : "HTTP " + response.statusCode(), backoff);
+                recordCallback(job.getId(), GenerationJob.CALLBACK_PENDING, attempt);
+                try {
+                    scheduler.schedule(() -> deliver(job, body, attempt + 1), backoff, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException rejected) {
+                    // Shutting down; resent on the next startup
+                }
+            } else {
+                callbacksFailed.increment();
+                logger.warn("Giving up on callback for job {} after {} attempts", job.getId(), attempt);
+                recordCallback(job.getId(), GenerationJob.CALLBACK_FAILED, attempt);
+            }
+        });
+    }
+
+    private void recordCallback(String jobId, String status, int attempts) {
+        try {
+            jobRepository.findById(jobId).ifPresent(job -> {
+                job.setCallbackStatus(status);
+                job.setCallbackAttempts(attempts);
+                jobRepository.save(job);
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Could not record callback status of job {}: {}", jobId, e.getMessage());
+        }
+    }
+
+    private String sign(byte[] body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(callbackSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(body));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private static int priorityRank(String priority) {
+        if (priority == null || priority.isBlank()) {
+            return NORMAL_PRIORITY;
+        }
+        String name = priority.trim().toLowerCase(Locale.ROOT);
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            if (PRIORITIES[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Priority must be high, normal or low");
+    }
+
+    String validateCallbackUrl(String callbackUrl) {
+        if (callbackUrl == null || callbackUrl.isBlank()) {
+            return null;
+        }
+        URI uri;
+        try {
+            uri = URI.create(callbackUrl.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid callback URL: " + callbackUrl);
+        }
+        String scheme = uri.getScheme() == null ? "" : uri.getScheme().toLowerCase(Locale.ROOT);
+        if (!scheme.equals("http") && !scheme.equals("https") || uri.getHost() == null) {
+            throw new IllegalArgumentException("Callback URL must be an absolute http or https URL");
+        }
+        if (isAllowListed(uri.getHost())) {
+            return uri.toString();
+        }
+        if (!allowedCallbackHosts.isEmpty()) {
+            throw new IllegalArgumentException("Callback host is not allowed: " + uri.getHost());
+        }
+        try {
+            if (isPrivateHost(uri.getHost())) {
+                throw new IllegalArgumentException("Callback host is not allowed: " + uri.getHost());
+            }
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Unknown callback host: " + uri.getHost());
+        }
+        return uri.toString();
+    }
+
+    private boolean isAllowListed(String host) {
+        return allowedCallbackHosts.stream().anyMatch(allowed -> allowed.trim().equalsIgnoreCase(host));
+    }
+
+    /**
+     * Whether any address the host resolves to is loopback, link-local (cloud metadata endpoints), site-local,
+     * unique-local, the wildcard address or multicast. Callbacks must not reach into the service's own network.
+     */
+    private static boolean isPrivateHost(String host) throws UnknownHostException {
+        for (InetAddress address : InetAddress.getAllByName(host)) {
+            byte[] bytes = address.getAddress();
+            boolean uniqueLocal = bytes.length == 16 && (bytes[0] & 0xfe) == 0xfc;
+            if (address.isLoopbackAddress() || address.isLinkLocalAddress() || address.isSiteLocalAddress()
+                    || address.isAnyLocalAddress() || address.isMulticastAddress() || uniqueLocal) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private GenerationJobResponse toResponse(GenerationJob job) {
+        GenerationJobResponse response = new GenerationJobResponse();
+        response.setJobId(job.getId());
+        response.setStatus(job.getStatus());
+        response.setPriority(PRIORITIES[job.getPriority()]);
+        response.setRole(job.getRole());
+        response.setTopic(job.getTopic());
+        response.setDifficulty(job.getDifficulty());
+        response.setIncludeAnswers(job.isIncludeAnswers());
+        response.setCreatedAt(job.getCreatedAt());
+        response.setStartedAt(job.getStartedAt());
+        response.setCompletedAt(job.getCompletedAt());
+        response.setError(job.getError());
+        response.setCallbackStatus(job.getCallbackStatus());
+        if (job.getResult() != null) {
+            try {
+                response.setResult(objectMapper.readValue(job.getResult(), QuestionResponse.class));
+            } catch (IOException e) {
+                logger.error("Stored result of job {} is unreadable: {}", job.getId(), e.getMessage());
+            }
+        }
+        return response;
+    }
+
+    private synchronized int queuedCount() {
+        return queue.size();
+    }
+
+    private synchronized int runningCount() {
+        return running;
+    }
+
+    private static final class QueuedJob implements Comparable<QueuedJob> {
+        private final String id;
+        private final int priority;
+        private final long sequence;
+
+        private QueuedJob(String id, int priority, long sequence) {
+            this.id = id;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(QueuedJob other) {
+            return priority != other.priority
+                    ? Integer.compare(priority, other.priority)
+                    : Long.compare(sequence, other.sequence);
+        }
+    }
+}
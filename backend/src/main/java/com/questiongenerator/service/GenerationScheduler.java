@@ -0,0 +1,378 @@
+package com.questiongenerator.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Admits generations that need the provider, so that provider capacity is shared by who is asking rather than
+ * by who asks most. At most {@code max-concurrent} generations run at once, and (with {@code
+ * follow-provider-limit}) no more start than the primary provider has free permits; the rest wait in one of two
+ * lanes. Interactive generations go first; a waiting batch generation gets a turn after {@code interactive-burst}
+ * interactive starts in a row, so batches slow down under interactive load but never stop.
+ * <p>
+ * Within a lane, tenants are served by start-time fair queuing: each queued generation is tagged with its
+ * tenant's virtual start time, advancing by 1/weight per generation, and the lowest tag starts next. A tenant
+ * with a thousand queued generations therefore delays another tenant's single generation by about one start,
+ * not a thousand. Weights come from {@code tenant-weights} (default 1).
+ * <p>
+ * Waiting holds no thread: {@link #submit} returns a future at once, and the generation is started by whichever
+ * thread frees capacity. A full lane or tenant queue, or a wait beyond {@code max-wait}, fails the future with
+ * {@link QueueFullException} and a Retry-After estimated from the queue depth and recent generation times.
+ */
+@Component
+public class GenerationScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationScheduler.class);
+
+    // Assumed generation time until one has been measured; only used for Retry-After
+    private static final double INITIAL_SERVICE_SECONDS = 5.0;
+    // Weight of the newest sample in the moving average of generation times
+    private static final double SERVICE_TIME_SMOOTHING = 0.1;
+
+    @Autowired
+    private RoutingAIProvider routingAIProvider;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${question.scheduler.enabled:true}")
+    private boolean enabled;
+
+    @Value("${question.scheduler.max-concurrent:16}")
+    private int maxConcurrent;
+
+    // Also wait for a free permit at the primary provider (see ProviderGuard) before starting a generation
+    @Value("${question.scheduler.follow-provider-limit:true}")
+    private boolean followProviderLimit;
+
+    @Value("${question.scheduler.interactive-burst:4}")
+    private int interactiveBurst;
+
+    @Value("${question.scheduler.interactive.max-queued:200}")
+    private int interactiveMaxQueued;
+
+    @Value("${question.scheduler.interactive.max-queued-per-tenant:50}")
+    private int interactiveMaxQueuedPerTenant;
+
+    @Value("${question.scheduler.batch.max-queued:2000}")
+    private int batchMaxQueued;
+
+    @Value("${question.scheduler.batch.max-queued-per-tenant:1000}")
+    private int batchMaxQueuedPerTenant;
+
+    @Value("${question.scheduler.max-wait:PT60S}")
+    private Duration maxWait;
+
+    // tenant=weight pairs, comma-separated
+    @Value("${question.scheduler.tenant-weights:}")
+    private String tenantWeightSpec;
+
+    private final Map<String, Double> tenantWeights = new HashMap<>();
+
+    private Lane interactive;
+    private Lane batch;
+
+    // Guarded by this
+    private int running;
+    private int interactiveStreak;
+    // A thread is in dispatch()
+    private boolean dispatching;
+    private long sequence;
+    private double serviceSeconds = INITIAL_SERVICE_SECONDS;
+
+    @PostConstruct
+    void init() {
+        for (String entry : tenantWeightSpec.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.lastIndexOf('=');
+            double weight;
+            try {
+                weight = separator > 0 ? Double.parseDouble(entry.substring(separator + 1).trim()) : -1;
+            } catch (NumberFormatException e) {
+                weight = -1;
+            }
+            if (!(weight > 0)) {
+                throw new IllegalStateException("question.scheduler.tenant-weights: expected tenant=weight with a "
+                        + "positive weight, got '" + entry.trim() + "'");
+            }
+            tenantWeights.put(entry.substring(0, separator).trim(), weight);
+        }
+        interactive = new Lane("interactive", interactiveMaxQueued, interactiveMaxQueuedPerTenant);
+        batch = new Lane("batch", batchMaxQueued, batchMaxQueuedPerTenant);
+        Gauge.builder("question.scheduler.running", this, GenerationScheduler::runningCount)
+                .description("Generations admitted by the scheduler and not yet finished")
+                .register(meterRegistry);
+        if (enabled) {
+            logger.info("Generation scheduler: {} concurrent{}, tenant weights {}", maxConcurrent,
+                    followProviderLimit ? " (and within the provider's limit)" : "", tenantWeights);
+        }
+    }
+
+    /**
+     * Runs the generation once the caller's lane and tenant get their turn. The work is started on the thread
+     * that frees capacity (or the calling thread when there is room), so it should only start asynchronous work.
+     */
+    public <T> CompletableFuture<T> submit(Caller caller, Supplier<CompletableFuture<T>> work) {
+        if (!enabled) {
+            return call(work);
+        }
+        Task<T> task = new Task<>(caller, caller.isInteractive() ? interactive : batch, work);
+        QueueFullException rejection;
+        synchronized (this) {
+            rejection = enqueue(task);
+        }
+        if (rejection != null) {
+            logger.debug("Rejected generation for {}: {}", caller, rejection.getMessage());
+            return CompletableFuture.failedFuture(rejection);
+        }
+        dispatch();
+        if (!task.started) {
+            CompletableFuture.delayedExecutor(maxWait.toMillis(), TimeUnit.MILLISECONDS).execute(() -> expire(task));
+        }
+        return task.result;
+    }
+
+    private QueueFullException enqueue(Task<?> task) {
+        Lane lane = task.lane;
+        String tenant = task.caller.getTenant();
+        TenantState state = lane.tenants.get(tenant);
+        if (lane.queue.size() >= lane.maxQueued) {
+            lane.laneFull.increment();
+            return new QueueFullException("Too many " + lane.name + " generations are waiting",
+                    retryAfter(lane.queue.size()));
+        }
+        if (state != null && state.queued >= lane.maxQueuedPerTenant) {
+            lane.tenantFull.increment();
+            return new QueueFullException("Too many " + lane.name + " generations are waiting for tenant " + tenant,
+                    retryAfter(lane.queue.size()));
+        }
+        if (state == null) {
+            state = new TenantState();
+            lane.tenants.put(tenant, state);
+        }
+        task.start = Math.max(lane.virtualTime, state.lastFinish);
+        state.lastFinish = task.start + 1.0 / tenantWeights.getOrDefault(tenant, 1.0);
+        state.queued++;
+        task.sequence = sequence++;
+        lane.queue.add(task);
+        return null;
+    }
+
+    /**
+     * Starts queued generations while there is room; the work itself is started outside the lock. Only one thread
+     * dispatches at a time, in a loop: work that completes at once (a synchronous failure) frees its slot while
+     * the loop is still running, and the next pass fills it, instead of a nested dispatch per finished task.
+     */
+    private void dispatch() {
+        synchronized (this) {
+            // The thread already dispatching makes another pass before it stops, and sees what changed
+            if (dispatching) {
+                return;
+            }
+            dispatching = true;
+        }
+        List<Task<?>> ready = new ArrayList<>();
+        boolean stopped = false;
+        try {
+            while (!stopped) {
+                synchronized (this) {
+                    ready.clear();
+                    if (!interactive.queue.isEmpty() || !batch.queue.isEmpty()) {
+                        int providerRoom = followProviderLimit
+                                ? routingAIProvider.availableConcurrency() : Integer.MAX_VALUE;
+                        // With nothing running one generation always starts, so a provider that is down fails fast
+                        while (running < maxConcurrent && (providerRoom > 0 || running == 0)) {
+                            Task<?> task = next();
+                            if (task == null) {
+                                break;
+                            }
+                            task.started = true;
+                            running++;
+                            providerRoom--;
+                            ready.add(task);
+                        }
+                    }
+                    // Stopping in the same critical section as the last check, so no freed slot goes unnoticed
+                    stopped = ready.isEmpty();
+                    if (stopped) {
+                        dispatching = false;
+                    }
+                }
+                for (Task<?> task : ready) {
+                    start(task);
+                }
+            }
+        } finally {
+            if (!stopped) {
+                synchronized (this) {
+                    dispatching = false;
+                }
+            }
+        }
+    }
+
+    private Task<?> next() {
+        boolean batchTurn = !batch.queue.isEmpty()
+                && (interactive.queue.isEmpty() || (interactiveBurst > 0 && interactiveStreak >= interactiveBurst));
+        Lane lane = batchTurn ? batch : interactive;
+        Task<?> task = lane.queue.poll();
+        if (task == null) {
+            return null;
+        }
+        interactiveStreak = batchTurn ? 0 : interactiveStreak + 1;
+        lane.virtualTime = task.start;
+        dequeued(task);
+        return task;
+    }
+
+    private void dequeued(Task<?> task) {
+        Map<String, TenantState> tenants = task.lane.tenants;
+        TenantState state = tenants.get(task.caller.getTenant());
+        // An idle tenant starts again at the lane's virtual time, so state is only kept while it has work queued
+        if (--state.queued == 0) {
+            tenants.remove(task.caller.getTenant());
+        }
+    }
+
+    private <T> void start(Task<T> task) {
+        task.lane.waitTimer.record(System.nanoTime() - task.enqueuedAt, TimeUnit.NANOSECONDS);
+        long started = System.nanoTime();
+        call(task.work).whenComplete((value, e) -> {
+            finished(System.nanoTime() - started);
+            // Hand the result over before starting anything else, so it never waits for the generations behind it
+            if (e != null) {
+                task.result.completeExceptionally(e);
+            } else {
+                task.result.complete(value);
+            }
+            dispatch();
+        });
+    }
+
+    private synchronized void finished(long nanos) {
+        running--;
+        serviceSeconds += SERVICE_TIME_SMOOTHING * (nanos / 1e9 - serviceSeconds);
+    }
+
+    private void expire(Task<?> task) {
+        QueueFullException timeout;
+        synchronized (this) {
+            if (task.started || !task.lane.queue.remove(task)) {
+                return;
+            }
+            dequeued(task);
+            task.lane.expired.increment();
+            timeout = new QueueFullException("Waited more than " + maxWait.toSeconds() + "s in the "
+                    + task.lane.name + " queue", retryAfter(task.lane.queue.size()));
+        }
+        logger.debug("Generation for {} expired in the queue", task.caller);
+        task.result.completeExceptionally(timeout);
+    }
+
+    // Time for the generations ahead to drain at full concurrency, between one second and max-wait
+    private Duration retryAfter(int ahead) {
+        double seconds = Math.ceil((ahead + 1) * serviceSeconds / Math.max(1, maxConcurrent));
+        return Duration.ofSeconds((long) Math.max(1, Math.min(seconds, Math.max(1, maxWait.toSeconds()))));
+    }
+
+    private static <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> work) {
+        try {
+            return work.get();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private synchronized int runningCount() {
+        return running;
+    }
+
+    private synchronized int queuedCount(Lane lane) {
+        return lane.queue.size();
+    }
+
+    private final class Lane {
+        private final String name;
+        private final int maxQueued;
+        private final int maxQueuedPerTenant;
+        // Lowest virtual start first, then arrival order
+        private final PriorityQueue<Task<?>> queue = new PriorityQueue<>(
+                Comparator.<Task<?>>comparingDouble(task -> task.start).thenComparingLong(task -> task.sequence));
+        private final Map<String, TenantState> tenants = new HashMap<>();
+        private double virtualTime;
+
+        private final Timer waitTimer;
+        private final Counter laneFull;
+        private final Counter tenantFull;
+        private final Counter expired;
+
+        private Lane(String name, int maxQueued, int maxQueuedPerTenant) {
+            this.name = name;
+            this.maxQueued = maxQueued;
+            this.maxQueuedPerTenant = maxQueuedPerTenant;
+            this.waitTimer = Timer.builder("question.scheduler.wait")
+                    .tag("lane", name)
+                    .description("Time generations waited for a slot before calling the provider")
+                    .register(meterRegistry);
+            this.laneFull = rejections(name, "lane-full");
+            this.tenantFull = rejections(name, "tenant-full");
+            this.expired = rejections(name, "timeout");
+            Gauge.builder("question.scheduler.queued", this, lane -> queuedCount(lane))
+                    .tag("lane", name)
+                    .description("Generations waiting for a slot")
+                    .register(meterRegistry);
+        }
+
+        private Counter rejections(String lane, String reason) {
+            return Counter.builder("question.scheduler.rejected")
+                    .tag("lane", lane)
+                    .tag("reason", reason)
+                    .description("Generations turned away with 429 by the scheduler")
+                    .register(meterRegistry);
+        }
+    }
+
+    private static final class TenantState {
+        private int queued;
+        private double lastFinish;
+    }
+
+    private static final class Task<T> {
+        private final Caller caller;
+        private final Lane lane;
+        private final Supplier<CompletableFuture<T>> work;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final long enqueuedAt = System.nanoTime();
+        private double start;
+        private long sequence;
+        private volatile boolean started;
+
+        private Task(Caller caller, Lane lane, Supplier<CompletableFuture<T>> work) {
+            this.caller = caller;
+            this.lane = lane;
+            this.work = work;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.questiongenerator.service;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.questiongenerator.dto.HistoryCursor;
+import com.questiongenerator.dto.HistorySearchCriteria;
+import com.questiongenerator.dto.HistorySummary;
+
+/**
+ * Combined history search (role AND topic AND difficulty AND date range AND free text), newest first with
+ * keyset paging. Only the filters actually given end up in the SQL, so PostgreSQL can pick the matching
+ * index for each: trigram GIN indexes for role/topic substrings and the search_vector GIN index for free
+ * text (see schema-postgresql.sql). On other databases free text is resolved through the in-process
+ * {@link HistoryTextIndex}.
+ */
+@Service
+public class HistorySearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HistorySearchService.class);
+
+    private static final String SELECT_SUMMARY = "SELECT id, role, topic, difficulty, include_answers, "
+            + "technical_count, behavioral_count, created_at FROM question_history";
+
+    // Bounds the id list handed to the database by the in-process fallback
+    private static final int MAX_TEXT_MATCHES = 10000;
+
+    private static final RowMapper<HistorySummary> SUMMARY_MAPPER = (rs, rowNum) -> new HistorySummary(
+            rs.getLong("id"),
+            rs.getString("role"),
+            rs.getString("topic"),
+            rs.getString("difficulty"),
+            rs.getBoolean("include_answers"),
+            (Integer) rs.getObject("technical_count"),
+            (Integer) rs.getObject("behavioral_count"),
+            rs.getTimestamp("created_at").toLocalDateTime());
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private HistoryTextIndex textIndex;
+
+    // auto (PostgreSQL full-text when available), postgres, or in-process
+    @Value("${question.history.search.mode:auto}")
+    private String mode;
+
+    @Value("${question.history.search.index-chunk-size:500}")
+    private int indexChunkSize;
+
+    private volatile Boolean postgres;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (usePostgresFullText()) {
+            logger.info("History search uses PostgreSQL trigram and full-text indexes");
+            return;
+        }
+        textIndex.activate();
+        try {
+            int indexed = rebuildTextIndex();
+            logger.info("History search uses the in-process text index ({} rows, {} tokens)", indexed, textIndex.tokenCount());
+        } catch (Exception e) {
+            logger.warn("Failed to build history text index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} summaries matching the criteria, strictly older than the cursor if given.
+     */
+    public List<HistorySummary> search(HistorySearchCriteria criteria, HistoryCursor cursor, int limit) {
+        StringBuilder sql = new StringBuilder(SELECT_SUMMARY).append(" WHERE 1 = 1");
+        MapSqlParameterSource params = new MapSqlParameterSource();
+
+        if (criteria.getRole() != null) {
+            sql.append(" AND lower(role) LIKE :role ESCAPE '\\'");
+            params.addValue("role", containsPattern(criteria.getRole()));
+        }
+        if (criteria.getTopic() != null) {
+            sql.append(" AND lower(topic) LIKE :topic ESCAPE '\\'");
+            params.addValue("topic", containsPattern(criteria.getTopic()));
+        }
+        if (criteria.getDifficulty() != null) {
+            sql.append(" AND lower(difficulty) = :difficulty");
+            params.addValue("difficulty", criteria.getDifficulty().toLowerCase(Locale.ROOT));
+        }
+        if (criteria.getFrom() != null) {
+            sql.append(" AND created_at >= :from");
+            params.addValue("from", Timestamp.valueOf(criteria.getFrom()));
+        }
+        if (criteria.getTo() != null) {
+            sql.append(" AND created_at < :to");
+            params.addValue("to", Timestamp.valueOf(criteria.getTo()));
+        }
+        if (criteria.getText() != null) {
+            if (usePostgresFullText()) {
+                sql.append(" AND search_vector @@ websearch_to_tsquery('english', :text)");
+                params.addValue("text", criteria.getText());
+            } else {
+                Set<Long> ids = textIndex.match(criteria.getText());
+                if (ids.isEmpty()) {
+                    return List.of();
+                }
+                if (ids.size() > MAX_TEXT_MATCHES) {
+                    // Keep the newest matches; ids are sequence-allocated so they roughly follow creation order
+                    ids = Set.copyOf(ids.stream().sorted((a, b) -> Long.compare(b, a)).limit(MAX_TEXT_MATCHES).toList());
+                }
+                sql.append(" AND id IN (:ids)");
+                params.addValue("ids", ids);
+            }
+        }
+        if (cursor != null) {
+            sql.append(" AND (created_at, id) < (:cursorCreatedAt, :cursorId)");
+            params.addValue("cursorCreatedAt", Timestamp.valueOf(cursor.getCreatedAt()));
+            params.addValue("cursorId", cursor.getId());
+        }
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT :limit");
+        params.addValue("limit", limit);
+
+        return jdbcTemplate.query(sql.toString(), params, SUMMARY_MAPPER);
+    }
+
+    public boolean usePostgresFullText() {
+        if ("postgres".equalsIgnoreCase(mode)) {
+            return true;
+        }
+        if ("in-process".equalsIgnoreCase(mode)) {
+            return false;
+        }
+        if (postgres == null) {
+            String product = jdbcTemplate.getJdbcTemplate().execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            postgres = product != null && product.toLowerCase(Locale.ROOT).contains("postgres");
+        }
+        return postgres;
+    }
+
+    // Streams the table in id order, one chunk at a time, so the index can be built over large tables
+    private int rebuildTextIndex() {
+        String sql = "SELECT id, role, topic, technical_questions, behavioral_questions FROM question_history "
+                + "WHERE id > :after ORDER BY id LIMIT :limit";
+        long after = 0;
+        int total = 0;
+        while (true) {
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("after", after)
+                    .addValue("limit", indexChunkSize);
+            List<Long> ids = jdbcTemplate.query(sql, params, (rs, rowNum) -> {
+                long id = rs.getLong("id");
+                textIndex.add(id, rs.getString("role"), rs.getString("topic"),
+                        rs.getString("technical_questions"), rs.getString("behavioral_questions"));
+                return id;
+            });
+            if (ids.isEmpty()) {
+                return total;
+            }
+            total += ids.size();
+            after = ids.get(ids.size() - 1);
+        }
+    }
+
+    private static String containsPattern(String term) {
+        String escaped = term.trim().toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
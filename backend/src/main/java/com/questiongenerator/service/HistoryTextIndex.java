@@ -0,0 +1,99 @@
+package com.questiongenerator.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import com.questiongenerator.entity.QuestionHistory;
+
+/**
+ * In-process inverted index (token to history ids) used for free-text history search when the database
+ * has no full-text index of its own (H2 and other non-PostgreSQL setups). Built from the table on startup
+ * and kept current through {@link HistoryWriteListener}; only populated when {@link HistorySearchService} activates it.
+ */
+@Component
+public class HistoryTextIndex implements HistoryWriteListener {
+
+    private static final int MIN_TOKEN_LENGTH = 2;
+
+    private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+    private volatile boolean active;
+
+    void activate() {
+        active = true;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public void add(Long id, String... fields) {
+        if (!active || id == null) {
+            return;
+        }
+        for (String field : fields) {
+            for (String token : tokenize(field)) {
+                postings.computeIfAbsent(token, t -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+        }
+    }
+
+    @Override
+    public void onHistorySaved(List<QuestionHistory> histories) {
+        if (!active) {
+            return;
+        }
+        for (QuestionHistory history : histories) {
+            add(history.getId(), history.getRole(), history.getTopic(),
+                    history.getTechnicalQuestions(), history.getBehavioralQuestions());
+        }
+    }
+
+    /**
+     * Ids of rows containing every token of the query, or an empty set if any token is unknown.
+     */
+    public Set<Long> match(String query) {
+        List<Set<Long>> sets = new ArrayList<>();
+        for (String token : tokenize(query)) {
+            Set<Long> ids = postings.get(token);
+            if (ids == null) {
+                return Set.of();
+            }
+            sets.add(ids);
+        }
+        if (sets.isEmpty()) {
+            return Set.of();
+        }
+        // Intersect starting from the rarest token
+        sets.sort(Comparator.comparingInt(Set::size));
+        Set<Long> result = new HashSet<>(sets.get(0));
+        for (int i = 1; i < sets.size() && !result.isEmpty(); i++) {
+            result.retainAll(sets.get(i));
+        }
+        return result;
+    }
+
+    public int tokenCount() {
+        return postings.size();
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new HashSet<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+")) {
+            if (token.length() >= MIN_TOKEN_LENGTH) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
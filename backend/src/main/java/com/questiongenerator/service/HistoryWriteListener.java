@@ -0,0 +1,14 @@
+package com.questiongenerator.service;
+
+import java.util.List;
+
+import com.questiongenerator.entity.QuestionHistory;
+
+/**
+ * Notified by {@link HistoryWriter} after history entries (and their question rows) have been committed,
+ * so in-memory indexes built from the history table stay current.
+ */
+public interface HistoryWriteListener {
+
+    void onHistorySaved(List<QuestionHistory> histories);
+}
@@ -0,0 +1,250 @@
+package com.questiongenerator.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.questiongenerator.entity.HistoryQuestion;
+import com.questiongenerator.entity.QuestionHistory;
+import com.questiongenerator.repository.QuestionHistoryRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Write-behind queue for question history. Generations enqueue their history rows and return immediately;
+ * a single background thread flushes them with saveAll in batches of up to {@code batch-size}, which
+ * Hibernate turns into JDBC insert batches.
+ * <p>
+ * The queue is bounded. When it stays full for longer than {@code enqueue-timeout} the caller writes its
+ * row synchronously instead, which slows producers down rather than dropping history. On shutdown the
+ * queue is drained before the repository goes away.
+ */
+@Component
+public class HistoryWriter implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(HistoryWriter.class);
+
+    @Autowired
+    private QuestionHistoryRepository historyRepository;
+
+    @Autowired
+    private List<HistoryWriteListener> listeners;
+
+    @Autowired
+    private QuestionCatalog questionCatalog;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${question.history.write-behind.enabled:true}")
+    private boolean enabled;
+
+    @Value("${question.history.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${question.history.batch-size:50}")
+    private int batchSize;
+
+    @Value("${question.history.flush-interval:PT0.5S}")
+    private Duration flushInterval;
+
+    @Value("${question.history.enqueue-timeout:PT0.1S}")
+    private Duration enqueueTimeout;
+
+    @Value("${question.history.shutdown-timeout:PT30S}")
+    private Duration shutdownTimeout;
+
+    private BlockingQueue<QuestionHistory> queue;
+    private Thread flusher;
+    private volatile boolean running;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong writtenByCaller = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    // Database time per write transaction (catalog lookups, inserts and commit)
+    private Timer writeSuccessTimer;
+    private Timer writeFailureTimer;
+
+    @PostConstruct
+    void init() {
+        writeSuccessTimer = Timer.builder("question.history.write").tag("outcome", "success")
+                .description("History write transactions, one per batch or per row written by the caller")
+                .register(meterRegistry);
+        writeFailureTimer = Timer.builder("question.history.write").tag("outcome", "failure")
+                .description("History write transactions, one per batch or per row written by the caller")
+                .register(meterRegistry);
+    }
+
+    public void enqueue(QuestionHistory history) {
+        if (!running) {
+            writeNow(List.of(history));
+            return;
+        }
+        try {
+            if (!queue.offer(history, enqueueTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                logger.warn("History queue is full ({} entries), writing on the caller thread", queueCapacity);
+                writtenByCaller.incrementAndGet();
+                writeNow(List.of(history));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writeNow(List.of(history));
+        }
+    }
+
+    public void enqueueAll(Collection<QuestionHistory> histories) {
+        for (QuestionHistory history : histories) {
+            enqueue(history);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            logger.info("History write-behind disabled, history is written synchronously");
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        flusher = new Thread(this::flushLoop, "history-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        // New rows now go straight to the database; the flusher drains what is already queued and exits
+        running = false;
+        try {
+            flusher.join(shutdownTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (flusher.isAlive()) {
+            logger.warn("History writer did not drain within {}, {} entries still queued", shutdownTimeout, queue.size());
+        } else {
+            // Rows offered just as the writer stopped
+            List<QuestionHistory> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            if (!remaining.isEmpty()) {
+                writeNow(remaining);
+            }
+            logger.info("History writer drained; {} entries written, {} failed", written.get(), failed.get());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Low phase: stop after the web server has finished in-flight requests
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private void flushLoop() {
+        List<QuestionHistory> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                QuestionHistory first = queue.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writeNow(batch);
+            } catch (InterruptedException e) {
+                // Keep draining; the loop exits once the queue is empty and the writer is stopped
+                Thread.interrupted();
+            } catch (Exception e) {
+                logger.error("Unexpected error in history writer: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeNow(List<QuestionHistory> histories) {
+        long start = System.nanoTime();
+        try {
+            // Shared questions and the history rows that reference them commit together
+            transactionTemplate.executeWithoutResult(status -> {
+                List<HistoryQuestion> items = new ArrayList<>();
+                histories.forEach(history -> items.addAll(history.getItems()));
+                questionCatalog.resolve(items);
+                historyRepository.saveAll(histories);
+            });
+            writeSuccessTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            for (HistoryWriteListener listener : listeners) {
+                try {
+                    listener.onHistorySaved(histories);
+                } catch (Exception e) {
+                    logger.warn("History listener {} failed: {}", listener.getClass().getSimpleName(), e.getMessage());
+                }
+            }
+            written.addAndGet(histories.size());
+            batches.incrementAndGet();
+            logger.debug("Saved {} question history entries", histories.size());
+        } catch (Exception e) {
+            writeFailureTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (histories.size() == 1) {
+                failed.incrementAndGet();
+                logger.error("Failed to save question history: {}", e.getMessage(), e);
+                return;
+            }
+            // One bad row should not take the whole batch down with it
+            logger.warn("Batch history write of {} entries failed, retrying individually: {}", histories.size(), e.getMessage());
+            for (QuestionHistory history : histories) {
+                // Ids assigned inside the rolled-back transaction are not in the database
+                history.setId(null);
+                history.getItems().forEach(item -> item.setId(null));
+                writeNow(List.of(history));
+            }
+        }
+    }
+
+    public int queueSize() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    public long writtenCount() {
+        return written.get();
+    }
+
+    public long failedCount() {
+        return failed.get();
+    }
+
+    public long writtenByCallerCount() {
+        return writtenByCaller.get();
+    }
+
+    public long batchCount() {
+        return batches.get();
+    }
+}
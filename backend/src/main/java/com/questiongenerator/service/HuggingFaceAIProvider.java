@@ -1,52 +1,305 @@
 package com.questiongenerator.service;
 
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
 @Component
-public class HuggingFaceAIProvider implements AIProvider {
+public class HuggingFaceAIProvider implements StreamingAIProvider {
 
     private static final Logger logger = LoggerFactory.getLogger(HuggingFaceAIProvider.class);
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Shared, pooled non-blocking client (see AIClientConfig); in-flight requests hold no thread
+    @Autowired
+    private HttpClient huggingFaceHttpClient;
+
+    // Told about rate-limit headers and 429s so calls are paced and held back (see ProviderQuota)
+    @Autowired
+    private ProviderQuotaRegistry quotaRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Exchanges in flight, response bodies included. The JDK client does not expose its connection pool, so this
+    // is what shows how busy it is (OpenAI's OkHttp pool is measured directly, see AIClientConfig)
+    private final AtomicInteger activeRequests = new AtomicInteger();
 
     @Value("${huggingface.api.key:}")
     private String apiKey;
 
+    @Value("${huggingface.api.timeout:PT3M}")
+    private Duration requestTimeout;
+
+    @Value("${huggingface.api.max-tokens:7500}")
+    private int maxTokens;
+
     // The model id (owner/model). Keep this value or change to any compatible model.
     private static final String MODEL = "Qwen/Qwen2.5-7B-Instruct";
 
     // Use the router OpenAI-compatible endpoint (chat completions).
-    // This is the recommended way to call Hugging Face Router.
-    private static final String API_URL = "https://router.huggingface.co/v1/chat/completions";
+    // This is the recommended way to call Hugging Face Router; override to point at a local stub.
+    @Value("${huggingface.api.url:https://router.huggingface.co/v1/chat/completions}")
+    private String apiUrl;
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("ai.client.requests.active", activeRequests, AtomicInteger::get)
+                .tag("provider", getName())
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String getName() {
+        return "huggingface";
+    }
+
+    @Override
+    public String generateResponse(Prompt prompt) throws Exception {
+        logger.debug("Using Hugging Face API with model: {}", MODEL);
+
+        Runnable done = startRequest();
+        try {
+            logger.debug("Calling Hugging Face Router API: {}", apiUrl);
+            HttpResponse<String> response = huggingFaceHttpClient.send(buildRequest(prompt, false),
+                    tracked(HttpResponse.BodyHandlers.ofString(), done));
+            return handleResponse(response);
+        } catch (ProviderUnavailableException e) {
+            throw e;
+        } catch (Exception e) {
+            done.run();
+            logger.error("Error calling Hugging Face API: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to call Hugging Face API: " + e.getMessage(), e);
+        }
+    }
 
     @Override
-    public String generateResponse(String prompt, double temperature) throws Exception {
-        logger.info("Using Hugging Face API with model: {}", MODEL);
+    public CompletableFuture<String> generateResponseAsync(Prompt prompt) {
+        logger.debug("Using Hugging Face API (async) with model: {}", MODEL);
+
+        HttpRequest request;
+        try {
+            request = buildRequest(prompt, false);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        logger.debug("Calling Hugging Face Router API: {}", apiUrl);
+        Runnable done = startRequest();
+        CompletableFuture<HttpResponse<String>> exchange = huggingFaceHttpClient.sendAsync(request,
+                tracked(HttpResponse.BodyHandlers.ofString(), done));
+        CompletableFuture<String> result = exchange
+                .thenApply(this::handleResponse)
+                .handle((text, e) -> {
+                    if (e == null) {
+                        return text;
+                    }
+                    done.run();
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof ProviderUnavailableException unavailable) {
+                        throw unavailable;
+                    }
+                    String message = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+                    logger.error("Error calling Hugging Face API: {}", message);
+                    throw new RuntimeException("Failed to call Hugging Face API: " + message, cause);
+                });
+        // Cancelling the returned future (e.g. a losing hedged request) aborts the HTTP exchange
+        result.whenComplete((text, e) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+                done.run();
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public String streamResponse(Prompt prompt, Consumer<String> onChunk) throws Exception {
+        logger.debug("Streaming from Hugging Face API with model: {}", MODEL);
+
+        Runnable done = startRequest();
+        try {
+            HttpResponse<Stream<String>> response = huggingFaceHttpClient.send(buildRequest(prompt, true),
+                    tracked(HttpResponse.BodyHandlers.ofLines(), done));
+
+            StringBuilder fullText = new StringBuilder();
+            try (Stream<String> lines = response.body()) {
+                reportToQuota(response);
+                if (response.statusCode() == 429) {
+                    throw quotaRegistry.rateLimited(getName());
+                }
+                if (response.statusCode() < 200 || response.statusCode() >= 300) {
+                    throw new ProviderResponseException(getName(), response.statusCode(), "Hugging Face API error: "
+                            + response.statusCode() + " - " + lines.collect(Collectors.joining("\n")));
+                }
+
+                Iterator<String> it = lines.iterator();
+                while (it.hasNext()) {
+                    String line = it.next();
+                    // Server-sent events: only "data:" lines carry payload, "[DONE]" ends the stream
+                    if (!line.startsWith("data:")) {
+                        continue;
+                    }
+                    String data = line.substring(5).trim();
+                    if (data.equals("[DONE]")) {
+                        break;
+                    }
+                    if (data.isEmpty()) {
+                        continue;
+                    }
+                    String delta = extractStreamDelta(data);
+                    if (delta != null && !delta.isEmpty()) {
+                        fullText.append(delta);
+                        onChunk.accept(delta);
+                    }
+                }
+            }
+            return fullText.toString();
+        } catch (ProviderUnavailableException e) {
+            throw e;
+        } catch (Exception e) {
+            done.run();
+            logger.error("Error streaming from Hugging Face API: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to stream from Hugging Face API: " + e.getMessage(), e);
+        }
+    }
+
+    /** Counts an exchange as active; the returned callback ends it, and only the first call counts. */
+    private Runnable startRequest() {
+        activeRequests.incrementAndGet();
+        AtomicBoolean finished = new AtomicBoolean();
+        return () -> {
+            if (finished.compareAndSet(false, true)) {
+                activeRequests.decrementAndGet();
+            }
+        };
+    }
+
+    /** Wraps a body handler so the exchange ends when the body is fully read, fails or is cancelled. */
+    private static <T> HttpResponse.BodyHandler<T> tracked(HttpResponse.BodyHandler<T> handler, Runnable done) {
+        return info -> {
+            HttpResponse.BodySubscriber<T> body = handler.apply(info);
+            return new HttpResponse.BodySubscriber<>() {
+                @Override
+                public CompletionStage<T> getBody() {
+                    return body.getBody();
+                }
+
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    body.onSubscribe(new Flow.Subscription() {
+                        @Override
+                        public void request(long n) {
+                            subscription.request(n);
+                        }
+
+                        @Override
+                        public void cancel() {
+                            done.run();
+                            subscription.cancel();
+                        }
+                    });
+                }
+
+                @Override
+                public void onNext(List<ByteBuffer> item) {
+                    body.onNext(item);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    done.run();
+                    body.onError(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    done.run();
+                    body.onComplete();
+                }
+            };
+        };
+    }
+
+    private HttpRequest buildRequest(Prompt prompt, boolean stream) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(apiUrl))
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json")
+                .header("Accept", stream ? "text/event-stream" : "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(
+                        objectMapper.writeValueAsBytes(buildRequestBody(prompt, stream))));
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
         if (apiKey != null && !apiKey.isEmpty() && !apiKey.trim().isEmpty()) {
-            headers.setBearerAuth(apiKey.trim());
-            logger.info("Using Hugging Face API key");
+            builder.header("Authorization", "Bearer " + apiKey.trim());
+            logger.debug("Using Hugging Face API key");
         } else {
             logger.warn("No Hugging Face API key provided - some models may not work without authentication");
         }
+        return builder.build();
+    }
+
+    private String handleResponse(HttpResponse<String> response) {
+        logger.debug("Response status: {}", response.statusCode());
+        logger.debug("Response body: {}", response.body());
+
+        reportToQuota(response);
+        if (response.statusCode() == 429) {
+            logger.warn("Hugging Face API rate limit reached, holding calls back for {}",
+                    quotaRegistry.quotaFor(getName()).blockedFor());
+            throw quotaRegistry.rateLimited(getName());
+        }
+
+        String responseBody = response.body();
+        if (response.statusCode() < 200 || response.statusCode() >= 300) {
+            String errorMsg = "Hugging Face API error: " + response.statusCode() + " - " +
+                    (responseBody != null && !responseBody.isEmpty() ? responseBody : "No error details");
+            logger.error(errorMsg);
+            throw new ProviderResponseException(getName(), response.statusCode(), errorMsg);
+        }
+
+        if (responseBody == null || responseBody.trim().isEmpty()) {
+            throw new ProviderResponseException(getName(), response.statusCode(), "Hugging Face API returned empty response");
+        }
+
+        return extractGeneratedText(responseBody);
+    }
+
+    private void reportToQuota(HttpResponse<?> response) {
+        quotaRegistry.onResponse(getName(), response.statusCode(), name -> response.headers().firstValue(name).orElse(null));
+    }
 
+    private Map<String, Object> buildRequestBody(Prompt prompt, boolean stream) {
         // Build OpenAI-compatible body for /v1/chat/completions
         Map<String, Object> requestBody = new HashMap<>();
         requestBody.put("model", MODEL);
@@ -54,87 +307,88 @@ public class HuggingFaceAIProvider implements AIProvider {
         // messages array (chat API)
         Map<String, String> userMessage = new HashMap<>();
         userMessage.put("role", "user");
-        userMessage.put("content", prompt);
+        userMessage.put("content", prompt.getText());
         List<Map<String, String>> messages = new ArrayList<>();
         messages.add(userMessage);
         requestBody.put("messages", messages);
 
         // generation parameters
-        requestBody.put("temperature", temperature);
-        requestBody.put("max_tokens", 7500); // Increased for complete JSON responses
-        requestBody.put("stream", false);
-
-        HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
+        requestBody.put("temperature", prompt.getTemperature());
+        // Sized per prompt; the configured maximum caps it (and applies when the prompt has no budget)
+        requestBody.put("max_tokens", prompt.getMaxTokens() > 0 ? Math.min(prompt.getMaxTokens(), maxTokens) : maxTokens);
+        requestBody.put("stream", stream);
+        return requestBody;
+    }
 
+    // Extracts choices[0].delta.content from a streamed chat completion chunk
+    private String extractStreamDelta(String data) {
         try {
-            logger.debug("Calling Hugging Face Router API: {}", API_URL);
-            ResponseEntity<String> response = restTemplate.postForEntity(API_URL, request, String.class);
-
-            logger.debug("Response status: {}", response.getStatusCode());
-            logger.debug("Response body: {}", response.getBody());
-
-            if (!response.getStatusCode().is2xxSuccessful()) {
-                String errorMsg = "Hugging Face API returned status: " + response.getStatusCode();
-                if (response.getBody() != null) {
-                    errorMsg += " - " + response.getBody();
-                }
-                throw new RuntimeException(errorMsg);
+            JsonNode chunk = objectMapper.readTree(data);
+            JsonNode choices = chunk.get("choices");
+            if (choices == null || !choices.isArray() || choices.size() == 0) {
+                return null;
             }
-
-            String responseBody = response.getBody();
-            if (responseBody == null || responseBody.trim().isEmpty()) {
-                throw new RuntimeException("Hugging Face API returned empty response");
+            JsonNode firstChoice = choices.get(0);
+            if (firstChoice.has("delta") && firstChoice.get("delta").hasNonNull("content")) {
+                return firstChoice.get("delta").get("content").asText();
+            }
+            // Some backends stream completions-style chunks
+            if (firstChoice.hasNonNull("text")) {
+                return firstChoice.get("text").asText();
             }
+            return null;
+        } catch (Exception e) {
+            logger.debug("Skipping unparseable stream chunk: {}", data);
+            return null;
+        }
+    }
 
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode jsonResponse = mapper.readTree(responseBody);
+    private String extractGeneratedText(String responseBody) {
+        JsonNode jsonResponse;
+        try {
+            jsonResponse = objectMapper.readTree(responseBody);
+        } catch (IOException e) {
+            throw new RuntimeException("Hugging Face API returned invalid JSON: " + e.getMessage(), e);
+        }
 
-            // New router (OpenAI-compatible) — try to extract content from choices
-            String generatedText = null;
+        // New router (OpenAI-compatible) — try to extract content from choices
+        String generatedText = null;
 
-            // Try chat completion shape: { choices: [ { message: { role, content } } ] }
-            if (jsonResponse.has("choices") && jsonResponse.get("choices").isArray() && jsonResponse.get("choices").size() > 0) {
-                JsonNode firstChoice = jsonResponse.get("choices").get(0);
-                // chat-style: choices[0].message.content
-                if (firstChoice.has("message") && firstChoice.get("message").has("content")) {
-                    generatedText = firstChoice.get("message").get("content").asText();
-                }
-                // completions-style: choices[0].text
-                else if (firstChoice.has("text")) {
-                    generatedText = firstChoice.get("text").asText();
-                }
+        // Try chat completion shape: { choices: [ { message: { role, content } } ] }
+        if (jsonResponse.has("choices") && jsonResponse.get("choices").isArray() && jsonResponse.get("choices").size() > 0) {
+            JsonNode firstChoice = jsonResponse.get("choices").get(0);
+            // chat-style: choices[0].message.content
+            if (firstChoice.has("message") && firstChoice.get("message").has("content")) {
+                generatedText = firstChoice.get("message").get("content").asText();
             }
-
-            // Fallbacks to older inference API shapes
-            if ((generatedText == null || generatedText.trim().isEmpty())) {
-                if (jsonResponse.isArray() && jsonResponse.size() > 0) {
-                    JsonNode firstResult = jsonResponse.get(0);
-                    if (firstResult.has("generated_text")) {
-                        generatedText = firstResult.get("generated_text").asText();
-                    } else if (firstResult.has("text")) {
-                        generatedText = firstResult.get("text").asText();
-                    }
-                } else if (jsonResponse.has("generated_text")) {
-                    generatedText = jsonResponse.get("generated_text").asText();
-                } else if (jsonResponse.has("text")) {
-                    generatedText = jsonResponse.get("text").asText();
-                }
+            // completions-style: choices[0].text
+            else if (firstChoice.has("text")) {
+                generatedText = firstChoice.get("text").asText();
             }
+        }
 
-            if (generatedText == null || generatedText.trim().isEmpty()) {
-                logger.error("Could not extract generated text from response: {}", responseBody);
-                throw new RuntimeException("Hugging Face API returned response but could not extract generated text. Response: " + responseBody);
+        // Fallbacks to older inference API shapes
+        if ((generatedText == null || generatedText.trim().isEmpty())) {
+            if (jsonResponse.isArray() && jsonResponse.size() > 0) {
+                JsonNode firstResult = jsonResponse.get(0);
+                if (firstResult.has("generated_text")) {
+                    generatedText = firstResult.get("generated_text").asText();
+                } else if (firstResult.has("text")) {
+                    generatedText = firstResult.get("text").asText();
+                }
+            } else if (jsonResponse.has("generated_text")) {
+                generatedText = jsonResponse.get("generated_text").asText();
+            } else if (jsonResponse.has("text")) {
+                generatedText = jsonResponse.get("text").asText();
             }
+        }
 
-            return generatedText;
-        } catch (org.springframework.web.client.HttpClientErrorException e) {
-            String errorMsg = "Hugging Face API error: " + e.getStatusCode() + " - " +
-                    (e.getResponseBodyAsString() != null ? e.getResponseBodyAsString() : "No error details");
-            logger.error(errorMsg);
-            throw new RuntimeException(errorMsg, e);
-        } catch (Exception e) {
-            logger.error("Error calling Hugging Face API: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to call Hugging Face API: " + e.getMessage(), e);
+        if (generatedText == null || generatedText.trim().isEmpty()) {
+            logger.error("Could not extract generated text from response: {}", responseBody);
+            throw new ProviderResponseException(getName(), 200,
+                    "Hugging Face API returned response but could not extract generated text. Response: " + responseBody);
         }
+
+        return generatedText;
     }
 }
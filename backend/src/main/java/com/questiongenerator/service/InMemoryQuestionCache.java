@@ -0,0 +1,158 @@
+package com.questiongenerator.service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.questiongenerator.dto.QuestionResponse;
+
+/**
+ * Bounded LRU cache with a per-entry TTL. A configurable fraction of hits is reported as a miss
+ * (a "refresh") so users still see some variety for popular role/topic combinations.
+ */
+@Component
+public class InMemoryQuestionCache implements QuestionCache {
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final double refreshRatio;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+
+    // Access-ordered so the eldest entry is always the least recently used one
+    private final LinkedHashMap<QuestionCacheKey, Entry> entries;
+
+    public InMemoryQuestionCache(
+            @Value("${question.cache.max-size:500}") int maxSize,
+            @Value("${question.cache.ttl:PT6H}") Duration ttl,
+            @Value("${question.cache.refresh-ratio:0.0}") double refreshRatio) {
+        this.maxSize = Math.max(0, maxSize);
+        this.ttlMillis = ttl.toMillis();
+        this.refreshRatio = Math.min(1.0, Math.max(0.0, refreshRatio));
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<QuestionCacheKey, Entry> eldest) {
+                if (size() > InMemoryQuestionCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public Optional<QuestionResponse> get(QuestionCacheKey key) {
+        if (maxSize == 0) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && isExpired(entry, System.currentTimeMillis())) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+
+        if (refreshRatio > 0 && ThreadLocalRandom.current().nextDouble() < refreshRatio) {
+            refreshes.incrementAndGet();
+            return Optional.empty();
+        }
+
+        hits.incrementAndGet();
+        return Optional.of(entry.response);
+    }
+
+    @Override
+    public void put(QuestionCacheKey key, QuestionResponse response) {
+        if (maxSize == 0 || response == null) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key, new Entry(response, System.currentTimeMillis()));
+            purgeExpired();
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    @Override
+    public long size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public long hitCount() {
+        return hits.get();
+    }
+
+    @Override
+    public long missCount() {
+        return misses.get();
+    }
+
+    @Override
+    public long evictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public long refreshCount() {
+        return refreshes.get();
+    }
+
+    // Called with the lock held. Entries are in access order, so this only trims the stale head;
+    // anything it misses is expired lazily in get()
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (!isExpired(entry, now)) {
+                break;
+            }
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return ttlMillis > 0 && now - entry.createdAt > ttlMillis;
+    }
+
+    private static final class Entry {
+        private final QuestionResponse response;
+        private final long createdAt;
+
+        private Entry(QuestionResponse response, long createdAt) {
+            this.response = response;
+            this.createdAt = createdAt;
+        }
+    }
+}
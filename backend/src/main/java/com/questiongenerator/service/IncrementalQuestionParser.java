@@ -0,0 +1,239 @@
+package com.questiongenerator.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.questiongenerator.dto.QuestionResponse;
+
+/**
+ * Push-style parser for a streamed model response. Text is fed in arbitrary chunks; every time a
+ * question object inside the "technicalQuestions" or "behavioralQuestions" array closes, it is
+ * parsed and handed to the listener immediately, without waiting for the rest of the document.
+ *
+ * Prose or code fences before the root object are skipped, as are // and block comments outside strings.
+ * Not thread-safe; use one instance per response.
+ */
+public class IncrementalQuestionParser {
+
+    public static final String TECHNICAL = "technical";
+    public static final String BEHAVIORAL = "behavioral";
+
+    @FunctionalInterface
+    public interface Listener {
+        void onQuestion(String section, int index, QuestionResponse.Question question);
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalQuestionParser.class);
+
+    // Lenient enough for the usual model mistakes inside a single question object
+    private static final ObjectMapper LENIENT_MAPPER = new ObjectMapper(JsonFactory.builder()
+            .enable(JsonReadFeature.ALLOW_JAVA_COMMENTS)
+            .enable(JsonReadFeature.ALLOW_UNESCAPED_CONTROL_CHARS)
+            .enable(JsonReadFeature.ALLOW_BACKSLASH_ESCAPING_ANY_CHARACTER)
+            .enable(JsonReadFeature.ALLOW_TRAILING_COMMA)
+            .build());
+
+    private final Listener listener;
+    private final List<QuestionResponse.Question> technicalQuestions = new ArrayList<>();
+    private final List<QuestionResponse.Question> behavioralQuestions = new ArrayList<>();
+
+    // Open containers, innermost last
+    private final StringBuilder stack = new StringBuilder();
+    private final StringBuilder rootString = new StringBuilder();
+    private StringBuilder objectBuffer;
+    private String lastRootString;
+    private String section;
+
+    private boolean inString;
+    private boolean escape;
+    private boolean pendingSlash;
+    private boolean inLineComment;
+    private boolean inBlockComment;
+    private boolean blockCommentStar;
+    private boolean rootClosed;
+
+    public IncrementalQuestionParser(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void feed(CharSequence chunk) {
+        for (int i = 0; i < chunk.length() && !rootClosed; i++) {
+            accept(chunk.charAt(i));
+        }
+    }
+
+    public boolean isRootClosed() {
+        return rootClosed;
+    }
+
+    public int getQuestionCount() {
+        return technicalQuestions.size() + behavioralQuestions.size();
+    }
+
+    public QuestionResponse toResponse() {
+        return new QuestionResponse(new ArrayList<>(technicalQuestions), new ArrayList<>(behavioralQuestions));
+    }
+
+    private void accept(char c) {
+        if (inLineComment) {
+            if (c == '\n' || c == '\r') {
+                inLineComment = false;
+            }
+            return;
+        }
+        if (inBlockComment) {
+            if (blockCommentStar && c == '/') {
+                inBlockComment = false;
+            }
+            blockCommentStar = c == '*';
+            return;
+        }
+        if (inString) {
+            acceptInString(c);
+            return;
+        }
+        if (pendingSlash) {
+            pendingSlash = false;
+            if (c == '/') {
+                inLineComment = true;
+                return;
+            }
+            if (c == '*') {
+                inBlockComment = true;
+                blockCommentStar = false;
+                return;
+            }
+            capture('/');
+        }
+        if (c == '/' && stack.length() > 0) {
+            pendingSlash = true;
+            return;
+        }
+
+        if (stack.length() == 0) {
+            // Skip anything before the root object (prose, ```json fences)
+            if (c == '{') {
+                stack.append('{');
+            }
+            return;
+        }
+
+        switch (c) {
+            case '"' -> {
+                inString = true;
+                if (stack.length() == 1) {
+                    rootString.setLength(0);
+                }
+                capture(c);
+            }
+            case '{' -> {
+                stack.append('{');
+                if (isQuestionObjectDepth()) {
+                    objectBuffer = new StringBuilder(256);
+                }
+                capture(c);
+            }
+            case '[' -> {
+                stack.append('[');
+                if (stack.length() == 2) {
+                    section = sectionFor(lastRootString);
+                }
+                capture(c);
+            }
+            case '}', ']' -> {
+                capture(c);
+                boolean closesQuestion = c == '}' && isQuestionObjectDepth();
+                stack.setLength(stack.length() - 1);
+                if (closesQuestion && objectBuffer != null) {
+                    emit(objectBuffer.toString());
+                    objectBuffer = null;
+                }
+                if (stack.length() == 1 && c == ']') {
+                    section = null;
+                }
+                if (stack.length() == 0) {
+                    rootClosed = true;
+                }
+            }
+            default -> capture(c);
+        }
+    }
+
+    private void acceptInString(char c) {
+        if (escape && "\"\\/bfnrtu".indexOf(c) < 0) {
+            // An invalid escape such as \S is a literal backslash, as in QuestionResponseParser
+            capture('\\');
+        }
+        capture(c);
+        if (escape) {
+            escape = false;
+            if (stack.length() == 1) {
+                rootString.append(c);
+            }
+            return;
+        }
+        if (c == '\\') {
+            escape = true;
+            return;
+        }
+        if (c == '"') {
+            inString = false;
+            if (stack.length() == 1) {
+                lastRootString = rootString.toString();
+            }
+            return;
+        }
+        if (stack.length() == 1) {
+            rootString.append(c);
+        }
+    }
+
+    // True when the innermost container is an object directly inside a section array: { [ {
+    private boolean isQuestionObjectDepth() {
+        return section != null && stack.length() == 3 && stack.charAt(1) == '[' && stack.charAt(2) == '{';
+    }
+
+    private void capture(char c) {
+        if (objectBuffer != null) {
+            objectBuffer.append(c);
+        }
+    }
+
+    private static String sectionFor(String key) {
+        if (key == null) {
+            return null;
+        }
+        if (key.equalsIgnoreCase("technicalQuestions")) {
+            return TECHNICAL;
+        }
+        if (key.equalsIgnoreCase("behavioralQuestions")) {
+            return BEHAVIORAL;
+        }
+        return null;
+    }
+
+    private void emit(String json) {
+        try {
+            JsonNode node = LENIENT_MAPPER.readTree(json);
+            String question = node.hasNonNull("question") ? node.get("question").asText() : "";
+            String answer = node.hasNonNull("answer") ? node.get("answer").asText() : null;
+            if (question.isEmpty()) {
+                return;
+            }
+
+            QuestionResponse.Question parsed = new QuestionResponse.Question(question, answer);
+            List<QuestionResponse.Question> target = TECHNICAL.equals(section) ? technicalQuestions : behavioralQuestions;
+            target.add(parsed);
+            listener.onQuestion(section, target.size() - 1, parsed);
+        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+            logger.warn("Skipping malformed streamed question object: {}", e.getOriginalMessage());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.questiongenerator.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.questiongenerator.dto.QuestionRequest;
+import com.questiongenerator.dto.QuestionResponse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Drops generated questions that are near-duplicates (see {@link QuestionSignature}) of each other, of questions
+ * already chosen for the same response, or of stored questions, depending on {@code question.similarity.dedup-scope}:
+ * <ul>
+ *   <li>{@code response}: only within the set being returned</li>
+ *   <li>{@code combination}: also stored questions for the same role/topic/difficulty (as held by the question bank)</li>
+ *   <li>{@code global}: also any stored question</li>
+ * </ul>
+ */
+@Component
+public class NearDuplicateFilter {
+
+    private final QuestionSimilarityIndex index;
+    private final QuestionBank questionBank;
+    private final boolean enabled;
+    private final double threshold;
+    private final String scope;
+    private final boolean refill;
+    private final Counter rejected;
+    private final Counter replaced;
+
+    public NearDuplicateFilter(
+            QuestionSimilarityIndex index,
+            QuestionBank questionBank,
+            @Value("${question.similarity.enabled:true}") boolean enabled,
+            @Value("${question.similarity.threshold:0.75}") double threshold,
+            @Value("${question.similarity.dedup-scope:combination}") String scope,
+            @Value("${question.similarity.refill:true}") boolean refill,
+            MeterRegistry meterRegistry) {
+        this.index = index;
+        this.questionBank = questionBank;
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.scope = scope;
+        this.refill = refill;
+
+        this.rejected = Counter.builder("question.similarity.duplicates")
+                .tag("result", "rejected")
+                .description("Generated questions dropped as near-duplicates")
+                .register(meterRegistry);
+        this.replaced = Counter.builder("question.similarity.duplicates")
+                .tag("result", "replaced")
+                .description("Dropped near-duplicates replaced by a follow-up generation")
+                .register(meterRegistry);
+    }
+
+    /** Whether dropped questions should be regenerated (once) so the set stays complete. */
+    public boolean isRefillEnabled() {
+        return enabled && refill;
+    }
+
+    /**
+     * Removes near-duplicates from the response's question lists in place and returns the removed questions.
+     *
+     * @param existing question texts already part of the result (e.g. picked from the question bank)
+     */
+    public QuestionResponse filter(QuestionRequest request, QuestionResponse response, List<String> existing) {
+        QuestionResponse removed = new QuestionResponse(new ArrayList<>(), new ArrayList<>());
+        if (!enabled) {
+            return removed;
+        }
+        List<long[]> kept = signatures(existing);
+        filter(request, response.getTechnicalQuestions(), kept, removed.getTechnicalQuestions());
+        filter(request, response.getBehavioralQuestions(), kept, removed.getBehavioralQuestions());
+        rejected.increment(removed.getTechnicalQuestions().size() + removed.getBehavioralQuestions().size());
+        return removed;
+    }
+
+    /**
+     * Puts removed questions back where the set is still short, as long as they do not repeat a question in the
+     * set itself: a question the user may have seen before beats an incomplete set.
+     */
+    public void restore(QuestionResponse response, QuestionResponse removed, List<String> existing,
+                        int expectedTechnical, int expectedBehavioral) {
+        List<long[]> kept = signatures(existing);
+        addSignatures(kept, response.getTechnicalQuestions());
+        addSignatures(kept, response.getBehavioralQuestions());
+        restore(response.getTechnicalQuestions(), removed.getTechnicalQuestions(), kept, expectedTechnical);
+        restore(response.getBehavioralQuestions(), removed.getBehavioralQuestions(), kept, expectedBehavioral);
+    }
+
+    public void recordReplaced(int count) {
+        replaced.increment(count);
+    }
+
+    private void restore(List<QuestionResponse.Question> target, List<QuestionResponse.Question> removed,
+                         List<long[]> kept, int expected) {
+        for (QuestionResponse.Question question : removed) {
+            if (target.size() >= expected) {
+                return;
+            }
+            long[] signature = QuestionSignature.of(question.getQuestion());
+            if (!isSimilar(signature, kept)) {
+                target.add(question);
+                kept.add(signature);
+            }
+        }
+    }
+
+    private void filter(QuestionRequest request, List<QuestionResponse.Question> questions, List<long[]> kept,
+                        List<QuestionResponse.Question> removed) {
+        if (questions == null) {
+            return;
+        }
+        Iterator<QuestionResponse.Question> it = questions.iterator();
+        while (it.hasNext()) {
+            QuestionResponse.Question question = it.next();
+            float[] projection = QuestionSignature.project(question.getQuestion());
+            long[] signature = QuestionSignature.pack(projection);
+            if (isSimilar(signature, kept) || isStoredDuplicate(request, projection)) {
+                it.remove();
+                removed.add(question);
+            } else {
+                kept.add(signature);
+            }
+        }
+    }
+
+    private static List<long[]> signatures(List<String> texts) {
+        List<long[]> signatures = new ArrayList<>();
+        for (String text : texts) {
+            signatures.add(QuestionSignature.of(text));
+        }
+        return signatures;
+    }
+
+    private static void addSignatures(List<long[]> signatures, List<QuestionResponse.Question> questions) {
+        if (questions != null) {
+            questions.forEach(question -> signatures.add(QuestionSignature.of(question.getQuestion())));
+        }
+    }
+
+    private boolean isSimilar(long[] signature, List<long[]> kept) {
+        for (long[] other : kept) {
+            if (QuestionSignature.similarity(signature, other) >= threshold) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isStoredDuplicate(QuestionRequest request, float[] projection) {
+        if ("response".equalsIgnoreCase(scope) || !index.isEnabled()) {
+            return false;
+        }
+        boolean global = "global".equalsIgnoreCase(scope);
+        for (QuestionSimilarityIndex.Match match : index.findSimilar(projection, threshold, 20)) {
+            if (global || questionBank.contains(request, match.getHashPrefix())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
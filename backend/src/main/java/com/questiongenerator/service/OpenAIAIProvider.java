@@ -1,9 +1,13 @@
 package com.questiongenerator.service;
 
+import com.theokanning.openai.OpenAiHttpException;
 import com.theokanning.openai.completion.chat.ChatCompletionRequest;
 import com.theokanning.openai.completion.chat.ChatMessage;
 import com.theokanning.openai.completion.chat.ChatMessageRole;
+import com.theokanning.openai.client.OpenAiApi;
+import com.theokanning.openai.completion.chat.ChatCompletionResult;
 import com.theokanning.openai.service.OpenAiService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.slf4j.Logger;
@@ -11,51 +15,165 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import io.reactivex.disposables.Disposable;
+import retrofit2.HttpException;
+import java.util.function.Consumer;
 
 @Component
-public class OpenAIAIProvider implements AIProvider {
+public class OpenAIAIProvider implements StreamingAIProvider {
     
     private static final Logger logger = LoggerFactory.getLogger(OpenAIAIProvider.class);
     
     @Value("${openai.api.key:}")
     private String apiKey;
     
+    @Value("${openai.api.max-tokens:2000}")
+    private int maxTokens;
+    
+    // Built once in AIClientConfig on a pooled OkHttp client
+    @Autowired
+    private OpenAiService openAiService;
+    
+    @Autowired
+    private OpenAiApi openAiApi;
+    
+    // Sees every response through the client's interceptor (see AIClientConfig); used here to report 429s
+    @Autowired
+    private ProviderQuotaRegistry quotaRegistry;
+    
+    @Override
+    public String getName() {
+        return "openai";
+    }
+    
     @Override
-    public String generateResponse(String prompt, double temperature) throws Exception {
-        logger.info("Using OpenAI API");
+    public String generateResponse(Prompt prompt) throws Exception {
+        logger.debug("Using OpenAI API");
         
-        if (apiKey == null || apiKey.isEmpty() || apiKey.contains("your-api-key")) {
-            throw new RuntimeException("OpenAI API key is not configured");
-        }
+        checkApiKey();
+        return extractContent(openAiService.createChatCompletion(buildRequest(prompt, false)));
+    }
+    
+    @Override
+    public CompletableFuture<String> generateResponseAsync(Prompt prompt) {
+        logger.debug("Using OpenAI API (async)");
         
-        OpenAiService service = new OpenAiService(apiKey);
+        CompletableFuture<String> future = new CompletableFuture<>();
+        try {
+            checkApiKey();
+            // The API client uses an async call adapter, so this completes on OkHttp's dispatcher
+            Disposable call = openAiApi.createChatCompletion(buildRequest(prompt, false))
+                    .subscribe(result -> {
+                        try {
+                            future.complete(extractContent(result));
+                        } catch (RuntimeException e) {
+                            future.completeExceptionally(e);
+                        }
+                    }, error -> future.completeExceptionally(translateError(error)));
+            // Cancelling the returned future (e.g. a losing hedged request) cancels the HTTP call
+            future.whenComplete((text, e) -> {
+                if (future.isCancelled()) {
+                    call.dispose();
+                }
+            });
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+    
+    @Override
+    public String streamResponse(Prompt prompt, Consumer<String> onChunk) throws Exception {
+        logger.debug("Streaming from OpenAI API");
         
-        List<ChatMessage> messages = new ArrayList<>();
-        messages.add(new ChatMessage(ChatMessageRole.SYSTEM.value(), 
-            "You are an expert interview question generator. Generate questions in the exact JSON format specified."));
-        messages.add(new ChatMessage(ChatMessageRole.USER.value(), prompt));
+        checkApiKey();
+        StringBuilder fullText = new StringBuilder();
         
-        ChatCompletionRequest completionRequest = ChatCompletionRequest.builder()
-                .model("gpt-3.5-turbo")
-                .messages(messages)
-                .temperature(temperature)
-                .maxTokens(2000)
-                .build();
+        // Each chunk carries the delta in choices[0].message (mapped from "delta" by the client library)
+        try {
+            openAiService.streamChatCompletion(buildRequest(prompt, true))
+                    .blockingForEach(chunk -> {
+                        if (chunk.getChoices() == null || chunk.getChoices().isEmpty()
+                                || chunk.getChoices().get(0).getMessage() == null) {
+                            return;
+                        }
+                        String delta = chunk.getChoices().get(0).getMessage().getContent();
+                        if (delta != null && !delta.isEmpty()) {
+                            fullText.append(delta);
+                            onChunk.accept(delta);
+                        }
+                    });
+        } catch (OpenAiHttpException e) {
+            if (e.statusCode == 429) {
+                throw quotaRegistry.rateLimited(getName());
+            }
+            throw new ProviderResponseException(getName(), e.statusCode, "OpenAI API error: " + e.statusCode + " - "
+                    + e.getMessage(), e);
+        }
         
-        var completionResponse = service.createChatCompletion(completionRequest);
+        if (fullText.length() == 0) {
+            throw new ProviderResponseException(getName(), 200, "OpenAI API returned empty content");
+        }
         
+        return fullText.toString();
+    }
+    
+    private void checkApiKey() {
+        if (apiKey == null || apiKey.isEmpty() || apiKey.contains("your-api-key")) {
+            throw new RuntimeException("OpenAI API key is not configured");
+        }
+    }
+    
+    private String extractContent(ChatCompletionResult completionResponse) {
         if (completionResponse == null || completionResponse.getChoices() == null 
                 || completionResponse.getChoices().isEmpty()) {
-            throw new RuntimeException("OpenAI API returned empty response");
+            throw new ProviderResponseException(getName(), 200, "OpenAI API returned empty response");
         }
         
         String response = completionResponse.getChoices().get(0).getMessage().getContent();
         
         if (response == null || response.trim().isEmpty()) {
-            throw new RuntimeException("OpenAI API returned empty content");
+            throw new ProviderResponseException(getName(), 200, "OpenAI API returned empty content");
         }
         
         return response;
     }
+    
+    private RuntimeException translateError(Throwable error) {
+        if (error instanceof HttpException httpError && httpError.code() == 429) {
+            logger.warn("OpenAI API rate limit reached, holding calls back for {}",
+                    quotaRegistry.quotaFor(getName()).blockedFor());
+            return quotaRegistry.rateLimited(getName());
+        }
+        if (error instanceof HttpException httpError) {
+            String body = null;
+            try {
+                if (httpError.response() != null && httpError.response().errorBody() != null) {
+                    body = httpError.response().errorBody().string();
+                }
+            } catch (Exception ignored) {
+                // fall through with no details
+            }
+            return new ProviderResponseException(getName(), httpError.code(), "OpenAI API error: " + httpError.code() + " - "
+                    + (body != null && !body.isEmpty() ? body : "No error details"), error);
+        }
+        return new RuntimeException("Failed to call OpenAI API: " + error.getMessage(), error);
+    }
+    
+    private ChatCompletionRequest buildRequest(Prompt prompt, boolean stream) {
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(new ChatMessage(ChatMessageRole.SYSTEM.value(), 
+            "You are an expert interview question generator. Generate questions in the exact JSON format specified."));
+        messages.add(new ChatMessage(ChatMessageRole.USER.value(), prompt.getText()));
+        
+        return ChatCompletionRequest.builder()
+                .model("gpt-3.5-turbo")
+                .messages(messages)
+                .temperature(prompt.getTemperature())
+                // Sized per prompt; the configured maximum caps it (and applies when the prompt has no budget)
+                .maxTokens(prompt.getMaxTokens() > 0 ? Math.min(prompt.getMaxTokens(), maxTokens) : maxTokens)
+                .stream(stream)
+                .build();
+    }
 }
-
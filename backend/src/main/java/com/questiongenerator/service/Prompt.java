@@ -0,0 +1,43 @@
+package com.questiongenerator.service;
+
+/**
+ * A prompt ready to send to a provider: the text, its sampling temperature, and the completion budget sized
+ * for the questions it asks for (see {@link PromptTemplates}).
+ */
+public final class Prompt {
+
+    private final String text;
+    private final double temperature;
+    private final int maxTokens;
+    private final int promptTokens;
+
+    public Prompt(String text, double temperature, int maxTokens, int promptTokens) {
+        this.text = text;
+        this.temperature = temperature;
+        this.maxTokens = maxTokens;
+        this.promptTokens = promptTokens;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public double getTemperature() {
+        return temperature;
+    }
+
+    /** Completion tokens to reserve; 0 or less leaves it to the provider's configured maximum. */
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    /** Estimated size of the prompt itself, see {@link TokenEstimator}. */
+    public int getPromptTokens() {
+        return promptTokens;
+    }
+
+    /** The same prompt sampled at another temperature. */
+    public Prompt withTemperature(double temperature) {
+        return new Prompt(text, temperature, maxTokens, promptTokens);
+    }
+}
@@ -0,0 +1,156 @@
+package com.questiongenerator.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.questiongenerator.dto.QuestionRequest;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Builds generation prompts from templates compiled once per (includeAnswers, difficulty). A template holds the
+ * fixed instructions and their token count, the temperature, and the expected answer length. Only the request
+ * fields, the counts and the questions to avoid are written per call.
+ * <p>
+ * Each prompt carries a {@code max_tokens} budget sized for what it asks for. The budget is the expected output,
+ * counted per question and answer, plus a safety margin. A full set without answers needs a few hundred tokens,
+ * and a top-up for one question even fewer. If a model still runs past its budget, the truncated response is
+ * repaired and the missing questions are topped up.
+ */
+@Component
+public class PromptTemplates {
+
+    private static final String[] DIFFICULTIES = {"easy", "medium", "hard"};
+    private static final double[] TEMPERATURES = {0.6, 0.7, 0.8};
+    // Harder questions get longer sample answers
+    private static final double[] ANSWER_LENGTH = {0.75, 1.0, 1.3};
+    private static final int DEFAULT_DIFFICULTY = 1;
+
+    @Autowired
+    private TokenEstimator tokenEstimator;
+
+    @Value("${ai.tokens.per-question:40}")
+    private int tokensPerQuestion;
+
+    @Value("${ai.tokens.per-answer:120}")
+    private int tokensPerAnswer;
+
+    @Value("${ai.tokens.overhead:30}")
+    private int overheadTokens;
+
+    @Value("${ai.tokens.margin:1.5}")
+    private double margin;
+
+    @Value("${ai.tokens.min:256}")
+    private int minTokens;
+
+    // Keyed by includeAnswers + difficulty, e.g. "true:hard"
+    private final Map<String, Template> templates = new HashMap<>();
+
+    @PostConstruct
+    void init() {
+        for (boolean includeAnswers : new boolean[] {false, true}) {
+            String tail = tail(includeAnswers);
+            int tailTokens = tokenEstimator.count(tail);
+            for (int i = 0; i < DIFFICULTIES.length; i++) {
+                int answerTokens = includeAnswers ? (int) Math.round(tokensPerAnswer * ANSWER_LENGTH[i]) : 0;
+                templates.put(includeAnswers + ":" + DIFFICULTIES[i],
+                        new Template(tail, tailTokens, TEMPERATURES[i], answerTokens));
+            }
+        }
+    }
+
+    public Prompt build(QuestionRequest request, int technicalCount, int behavioralCount, List<String> avoid) {
+        Template template = template(request);
+
+        StringBuilder prompt = new StringBuilder(400 + template.tail.length() + avoid.size() * 100);
+        prompt.append("Generate interview questions for the following specifications:\n\n");
+        prompt.append("Job Role: ").append(request.getRole()).append("\n");
+        prompt.append("Topic: ").append(request.getTopic()).append("\n");
+        prompt.append("Difficulty Level: ").append(request.getDifficulty()).append("\n\n");
+
+        prompt.append("Please generate:\n");
+        // A top-up asks for one category only; the other array is left empty
+        if (technicalCount > 0) {
+            prompt.append("- ").append(technicalCount).append(" technical questions related to ").append(request.getTopic()).append("\n");
+        }
+        if (behavioralCount > 0) {
+            prompt.append("- ").append(behavioralCount).append(" behavioral questions relevant to ").append(request.getRole()).append("\n");
+        }
+        if (technicalCount == 0 || behavioralCount == 0) {
+            prompt.append("Leave the array for any other category empty.\n");
+        }
+        prompt.append("\n");
+
+        if (!avoid.isEmpty()) {
+            prompt.append("Do not repeat or rephrase any of these existing questions:\n");
+            for (String question : avoid) {
+                prompt.append("- ").append(question).append("\n");
+            }
+            prompt.append("\n");
+        }
+
+        int headTokens = tokenEstimator.count(prompt.toString());
+        prompt.append(template.tail);
+        return new Prompt(prompt.toString(), template.temperature,
+                maxTokens(template, technicalCount + behavioralCount), headTokens + template.tailTokens);
+    }
+
+    private int maxTokens(Template template, int questions) {
+        double expected = questions * (tokensPerQuestion + template.answerTokens) + overheadTokens;
+        return Math.max(minTokens, (int) Math.ceil(expected * margin));
+    }
+
+    private Template template(QuestionRequest request) {
+        String difficulty = request.getDifficulty() == null ? "" : request.getDifficulty().toLowerCase(Locale.ROOT);
+        Template template = templates.get(request.isIncludeAnswers() + ":" + difficulty);
+        return template != null ? template
+                : templates.get(request.isIncludeAnswers() + ":" + DIFFICULTIES[DEFAULT_DIFFICULTY]);
+    }
+
+    // Everything after the request-specific part; depends only on includeAnswers
+    private static String tail(boolean includeAnswers) {
+        StringBuilder tail = new StringBuilder();
+        if (includeAnswers) {
+            tail.append("Include sample answers for each question.\n\n");
+        }
+
+        tail.append("Format your response as a JSON object with this exact structure:\n");
+        tail.append("{\n");
+        tail.append("  \"technicalQuestions\": [\n");
+        tail.append("    {\"question\": \"...\", \"answer\": \"...\"},\n");
+        tail.append("    ...\n");
+        tail.append("  ],\n");
+        tail.append("  \"behavioralQuestions\": [\n");
+        tail.append("    {\"question\": \"...\", \"answer\": \"...\"}\n");
+        tail.append("    ...\n");
+        tail.append("  ]\n");
+        tail.append("}\n\n");
+
+        tail.append("Ensure questions are relevant, varied, and appropriate for the difficulty level.");
+        if (!includeAnswers) {
+            tail.append(" Set \"answer\" to null for each question.");
+        }
+        return tail.toString();
+    }
+
+    private static final class Template {
+        private final String tail;
+        private final int tailTokens;
+        private final double temperature;
+        private final int answerTokens;
+
+        private Template(String tail, int tailTokens, double temperature, int answerTokens) {
+            this.tail = tail;
+            this.tailTokens = tailTokens;
+            this.temperature = temperature;
+            this.answerTokens = answerTokens;
+        }
+    }
+}
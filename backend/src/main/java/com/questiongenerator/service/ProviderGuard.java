@@ -0,0 +1,231 @@
+package com.questiongenerator.service;
+
+import java.util.Arrays;
+
+/**
+ * Per-provider protection: a circuit breaker, a fixed bulkhead (hard cap on concurrent calls) and an
+ * adaptive concurrency limit below it.
+ *
+ * The adaptive limit follows AIMD: each success under the latency threshold adds 1/limit (about +1 per
+ * round of calls); a failure, or a success slower than {@code latencyTolerance} times the baseline,
+ * multiplies it by {@code backoffRatio}. Latency is compared per completion token, since a call that asks for
+ * one question is naturally much faster than one asking for a full set, and the baseline is the 10th
+ * percentile of recent calls rather than the single fastest, so one unusually quick call cannot set it.
+ *
+ * The breaker opens when the failure rate over the last {@code windowSize} calls reaches
+ * {@code failureRateThreshold} (after {@code minimumCalls}), rejects everything for {@code openDuration},
+ * then lets {@code halfOpenProbes} calls through to decide whether to close again.
+ */
+public class ProviderGuard {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /** Handed out by {@link #tryAcquire()} and returned through exactly one of the on* callbacks. */
+    public static final class Permit {
+        private final boolean probe;
+
+        private Permit(boolean probe) {
+            this.probe = probe;
+        }
+    }
+
+    private final String providerName;
+    private final int maxConcurrent;
+    private final double minLimit;
+    private final double maxLimit;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openDurationMillis;
+    private final int halfOpenProbes;
+
+    private final boolean[] outcomes;
+    private final double[] latencies;
+    private int outcomeCount;
+    private int outcomeNext;
+    private int latencyCount;
+    private int latencyNext;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenInFlight;
+    private int halfOpenSuccesses;
+    private int inFlight;
+    private double limit;
+    private long rejected;
+
+    public ProviderGuard(String providerName, int maxConcurrent, int initialLimit, int minLimit,
+            double backoffRatio, double latencyTolerance, double failureRateThreshold, int minimumCalls,
+            int windowSize, long openDurationMillis, int halfOpenProbes) {
+        this.providerName = providerName;
+        this.maxConcurrent = maxConcurrent;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = maxConcurrent;
+        this.limit = Math.min(maxConcurrent, Math.max(this.minLimit, initialLimit));
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = minimumCalls;
+        this.openDurationMillis = openDurationMillis;
+        this.halfOpenProbes = Math.max(1, halfOpenProbes);
+        this.outcomes = new boolean[windowSize];
+        this.latencies = new double[windowSize];
+    }
+
+    public String getProviderName() {
+        return providerName;
+    }
+
+    public synchronized Permit tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openDurationMillis) {
+                rejected++;
+                throw new ProviderUnavailableException(providerName, "circuit breaker is open", true);
+            }
+            state = State.HALF_OPEN;
+            halfOpenInFlight = 0;
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN && halfOpenInFlight >= halfOpenProbes) {
+            rejected++;
+            throw new ProviderUnavailableException(providerName, "circuit breaker is half-open, probe in progress",
+                    true);
+        }
+        if (inFlight >= maxConcurrent) {
+            rejected++;
+            throw new ProviderUnavailableException(providerName,
+                    "bulkhead full (" + maxConcurrent + " concurrent calls)");
+        }
+        if (inFlight >= (int) limit) {
+            rejected++;
+            throw new ProviderUnavailableException(providerName, "concurrency limit reached (" + (int) limit + ")");
+        }
+
+        inFlight++;
+        boolean probe = state == State.HALF_OPEN;
+        if (probe) {
+            halfOpenInFlight++;
+        }
+        return new Permit(probe);
+    }
+
+    /** A successful call that took {@code latencyMillis} to return {@code completionTokens} tokens. */
+    public synchronized void onSuccess(Permit permit, long latencyMillis, int completionTokens) {
+        inFlight--;
+        recordOutcome(false);
+
+        double perToken = (double) Math.max(1, latencyMillis) / Math.max(1, completionTokens);
+        double baseline = recordLatency(perToken);
+        if (perToken > baseline * latencyTolerance) {
+            // Slower than the provider can be: likely queueing upstream, back off
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+
+        if (permit.probe) {
+            halfOpenInFlight--;
+            halfOpenSuccesses++;
+            if (state == State.HALF_OPEN && halfOpenSuccesses >= halfOpenProbes) {
+                close();
+            }
+        }
+    }
+
+    public synchronized void onFailure(Permit permit) {
+        inFlight--;
+        recordOutcome(true);
+        limit = Math.max(minLimit, limit * backoffRatio);
+
+        if (permit.probe) {
+            halfOpenInFlight--;
+            open();
+        } else if (state == State.CLOSED && outcomeCount >= minimumCalls && failureRate() >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    // The call was abandoned (e.g. lost a hedge); it says nothing about the provider's health
+    public synchronized void onCancel(Permit permit) {
+        inFlight--;
+        if (permit.probe) {
+            halfOpenInFlight--;
+        }
+    }
+
+    /** Whether a call would currently be let through the circuit breaker. */
+    public synchronized boolean isAvailable() {
+        return state != State.OPEN || System.currentTimeMillis() - openedAt >= openDurationMillis;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /** Calls that would be let through right now; none while the breaker is open or probing. */
+    public synchronized int availablePermits() {
+        if (state != State.CLOSED) {
+            return 0;
+        }
+        return Math.max(0, Math.min(maxConcurrent, (int) limit) - inFlight);
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    public synchronized double failureRate() {
+        if (outcomeCount == 0) {
+            return 0.0;
+        }
+        int failed = 0;
+        for (int i = 0; i < outcomeCount; i++) {
+            if (outcomes[i]) {
+                failed++;
+            }
+        }
+        return (double) failed / outcomeCount;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        outcomeCount = 0;
+        outcomeNext = 0;
+    }
+
+    private void recordOutcome(boolean failed) {
+        outcomes[outcomeNext] = failed;
+        outcomeNext = (outcomeNext + 1) % outcomes.length;
+        outcomeCount = Math.min(outcomeCount + 1, outcomes.length);
+    }
+
+    // Records the per-token sample and returns the window's 10th percentile (the no-load baseline)
+    private double recordLatency(double perToken) {
+        latencies[latencyNext] = perToken;
+        latencyNext = (latencyNext + 1) % latencies.length;
+        latencyCount = Math.min(latencyCount + 1, latencies.length);
+        double[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        return sorted[(int) (0.1 * (latencyCount - 1))];
+    }
+}
@@ -0,0 +1,84 @@
+package com.questiongenerator.service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@Component
+public class ProviderGuardRegistry {
+
+    private final ConcurrentMap<String, ProviderGuard> guards = new ConcurrentHashMap<>();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${ai.guard.max-concurrent:200}")
+    private int maxConcurrent;
+
+    @Value("${ai.guard.limit.initial:20}")
+    private int initialLimit;
+
+    @Value("${ai.guard.limit.min:2}")
+    private int minLimit;
+
+    @Value("${ai.guard.limit.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    @Value("${ai.guard.limit.latency-tolerance:3.0}")
+    private double latencyTolerance;
+
+    @Value("${ai.guard.breaker.failure-rate-threshold:0.5}")
+    private double failureRateThreshold;
+
+    @Value("${ai.guard.breaker.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${ai.guard.breaker.window-size:50}")
+    private int windowSize;
+
+    @Value("${ai.guard.breaker.open-duration:PT30S}")
+    private Duration openDuration;
+
+    @Value("${ai.guard.breaker.half-open-probes:2}")
+    private int halfOpenProbes;
+
+    public ProviderGuard guardFor(String providerName) {
+        return guards.computeIfAbsent(providerName, this::create);
+    }
+
+    public Collection<ProviderGuard> getGuards() {
+        return guards.values();
+    }
+
+    private ProviderGuard create(String providerName) {
+        ProviderGuard guard = new ProviderGuard(providerName, maxConcurrent, initialLimit, minLimit, backoffRatio,
+                latencyTolerance, failureRateThreshold, minimumCalls, windowSize, openDuration.toMillis(),
+                halfOpenProbes);
+
+        Gauge.builder("ai.guard.inflight", guard, ProviderGuard::getInFlight)
+                .tag("provider", providerName)
+                .register(meterRegistry);
+        Gauge.builder("ai.guard.limit", guard, ProviderGuard::getLimit)
+                .tag("provider", providerName)
+                .description("Current adaptive concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder("ai.guard.breaker.open", guard, g -> g.getState() == ProviderGuard.State.CLOSED ? 0 : 1)
+                .tag("provider", providerName)
+                .description("1 while the circuit breaker is open or half-open")
+                .register(meterRegistry);
+        FunctionCounter.builder("ai.guard.rejected", guard, ProviderGuard::getRejected)
+                .tag("provider", providerName)
+                .description("Calls rejected without contacting the provider")
+                .register(meterRegistry);
+        return guard;
+    }
+}
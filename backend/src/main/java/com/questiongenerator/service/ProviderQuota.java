@@ -0,0 +1,311 @@
+package com.questiongenerator.service;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Requests-per-minute and tokens-per-minute quota for one provider, as two token buckets that refill
+ * continuously and hold up to {@code burst} worth of their rate. A call reserves one request and its estimated
+ * cost in tokens (prompt plus max_tokens) before it is sent. When a bucket is short the call is paced: it is told
+ * how long to wait, and the reservation is taken at once so later calls queue up behind it. A call that would
+ * have to wait longer than {@code maxWait} is refused instead, with {@link RateLimitedException}.
+ * <p>
+ * The limits in force are the configured ones, lowered to what the provider reports in its rate-limit headers,
+ * and split evenly between the nodes sharing the provider account (see {@link ProviderQuotaRegistry}). A 429
+ * stops all calls until its Retry-After (or the reported reset time, or {@code defaultBackoff}) has passed.
+ * A limit of 0 means no limit.
+ */
+public class ProviderQuota {
+
+    // OpenAI-style headers; other providers send some or none of them
+    static final String LIMIT_REQUESTS = "x-ratelimit-limit-requests";
+    static final String LIMIT_TOKENS = "x-ratelimit-limit-tokens";
+    static final String REMAINING_REQUESTS = "x-ratelimit-remaining-requests";
+    static final String REMAINING_TOKENS = "x-ratelimit-remaining-tokens";
+    static final String RESET_REQUESTS = "x-ratelimit-reset-requests";
+    static final String RESET_TOKENS = "x-ratelimit-reset-tokens";
+    static final String RETRY_AFTER = "retry-after";
+
+    // Reset times look like "1s", "6m0s", "1h2m3.5s" or "20ms"
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    private final String providerName;
+    private final long configuredRequestsPerMinute;
+    private final long configuredTokensPerMinute;
+    private final long burstMillis;
+    private final long maxWaitMillis;
+    private final long defaultBackoffMillis;
+
+    private final Bucket requests = new Bucket();
+    private final Bucket tokens = new Bucket();
+
+    // Limits reported by the provider (0 = not reported), by this node or, in a cluster, by any node
+    private long upstreamRequestsPerMinute;
+    private long upstreamTokensPerMinute;
+    private long sharedUpstreamRequestsPerMinute;
+    private long sharedUpstreamTokensPerMinute;
+    private int nodes = 1;
+    private long blockedUntil;
+    private long sharedBlockedUntil;
+
+    private long rejected;
+    private long throttled;
+
+    public ProviderQuota(String providerName, long requestsPerMinute, long tokensPerMinute, Duration burst,
+                         Duration maxWait, Duration defaultBackoff) {
+        this.providerName = providerName;
+        this.configuredRequestsPerMinute = Math.max(0, requestsPerMinute);
+        this.configuredTokensPerMinute = Math.max(0, tokensPerMinute);
+        this.burstMillis = Math.max(1, burst.toMillis());
+        this.maxWaitMillis = maxWait.toMillis();
+        this.defaultBackoffMillis = defaultBackoff.toMillis();
+        long now = System.currentTimeMillis();
+        applyLimits(now);
+    }
+
+    public String getProviderName() {
+        return providerName;
+    }
+
+    /**
+     * Reserves one request and the given tokens. Returns how many milliseconds to wait before sending, 0 if the call
+     * can go now. Throws {@link RateLimitedException}, reserving nothing, if that would be longer than max-wait.
+     */
+    public synchronized long reserve(int cost) {
+        long now = System.currentTimeMillis();
+        requests.refill(now);
+        tokens.refill(now);
+        long wait = Math.max(Math.max(requests.waitFor(1), tokens.waitFor(cost)), blockedUntil() - now);
+        if (wait > maxWaitMillis) {
+            rejected++;
+            String reason = blockedUntil() > now ? "rate limited by the provider" : "local quota used up";
+            throw new RateLimitedException(providerName, reason, Duration.ofMillis(wait));
+        }
+        requests.take(1);
+        tokens.take(cost);
+        return Math.max(0, wait);
+    }
+
+    // The reserved call was never sent (cancelled while it was being paced)
+    public synchronized void refund(int cost) {
+        requests.take(-1);
+        tokens.take(-cost);
+    }
+
+    /**
+     * Adjusts to a provider response: its rate-limit headers lower the limits and what is left in the buckets,
+     * and a 429 blocks calls until the provider says to retry. {@code headers} returns a header value or null.
+     */
+    public synchronized void onResponse(int status, Function<String, String> headers) {
+        long now = System.currentTimeMillis();
+        long requestLimit = parseCount(headers.apply(LIMIT_REQUESTS));
+        long tokenLimit = parseCount(headers.apply(LIMIT_TOKENS));
+        if (requestLimit > 0 || tokenLimit > 0) {
+            upstreamRequestsPerMinute = requestLimit > 0 ? requestLimit : upstreamRequestsPerMinute;
+            upstreamTokensPerMinute = tokenLimit > 0 ? tokenLimit : upstreamTokensPerMinute;
+            applyLimits(now);
+        }
+        long remainingRequests = parseCount(headers.apply(REMAINING_REQUESTS));
+        long remainingTokens = parseCount(headers.apply(REMAINING_TOKENS));
+        // The provider's count is authoritative: never assume more is left than it reports
+        if (remainingRequests >= 0 && requests.limited()) {
+            requests.refill(now);
+            requests.level = Math.min(requests.level, remainingRequests);
+        }
+        if (remainingTokens >= 0 && tokens.limited()) {
+            tokens.refill(now);
+            tokens.level = Math.min(tokens.level, remainingTokens);
+        }
+
+        if (status == 429) {
+            throttled++;
+            long backoff = parseRetryAfter(headers.apply(RETRY_AFTER), now);
+            if (backoff < 0) {
+                backoff = Math.max(parseDuration(headers.apply(RESET_REQUESTS)), parseDuration(headers.apply(RESET_TOKENS)));
+            }
+            blockedUntil = Math.max(blockedUntil, now + (backoff > 0 ? backoff : defaultBackoffMillis));
+        }
+    }
+
+    /** How long calls are blocked by a 429, zero if they are not. */
+    public synchronized Duration blockedFor() {
+        return Duration.ofMillis(Math.max(0, blockedUntil() - System.currentTimeMillis()));
+    }
+
+    public synchronized boolean isBlocked() {
+        return blockedUntil() > System.currentTimeMillis();
+    }
+
+    /** State reported by the other nodes sharing the account; limits of 0 were not reported. */
+    public synchronized void applyCluster(int nodes, long blockedUntil, long upstreamRequestsPerMinute,
+                                          long upstreamTokensPerMinute) {
+        this.nodes = Math.max(1, nodes);
+        this.sharedBlockedUntil = blockedUntil;
+        this.sharedUpstreamRequestsPerMinute = upstreamRequestsPerMinute;
+        this.sharedUpstreamTokensPerMinute = upstreamTokensPerMinute;
+        applyLimits(System.currentTimeMillis());
+    }
+
+    // This node's own state, to be shared with the others
+    public synchronized long getLocalBlockedUntil() {
+        return blockedUntil;
+    }
+
+    public synchronized long getUpstreamRequestsPerMinute() {
+        return upstreamRequestsPerMinute;
+    }
+
+    public synchronized long getUpstreamTokensPerMinute() {
+        return upstreamTokensPerMinute;
+    }
+
+    /** Limits in force on this node, per minute; 0 for no limit. */
+    public synchronized long getRequestsPerMinute() {
+        return requests.perMinute;
+    }
+
+    public synchronized long getTokensPerMinute() {
+        return tokens.perMinute;
+    }
+
+    public synchronized double availableRequests() {
+        requests.refill(System.currentTimeMillis());
+        return requests.limited() ? requests.level : Double.NaN;
+    }
+
+    public synchronized double availableTokens() {
+        tokens.refill(System.currentTimeMillis());
+        return tokens.limited() ? tokens.level : Double.NaN;
+    }
+
+    public synchronized int getNodes() {
+        return nodes;
+    }
+
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    public synchronized long getThrottled() {
+        return throttled;
+    }
+
+    private long blockedUntil() {
+        return Math.max(blockedUntil, sharedBlockedUntil);
+    }
+
+    private void applyLimits(long now) {
+        requests.setRate(effective(configuredRequestsPerMinute, upstreamRequestsPerMinute, sharedUpstreamRequestsPerMinute), now);
+        tokens.setRate(effective(configuredTokensPerMinute, upstreamTokensPerMinute, sharedUpstreamTokensPerMinute), now);
+    }
+
+    // The lowest of the known limits, this node's share of it
+    private long effective(long configured, long upstream, long sharedUpstream) {
+        long limit = 0;
+        for (long known : new long[] {configured, upstream, sharedUpstream}) {
+            if (known > 0) {
+                limit = limit == 0 ? known : Math.min(limit, known);
+            }
+        }
+        return limit == 0 ? 0 : Math.max(1, limit / nodes);
+    }
+
+    private static long parseCount(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Retry-After is either seconds or an HTTP date; -1 if absent or unreadable
+    private static long parseRetryAfter(String value, long now) {
+        if (value == null || value.isBlank()) {
+            return -1;
+        }
+        try {
+            return (long) (Double.parseDouble(value.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            try {
+                return Math.max(0, ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME)
+                        .toInstant().toEpochMilli() - now);
+            } catch (DateTimeParseException unreadable) {
+                return -1;
+            }
+        }
+    }
+
+    private static long parseDuration(String value) {
+        if (value == null) {
+            return -1;
+        }
+        Matcher part = DURATION_PART.matcher(value.trim());
+        double millis = 0;
+        boolean found = false;
+        while (part.find()) {
+            found = true;
+            double amount = Double.parseDouble(part.group(1));
+            millis += switch (part.group(2)) {
+                case "h" -> amount * 3_600_000;
+                case "m" -> amount * 60_000;
+                case "s" -> amount * 1000;
+                default -> amount;
+            };
+        }
+        return found ? (long) Math.ceil(millis) : -1;
+    }
+
+    /** Allowance refilled at perMinute / 60000 per millisecond; the level goes negative while calls are paced. */
+    private final class Bucket {
+        private long perMinute;
+        private double capacity;
+        private double level;
+        private long refilledAt;
+
+        private boolean limited() {
+            return perMinute > 0;
+        }
+
+        private void setRate(long perMinute, long now) {
+            if (this.perMinute == perMinute) {
+                return;
+            }
+            refill(now);
+            boolean wasLimited = limited();
+            this.perMinute = perMinute;
+            // Never less than one unit, so a single call always fits eventually
+            this.capacity = Math.max(1, perMinute * burstMillis / 60_000.0);
+            this.level = wasLimited ? Math.min(level, capacity) : capacity;
+            this.refilledAt = now;
+        }
+
+        private void refill(long now) {
+            if (limited() && now > refilledAt) {
+                level = Math.min(capacity, level + (now - refilledAt) * perMinute / 60_000.0);
+            }
+            refilledAt = Math.max(refilledAt, now);
+        }
+
+        private void take(double cost) {
+            if (limited()) {
+                level = Math.min(capacity, level - cost);
+            }
+        }
+
+        // Milliseconds until the level covers the cost
+        private long waitFor(double cost) {
+            if (!limited() || level >= cost) {
+                return 0;
+            }
+            return (long) Math.ceil((cost - level) * 60_000.0 / perMinute);
+        }
+    }
+}
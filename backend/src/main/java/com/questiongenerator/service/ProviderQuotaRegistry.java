@@ -0,0 +1,241 @@
+package com.questiongenerator.service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import com.questiongenerator.entity.ProviderQuotaNode;
+import com.questiongenerator.repository.ProviderQuotaNodeRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Holds the {@link ProviderQuota} of each provider, configured by {@code ai.quota.<provider>.requests-per-minute}
+ * and {@code tokens-per-minute}, and feeds it the provider's responses.
+ * <p>
+ * With {@code ai.quota.cluster.enabled}, nodes sharing a provider account share their quota state through the
+ * database. Every {@code sync-interval} each node writes its own provider_quota_node row and reads the others': the
+ * number of live nodes divides the limits between them, the lowest limit any node learned from the provider's
+ * headers applies to all, and a 429 seen by one node stops calls on every node (a node that sees one syncs at
+ * once). Nothing is read or written per call, so a slow or unavailable database only delays the shared view.
+ */
+@Component
+public class ProviderQuotaRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProviderQuotaRegistry.class);
+
+    private final ConcurrentMap<String, ProviderQuota> quotas = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> waitTimers = new ConcurrentHashMap<>();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private ProviderQuotaNodeRepository nodeRepository;
+
+    @Value("${ai.quota.burst:PT10S}")
+    private Duration burst;
+
+    @Value("${ai.quota.max-wait:PT10S}")
+    private Duration maxWait;
+
+    @Value("${ai.quota.default-backoff:PT5S}")
+    private Duration defaultBackoff;
+
+    @Value("${ai.quota.cluster.enabled:false}")
+    private boolean clusterEnabled;
+
+    @Value("${ai.quota.cluster.node-id:}")
+    private String nodeId;
+
+    @Value("${ai.quota.cluster.sync-interval:PT5S}")
+    private Duration syncInterval;
+
+    private final ScheduledExecutorService syncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "provider-quota-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ProviderQuota quotaFor(String providerName) {
+        return quotas.computeIfAbsent(providerName, this::create);
+    }
+
+    public Collection<ProviderQuota> getQuotas() {
+        return quotas.values();
+    }
+
+    /**
+     * Reserves a call of the given cost (see {@link ProviderQuota#reserve}) and returns the milliseconds to wait
+     * before sending it.
+     */
+    public long reserve(String providerName, int cost) {
+        long wait = quotaFor(providerName).reserve(cost);
+        waitTimers.get(providerName).record(wait, TimeUnit.MILLISECONDS);
+        return wait;
+    }
+
+    public void refund(String providerName, int cost) {
+        quotaFor(providerName).refund(cost);
+    }
+
+    /** Passes a provider response's status and headers (a header lookup returning null when absent) to its quota. */
+    public void onResponse(String providerName, int status, Function<String, String> headers) {
+        quotaFor(providerName).onResponse(status, headers);
+        if (status == 429 && clusterEnabled) {
+            syncExecutor.execute(this::sync);
+        }
+    }
+
+    /** For a 429 from the provider, once {@link #onResponse} has seen it. */
+    public RateLimitedException rateLimited(String providerName) {
+        return new RateLimitedException(providerName, "rate limited by the provider (429)",
+                quotaFor(providerName).blockedFor());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!clusterEnabled) {
+            return;
+        }
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = defaultNodeId();
+        }
+        logger.info("Sharing provider quotas as node {} every {}", nodeId, syncInterval);
+        syncExecutor.scheduleWithFixedDelay(this::sync, 0, syncInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        syncExecutor.shutdownNow();
+        if (clusterEnabled) {
+            // Leave at once, so the other nodes take over this node's share without waiting for it to go stale
+            try {
+                nodeRepository.deleteAllById(quotas.keySet().stream().map(provider -> provider + "@" + nodeId).toList());
+            } catch (RuntimeException e) {
+                logger.debug("Could not remove provider quota rows: {}", e.getMessage());
+            }
+        }
+    }
+
+    void sync() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            // A node that missed three syncs no longer counts
+            LocalDateTime liveSince = now.minus(syncInterval.multipliedBy(3));
+            for (ProviderQuota quota : quotas.values()) {
+                ProviderQuotaNode own = new ProviderQuotaNode(quota.getProviderName(), nodeId);
+                own.setHeartbeatAt(now);
+                own.setBlockedUntil(toDateTime(quota.getLocalBlockedUntil()));
+                own.setUpstreamRequestsPerMinute(quota.getUpstreamRequestsPerMinute());
+                own.setUpstreamTokensPerMinute(quota.getUpstreamTokensPerMinute());
+                nodeRepository.save(own);
+
+                List<ProviderQuotaNode> live = nodeRepository.findByProviderAndHeartbeatAtAfter(
+                        quota.getProviderName(), liveSince);
+                long blockedUntil = 0;
+                long requestsPerMinute = 0;
+                long tokensPerMinute = 0;
+                for (ProviderQuotaNode node : live) {
+                    blockedUntil = Math.max(blockedUntil, toMillis(node.getBlockedUntil()));
+                    requestsPerMinute = lowestKnown(requestsPerMinute, node.getUpstreamRequestsPerMinute());
+                    tokensPerMinute = lowestKnown(tokensPerMinute, node.getUpstreamTokensPerMinute());
+                }
+                quota.applyCluster(live.size(), blockedUntil, requestsPerMinute, tokensPerMinute);
+            }
+            nodeRepository.deleteStale(now.minus(syncInterval.multipliedBy(10)));
+        } catch (RuntimeException e) {
+            // Keep the last shared view until the database is back
+            logger.warn("Could not share provider quota state: {}", e.getMessage());
+        }
+    }
+
+    private ProviderQuota create(String providerName) {
+        String prefix = "ai.quota." + providerName + ".";
+        ProviderQuota quota = new ProviderQuota(providerName,
+                environment.getProperty(prefix + "requests-per-minute", Long.class, 0L),
+                environment.getProperty(prefix + "tokens-per-minute", Long.class, 0L),
+                burst, maxWait, defaultBackoff);
+
+        for (String type : new String[] {"requests", "tokens"}) {
+            boolean requests = type.equals("requests");
+            Gauge.builder("ai.quota.available", quota, q -> requests ? q.availableRequests() : q.availableTokens())
+                    .tag("provider", providerName).tag("type", type)
+                    .description("Requests or tokens that can be sent now without pacing; negative while calls are paced")
+                    .register(meterRegistry);
+            Gauge.builder("ai.quota.limit", quota, q -> requests ? q.getRequestsPerMinute() : q.getTokensPerMinute())
+                    .tag("provider", providerName).tag("type", type)
+                    .description("Per-minute limit in force on this node (0: none)")
+                    .register(meterRegistry);
+        }
+        Gauge.builder("ai.quota.nodes", quota, ProviderQuota::getNodes)
+                .tag("provider", providerName)
+                .description("Nodes sharing the provider's quota")
+                .register(meterRegistry);
+        FunctionCounter.builder("ai.quota.rejected", quota, ProviderQuota::getRejected)
+                .tag("provider", providerName)
+                .description("Calls refused locally because the quota would have made them wait too long")
+                .register(meterRegistry);
+        FunctionCounter.builder("ai.quota.throttled", quota, ProviderQuota::getThrottled)
+                .tag("provider", providerName)
+                .description("429 responses from the provider")
+                .register(meterRegistry);
+        waitTimers.put(providerName, Timer.builder("ai.quota.wait")
+                .tag("provider", providerName)
+                .description("Time calls were held back to stay within the provider's quota")
+                .register(meterRegistry));
+        return quota;
+    }
+
+    private static long lowestKnown(long current, long reported) {
+        if (reported <= 0) {
+            return current;
+        }
+        return current == 0 ? reported : Math.min(current, reported);
+    }
+
+    private static LocalDateTime toDateTime(long epochMillis) {
+        return epochMillis == 0 ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime == null ? 0 : dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "node";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+}
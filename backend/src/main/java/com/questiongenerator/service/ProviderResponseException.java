@@ -0,0 +1,35 @@
+package com.questiongenerator.service;
+
+/**
+ * The provider answered, but with an error status, or with a success status and no completion in the body.
+ * The status tells {@link RetryPolicy} whether sending the call again can help: 408, 429 and 5xx are the
+ * provider's trouble, other 4xx mean the request itself (or the API key) is wrong.
+ */
+public class ProviderResponseException extends RuntimeException {
+
+    private final String providerName;
+    private final int statusCode;
+
+    public ProviderResponseException(String providerName, int statusCode, String message) {
+        this(providerName, statusCode, message, null);
+    }
+
+    public ProviderResponseException(String providerName, int statusCode, String message, Throwable cause) {
+        super(message, cause);
+        this.providerName = providerName;
+        this.statusCode = statusCode;
+    }
+
+    public String getProviderName() {
+        return providerName;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /** Whether the same request may succeed if sent again. */
+    public boolean isRetryable() {
+        return statusCode == 408 || statusCode == 429 || statusCode >= 500 || (statusCode >= 200 && statusCode < 300);
+    }
+}
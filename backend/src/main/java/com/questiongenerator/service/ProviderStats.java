@@ -0,0 +1,75 @@
+package com.questiongenerator.service;
+
+import java.util.Arrays;
+
+/**
+ * Sliding-window latency and error statistics for one AI provider. Keeps the last {@code windowSize}
+ * outcomes; percentiles are computed over successful calls only.
+ */
+public class ProviderStats {
+
+    private final String providerName;
+    private final long[] latencies;
+    private final boolean[] failures;
+    private int latencyCount;
+    private int latencyNext;
+    private int outcomeCount;
+    private int outcomeNext;
+
+    public ProviderStats(String providerName, int windowSize) {
+        this.providerName = providerName;
+        this.latencies = new long[windowSize];
+        this.failures = new boolean[windowSize];
+    }
+
+    public String getProviderName() {
+        return providerName;
+    }
+
+    public synchronized void recordSuccess(long latencyMillis) {
+        latencies[latencyNext] = latencyMillis;
+        latencyNext = (latencyNext + 1) % latencies.length;
+        latencyCount = Math.min(latencyCount + 1, latencies.length);
+        recordOutcome(false);
+    }
+
+    public synchronized void recordFailure() {
+        recordOutcome(true);
+    }
+
+    private void recordOutcome(boolean failed) {
+        failures[outcomeNext] = failed;
+        outcomeNext = (outcomeNext + 1) % failures.length;
+        outcomeCount = Math.min(outcomeCount + 1, failures.length);
+    }
+
+    /**
+     * Latency percentile in milliseconds (0 &lt; p &lt;= 1), or -1 when there are no samples yet.
+     */
+    public synchronized long percentile(double p) {
+        if (latencyCount == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(p * latencyCount) - 1;
+        return sorted[Math.max(0, Math.min(index, latencyCount - 1))];
+    }
+
+    public synchronized double errorRate() {
+        if (outcomeCount == 0) {
+            return 0.0;
+        }
+        int failed = 0;
+        for (int i = 0; i < outcomeCount; i++) {
+            if (failures[i]) {
+                failed++;
+            }
+        }
+        return (double) failed / outcomeCount;
+    }
+
+    public synchronized int sampleCount() {
+        return outcomeCount;
+    }
+}
@@ -0,0 +1,30 @@
+package com.questiongenerator.service;
+
+/**
+ * Thrown without contacting the provider when its circuit breaker is open or it is at its
+ * concurrency limit, so callers fail fast instead of queueing behind a degraded upstream.
+ */
+public class ProviderUnavailableException extends RuntimeException {
+
+    private final String providerName;
+    private final boolean circuitOpen;
+
+    public ProviderUnavailableException(String providerName, String reason) {
+        this(providerName, reason, false);
+    }
+
+    public ProviderUnavailableException(String providerName, String reason, boolean circuitOpen) {
+        super("AI provider '" + providerName + "' unavailable: " + reason);
+        this.providerName = providerName;
+        this.circuitOpen = circuitOpen;
+    }
+
+    public String getProviderName() {
+        return providerName;
+    }
+
+    /** Rejected by the circuit breaker rather than the concurrency limit: calls stay rejected for a while. */
+    public boolean isCircuitOpen() {
+        return circuitOpen;
+    }
+}
@@ -0,0 +1,439 @@
+package com.questiongenerator.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.questiongenerator.dto.QuestionBankStats;
+import com.questiongenerator.dto.QuestionRequest;
+import com.questiongenerator.dto.QuestionResponse;
+import com.questiongenerator.entity.HistoryQuestion;
+import com.questiongenerator.entity.QuestionHistory;
+
+/**
+ * Question bank: every stored question, indexed by normalized role/topic/difficulty and section, so a
+ * request can be served (fully or partly) from questions that were already generated. Loaded from the
+ * normalized question tables on startup and kept current as new history is written.
+ * <p>
+ * When a user id is supplied, questions already served to that user are not picked again.
+ */
+@Component
+public class QuestionBank implements HistoryWriteListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuestionBank.class);
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Value("${question.bank.enabled:true}")
+    private boolean enabled;
+
+    // Fraction of the set the bank must cover before a partial set is topped up instead of generated afresh
+    @Value("${question.bank.min-coverage:0.5}")
+    private double minCoverage;
+
+    @Value("${question.bank.max-per-section:200}")
+    private int maxPerSection;
+
+    @Value("${question.bank.user-history-size:500}")
+    private int userHistorySize;
+
+    @Value("${question.bank.max-users:1000}")
+    private int maxUsers;
+
+    @Value("${question.bank.load-chunk-size:1000}")
+    private int loadChunkSize;
+
+    // Rough output tokens per question, used to estimate the LLM spend the bank saved
+    @Value("${question.bank.estimated-tokens-per-question:40}")
+    private int tokensPerQuestion;
+
+    @Value("${question.bank.estimated-tokens-per-answer:120}")
+    private int tokensPerAnswer;
+
+    private final Map<QuestionCacheKey, Bucket> buckets = new ConcurrentHashMap<>();
+
+    // Least recently active users are forgotten first
+    private final Map<String, Set<String>> servedByUser = Collections.synchronizedMap(
+            new LinkedHashMap<String, Set<String>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Set<String>> eldest) {
+                    return size() > maxUsers;
+                }
+            });
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong fullHits = new AtomicLong();
+    private final AtomicLong partialHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong questionsFromBank = new AtomicLong();
+    private final AtomicLong questionsGenerated = new AtomicLong();
+    private final AtomicLong tokensSaved = new AtomicLong();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        String sql = "SELECT i.id, i.section, i.answer, q.text_hash, q.question_text, h.role, h.topic, h.difficulty "
+                + "FROM question_history_item i "
+                + "JOIN question q ON q.id = i.question_id "
+                + "JOIN question_history h ON h.id = i.history_id "
+                + "WHERE i.id > :after ORDER BY i.id LIMIT :limit";
+        try {
+            long after = 0;
+            int loaded = 0;
+            while (true) {
+                MapSqlParameterSource params = new MapSqlParameterSource()
+                        .addValue("after", after)
+                        .addValue("limit", loadChunkSize);
+                List<Long> ids = jdbcTemplate.query(sql, params, (rs, rowNum) -> {
+                    add(new QuestionCacheKey(rs.getString("role"), rs.getString("topic"), rs.getString("difficulty"), false),
+                            rs.getString("section"), rs.getString("text_hash"), rs.getString("question_text"), rs.getString("answer"));
+                    return rs.getLong("id");
+                });
+                if (ids.isEmpty()) {
+                    break;
+                }
+                loaded += ids.size();
+                after = ids.get(ids.size() - 1);
+            }
+            logger.info("Loaded question bank: {} question rows across {} role/topic/difficulty combinations", loaded, buckets.size());
+        } catch (Exception e) {
+            logger.warn("Failed to load question bank: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onHistorySaved(List<QuestionHistory> histories) {
+        if (!enabled) {
+            return;
+        }
+        for (QuestionHistory history : histories) {
+            QuestionCacheKey key = new QuestionCacheKey(history.getRole(), history.getTopic(), history.getDifficulty(), false);
+            for (HistoryQuestion item : history.getItems()) {
+                if (item.getQuestion() != null) {
+                    add(key, item.getSection(), item.getQuestion().getTextHash(), item.getQuestionText(), item.getAnswer());
+                }
+            }
+        }
+    }
+
+    private void add(QuestionCacheKey key, String section, String hash, String text, String answer) {
+        if (QuestionCatalog.isPlaceholder(text)) {
+            // Stored by older versions for an unreadable response; not a question to serve
+            return;
+        }
+        buckets.computeIfAbsent(key, k -> new Bucket(maxPerSection)).add(section, new BankQuestion(hash, text, answer));
+    }
+
+    /**
+     * Picks up to a full set of questions for the request, skipping questions the user has already seen
+     * and, when answers are requested, questions stored without one. Returns an empty selection when the
+     * bank covers less than the minimum. The stats are left to {@link #recordServed}, once the caller
+     * knows what it serves.
+     */
+    public Selection select(QuestionRequest request, String userId) {
+        if (!enabled) {
+            return Selection.EMPTY;
+        }
+        Bucket bucket = buckets.get(new QuestionCacheKey(request.getRole(), request.getTopic(), request.getDifficulty(), false));
+        if (bucket == null) {
+            return Selection.EMPTY;
+        }
+
+        Set<String> seen = userId != null ? servedTo(userId) : Set.of();
+        List<BankQuestion> technical = bucket.pick(IncrementalQuestionParser.TECHNICAL,
+                QuestionService.EXPECTED_TECHNICAL, seen, request.isIncludeAnswers());
+        List<BankQuestion> behavioral = bucket.pick(IncrementalQuestionParser.BEHAVIORAL,
+                QuestionService.EXPECTED_BEHAVIORAL, seen, request.isIncludeAnswers());
+        Selection selection = new Selection(technical, behavioral);
+
+        int found = technical.size() + behavioral.size();
+        int needed = QuestionService.EXPECTED_TECHNICAL + QuestionService.EXPECTED_BEHAVIORAL;
+        if (!selection.isComplete() && (found < needed * minCoverage || found == 0)) {
+            return Selection.EMPTY;
+        }
+        return selection;
+    }
+
+    /**
+     * Records the bank's part in a request in the hit-ratio and savings stats: the selection the caller
+     * serves, or an empty one when it generates the whole set anyway (a miss).
+     */
+    public void recordServed(QuestionRequest request, Selection served) {
+        if (!enabled) {
+            return;
+        }
+        requests.incrementAndGet();
+        if (served.isComplete()) {
+            fullHits.incrementAndGet();
+        } else if (!served.isEmpty()) {
+            partialHits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            return;
+        }
+        int found = served.technical.size() + served.behavioral.size();
+        questionsFromBank.addAndGet(found);
+        tokensSaved.addAndGet((long) found * (tokensPerQuestion + (request.isIncludeAnswers() ? tokensPerAnswer : 0)));
+    }
+
+    /**
+     * Whether the bank holds the question (identified by the leading bits of its text hash, as kept by
+     * {@link QuestionSimilarityIndex}) for the request's role/topic/difficulty.
+     */
+    public boolean contains(QuestionRequest request, long hashPrefix) {
+        Bucket bucket = buckets.get(new QuestionCacheKey(request.getRole(), request.getTopic(), request.getDifficulty(), false));
+        return bucket != null && bucket.contains(hashPrefix);
+    }
+
+    /** Counts questions that had to come from the AI provider, for the hit-ratio stats. */
+    public void recordGenerated(int count) {
+        questionsGenerated.addAndGet(count);
+    }
+
+    /** Remembers the questions served to a user so they are not picked for that user again. */
+    public void markServed(String userId, QuestionResponse response) {
+        if (!enabled || userId == null || response == null) {
+            return;
+        }
+        Set<String> seen = servedTo(userId);
+        synchronized (seen) {
+            for (QuestionResponse.Question question : allQuestions(response)) {
+                seen.add(QuestionCatalog.hash(question.getQuestion()));
+            }
+            // Forget the oldest questions first once the per-user history is full
+            Iterator<String> it = seen.iterator();
+            while (seen.size() > userHistorySize && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    private Set<String> servedTo(String userId) {
+        synchronized (servedByUser) {
+            return servedByUser.computeIfAbsent(userId, id -> new LinkedHashSet<>());
+        }
+    }
+
+    private static List<QuestionResponse.Question> allQuestions(QuestionResponse response) {
+        List<QuestionResponse.Question> all = new ArrayList<>();
+        if (response.getTechnicalQuestions() != null) {
+            all.addAll(response.getTechnicalQuestions());
+        }
+        if (response.getBehavioralQuestions() != null) {
+            all.addAll(response.getBehavioralQuestions());
+        }
+        return all;
+    }
+
+    public QuestionBankStats getStats() {
+        long fromBank = questionsFromBank.get();
+        long generated = questionsGenerated.get();
+        long total = requests.get();
+        int size = 0;
+        for (Bucket bucket : buckets.values()) {
+            size += bucket.size();
+        }
+        QuestionBankStats stats = new QuestionBankStats();
+        stats.setEnabled(enabled);
+        stats.setCombinations(buckets.size());
+        stats.setQuestions(size);
+        stats.setRequests(total);
+        stats.setFullHits(fullHits.get());
+        stats.setPartialHits(partialHits.get());
+        stats.setMisses(misses.get());
+        stats.setHitRatio(total == 0 ? 0.0 : (double) (fullHits.get() + partialHits.get()) / total);
+        stats.setQuestionsFromBank(fromBank);
+        stats.setQuestionsGenerated(generated);
+        stats.setQuestionHitRatio(fromBank + generated == 0 ? 0.0 : (double) fromBank / (fromBank + generated));
+        stats.setLlmCallsAvoided(fullHits.get());
+        stats.setEstimatedTokensSaved(tokensSaved.get());
+        return stats;
+    }
+
+    public long fullHitCount() {
+        return fullHits.get();
+    }
+
+    public long partialHitCount() {
+        return partialHits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    public long questionsFromBankCount() {
+        return questionsFromBank.get();
+    }
+
+    public long questionsGeneratedCount() {
+        return questionsGenerated.get();
+    }
+
+    public long estimatedTokensSaved() {
+        return tokensSaved.get();
+    }
+
+    static final class BankQuestion {
+        final String hash;
+        final long hashPrefix;
+        final String text;
+        final String answer;
+
+        BankQuestion(String hash, String text, String answer) {
+            this.hash = hash;
+            this.hashPrefix = QuestionSimilarityIndex.hashPrefix(hash);
+            this.text = text;
+            this.answer = answer;
+        }
+
+        QuestionResponse.Question toQuestion(boolean includeAnswer) {
+            return new QuestionResponse.Question(text, includeAnswer ? answer : null);
+        }
+    }
+
+    /**
+     * Questions picked from the bank for one request; may cover only part of the set.
+     */
+    public static final class Selection {
+        static final Selection EMPTY = new Selection(List.of(), List.of());
+
+        private final List<BankQuestion> technical;
+        private final List<BankQuestion> behavioral;
+
+        Selection(List<BankQuestion> technical, List<BankQuestion> behavioral) {
+            this.technical = technical;
+            this.behavioral = behavioral;
+        }
+
+        public boolean isEmpty() {
+            return technical.isEmpty() && behavioral.isEmpty();
+        }
+
+        public boolean isComplete() {
+            return technical.size() >= QuestionService.EXPECTED_TECHNICAL
+                    && behavioral.size() >= QuestionService.EXPECTED_BEHAVIORAL;
+        }
+
+        public int missingTechnical() {
+            return Math.max(0, QuestionService.EXPECTED_TECHNICAL - technical.size());
+        }
+
+        public int missingBehavioral() {
+            return Math.max(0, QuestionService.EXPECTED_BEHAVIORAL - behavioral.size());
+        }
+
+        public List<String> questionTexts() {
+            List<String> texts = new ArrayList<>();
+            technical.forEach(q -> texts.add(q.text));
+            behavioral.forEach(q -> texts.add(q.text));
+            return texts;
+        }
+
+        public QuestionResponse toResponse(boolean includeAnswers) {
+            List<QuestionResponse.Question> tech = new ArrayList<>();
+            technical.forEach(q -> tech.add(q.toQuestion(includeAnswers)));
+            List<QuestionResponse.Question> beh = new ArrayList<>();
+            behavioral.forEach(q -> beh.add(q.toQuestion(includeAnswers)));
+            return new QuestionResponse(tech, beh);
+        }
+    }
+
+    // Questions for one role/topic/difficulty, per section, deduplicated by text hash and bounded in size
+    private static final class Bucket {
+        private final int maxPerSection;
+        private final Map<String, LinkedHashMap<String, BankQuestion>> sections = new ConcurrentHashMap<>();
+
+        Bucket(int maxPerSection) {
+            this.maxPerSection = maxPerSection;
+        }
+
+        void add(String section, BankQuestion question) {
+            LinkedHashMap<String, BankQuestion> questions = sections.computeIfAbsent(section, s -> new LinkedHashMap<>());
+            synchronized (questions) {
+                BankQuestion existing = questions.remove(question.hash);
+                // Keep an answer we already have if this copy was generated without one
+                if (existing != null && question.answer == null && existing.answer != null) {
+                    question = existing;
+                }
+                questions.put(question.hash, question);
+                if (questions.size() > maxPerSection) {
+                    questions.remove(questions.keySet().iterator().next());
+                }
+            }
+        }
+
+        List<BankQuestion> pick(String section, int count, Set<String> seen, boolean needAnswer) {
+            LinkedHashMap<String, BankQuestion> questions = sections.get(section);
+            if (questions == null) {
+                return List.of();
+            }
+            List<BankQuestion> candidates = new ArrayList<>();
+            synchronized (questions) {
+                for (BankQuestion question : questions.values()) {
+                    if (needAnswer && question.answer == null) {
+                        continue;
+                    }
+                    candidates.add(question);
+                }
+            }
+            if (!seen.isEmpty()) {
+                synchronized (seen) {
+                    candidates.removeIf(question -> seen.contains(question.hash));
+                }
+            }
+            // Random picks give variety across requests for the same combination
+            Collections.shuffle(candidates, ThreadLocalRandom.current());
+            return candidates.size() > count ? new ArrayList<>(candidates.subList(0, count)) : candidates;
+        }
+
+        boolean contains(long hashPrefix) {
+            for (LinkedHashMap<String, BankQuestion> questions : sections.values()) {
+                synchronized (questions) {
+                    for (BankQuestion question : questions.values()) {
+                        if (question.hashPrefix == hashPrefix) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        int size() {
+            int size = 0;
+            for (LinkedHashMap<String, BankQuestion> questions : sections.values()) {
+                synchronized (questions) {
+                    size += questions.size();
+                }
+            }
+            return size;
+        }
+    }
+}
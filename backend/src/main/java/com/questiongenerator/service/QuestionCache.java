@@ -0,0 +1,28 @@
+package com.questiongenerator.service;
+
+import java.util.Optional;
+
+import com.questiongenerator.dto.QuestionResponse;
+
+public interface QuestionCache {
+
+    /**
+     * Returns a cached response for the key, or empty on a miss. Implementations may also
+     * return empty for a present entry when their freshness policy decides it should be regenerated.
+     */
+    Optional<QuestionResponse> get(QuestionCacheKey key);
+
+    void put(QuestionCacheKey key, QuestionResponse response);
+
+    void clear();
+
+    long size();
+
+    long hitCount();
+
+    long missCount();
+
+    long evictionCount();
+
+    long refreshCount();
+}
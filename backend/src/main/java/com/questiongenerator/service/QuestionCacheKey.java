@@ -0,0 +1,79 @@
+package com.questiongenerator.service;
+
+import java.util.Locale;
+import java.util.Objects;
+
+import com.questiongenerator.dto.QuestionRequest;
+
+/**
+ * Normalized cache key for a question generation request.
+ * Role, topic and difficulty are trimmed, lower-cased and have inner whitespace collapsed
+ * so that "Backend Engineer " and "backend  engineer" hit the same entry.
+ */
+public final class QuestionCacheKey {
+
+    private final String role;
+    private final String topic;
+    private final String difficulty;
+    private final boolean includeAnswers;
+
+    public QuestionCacheKey(String role, String topic, String difficulty, boolean includeAnswers) {
+        this.role = normalize(role);
+        this.topic = normalize(topic);
+        this.difficulty = normalize(difficulty);
+        this.includeAnswers = includeAnswers;
+    }
+
+    public static QuestionCacheKey from(QuestionRequest request) {
+        return new QuestionCacheKey(request.getRole(), request.getTopic(), request.getDifficulty(),
+                request.isIncludeAnswers());
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public String getDifficulty() {
+        return difficulty;
+    }
+
+    public boolean isIncludeAnswers() {
+        return includeAnswers;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof QuestionCacheKey)) {
+            return false;
+        }
+        QuestionCacheKey other = (QuestionCacheKey) o;
+        return includeAnswers == other.includeAnswers
+                && role.equals(other.role)
+                && topic.equals(other.topic)
+                && difficulty.equals(other.difficulty);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(role, topic, difficulty, includeAnswers);
+    }
+
+    @Override
+    public String toString() {
+        return role + "|" + topic + "|" + difficulty + "|" + includeAnswers;
+    }
+}
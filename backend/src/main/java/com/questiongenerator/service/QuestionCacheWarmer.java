@@ -0,0 +1,66 @@
+package com.questiongenerator.service;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import com.questiongenerator.dto.QuestionResponse;
+import com.questiongenerator.entity.QuestionHistory;
+import com.questiongenerator.repository.QuestionHistoryRepository;
+
+/**
+ * Optionally pre-populates the question cache from the most recent question_history rows on startup.
+ */
+@Component
+public class QuestionCacheWarmer {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuestionCacheWarmer.class);
+
+    @Autowired
+    private QuestionCache questionCache;
+
+    @Autowired
+    private QuestionHistoryRepository historyRepository;
+
+    @Autowired
+    private QuestionCatalog questionCatalog;
+
+    @Value("${question.cache.warmup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${question.cache.warmup.size:200}")
+    private int warmupSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled || warmupSize <= 0) {
+            return;
+        }
+
+        try {
+            List<QuestionHistory> recent = historyRepository.findAllByOrderByCreatedAtDesc(PageRequest.of(0, warmupSize));
+            int loaded = 0;
+            // Newest rows win, so insert oldest first and let later puts overwrite
+            for (int i = recent.size() - 1; i >= 0; i--) {
+                QuestionHistory history = recent.get(i);
+                QuestionResponse response = questionCatalog.readStoredQuestions(history);
+                if (response != null && QuestionService.isComplete(response)) {
+                    questionCache.put(new QuestionCacheKey(history.getRole(), history.getTopic(),
+                            history.getDifficulty(), history.isIncludeAnswers()), response);
+                    loaded++;
+                }
+            }
+            logger.info("Warmed question cache with {} of {} recent history entries", loaded, recent.size());
+        } catch (Exception e) {
+            // Warm-up is best effort; the cache simply starts cold
+            logger.warn("Failed to warm question cache: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.questiongenerator.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.questiongenerator.dto.QuestionResponse;
+import com.questiongenerator.entity.HistoryQuestion;
+import com.questiongenerator.entity.QuestionHistory;
+import com.questiongenerator.entity.StoredQuestion;
+import com.questiongenerator.repository.StoredQuestionRepository;
+
+/**
+ * Maps question texts to shared {@link StoredQuestion} rows. Texts are compared after normalization
+ * (case, surrounding and repeated whitespace), so the same question generated for different sets is
+ * stored once and can be reused.
+ */
+@Component
+public class QuestionCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuestionCatalog.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private StoredQuestionRepository questionRepository;
+
+    /**
+     * Parses the JSON question columns of a history entry, or returns null if they are missing or invalid.
+     */
+    public QuestionResponse readStoredQuestions(QuestionHistory history) {
+        if (history.getTechnicalQuestions() == null || history.getBehavioralQuestions() == null) {
+            return null;
+        }
+        try {
+            TypeReference<List<QuestionResponse.Question>> type = new TypeReference<>() {};
+            return new QuestionResponse(
+                    objectMapper.readValue(history.getTechnicalQuestions(), type),
+                    objectMapper.readValue(history.getBehavioralQuestions(), type));
+        } catch (Exception e) {
+            logger.debug("Skipping unparseable history entry {}: {}", history.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Builds the per-question rows for a generated set and attaches them to the history entry.
+     */
+    public static void attachItems(QuestionHistory history, QuestionResponse response) {
+        for (HistoryQuestion item : buildItems(response)) {
+            history.addItem(item);
+        }
+    }
+
+    public static List<HistoryQuestion> buildItems(QuestionResponse response) {
+        List<HistoryQuestion> items = new ArrayList<>();
+        addItems(items, IncrementalQuestionParser.TECHNICAL, response.getTechnicalQuestions());
+        addItems(items, IncrementalQuestionParser.BEHAVIORAL, response.getBehavioralQuestions());
+        return items;
+    }
+
+    private static void addItems(List<HistoryQuestion> items, String section, List<QuestionResponse.Question> questions) {
+        if (questions == null) {
+            return;
+        }
+        int position = 0;
+        for (QuestionResponse.Question question : questions) {
+            if (question.getQuestion() == null || question.getQuestion().trim().isEmpty()
+                    || isPlaceholder(question.getQuestion())) {
+                continue;
+            }
+            items.add(new HistoryQuestion(section, position++, question.getQuestion().trim(), question.getAnswer()));
+        }
+    }
+
+    /**
+     * Points every item at its StoredQuestion, looking all texts up in one query and creating the missing
+     * ones. Must run in the same transaction that saves the items. Items must not yet be attached to a
+     * managed history entry, since the lookup query flushes the persistence context.
+     */
+    public void resolve(List<HistoryQuestion> items) {
+        Map<String, List<HistoryQuestion>> byHash = new LinkedHashMap<>();
+        Map<String, String> textByHash = new HashMap<>();
+        for (HistoryQuestion item : items) {
+            String text = item.getQuestionText();
+            String hash = hash(text);
+            byHash.computeIfAbsent(hash, h -> new ArrayList<>()).add(item);
+            textByHash.putIfAbsent(hash, text);
+        }
+        if (byHash.isEmpty()) {
+            return;
+        }
+
+        Map<String, StoredQuestion> known = new HashMap<>();
+        for (StoredQuestion question : questionRepository.findByTextHashIn(byHash.keySet())) {
+            known.put(question.getTextHash(), question);
+        }
+        List<StoredQuestion> created = new ArrayList<>();
+        for (String hash : byHash.keySet()) {
+            if (!known.containsKey(hash)) {
+                StoredQuestion question = new StoredQuestion(hash, textByHash.get(hash));
+                known.put(hash, question);
+                created.add(question);
+            }
+        }
+        questionRepository.saveAll(created);
+
+        for (Map.Entry<String, List<HistoryQuestion>> entry : byHash.entrySet()) {
+            StoredQuestion question = known.get(entry.getKey());
+            for (HistoryQuestion item : entry.getValue()) {
+                item.setQuestion(question);
+            }
+        }
+    }
+
+    /** Whether the text is the parse-error placeholder rather than a question, as older history entries may hold. */
+    static boolean isPlaceholder(String text) {
+        return text != null && QuestionService.PARSE_ERROR_QUESTION.equals(text.trim());
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    static String hash(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(normalize(text).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
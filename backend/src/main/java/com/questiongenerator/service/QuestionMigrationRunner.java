@@ -0,0 +1,125 @@
+package com.questiongenerator.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.questiongenerator.dto.QuestionResponse;
+import com.questiongenerator.entity.HistoryQuestion;
+import com.questiongenerator.entity.QuestionHistory;
+import com.questiongenerator.repository.QuestionHistoryRepository;
+
+/**
+ * One-off migration of question_history rows written before questions were normalized: parses their JSON
+ * question columns into question / question_history_item rows and fills in missing counts.
+ * <p>
+ * Enable with {@code question.migration.questions.enabled=true}. It runs in the background after startup,
+ * walking the table in id order one chunk (one transaction) at a time, so it never holds more than a chunk
+ * in memory and can be stopped and restarted at any point; already migrated rows are skipped.
+ */
+@Component
+public class QuestionMigrationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuestionMigrationRunner.class);
+
+    @Autowired
+    private QuestionHistoryRepository historyRepository;
+
+    @Autowired
+    private QuestionCatalog questionCatalog;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${question.migration.questions.enabled:false}")
+    private boolean enabled;
+
+    @Value("${question.migration.questions.chunk-size:200}")
+    private int chunkSize;
+
+    // Pause between chunks to limit load on a live database
+    @Value("${question.migration.questions.pause:PT0S}")
+    private Duration pause;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        Thread worker = new Thread(this::migrate, "question-migration");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    void migrate() {
+        logger.info("Starting question migration (chunk size {})", chunkSize);
+        long after = 0;
+        int migrated = 0;
+        int skipped = 0;
+        try {
+            while (true) {
+                List<Long> ids = historyRepository.findIdsWithoutItems(after, PageRequest.of(0, chunkSize));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                int[] counts = transactionTemplate.execute(status -> migrateChunk(ids));
+                migrated += counts[0];
+                skipped += counts[1];
+                after = ids.get(ids.size() - 1);
+                logger.info("Question migration: {} entries migrated, {} skipped (up to id {})", migrated, skipped, after);
+
+                if (!pause.isZero()) {
+                    Thread.sleep(pause.toMillis());
+                }
+            }
+            logger.info("Question migration finished: {} entries migrated, {} without parseable questions", migrated, skipped);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Question migration interrupted after {} entries", migrated);
+        } catch (Exception e) {
+            logger.error("Question migration failed after {} entries: {}", migrated, e.getMessage(), e);
+        }
+    }
+
+    private int[] migrateChunk(List<Long> ids) {
+        List<QuestionHistory> histories = historyRepository.findAllById(ids);
+        Map<QuestionHistory, List<HistoryQuestion>> itemsByHistory = new LinkedHashMap<>();
+        int skipped = 0;
+        for (QuestionHistory history : histories) {
+            QuestionResponse response = questionCatalog.readStoredQuestions(history);
+            if (response == null) {
+                skipped++;
+                continue;
+            }
+            if (history.getTechnicalCount() == null || history.getBehavioralCount() == null) {
+                history.setTechnicalCount(response.getTechnicalQuestions().size());
+                history.setBehavioralCount(response.getBehavioralQuestions().size());
+            }
+            List<HistoryQuestion> items = QuestionCatalog.buildItems(response);
+            if (items.isEmpty()) {
+                skipped++;
+            } else {
+                itemsByHistory.put(history, items);
+            }
+        }
+
+        // Resolve before attaching: the entries are managed, and resolving queries (and so flushes)
+        List<HistoryQuestion> allItems = new ArrayList<>();
+        itemsByHistory.values().forEach(allItems::addAll);
+        questionCatalog.resolve(allItems);
+        itemsByHistory.forEach((history, items) -> items.forEach(history::addItem));
+        return new int[] {itemsByHistory.size(), skipped};
+    }
+}
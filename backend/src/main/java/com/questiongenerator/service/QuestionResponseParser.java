@@ -0,0 +1,466 @@
+package com.questiongenerator.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.questiongenerator.dto.QuestionResponse;
+
+/**
+ * Parses a complete model response into questions in a single pass.
+ * <p>
+ * {@link CleaningReader} feeds Jackson's streaming parser while it scans the raw text once. On the way it skips
+ * prose and code fences before the root value and anything after it, and removes comments. Inside strings it escapes
+ * raw control characters and invalid backslash escapes. Questions are read straight from the token stream, without
+ * an intermediate tree or cleaned copy of the response.
+ * <p>
+ * A truncated response is repaired the way a stack-based parser would finish it. The open string is closed, a
+ * dangling key gets a null value, and a cut-off literal becomes null. The open containers are then closed innermost
+ * first. The question object the repair had to close is the one the model was still writing, so it is dropped.
+ * Every question completed before the cut is kept.
+ */
+final class QuestionResponseParser {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuestionResponseParser.class);
+
+    // Thread-safe and reusable; trailing commas are what a repair leaves behind after the last complete element
+    private static final JsonFactory FACTORY = JsonFactory.builder()
+            .enable(JsonReadFeature.ALLOW_TRAILING_COMMA)
+            .build();
+
+    private QuestionResponseParser() {
+    }
+
+    /**
+     * Adds the questions found in the response to the given lists. Questions read before a syntax error are kept;
+     * the error is then rethrown.
+     */
+    static Outcome parse(String response, List<QuestionResponse.Question> technicalQuestions,
+                         List<QuestionResponse.Question> behavioralQuestions) throws IOException {
+        CleaningReader reader = new CleaningReader(response);
+        Outcome outcome = new Outcome();
+        try (JsonParser parser = FACTORY.createParser(reader)) {
+            JsonToken root = parser.nextToken();
+            if (root == null) {
+                throw new IOException("No JSON content found in AI response");
+            }
+            boolean technicalFound = false;
+            boolean behavioralFound = false;
+            if (root == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if (value == JsonToken.START_ARRAY && "technicalQuestions".equalsIgnoreCase(name)) {
+                        technicalFound = true;
+                        readQuestions(parser, reader, technicalQuestions, outcome);
+                    } else if (value == JsonToken.START_ARRAY && "behavioralQuestions".equalsIgnoreCase(name)) {
+                        behavioralFound = true;
+                        readQuestions(parser, reader, behavioralQuestions, outcome);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+            if (!technicalFound) {
+                logger.warn("No 'technicalQuestions' array found in AI response JSON.");
+            }
+            if (!behavioralFound) {
+                logger.warn("No 'behavioralQuestions' array found in AI response JSON.");
+            }
+        } finally {
+            outcome.truncated = reader.isTruncated();
+        }
+        return outcome;
+    }
+
+    private static void readQuestions(JsonParser parser, CleaningReader reader, List<QuestionResponse.Question> target,
+                                      Outcome outcome) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            String question = null;
+            String answer = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("question".equals(name)) {
+                    question = text(parser, value);
+                } else if ("answer".equals(name)) {
+                    answer = text(parser, value);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (reader.isRepaired(parser.currentTokenLocation().getCharOffset())) {
+                // Closed by the repair: the model was cut off while writing this question
+                outcome.droppedPartial++;
+                continue;
+            }
+            if (question != null && !question.isEmpty()) {
+                target.add(new QuestionResponse.Question(question, answer));
+            }
+        }
+    }
+
+    private static String text(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (value.isScalarValue()) {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return "";
+    }
+
+    /**
+     * Whether the response had to be repaired, and how many partly written questions were dropped.
+     */
+    static final class Outcome {
+        private boolean truncated;
+        private int droppedPartial;
+
+        boolean isTruncated() {
+            return truncated;
+        }
+
+        int getDroppedPartial() {
+            return droppedPartial;
+        }
+    }
+
+    /**
+     * Reader over the raw response that yields only the root JSON value, cleaned and, if cut off, completed as
+     * described on the outer class. Output goes through a small pending buffer, so no copy of the response is made.
+     */
+    static final class CleaningReader extends Reader {
+
+        private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+        // What the innermost container expects next
+        private static final byte KEY = 0;
+        private static final byte COLON = 1;
+        private static final byte VALUE = 2;
+        private static final byte AFTER_VALUE = 3;
+
+        private final String source;
+        private int position;
+
+        // Open containers, innermost last: the closer each needs and what it expects next
+        private char[] closers = new char[16];
+        private byte[] states = new byte[16];
+        private int depth;
+
+        private boolean started;
+        private boolean finished;
+        private boolean inString;
+        private boolean stringIsKey;
+        private boolean escape;
+        private int unicodeDigits;
+
+        // A bare literal (number, true, false, null) is held back until it ends, so a cut-off one can be replaced
+        private char[] literal = new char[16];
+        private int literalLength;
+
+        private char[] pending = new char[16];
+        private int pendingStart;
+        private int pendingEnd;
+
+        private long emitted;
+        private long repairStart = Long.MAX_VALUE;
+
+        CleaningReader(String source) {
+            this.source = source == null ? "" : source;
+        }
+
+        boolean isTruncated() {
+            return repairStart != Long.MAX_VALUE;
+        }
+
+        /** Whether the output character at the given offset was added by the repair rather than read from the response. */
+        boolean isRepaired(long charOffset) {
+            return charOffset >= repairStart;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            int count = 0;
+            while (count < length) {
+                if (pendingStart < pendingEnd) {
+                    buffer[offset + count++] = pending[pendingStart++];
+                    continue;
+                }
+                if (finished) {
+                    break;
+                }
+                pendingStart = 0;
+                pendingEnd = 0;
+                if (inString && !escape && unicodeDigits == 0) {
+                    // Fast path: plain string content (most of the response) is copied straight through
+                    int limit = Math.min(source.length(), position + length - count);
+                    int copied = 0;
+                    while (position < limit) {
+                        char c = source.charAt(position);
+                        if (c < 0x20 || c == '"' || c == '\\') {
+                            break;
+                        }
+                        buffer[offset + count++] = c;
+                        position++;
+                        copied++;
+                    }
+                    emitted += copied;
+                    if (count == length) {
+                        break;
+                    }
+                }
+                advance();
+            }
+            return count == 0 && length > 0 ? -1 : count;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private void advance() {
+            if (position >= source.length()) {
+                finish();
+                return;
+            }
+            char c = source.charAt(position++);
+            if (!started) {
+                // Skip prose and ```json fences before the root value
+                if (c == '{' || c == '[') {
+                    started = true;
+                    open(c);
+                }
+                return;
+            }
+            if (inString) {
+                inString(c);
+                return;
+            }
+            if (c > ' ' && "{}[]:,\"/#".indexOf(c) < 0) {
+                hold(c);
+                return;
+            }
+            flushLiteral();
+            switch (c) {
+                case '"' -> {
+                    inString = true;
+                    stringIsKey = closers[depth - 1] == '}' && states[depth - 1] == KEY;
+                    emit(c);
+                }
+                case '{', '[' -> open(c);
+                case '}', ']' -> {
+                    emit(c);
+                    if (--depth == 0) {
+                        // Whatever follows the root value (closing fence, commentary) is ignored
+                        finished = true;
+                    }
+                }
+                case ':' -> {
+                    if (states[depth - 1] == COLON) {
+                        states[depth - 1] = VALUE;
+                    }
+                    emit(c);
+                }
+                case ',' -> {
+                    states[depth - 1] = closers[depth - 1] == '}' ? KEY : VALUE;
+                    emit(c);
+                }
+                // A slash outside a string only ever starts a comment (or is junk, including one cut off at the end)
+                case '/' -> skipComment();
+                case '#' -> skipLine();
+                default -> emit(c);
+            }
+        }
+
+        private void inString(char c) {
+            if (unicodeDigits > 0) {
+                if (Character.digit(c, 16) >= 0) {
+                    emit(c);
+                    unicodeDigits--;
+                    return;
+                }
+                // Unicode escape with fewer than four hex digits: pad it and treat this character normally
+                padUnicode();
+            }
+            if (escape) {
+                escape = false;
+                // Keep valid escapes; turn an invalid one such as \S into an escaped backslash
+                if (c == 'u') {
+                    emit(c);
+                    unicodeDigits = 4;
+                } else if (c == '"' || c == '\\' || c == '/' || c == 'b' || c == 'f'
+                        || c == 'n' || c == 'r' || c == 't') {
+                    emit(c);
+                } else {
+                    emit('\\');
+                    emitRaw(c);
+                }
+                return;
+            }
+            if (c == '\\') {
+                escape = true;
+                emit(c);
+            } else if (c == '"') {
+                closeString();
+            } else {
+                emitRaw(c);
+            }
+        }
+
+        private void closeString() {
+            inString = false;
+            emit('"');
+            states[depth - 1] = stringIsKey ? COLON : AFTER_VALUE;
+        }
+
+        private void padUnicode() {
+            while (unicodeDigits > 0) {
+                emit('0');
+                unicodeDigits--;
+            }
+        }
+
+        // A character of string content that needs no escape handling of its own
+        private void emitRaw(char c) {
+            if (c >= 0x20) {
+                emit(c);
+                return;
+            }
+            emit('\\');
+            switch (c) {
+                case '\n' -> emit('n');
+                case '\r' -> emit('r');
+                case '\t' -> emit('t');
+                case '\b' -> emit('b');
+                case '\f' -> emit('f');
+                default -> {
+                    emit('u');
+                    emit('0');
+                    emit('0');
+                    emit(HEX[c >> 4]);
+                    emit(HEX[c & 0xF]);
+                }
+            }
+        }
+
+        private void hold(char c) {
+            if (literalLength == literal.length) {
+                literal = Arrays.copyOf(literal, literalLength * 2);
+            }
+            literal[literalLength++] = c;
+        }
+
+        private void flushLiteral() {
+            if (literalLength == 0) {
+                return;
+            }
+            for (int i = 0; i < literalLength; i++) {
+                emit(literal[i]);
+            }
+            literalLength = 0;
+            states[depth - 1] = AFTER_VALUE;
+        }
+
+        private void skipComment() {
+            if (position >= source.length()) {
+                return;
+            }
+            char next = source.charAt(position);
+            if (next == '/') {
+                skipLine();
+            } else if (next == '*') {
+                int end = source.indexOf("*/", position + 1);
+                position = end < 0 ? source.length() : end + 2;
+            }
+        }
+
+        private void skipLine() {
+            while (position < source.length() && source.charAt(position) != '\n' && source.charAt(position) != '\r') {
+                position++;
+            }
+        }
+
+        private void open(char c) {
+            if (depth > 0) {
+                states[depth - 1] = AFTER_VALUE;
+            }
+            if (depth == closers.length) {
+                closers = Arrays.copyOf(closers, depth * 2);
+                states = Arrays.copyOf(states, depth * 2);
+            }
+            closers[depth] = c == '{' ? '}' : ']';
+            states[depth] = c == '{' ? KEY : VALUE;
+            depth++;
+            emit(c);
+        }
+
+        // Truncated response: finish the innermost value, then close the open containers innermost first
+        private void finish() {
+            finished = true;
+            if (!started) {
+                return;
+            }
+            repairStart = emitted;
+            if (inString) {
+                padUnicode();
+                if (escape) {
+                    emit('\\');
+                }
+                closeString();
+            } else if (literalLength > 0) {
+                if (isCompleteLiteral()) {
+                    flushLiteral();
+                } else {
+                    literalLength = 0;
+                    emit("null");
+                    states[depth - 1] = AFTER_VALUE;
+                }
+            }
+            byte state = states[depth - 1];
+            if (state == COLON) {
+                emit(":null");
+            } else if (state == VALUE && closers[depth - 1] == '}') {
+                emit("null");
+            }
+            // A trailing comma (KEY after ',' or VALUE in an array) is accepted by the parser as is
+            while (depth > 0) {
+                emit(closers[--depth]);
+            }
+        }
+
+        private boolean isCompleteLiteral() {
+            String value = new String(literal, 0, literalLength);
+            return value.equals("true") || value.equals("false") || value.equals("null")
+                    || value.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?");
+        }
+
+        private void emit(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                emit(text.charAt(i));
+            }
+        }
+
+        private void emit(char c) {
+            if (pendingEnd == pending.length) {
+                pending = Arrays.copyOf(pending, pendingEnd * 2);
+            }
+            pending[pendingEnd++] = c;
+            emitted++;
+        }
+    }
+}
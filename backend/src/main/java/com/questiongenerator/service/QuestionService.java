@@ -2,21 +2,36 @@ package com.questiongenerator.service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
-import com.fasterxml.jackson.core.JsonFactory;
-import com.fasterxml.jackson.core.json.JsonReadFeature;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.questiongenerator.dto.HealthResponse;
 import com.questiongenerator.dto.QuestionRequest;
 import com.questiongenerator.dto.QuestionResponse;
 import com.questiongenerator.entity.QuestionHistory;
-import com.questiongenerator.repository.QuestionHistoryRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 
 @Service
 public class QuestionService {
@@ -24,419 +39,838 @@ public class QuestionService {
     private static final Logger logger = LoggerFactory.getLogger(QuestionService.class);
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    @Value("${ai.provider:huggingface}")
-    private String aiProvider;
+    // Selects among the configured providers (see ai.provider / ai.router.*)
+    @Autowired
+    private RoutingAIProvider routingAIProvider;
 
     @Autowired
-    private HuggingFaceAIProvider huggingFaceAIProvider;
+    private HistoryWriter historyWriter;
 
     @Autowired
-    private OpenAIAIProvider openAIAIProvider;
+    private QuestionCache questionCache;
 
     @Autowired
-    private QuestionHistoryRepository historyRepository;
-
-    private static final double TEMPERATURE_EASY = 0.6;
-    private static final double TEMPERATURE_MEDIUM = 0.7;
-    private static final double TEMPERATURE_HARD = 0.8;
-
-    private static String sanitizeJsonStringLiterals(String raw) {
-        if (raw == null || raw.isEmpty())
-            return raw;
-
-        StringBuilder out = new StringBuilder(raw.length() + 64);
-        boolean inString = false;
-        boolean escape = false;
-
-        for (int i = 0; i < raw.length(); ++i) {
-            char c = raw.charAt(i);
-
-            if (escape) {
-                // previous char was backslash - validate escape sequence
-                // Valid JSON escape sequences: " \ / b f n r t u
-                if (c == '"' || c == '\\' || c == '/' || c == 'b' || c == 'f' ||
-                        c == 'n' || c == 'r' || c == 't' || c == 'u') {
-                    // Valid escape sequence - keep it
-                    out.append(c);
-                } else {
-                    // Invalid escape sequence - escape the backslash and the character
-                    // This converts \S to \\S (escaped backslash + S)
-                    out.append('\\').append(c);
-                }
-                escape = false;
-                continue;
-            }
+    private ThreadPoolTaskExecutor generationExecutor;
 
-            if (c == '\\') {
-                // enter escape mode
-                escape = true;
-                out.append(c);
-                continue;
-            }
+    @Autowired
+    private RequestCoalescer requestCoalescer;
 
-            if (c == '"') {
-                // toggle inString state and copy the quote
-                inString = !inString;
-                out.append(c);
-                continue;
-            }
+    @Autowired
+    private GenerationScheduler generationScheduler;
 
-            if (inString) {
-                // We are inside a JSON string and not after a backslash.
-                // Escape control chars that are illegal unescaped in JSON strings.
-                if (c == '\n') {
-                    out.append("\\n");
-                    continue;
-                } else if (c == '\r') {
-                    out.append("\\r");
-                    continue;
-                } else if (c == '\t') {
-                    out.append("\\t");
-                    continue;
-                } else if (c == '\b') {
-                    out.append("\\b");
-                    continue;
-                } else if (c == '\f') {
-                    out.append("\\f");
-                    continue;
-                } else if (c >= 0 && c < 0x20) {
-                    // Other C0 controls -> use unicode escape
-                    out.append(String.format("\\u%04x", (int) c));
-                    continue;
-                }
-            }
+    @Autowired
+    private QuestionBank questionBank;
 
-            // default: copy character unchanged
-            out.append(c);
-        }
+    @Autowired
+    private NearDuplicateFilter nearDuplicateFilter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PromptTemplates promptTemplates;
+
+    @Autowired
+    private RetryPolicy retryPolicy;
+
+    static final int EXPECTED_TECHNICAL = 5;
+    static final int EXPECTED_BEHAVIORAL = 3;
+
+    // Put in place of a section that could not be read; never served or stored, but legacy history may hold it
+    static final String PARSE_ERROR_QUESTION =
+            "Error parsing response. The AI response may have been incomplete. Please try again.";
+
+    // none (one prompt per set), sections or questions; see generateSet
+    @Value("${question.split.mode:none}")
+    private String splitMode;
+
+    // Permits left free for other requests before a generation may be split
+    @Value("${question.split.reserve-permits:2}")
+    private int splitReservePermits;
+
+    // Ask the provider for just the missing questions when a response comes back short
+    @Value("${question.topup.enabled:true}")
+    private boolean topUpEnabled;
+
+    // Fraction of the requested questions a response must yield; below it the prompt is sent again (see RetryPolicy)
+    @Value("${question.retry.min-yield:0.5}")
+    private double retryMinYield;
+
+    // Temperature multiplier for each resend after a short response
+    @Value("${question.retry.temperature-factor:0.7}")
+    private double retryTemperatureFactor;
+
+    private Counter truncatedResponses;
+    private Counter salvagedQuestions;
+    private Counter lostQuestions;
+    private Counter topUpCalls;
+    private Counter topUpQuestions;
+    private Counter splitGenerations;
+    private Counter splitFallbacks;
+    private Counter parseFailures;
+    private Counter placeholders;
+
+    // Stage timers (question.generation.stage) and the end-to-end timer (question.generation)
+    private Timer promptTimer;
+    private Timer providerSuccessTimer;
+    private Timer providerFailureTimer;
+    private Timer parseCleanTimer;
+    private Timer parseRepairedTimer;
+    private Timer parseFailedTimer;
+    private Timer historySuccessTimer;
+    private Timer historyFailureTimer;
+    private Timer generationSuccessTimer;
+    private Timer generationFailureTimer;
+
+    @PostConstruct
+    void init() {
+        truncatedResponses = Counter.builder("question.parse.truncated")
+                .description("Provider responses that were cut off and had to be repaired")
+                .register(meterRegistry);
+        salvagedQuestions = Counter.builder("question.parse.questions")
+                .tag("result", "salvaged")
+                .description("Complete questions recovered from truncated responses")
+                .register(meterRegistry);
+        lostQuestions = Counter.builder("question.parse.questions")
+                .tag("result", "lost")
+                .description("Partly written questions dropped from truncated responses")
+                .register(meterRegistry);
+        topUpCalls = Counter.builder("question.topup.calls")
+                .description("Follow-up provider calls for the questions missing from a short set")
+                .register(meterRegistry);
+        topUpQuestions = Counter.builder("question.topup.questions")
+                .description("Questions added to short sets by follow-up calls")
+                .register(meterRegistry);
+        splitGenerations = Counter.builder("question.split.generations")
+                .tag("result", "split")
+                .description("Generations fanned out as concurrent per-section or per-question calls")
+                .register(meterRegistry);
+        splitFallbacks = Counter.builder("question.split.generations")
+                .tag("result", "fallback")
+                .description("Generations kept to a single prompt because provider concurrency was limited")
+                .register(meterRegistry);
+        parseFailures = Counter.builder("question.parse.failures")
+                .description("Provider responses that could not be parsed, even after repair")
+                .register(meterRegistry);
+        placeholders = Counter.builder("question.parse.placeholders")
+                .description("Error placeholder questions returned in place of an unreadable section")
+                .register(meterRegistry);
+
+        promptTimer = stageTimer("prompt", "success");
+        providerSuccessTimer = stageTimer("provider", "success");
+        providerFailureTimer = stageTimer("provider", "failure");
+        parseCleanTimer = stageTimer("parse", "clean");
+        parseRepairedTimer = stageTimer("parse", "repaired");
+        parseFailedTimer = stageTimer("parse", "failed");
+        historySuccessTimer = stageTimer("history", "success");
+        historyFailureTimer = stageTimer("history", "failure");
+        generationSuccessTimer = generationTimer("success");
+        generationFailureTimer = generationTimer("failure");
+    }
+
+    private Timer stageTimer(String stage, String outcome) {
+        return Timer.builder("question.generation.stage")
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .description("Time spent in one stage of a generation")
+                .register(meterRegistry);
+    }
+
+    private Timer generationTimer(String outcome) {
+        return Timer.builder("question.generation")
+                .tag("outcome", outcome)
+                .description("Generations end to end, including bank and cache hits")
+                .register(meterRegistry);
+    }
 
-        // If string ended while an escape was active, we need to escape the backslash
-        if (escape) {
-            // Remove the last backslash and add an escaped one
-            out.setLength(out.length() - 1);
-            out.append("\\\\");
+    public QuestionResponse generateQuestions(QuestionRequest request) {
+        try {
+            return generateQuestionsAsync(request).join();
+        } catch (Exception e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            throw new RuntimeException("Failed to generate questions: " + cause.getMessage(), cause);
         }
+    }
 
-        return out.toString();
+    /**
+     * Non-blocking variant of {@link #generateQuestions}. No thread is held while the provider call is in
+     * flight; parsing runs on the generation executor once the response arrives, and the history row is
+     * handed to the write-behind {@link HistoryWriter}.
+     * Identical concurrent requests are coalesced onto a single provider call.
+     */
+    public CompletableFuture<QuestionResponse> generateQuestionsAsync(QuestionRequest request) {
+        return generateQuestionsAsync(request, null);
     }
 
     /**
-     * Removes comments from JSON string (both // and block comment style)
-     * This handles cases where AI includes comments in generated JSON
+     * As {@link #generateQuestionsAsync(QuestionRequest)}, but questions from the question bank that were
+     * already served to the given user (may be null) are not repeated.
      */
-    private static String removeJsonComments(String json) {
-        if (json == null || json.isEmpty())
-            return json;
-
-        StringBuilder result = new StringBuilder(json.length());
-        boolean inString = false;
-        boolean escape = false;
-        int i = 0;
-
-        while (i < json.length()) {
-            char c = json.charAt(i);
-
-            if (escape) {
-                result.append(c);
-                escape = false;
-                i++;
-                continue;
-            }
+    public CompletableFuture<QuestionResponse> generateQuestionsAsync(QuestionRequest request, String userId) {
+        return generateQuestionsAsync(request, userId, Caller.interactive(null));
+    }
 
-            if (c == '\\') {
-                result.append(c);
-                escape = true;
-                i++;
-                continue;
-            }
+    /**
+     * As {@link #generateQuestionsAsync(QuestionRequest, String)}, with provider calls queued in the caller's
+     * lane and charged to its tenant (see {@link GenerationScheduler}). Bank and cache hits are not queued.
+     */
+    public CompletableFuture<QuestionResponse> generateQuestionsAsync(QuestionRequest request, String userId,
+                                                                      Caller caller) {
+        long start = System.nanoTime();
+        return generateWithoutHistory(request, userId, caller)
+                .thenApply(result -> {
+                    // Every caller gets its own history entry, including those that shared a generation
+                    saveToHistory(request, result);
+                    return result;
+                })
+                .whenComplete((result, e) -> {
+                    (e == null ? generationSuccessTimer : generationFailureTimer)
+                            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    if (e instanceof QueueFullException || e != null && e.getCause() instanceof QueueFullException) {
+                        // Turned away by the scheduler; the caller answers 429, no need for a stack trace per request
+                        logger.debug("Generation not queued: {}", e.getMessage());
+                    } else if (RateLimitedException.find(e) != null) {
+                        // Expected while a provider quota is used up; the caller answers 503 with Retry-After
+                        logger.debug("Generation rate limited: {}", e.getMessage());
+                    } else if (e != null) {
+                        logger.error("Error generating questions: {}", e.getMessage(), e);
+                    }
+                });
+    }
+
+    /**
+     * Question bank, cache lookup, coalescing and provider call, without persisting to history. Used directly
+     * by callers that persist in bulk (batch generation).
+     */
+    CompletableFuture<QuestionResponse> generateWithoutHistory(QuestionRequest request, Caller caller) {
+        return generateWithoutHistory(request, null, caller);
+    }
+
+    CompletableFuture<QuestionResponse> generateWithoutHistory(QuestionRequest request, String userId, Caller caller) {
+        QuestionBank.Selection selection = questionBank.select(request, userId);
+        questionBank.recordServed(request, selection);
+        CompletableFuture<QuestionResponse> result;
+        if (selection.isComplete()) {
+            logger.info("Serving {} from the question bank", QuestionCacheKey.from(request));
+            result = CompletableFuture.completedFuture(selection.toResponse(request.isIncludeAnswers()));
+        } else if (!selection.isEmpty()) {
+            result = generationScheduler.submit(caller, () -> topUpFromProvider(request, selection));
+        } else {
+            result = generateFresh(request, userId, caller);
+        }
+        return result.thenApply(response -> {
+            questionBank.markServed(userId, response);
+            return response;
+        });
+    }
 
-            if (c == '"') {
-                inString = !inString;
-                result.append(c);
-                i++;
-                continue;
+    private CompletableFuture<QuestionResponse> generateFresh(QuestionRequest request, String userId, Caller caller) {
+        QuestionCacheKey cacheKey = QuestionCacheKey.from(request);
+        // A cached set may already have been shown to this user; only the bank knows what each user has seen
+        if (userId == null || !questionBank.isEnabled()) {
+            Optional<QuestionResponse> cached = questionCache.get(cacheKey);
+            if (cached.isPresent()) {
+                logger.info("Serving cached questions for {}", cacheKey);
+                return CompletableFuture.completedFuture(cached.get());
             }
+        }
 
-            if (!inString) {
-                // Check for // comments
-                if (c == '/' && i + 1 < json.length() && json.charAt(i + 1) == '/') {
-                    // Skip to end of line
-                    while (i < json.length() && json.charAt(i) != '\n' && json.charAt(i) != '\r') {
-                        i++;
-                    }
-                    continue;
-                }
+        // Only the call that goes upstream is queued; callers that join it wait on it without taking a slot
+        return requestCoalescer.execute(cacheKey,
+                () -> generationScheduler.submit(caller, () -> callProvider(request, cacheKey)));
+    }
 
-                // Check for /* */ comments
-                if (c == '/' && i + 1 < json.length() && json.charAt(i + 1) == '*') {
-                    // Skip to end of comment
-                    i += 2;
-                    while (i + 1 < json.length()) {
-                        if (json.charAt(i) == '*' && json.charAt(i + 1) == '/') {
-                            i += 2;
-                            break;
+    // The bank covered part of the set: ask the provider only for the missing questions
+    private CompletableFuture<QuestionResponse> topUpFromProvider(QuestionRequest request, QuestionBank.Selection selection) {
+        int technical = selection.missingTechnical();
+        int behavioral = selection.missingBehavioral();
+        logger.info("Question bank covered part of {}; generating {} technical and {} behavioral questions",
+                QuestionCacheKey.from(request), technical, behavioral);
+
+        Prompt prompt = buildPrompt(request, technical, behavioral, selection.questionTexts());
+
+        return requestQuestions(request, prompt, technical, behavioral)
+                .thenCompose(generated -> completeSet(request, generated, selection.questionTexts(),
+                        technical, behavioral))
+                .handle((generated, e) -> {
+                    QuestionResponse merged = selection.toResponse(request.isIncludeAnswers());
+                    if (e != null) {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        if (!(cause instanceof UnusableResponseException)) {
+                            throw e instanceof CompletionException completion ? completion : new CompletionException(e);
                         }
-                        i++;
+                        // The bank's questions already meet the minimum coverage; serve them alone
+                        logger.warn("No usable questions to top up {} from the bank", QuestionCacheKey.from(request));
+                        return merged;
                     }
-                    continue;
-                }
-            }
+                    appendUpTo(merged.getTechnicalQuestions(), generated.getTechnicalQuestions(), technical);
+                    appendUpTo(merged.getBehavioralQuestions(), generated.getBehavioralQuestions(), behavioral);
+                    return merged;
+                });
+    }
 
-            result.append(c);
-            i++;
+    /**
+     * Brings a freshly generated set up to the expected counts. Near-duplicates are dropped first. Then, if the set is
+     * short, because the model returned too few questions, was cut off or repeated itself, the provider is asked
+     * once more for only the missing questions of each category. Duplicates in that second round are dropped
+     * without another retry; remaining gaps are filled with dropped questions that only repeat stored ones.
+     */
+    private CompletableFuture<QuestionResponse> completeSet(QuestionRequest request, QuestionResponse generated,
+                                                            List<String> existing, int expectedTechnical,
+                                                            int expectedBehavioral) {
+        if (!removePlaceholders(generated)) {
+            // Nothing usable was parsed, even after the retries: a top-up would cost as much as a new generation,
+            // and an empty set is no answer
+            return CompletableFuture.failedFuture(
+                    new UnusableResponseException("No questions could be read from the AI response"));
         }
-
-        return result.toString();
+        int shortTechnical = Math.max(0, expectedTechnical - generated.getTechnicalQuestions().size());
+        int shortBehavioral = Math.max(0, expectedBehavioral - generated.getBehavioralQuestions().size());
+        if (shortTechnical + shortBehavioral > 0) {
+            logger.warn("Received incomplete response: {} technical, {} behavioral questions (expected {} and {})",
+                    generated.getTechnicalQuestions().size(), generated.getBehavioralQuestions().size(),
+                    expectedTechnical, expectedBehavioral);
+        }
+        QuestionResponse rejected = nearDuplicateFilter.filter(request, generated, existing);
+
+        // Shortfall from the response itself is topped up, dropped duplicates are regenerated; each can be turned off
+        int technical = missing(expectedTechnical, generated.getTechnicalQuestions(),
+                shortTechnical, rejected.getTechnicalQuestions());
+        int behavioral = missing(expectedBehavioral, generated.getBehavioralQuestions(),
+                shortBehavioral, rejected.getBehavioralQuestions());
+        if (technical + behavioral == 0) {
+            nearDuplicateFilter.restore(generated, rejected, existing, expectedTechnical, expectedBehavioral);
+            return CompletableFuture.completedFuture(generated);
+        }
+        int duplicates = rejected.getTechnicalQuestions().size() + rejected.getBehavioralQuestions().size();
+        logger.info("Set for {} is short ({} dropped as near-duplicates); generating {} technical and {} behavioral questions",
+                QuestionCacheKey.from(request), duplicates, technical, behavioral);
+
+        List<String> chosen = new ArrayList<>(existing);
+        generated.getTechnicalQuestions().forEach(q -> chosen.add(q.getQuestion()));
+        generated.getBehavioralQuestions().forEach(q -> chosen.add(q.getQuestion()));
+        List<String> avoid = new ArrayList<>(chosen);
+        rejected.getTechnicalQuestions().forEach(q -> avoid.add(q.getQuestion()));
+        rejected.getBehavioralQuestions().forEach(q -> avoid.add(q.getQuestion()));
+
+        return generateMissing(request, technical, behavioral, avoid)
+                .thenApply(extra -> {
+                    nearDuplicateFilter.filter(request, extra, chosen);
+                    int added = appendUpTo(generated.getTechnicalQuestions(), extra.getTechnicalQuestions(), technical)
+                            + appendUpTo(generated.getBehavioralQuestions(), extra.getBehavioralQuestions(), behavioral);
+                    topUpQuestions.increment(added);
+                    nearDuplicateFilter.recordReplaced(Math.min(added, duplicates));
+                    return generated;
+                })
+                .exceptionally(e -> {
+                    logger.warn("Could not generate the missing questions: {}", e.getMessage());
+                    return generated;
+                })
+                .thenApply(result -> {
+                    nearDuplicateFilter.restore(result, rejected, existing, expectedTechnical, expectedBehavioral);
+                    return result;
+                });
     }
 
-    public QuestionResponse generateQuestions(QuestionRequest request) {
-        try {
-            String prompt = buildPrompt(request);
-            double temperature = getTemperature(request.getDifficulty());
+    private int missing(int expected, List<QuestionResponse.Question> questions, int shortfall,
+                        List<QuestionResponse.Question> rejected) {
+        int wanted = (topUpEnabled ? shortfall : 0) + (nearDuplicateFilter.isRefillEnabled() ? rejected.size() : 0);
+        return Math.min(wanted, Math.max(0, expected - questions.size()));
+    }
 
-            // Select AI provider based on configuration
-            AIProvider provider = getAIProvider();
-            logger.info("Using AI Provider: {}", aiProvider);
+    // Follow-up call for just the missing questions; the prompt names only the categories still needed
+    private CompletableFuture<QuestionResponse> generateMissing(QuestionRequest request, int technical, int behavioral,
+                                                                List<String> avoid) {
+        topUpCalls.increment();
+        Prompt prompt = buildPrompt(request, technical, behavioral, avoid);
+        return requestQuestions(request, prompt, technical, behavioral)
+                .thenApply(extra -> {
+                    removePlaceholders(extra);
+                    return extra;
+                });
+    }
 
-            String response = provider.generateResponse(prompt, temperature);
+    /**
+     * Removes the error placeholders {@link #parseResponse} puts in a section it could not read, so the section
+     * counts as missing. Returns whether any real question is left.
+     */
+    private static boolean removePlaceholders(QuestionResponse response) {
+        response.getTechnicalQuestions().removeIf(q -> PARSE_ERROR_QUESTION.equals(q.getQuestion()));
+        response.getBehavioralQuestions().removeIf(q -> PARSE_ERROR_QUESTION.equals(q.getQuestion()));
+        return !response.getTechnicalQuestions().isEmpty() || !response.getBehavioralQuestions().isEmpty();
+    }
 
-            if (response == null || response.trim().isEmpty()) {
-                logger.error("AI provider returned empty response");
-                throw new RuntimeException("AI provider returned empty response");
+    private static int appendUpTo(List<QuestionResponse.Question> target, List<QuestionResponse.Question> source, int max) {
+        int added = 0;
+        if (source != null) {
+            for (QuestionResponse.Question question : source) {
+                if (added >= max) {
+                    break;
+                }
+                target.add(question);
+                added++;
             }
-
-            QuestionResponse result = parseResponse(response, request.isIncludeAnswers());
-
-            // Save to history database
-            saveToHistory(request, result);
-
-            return result;
-        } catch (Exception e) {
-            logger.error("Error generating questions: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to generate questions: " + e.getMessage(), e);
         }
+        return added;
     }
 
-    private void saveToHistory(QuestionRequest request, QuestionResponse response) {
-        try {
-            String technicalJson = objectMapper.writeValueAsString(response.getTechnicalQuestions());
-            String behavioralJson = objectMapper.writeValueAsString(response.getBehavioralQuestions());
-
-            QuestionHistory history = new QuestionHistory(
-                    request.getRole(),
-                    request.getTopic(),
-                    request.getDifficulty(),
-                    technicalJson,
-                    behavioralJson,
-                    request.isIncludeAnswers());
-
-            historyRepository.save(history);
-            logger.info("Saved question history for role: {}, topic: {}", request.getRole(), request.getTopic());
-        } catch (Exception e) {
-            // Log error but don't fail the main request
-            logger.error("Failed to save question history: {}", e.getMessage(), e);
-        }
+    private CompletableFuture<QuestionResponse> callProvider(QuestionRequest request, QuestionCacheKey cacheKey) {
+        return generateSet(request)
+                .thenCompose(result -> completeSet(request, result, List.of(), EXPECTED_TECHNICAL,
+                        EXPECTED_BEHAVIORAL))
+                .thenApply(result -> {
+                    // Only cache full sets; partial or placeholder responses should be regenerated next time
+                    if (isComplete(result)) {
+                        questionCache.put(cacheKey, result);
+                    }
+                    return result;
+                });
     }
 
-    private AIProvider getAIProvider() {
-        return switch (aiProvider.toLowerCase()) {
-            case "openai" -> {
-                logger.info("Attempting to use OpenAI provider");
-                yield openAIAIProvider;
+    /**
+     * Generates a full set with one prompt or, with {@code question.split.mode}, with concurrent smaller prompts
+     * per section or per question. A model decodes its answer sequentially, so splitting cuts wall-clock time
+     * roughly to that of the longest part. The split is only used while the provider has spare permits for
+     * every part; otherwise the parts would just queue behind each other or be rejected.
+     */
+    private CompletableFuture<QuestionResponse> generateSet(QuestionRequest request) {
+        List<int[]> parts = splitParts();
+        if (parts.size() > 1) {
+            if (routingAIProvider.availableConcurrency() >= parts.size() + splitReservePermits) {
+                splitGenerations.increment();
+                return generateSplit(request, parts);
             }
-            case "huggingface", "hf" -> {
-                logger.info("Attempting to use Hugging Face provider");
-                yield huggingFaceAIProvider;
+            splitFallbacks.increment();
+            logger.debug("Provider concurrency is limited; generating {} with a single prompt",
+                    QuestionCacheKey.from(request));
+        }
+        Prompt prompt = buildPrompt(request, EXPECTED_TECHNICAL, EXPECTED_BEHAVIORAL, List.of());
+        return requestQuestions(request, prompt, EXPECTED_TECHNICAL, EXPECTED_BEHAVIORAL);
+    }
+
+    // Technical and behavioral counts per part
+    private List<int[]> splitParts() {
+        List<int[]> parts = new ArrayList<>();
+        switch (splitMode.toLowerCase(Locale.ROOT)) {
+            case "sections" -> {
+                parts.add(new int[] {EXPECTED_TECHNICAL, 0});
+                parts.add(new int[] {0, EXPECTED_BEHAVIORAL});
             }
-            default -> {
-                logger.warn("Unknown AI provider '{}', falling back to Hugging Face provider", aiProvider);
-                yield huggingFaceAIProvider;
+            case "questions" -> {
+                for (int i = 0; i < EXPECTED_TECHNICAL; i++) {
+                    parts.add(new int[] {1, 0});
+                }
+                for (int i = 0; i < EXPECTED_BEHAVIORAL; i++) {
+                    parts.add(new int[] {0, 1});
+                }
             }
-        };
+            default -> parts.add(new int[] {EXPECTED_TECHNICAL, EXPECTED_BEHAVIORAL});
+        }
+        return parts;
     }
 
-    private String buildPrompt(QuestionRequest request) {
-        StringBuilder prompt = new StringBuilder();
-        prompt.append("Generate interview questions for the following specifications:\n\n");
-        prompt.append("Job Role: ").append(request.getRole()).append("\n");
-        prompt.append("Topic: ").append(request.getTopic()).append("\n");
-        prompt.append("Difficulty Level: ").append(request.getDifficulty()).append("\n\n");
+    /**
+     * Runs the parts concurrently and merges them in order. A failed part only leaves its questions missing, for
+     * the top-up to fill; the generation fails only when every part does.
+     */
+    private CompletableFuture<QuestionResponse> generateSplit(QuestionRequest request, List<int[]> parts) {
+        List<CompletableFuture<QuestionResponse>> calls = new ArrayList<>(parts.size());
+        for (int[] part : parts) {
+            Prompt prompt = buildPrompt(request, part[0], part[1], List.of());
+            calls.add(requestQuestions(request, prompt, part[0], part[1]));
+        }
+        return CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0]))
+                .handle((ignored, e) -> {
+                    QuestionResponse merged = new QuestionResponse(new ArrayList<>(), new ArrayList<>());
+                    Throwable failure = null;
+                    int failed = 0;
+                    for (int i = 0; i < parts.size(); i++) {
+                        try {
+                            QuestionResponse part = calls.get(i).join();
+                            appendUpTo(merged.getTechnicalQuestions(), part.getTechnicalQuestions(), parts.get(i)[0]);
+                            appendUpTo(merged.getBehavioralQuestions(), part.getBehavioralQuestions(), parts.get(i)[1]);
+                        } catch (CompletionException | CancellationException partError) {
+                            failure = partError.getCause() != null ? partError.getCause() : partError;
+                            failed++;
+                        }
+                    }
+                    if (failed == parts.size()) {
+                        throw new CompletionException(failure);
+                    }
+                    if (failed > 0) {
+                        logger.warn("{} of {} split generations for {} failed: {}", failed, parts.size(),
+                                QuestionCacheKey.from(request), failure.getMessage());
+                    }
+                    return merged;
+                });
+    }
 
-        prompt.append("Please generate:\n");
-        prompt.append("- 5 technical questions related to ").append(request.getTopic()).append("\n");
-        prompt.append("- 3 behavioral questions relevant to ").append(request.getRole()).append("\n\n");
+    private Prompt buildPrompt(QuestionRequest request, int technicalCount, int behavioralCount, List<String> avoid) {
+        long start = System.nanoTime();
+        Prompt prompt = promptTemplates.build(request, technicalCount, behavioralCount, avoid);
+        promptTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return prompt;
+    }
 
-        if (request.isIncludeAnswers()) {
-            prompt.append("Include sample answers for each question.\n\n");
-        }
+    /**
+     * Sends the prompt and parses the response, sending it again on a retryable failure or when the response
+     * yields less than {@code question.retry.min-yield} of the questions asked for. Each resend goes to the next
+     * provider in rank order; after a short response it is also sampled at a lower temperature, which makes the
+     * model keep closer to the requested format.
+     */
+    private CompletableFuture<QuestionResponse> requestQuestions(QuestionRequest request, Prompt prompt,
+                                                                 int technical, int behavioral) {
+        return retryPolicy.execute(attempt -> {
+                    Prompt sent = attempt.getShortResponses() == 0 ? prompt : prompt.withTemperature(
+                            prompt.getTemperature() * Math.pow(retryTemperatureFactor, attempt.getShortResponses()));
+                    return requestCompletion(sent, attempt.getNumber() - 1, attempt.getFailover())
+                            .thenApplyAsync(response -> parseGenerated(request, response), generationExecutor);
+                },
+                result -> yieldOf(result, technical, behavioral), retryMinYield);
+    }
 
-        prompt.append("Format your response as a JSON object with this exact structure:\n");
-        prompt.append("{\n");
-        prompt.append("  \"technicalQuestions\": [\n");
-        prompt.append("    {\"question\": \"...\", \"answer\": \"...\"},\n");
-        prompt.append("    ...\n");
-        prompt.append("  ],\n");
-        prompt.append("  \"behavioralQuestions\": [\n");
-        prompt.append("    {\"question\": \"...\", \"answer\": \"...\"}\n");
-        prompt.append("    ...\n");
-        prompt.append("  ]\n");
-        prompt.append("}\n\n");
-
-        prompt.append("Ensure questions are relevant, varied, and appropriate for the difficulty level.");
-        if (!request.isIncludeAnswers()) {
-            prompt.append(" Set \"answer\" to null for each question.");
+    // Usable questions in a parsed response, as a fraction of those asked for
+    private static double yieldOf(QuestionResponse response, int technical, int behavioral) {
+        int asked = technical + behavioral;
+        if (asked == 0) {
+            return 1;
         }
+        long usable = Math.min(technical, response.getTechnicalQuestions().stream()
+                .filter(q -> !PARSE_ERROR_QUESTION.equals(q.getQuestion())).count())
+                + Math.min(behavioral, response.getBehavioralQuestions().stream()
+                .filter(q -> !PARSE_ERROR_QUESTION.equals(q.getQuestion())).count());
+        return (double) usable / asked;
+    }
 
-        return prompt.toString();
+    // The routed call as the generation sees it, including any failover or hedge
+    private CompletableFuture<String> requestCompletion(Prompt prompt, int retry, BooleanSupplier mayFailOver) {
+        long start = System.nanoTime();
+        CompletableFuture<String> future = routingAIProvider.generateResponseAsync(prompt, retry, mayFailOver);
+        future.whenComplete((text, e) -> (e == null ? providerSuccessTimer : providerFailureTimer)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        return future;
     }
 
-    private double getTemperature(String difficulty) {
-        return switch (difficulty.toLowerCase()) {
-            case "easy" -> TEMPERATURE_EASY;
-            case "medium" -> TEMPERATURE_MEDIUM;
-            case "hard" -> TEMPERATURE_HARD;
-            default -> TEMPERATURE_MEDIUM;
-        };
+    private QuestionResponse parseGenerated(QuestionRequest request, String response) {
+        if (response == null || response.trim().isEmpty()) {
+            logger.error("AI provider returned empty response");
+            throw new RuntimeException("AI provider returned empty response");
+        }
+
+        QuestionResponse result = parseResponse(response, request.isIncludeAnswers());
+        questionBank.recordGenerated(result.getTechnicalQuestions().size() + result.getBehavioralQuestions().size());
+        return result;
     }
 
-    private QuestionResponse parseResponse(String response, @SuppressWarnings("unused") boolean includeAnswers) {
-        List<QuestionResponse.Question> technicalQuestions = new ArrayList<>();
-        List<QuestionResponse.Question> behavioralQuestions = new ArrayList<>();
+    /**
+     * Streaming variant of {@link #generateQuestions}: each question is passed to the listener as soon as
+     * the model has finished writing it. Returns the full set once the stream ends.
+     */
+    public QuestionResponse generateQuestionsStreaming(QuestionRequest request, IncrementalQuestionParser.Listener listener) {
+        return generateQuestionsStreaming(request, null, listener);
+    }
 
+    public QuestionResponse generateQuestionsStreaming(QuestionRequest request, String userId,
+                                                       IncrementalQuestionParser.Listener listener) {
         try {
-            logger.debug("Raw AI response:\n{}", response);
+            return streamTimed(request, userId, listener).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
 
-            if (response == null || response.trim().isEmpty()) {
-                throw new RuntimeException("Empty AI response");
-            }
+    /**
+     * Queues the streamed generation in the caller's lane (see {@link GenerationScheduler}) and runs it on the
+     * generation executor once admitted; no thread is held while it waits. A stream holds its slot from the
+     * bank lookup to the last question, since it cannot be split into separately queued provider calls.
+     */
+    public CompletableFuture<QuestionResponse> generateQuestionsStreamingAsync(QuestionRequest request, String userId,
+                                                                               Caller caller,
+                                                                               IncrementalQuestionParser.Listener listener) {
+        return generationScheduler.submit(caller, () -> CompletableFuture.supplyAsync(
+                () -> streamTimed(request, userId, listener), generationExecutor).thenCompose(Function.identity()));
+    }
 
-            // 1) Remove common fenced code block markers if present
-            String cleaned = response.trim();
+    private CompletableFuture<QuestionResponse> streamTimed(QuestionRequest request, String userId,
+                                                            IncrementalQuestionParser.Listener listener) {
+        long start = System.nanoTime();
+        return stream(request, userId, listener).whenComplete((result, e) -> (e == null
+                ? generationSuccessTimer : generationFailureTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    }
 
-            // Remove triple-backtick fences possibly with language tag (e.g. ```json)
-            cleaned = cleaned.replaceAll("(?s)```\\s*json\\b", "```"); // normalize ```json -> ```
-            // Now remove any leading/trailing triple backticks
-            if (cleaned.startsWith("```")) {
-                // drop leading fence
-                cleaned = cleaned.substring(3).trim();
-            }
-            if (cleaned.endsWith("```")) {
-                // drop trailing fence
-                cleaned = cleaned.substring(0, cleaned.length() - 3).trim();
+    /**
+     * Streams the generation on the calling thread. A top-up for a short set is composed onto the returned future
+     * rather than waited for, so the thread is free while the follow-up call is in flight.
+     */
+    private CompletableFuture<QuestionResponse> stream(QuestionRequest request, String userId,
+                                                       IncrementalQuestionParser.Listener listener) {
+        try {
+            // Only a full bank hit is served here; partial coverage streams a fresh generation, so counts as a miss
+            QuestionBank.Selection selection = questionBank.select(request, userId);
+            questionBank.recordServed(request, selection.isComplete() ? selection : QuestionBank.Selection.EMPTY);
+            if (selection.isComplete()) {
+                logger.info("Serving {} from the question bank", QuestionCacheKey.from(request));
+                QuestionResponse fromBank = selection.toResponse(request.isIncludeAnswers());
+                emitAll(fromBank, listener);
+                questionBank.markServed(userId, fromBank);
+                saveToHistory(request, fromBank);
+                return CompletableFuture.completedFuture(fromBank);
             }
 
-            // Also remove single backticks that sometimes wrap inline code blocks
-            if (cleaned.startsWith("`") && cleaned.endsWith("`") && cleaned.length() > 1) {
-                cleaned = cleaned.substring(1, cleaned.length() - 1).trim();
+            QuestionCacheKey cacheKey = QuestionCacheKey.from(request);
+            // As in generateFresh: the cache does not know which sets this user has already seen
+            Optional<QuestionResponse> cached = userId == null || !questionBank.isEnabled()
+                    ? questionCache.get(cacheKey)
+                    : Optional.empty();
+            if (cached.isPresent()) {
+                logger.info("Serving cached questions for {}", cacheKey);
+                emitAll(cached.get(), listener);
+                questionBank.markServed(userId, cached.get());
+                saveToHistory(request, cached.get());
+                return CompletableFuture.completedFuture(cached.get());
             }
 
-            // 2) Extract the JSON by finding the first '{' or '[' and the last '}' or ']'
-            int firstCurly = cleaned.indexOf('{');
-            int firstSquare = cleaned.indexOf('[');
-            int firstOpen = -1;
-            if (firstCurly == -1 && firstSquare == -1) {
-                // No obvious JSON start — try to find a substring after a "json" marker
-                int jsonMarker = cleaned.toLowerCase().indexOf("{");
-                if (jsonMarker >= 0)
-                    firstOpen = jsonMarker;
-            } else if (firstCurly == -1) {
-                firstOpen = firstSquare;
-            } else if (firstSquare == -1) {
-                firstOpen = firstCurly;
-            } else {
-                firstOpen = Math.min(firstCurly, firstSquare);
-            }
+            Prompt prompt = buildPrompt(request, EXPECTED_TECHNICAL, EXPECTED_BEHAVIORAL, List.of());
+
+            retryPolicy.recordCall();
+            // The counter holds the calls made for this prompt, router failovers included
+            return streamCall(prompt, listener, new AtomicInteger())
+                    .thenCompose(call -> finishStream(request, userId, cacheKey, call, listener))
+                    .exceptionallyCompose(e -> {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        logger.error("Error streaming questions: {}", cause.getMessage(), cause);
+                        return CompletableFuture.failedFuture(
+                                new RuntimeException("Failed to generate questions: " + cause.getMessage(), cause));
+                    });
+        } catch (Exception e) {
+            logger.error("Error streaming questions: {}", e.getMessage(), e);
+            return CompletableFuture.failedFuture(new RuntimeException("Failed to generate questions: " + e.getMessage(), e));
+        }
+    }
 
-            if (firstOpen == -1) {
-                // Give up extraction, try using the whole cleaned string
-                logger.warn(
-                        "Could not find explicit JSON start ('{' or '['). Attempting to parse entire cleaned response.");
-                firstOpen = 0;
-            }
+    /** A finished streaming call: the whole response text and the parser that read it as it arrived. */
+    private record StreamedCall(String response, IncrementalQuestionParser parser) {
+    }
 
-            // For the closing bracket, pick the last '}' or ']' whichever is later
-            int lastCurly = cleaned.lastIndexOf('}');
-            int lastSquare = cleaned.lastIndexOf(']');
-            int lastClose = Math.max(lastCurly, lastSquare);
-            if (lastClose < firstOpen) {
-                // Something odd — fallback to end of string
-                lastClose = cleaned.length() - 1;
+    /**
+     * Makes one streaming call on the calling thread. A retryable failure before any question reached the client
+     * is retried on the generation executor once the backoff has passed, so no worker is parked for the delay.
+     */
+    private CompletableFuture<StreamedCall> streamCall(Prompt prompt, IncrementalQuestionParser.Listener listener,
+                                                       AtomicInteger calls) {
+        IncrementalQuestionParser parser = new IncrementalQuestionParser(listener);
+        long providerStart = System.nanoTime();
+        calls.incrementAndGet();
+        try {
+            String response = routingAIProvider.streamResponse(prompt, parser::feed, () -> retryPolicy.tryFailover(calls));
+            providerSuccessTimer.record(System.nanoTime() - providerStart, TimeUnit.NANOSECONDS);
+            return CompletableFuture.completedFuture(new StreamedCall(response, parser));
+        } catch (Exception e) {
+            providerFailureTimer.record(System.nanoTime() - providerStart, TimeUnit.NANOSECONDS);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+                return CompletableFuture.failedFuture(e);
+            }
+            // Once a question has reached the client, a new stream would send it again
+            long delay = parser.getQuestionCount() == 0 ? retryPolicy.retryDelay(e, calls.get()) : -1;
+            if (delay < 0) {
+                return CompletableFuture.failedFuture(e);
             }
+            logger.warn("Streaming call failed, retrying in {} ms: {}", delay, e.getMessage());
+            CompletableFuture<StreamedCall> retry = new CompletableFuture<>();
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+                try {
+                    generationExecutor.execute(() -> streamCall(prompt, listener, calls).whenComplete((call, failure) -> {
+                        if (failure == null) {
+                            retry.complete(call);
+                        } else {
+                            retry.completeExceptionally(failure);
+                        }
+                    }));
+                } catch (RejectedExecutionException rejected) {
+                    // No room for another attempt; report the failure that asked for it
+                    retry.completeExceptionally(e);
+                }
+            });
+            return retry;
+        }
+    }
+
+    /** Reads a finished stream, tops up a short set and stores the result. */
+    private CompletableFuture<QuestionResponse> finishStream(QuestionRequest request, String userId,
+                                                             QuestionCacheKey cacheKey, StreamedCall call,
+                                                             IncrementalQuestionParser.Listener listener) {
+        String response = call.response();
+        IncrementalQuestionParser parser = call.parser();
+        if (response == null || response.trim().isEmpty()) {
+            logger.error("AI provider returned empty response");
+            throw new RuntimeException("AI provider returned empty response");
+        }
 
-            String jsonContent = cleaned.substring(firstOpen, lastClose + 1).trim();
-
-            logger.debug("Extracted JSON content (first 500 chars):\n{}",
-                    jsonContent.length() > 500 ? jsonContent.substring(0, 500) + "..." : jsonContent);
-
-            // Remove comments from JSON (both // and /* */ style)
-            String jsonWithoutComments = removeJsonComments(jsonContent);
-
-            // Parse JSON using Jackson with comments enabled (as fallback)
-            JsonFactory factory = JsonFactory.builder()
-                    .enable(JsonReadFeature.ALLOW_JAVA_COMMENTS)
-                    .enable(JsonReadFeature.ALLOW_YAML_COMMENTS)
-                    .build();
-            ObjectMapper mapper = new ObjectMapper(factory);
-            String sanitized = sanitizeJsonStringLiterals(jsonWithoutComments);
-
-            // Try to parse, but handle incomplete JSON gracefully
-            JsonNode rootNode;
-            try {
-                rootNode = mapper.readTree(sanitized);
-            } catch (Exception parseException) {
-                // Check if it's an incomplete JSON error
-                String errorMsg = parseException.getMessage();
-                if (errorMsg != null && (errorMsg.contains("end-of-input") ||
-                        errorMsg.contains("Unexpected EOF") ||
-                        errorMsg.contains("expected close marker"))) {
-                    // JSON is incomplete - try to extract what we can
-                    logger.warn("JSON response appears incomplete. Attempting to extract partial data.");
-                    rootNode = tryParseIncompleteJson(sanitized, mapper);
-                } else {
-                    // Re-throw if it's a different error
-                    throw parseException;
+        QuestionResponse result;
+        CompletableFuture<QuestionResponse> completed = null;
+        if (parser.getQuestionCount() > 0) {
+            result = parser.toResponse();
+            if (!isComplete(result)) {
+                logger.warn("Received incomplete streamed response: {} technical, {} behavioral questions (expected 5 and 3)",
+                        result.getTechnicalQuestions().size(), result.getBehavioralQuestions().size());
+                if (topUpEnabled) {
+                    completed = streamMissing(request, result, listener);
                 }
             }
+        } else {
+            // Nothing recognisable came through incrementally; fall back to the full repair pipeline
+            result = parseResponse(response, request.isIncludeAnswers());
+            if (!removePlaceholders(result)) {
+                throw new UnusableResponseException("No questions could be read from the AI response");
+            }
+            emitAll(result, listener);
+        }
 
-            // Parse technical questions
-            if (rootNode != null && rootNode.has("technicalQuestions")
-                    && rootNode.get("technicalQuestions").isArray()) {
-                for (JsonNode node : rootNode.get("technicalQuestions")) {
-                    String question = node.has("question") ? node.get("question").asText() : "";
-                    String answer = node.has("answer") && !node.get("answer").isNull()
-                            ? node.get("answer").asText()
-                            : null;
-                    if (!question.isEmpty()) {
-                        technicalQuestions.add(new QuestionResponse.Question(question, answer));
-                    }
-                }
-            } else {
-                logger.warn("No 'technicalQuestions' array found in AI response JSON.");
+        return (completed != null ? completed : CompletableFuture.completedFuture(result)).thenApply(set -> {
+            if (isComplete(set)) {
+                questionCache.put(cacheKey, set);
             }
+            questionBank.recordGenerated(set.getTechnicalQuestions().size() + set.getBehavioralQuestions().size());
+            questionBank.markServed(userId, set);
+            saveToHistory(request, set);
+            return set;
+        });
+    }
 
-            // Parse behavioral questions
-            if (rootNode != null && rootNode.has("behavioralQuestions")
-                    && rootNode.get("behavioralQuestions").isArray()) {
-                for (JsonNode node : rootNode.get("behavioralQuestions")) {
-                    String question = node.has("question") ? node.get("question").asText() : "";
-                    String answer = node.has("answer") && !node.get("answer").isNull()
-                            ? node.get("answer").asText()
-                            : null;
-                    if (!question.isEmpty()) {
-                        behavioralQuestions.add(new QuestionResponse.Question(question, answer));
+    // Tops up a short streamed set; the extra questions are emitted after the ones already sent
+    private CompletableFuture<QuestionResponse> streamMissing(QuestionRequest request, QuestionResponse result,
+                                                              IncrementalQuestionParser.Listener listener) {
+        List<QuestionResponse.Question> technical = result.getTechnicalQuestions();
+        List<QuestionResponse.Question> behavioral = result.getBehavioralQuestions();
+        int missingTechnical = Math.max(0, EXPECTED_TECHNICAL - technical.size());
+        int missingBehavioral = Math.max(0, EXPECTED_BEHAVIORAL - behavioral.size());
+        List<String> chosen = new ArrayList<>();
+        technical.forEach(q -> chosen.add(q.getQuestion()));
+        behavioral.forEach(q -> chosen.add(q.getQuestion()));
+        return generateMissing(request, missingTechnical, missingBehavioral, chosen)
+                .thenApply(extra -> {
+                    nearDuplicateFilter.filter(request, extra, chosen);
+                    int before = technical.size() + behavioral.size();
+                    for (QuestionResponse.Question question : extra.getTechnicalQuestions()) {
+                        if (technical.size() < EXPECTED_TECHNICAL) {
+                            technical.add(question);
+                            listener.onQuestion(IncrementalQuestionParser.TECHNICAL, technical.size() - 1, question);
+                        }
                     }
-                }
-            } else {
-                logger.warn("No 'behavioralQuestions' array found in AI response JSON.");
+                    for (QuestionResponse.Question question : extra.getBehavioralQuestions()) {
+                        if (behavioral.size() < EXPECTED_BEHAVIORAL) {
+                            behavioral.add(question);
+                            listener.onQuestion(IncrementalQuestionParser.BEHAVIORAL, behavioral.size() - 1, question);
+                        }
+                    }
+                    topUpQuestions.increment(technical.size() + behavioral.size() - before);
+                    return result;
+                })
+                .exceptionally(e -> {
+                    logger.warn("Could not generate the missing questions: {}", e.getMessage());
+                    return result;
+                });
+    }
+
+    private void emitAll(QuestionResponse response, IncrementalQuestionParser.Listener listener) {
+        List<QuestionResponse.Question> technical = response.getTechnicalQuestions();
+        for (int i = 0; i < technical.size(); i++) {
+            listener.onQuestion(IncrementalQuestionParser.TECHNICAL, i, technical.get(i));
+        }
+        List<QuestionResponse.Question> behavioral = response.getBehavioralQuestions();
+        for (int i = 0; i < behavioral.size(); i++) {
+            listener.onQuestion(IncrementalQuestionParser.BEHAVIORAL, i, behavioral.get(i));
+        }
+    }
+
+    public HealthResponse getHealth() {
+        return routingAIProvider.getHealth();
+    }
+
+    static boolean isComplete(QuestionResponse response) {
+        return response.getTechnicalQuestions() != null && response.getBehavioralQuestions() != null
+                && response.getTechnicalQuestions().size() >= EXPECTED_TECHNICAL
+                && response.getBehavioralQuestions().size() >= EXPECTED_BEHAVIORAL;
+    }
+
+    private void saveToHistory(QuestionRequest request, QuestionResponse response) {
+        // Usually just a queue hand-off; includes the database write when the queue is full
+        long start = System.nanoTime();
+        try {
+            historyWriter.enqueue(toHistory(request, response));
+            historySuccessTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            logger.debug("Queued question history for role: {}, topic: {}", request.getRole(), request.getTopic());
+        } catch (Exception e) {
+            historyFailureTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            // Log error but don't fail the main request
+            logger.error("Failed to save question history: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Queues several generations at once; the history writer flushes them together in JDBC batches.
+     */
+    void saveBatchToHistory(Map<QuestionRequest, QuestionResponse> results) {
+        try {
+            List<QuestionHistory> histories = new ArrayList<>(results.size());
+            for (Map.Entry<QuestionRequest, QuestionResponse> entry : results.entrySet()) {
+                histories.add(toHistory(entry.getKey(), entry.getValue()));
             }
+            historyWriter.enqueueAll(histories);
+            logger.info("Queued {} question history entries", histories.size());
+        } catch (Exception e) {
+            // Log error but don't fail the batch
+            logger.error("Failed to save batch question history: {}", e.getMessage(), e);
+        }
+    }
 
-            // If we got some questions but not enough, log a warning
-            if (technicalQuestions.size() < 5 || behavioralQuestions.size() < 3) {
-                logger.warn("Received incomplete response: {} technical, {} behavioral questions (expected 5 and 3)",
-                        technicalQuestions.size(), behavioralQuestions.size());
+    private QuestionHistory toHistory(QuestionRequest request, QuestionResponse response) throws JsonProcessingException {
+        String technicalJson = objectMapper.writeValueAsString(response.getTechnicalQuestions());
+        String behavioralJson = objectMapper.writeValueAsString(response.getBehavioralQuestions());
+
+        QuestionHistory history = new QuestionHistory(
+                request.getRole(),
+                request.getTopic(),
+                request.getDifficulty(),
+                technicalJson,
+                behavioralJson,
+                request.isIncludeAnswers());
+        history.setTechnicalCount(response.getTechnicalQuestions() != null ? response.getTechnicalQuestions().size() : 0);
+        history.setBehavioralCount(response.getBehavioralQuestions() != null ? response.getBehavioralQuestions().size() : 0);
+        QuestionCatalog.attachItems(history, response);
+        return history;
+    }
+
+    private QuestionResponse parseResponse(String response, @SuppressWarnings("unused") boolean includeAnswers) {
+        List<QuestionResponse.Question> technicalQuestions = new ArrayList<>();
+        List<QuestionResponse.Question> behavioralQuestions = new ArrayList<>();
+        long start = System.nanoTime();
+
+        try {
+            logger.debug("Raw AI response:\n{}", response);
+
+            if (response == null || response.isBlank()) {
+                throw new RuntimeException("Empty AI response");
+            }
+
+            // One pass over the raw text: fences, comments, bad escapes and truncation are handled while Jackson reads it
+            QuestionResponseParser.Outcome outcome =
+                    QuestionResponseParser.parse(response, technicalQuestions, behavioralQuestions);
+            if (outcome.isTruncated()) {
+                int salvaged = technicalQuestions.size() + behavioralQuestions.size();
+                logger.warn("Repaired truncated AI response: salvaged {} questions, dropped {} partial",
+                        salvaged, outcome.getDroppedPartial());
+                truncatedResponses.increment();
+                salvagedQuestions.increment(salvaged);
+                lostQuestions.increment(outcome.getDroppedPartial());
             }
+            (outcome.isTruncated() ? parseRepairedTimer : parseCleanTimer)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
 
         } catch (Exception e) {
+            parseFailedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            parseFailures.increment();
             // Log the full response + exception for easier debugging
             logger.error("Error parsing AI response: {}. Raw response (first 1000 chars): {}",
                     e.getMessage(),
@@ -445,50 +879,16 @@ public class QuestionService {
 
             // Fallback: create sample questions if parsing fails
             if (technicalQuestions.isEmpty()) {
-                technicalQuestions.add(new QuestionResponse.Question(
-                        "Error parsing response. The AI response may have been incomplete. Please try again.", null));
+                technicalQuestions.add(new QuestionResponse.Question(PARSE_ERROR_QUESTION, null));
+                placeholders.increment();
             }
             if (behavioralQuestions.isEmpty()) {
-                behavioralQuestions.add(new QuestionResponse.Question(
-                        "Error parsing response. The AI response may have been incomplete. Please try again.", null));
+                behavioralQuestions.add(new QuestionResponse.Question(PARSE_ERROR_QUESTION, null));
+                placeholders.increment();
             }
         }
 
         return new QuestionResponse(technicalQuestions, behavioralQuestions);
     }
 
-    /**
-     * Attempts to parse incomplete JSON by trying to close open brackets/braces
-     */
-    private JsonNode tryParseIncompleteJson(String jsonContent, ObjectMapper mapper) {
-        try {
-            // Try to close incomplete JSON by adding missing closing brackets
-            StringBuilder fixed = new StringBuilder(jsonContent);
-
-            // Count open/close brackets
-            long openBraces = jsonContent.chars().filter(ch -> ch == '{').count();
-            long closeBraces = jsonContent.chars().filter(ch -> ch == '}').count();
-            long openBrackets = jsonContent.chars().filter(ch -> ch == '[').count();
-            long closeBrackets = jsonContent.chars().filter(ch -> ch == ']').count();
-
-            // Add missing closing brackets
-            for (long i = closeBrackets; i < openBrackets; i++) {
-                fixed.append(']');
-            }
-            for (long i = closeBraces; i < openBraces; i++) {
-                fixed.append('}');
-            }
-
-            return mapper.readTree(fixed.toString());
-        } catch (Exception e) {
-            logger.warn("Failed to fix incomplete JSON: {}", e.getMessage());
-            // Return empty JSON object as fallback
-            try {
-                return mapper.readTree("{}");
-            } catch (Exception ex) {
-                return null;
-            }
-        }
-    }
-
 }
@@ -0,0 +1,163 @@
+package com.questiongenerator.service;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Locality-sensitive signature of a question's wording, used to find near-duplicate questions without a model.
+ * <p>
+ * The text is turned into hashed features (stemmed content words, word pairs and character trigrams), which are
+ * projected onto {@link #BITS} fixed random hyperplanes (SimHash). The fraction of differing bits between two
+ * signatures estimates the angle between their feature vectors, so {@link #similarity} approximates cosine
+ * similarity. It is lexical only: "How does HashMap work internally?" matches "Explain HashMap internals", but two
+ * questions with the same meaning and no shared words do not match.
+ */
+final class QuestionSignature {
+
+    static final int WORDS = 6;
+    static final int BITS = WORDS * Long.SIZE;
+
+    private static final int DIMENSIONS = 1024;
+    private static final long SEED = 0x5eed_0f_9e5L;
+
+    // Words that say how a question is asked rather than what it is about
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "the", "and", "or", "of", "to", "in", "on", "at", "for", "with", "by", "from", "as", "into",
+            "is", "are", "was", "were", "be", "been", "do", "does", "did", "can", "could", "would", "should", "will",
+            "how", "what", "why", "when", "where", "which", "who", "whom",
+            "explain", "describe", "tell", "me", "about", "discuss", "walk", "through", "give", "example", "examples",
+            "you", "your", "i", "we", "it", "its", "this", "that", "these", "those", "some", "any", "please",
+            "difference", "differences", "between", "time", "work", "works", "use", "used", "using");
+
+    // Fixed random hyperplanes, one row of BITS components per hashed feature dimension
+    private static final float[][] PLANES = new float[DIMENSIONS][BITS];
+
+    static {
+        Random random = new Random(SEED);
+        for (float[] row : PLANES) {
+            for (int bit = 0; bit < BITS; bit++) {
+                row[bit] = (float) random.nextGaussian();
+            }
+        }
+    }
+
+    private QuestionSignature() {
+    }
+
+    static long[] of(String text) {
+        return pack(project(text));
+    }
+
+    /** Raw hyperplane projections; the sign of each is a signature bit, its magnitude how firmly it is set. */
+    static float[] project(String text) {
+        Map<Integer, Float> features = features(text);
+        float[] projection = new float[BITS];
+        for (Map.Entry<Integer, Float> feature : features.entrySet()) {
+            float[] row = PLANES[feature.getKey()];
+            float weight = feature.getValue();
+            for (int bit = 0; bit < BITS; bit++) {
+                projection[bit] += weight * row[bit];
+            }
+        }
+        return projection;
+    }
+
+    static long[] pack(float[] projection) {
+        long[] signature = new long[WORDS];
+        for (int bit = 0; bit < BITS; bit++) {
+            if (projection[bit] > 0) {
+                signature[bit >>> 6] |= 1L << (bit & 63);
+            }
+        }
+        return signature;
+    }
+
+    /** Estimated cosine similarity of the two signed texts, from 1.0 (same wording) down to about 0. */
+    static double similarity(long[] a, long[] b) {
+        return similarity(a, 0, b, 0);
+    }
+
+    static double similarity(long[] a, int aOffset, long[] b, int bOffset) {
+        return similarity(distance(a, aOffset, b, bOffset));
+    }
+
+    /** Number of differing bits. */
+    static int distance(long[] a, int aOffset, long[] b, int bOffset) {
+        int differing = 0;
+        for (int i = 0; i < WORDS; i++) {
+            differing += Long.bitCount(a[aOffset + i] ^ b[bOffset + i]);
+        }
+        return differing;
+    }
+
+    static double similarity(int distance) {
+        return Math.cos(Math.PI * distance / BITS);
+    }
+
+    /** Largest distance whose similarity is still at least minSimilarity. */
+    static int maxDistance(double minSimilarity) {
+        double clamped = Math.max(-1.0, Math.min(1.0, minSimilarity));
+        return (int) Math.floor(BITS * Math.acos(clamped) / Math.PI);
+    }
+
+    private static Map<Integer, Float> features(String text) {
+        Map<Integer, Float> features = new HashMap<>();
+        String previous = null;
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^a-z0-9+#]+")) {
+            if (token.isEmpty() || STOP_WORDS.contains(token)) {
+                continue;
+            }
+            String word = stem(token);
+            add(features, "w:" + word, 1.0f);
+            if (previous != null) {
+                add(features, "b:" + previous + " " + word, 0.5f);
+            }
+            previous = word;
+            // Trigrams tolerate spelling variants the stemmer does not cover
+            String padded = "<" + word + ">";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                add(features, "c:" + padded.substring(i, i + 3), 0.25f);
+            }
+        }
+        return features;
+    }
+
+    private static void add(Map<Integer, Float> features, String feature, float weight) {
+        features.merge(Math.floorMod(mix(feature.hashCode()), DIMENSIONS), weight, Float::sum);
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+
+    // Crude suffix stripping, enough to make "internals" and "internally" the same word
+    static String stem(String word) {
+        if (word.endsWith("sses")) {
+            word = word.substring(0, word.length() - 2);
+        } else if (word.endsWith("ies") && word.length() > 4) {
+            word = word.substring(0, word.length() - 3) + "y";
+        } else if (word.endsWith("s") && !word.endsWith("ss") && word.length() > 3) {
+            word = word.substring(0, word.length() - 1);
+        }
+        for (String suffix : new String[] {"ing", "ed", "ly"}) {
+            if (word.length() > suffix.length() + 2 && word.endsWith(suffix)) {
+                word = word.substring(0, word.length() - suffix.length());
+                break;
+            }
+        }
+        for (String suffix : new String[] {"al", "ence", "ance", "ment", "er", "e"}) {
+            if (word.length() > suffix.length() + 3 && word.endsWith(suffix)) {
+                word = word.substring(0, word.length() - suffix.length());
+                break;
+            }
+        }
+        return word;
+    }
+}
@@ -0,0 +1,360 @@
+package com.questiongenerator.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.questiongenerator.dto.SimilarQuestion;
+import com.questiongenerator.entity.HistoryQuestion;
+import com.questiongenerator.entity.QuestionHistory;
+import com.questiongenerator.entity.StoredQuestion;
+import com.questiongenerator.repository.StoredQuestionRepository;
+
+/**
+ * In-process nearest-neighbour index over every stored question, keyed on {@link QuestionSignature}.
+ * <p>
+ * Signatures are split into {@link #BANDS} bands of 16 bits; each band value is a hash bucket (LSH). A query looks
+ * at the bucket of each of its band values and at the buckets one flip away in the band's least certain bits
+ * (query-directed multi-probe). Bucket entries carry 32 further signature bits, so most candidates are rejected
+ * without reading their full signature. Only packed signatures are kept in memory (roughly 400 bytes per question
+ * including buckets), so a million questions fit in a few hundred megabytes.
+ * Loaded from the question table on startup and kept current through {@link HistoryWriteListener}.
+ */
+@Component
+public class QuestionSimilarityIndex implements HistoryWriteListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuestionSimilarityIndex.class);
+
+    private static final int BAND_BITS = 16;
+    private static final int BANDS = QuestionSignature.BITS / BAND_BITS;
+    private static final int BANDS_PER_WORD = Long.SIZE / BAND_BITS;
+    private static final int PROBES_PER_BAND = 3;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StoredQuestionRepository storedQuestionRepository;
+
+    @Value("${question.similarity.enabled:true}")
+    private boolean enabled;
+
+    // Upper bound on bucket entries scanned per query, in case many questions share the same wording
+    @Value("${question.similarity.max-candidates:10000}")
+    private int maxCandidates;
+
+    @Value("${question.similarity.load-chunk-size:5000}")
+    private int loadChunkSize;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Entry i: question id, leading 64 bits of its text hash, and WORDS longs of signature at i * WORDS
+    private int size;
+    private long[] questionIds = new long[1024];
+    private long[] hashPrefixes = new long[1024];
+    private long[] signatures = new long[1024 * QuestionSignature.WORDS];
+    private final Map<Long, Integer> positions = new HashMap<>();
+
+    // Bucket entry: position in the high 32 bits, 32 more signature bits (see checkBits) in the low 32
+    private final long[][][] buckets = new long[BANDS][1 << BAND_BITS][];
+    private final int[][] bucketSizes = new int[BANDS][1 << BAND_BITS];
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        String sql = "SELECT id, text_hash, question_text FROM question WHERE id > :after ORDER BY id LIMIT :limit";
+        try {
+            long started = System.nanoTime();
+            long after = 0;
+            while (true) {
+                MapSqlParameterSource params = new MapSqlParameterSource()
+                        .addValue("after", after)
+                        .addValue("limit", loadChunkSize);
+                List<Long> ids = jdbcTemplate.query(sql, params, (rs, rowNum) -> {
+                    add(rs.getLong("id"), rs.getString("text_hash"), rs.getString("question_text"));
+                    return rs.getLong("id");
+                });
+                if (ids.isEmpty()) {
+                    break;
+                }
+                after = ids.get(ids.size() - 1);
+            }
+            logger.info("Loaded question similarity index: {} questions in {} ms", size(),
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (Exception e) {
+            logger.warn("Failed to load question similarity index: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onHistorySaved(List<QuestionHistory> histories) {
+        if (!enabled) {
+            return;
+        }
+        for (QuestionHistory history : histories) {
+            for (HistoryQuestion item : history.getItems()) {
+                StoredQuestion question = item.getQuestion();
+                if (question != null && question.getId() != null) {
+                    add(question.getId(), question.getTextHash(), question.getQuestionText());
+                }
+            }
+        }
+    }
+
+    public void add(long questionId, String textHash, String text) {
+        if (QuestionCatalog.isPlaceholder(text)) {
+            return;
+        }
+        long[] signature = QuestionSignature.of(text);
+        lock.writeLock().lock();
+        try {
+            if (positions.containsKey(questionId)) {
+                return;
+            }
+            int position = size;
+            if (position == questionIds.length) {
+                int capacity = questionIds.length * 2;
+                questionIds = Arrays.copyOf(questionIds, capacity);
+                hashPrefixes = Arrays.copyOf(hashPrefixes, capacity);
+                signatures = Arrays.copyOf(signatures, capacity * QuestionSignature.WORDS);
+            }
+            questionIds[position] = questionId;
+            hashPrefixes[position] = hashPrefix(textHash);
+            System.arraycopy(signature, 0, signatures, position * QuestionSignature.WORDS, QuestionSignature.WORDS);
+            for (int band = 0; band < BANDS; band++) {
+                int key = bandKey(signature, band);
+                long[] bucket = buckets[band][key];
+                int count = bucketSizes[band][key];
+                if (bucket == null) {
+                    bucket = new long[2];
+                } else if (count == bucket.length) {
+                    bucket = Arrays.copyOf(bucket, count * 2);
+                }
+                bucket[count] = ((long) position << 32) | checkBits(signature, band);
+                buckets[band][key] = bucket;
+                bucketSizes[band][key] = count + 1;
+            }
+            positions.put(questionId, position);
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stored questions whose estimated similarity to the text is at least minSimilarity, most similar first.
+     */
+    public List<Match> findSimilar(String text, double minSimilarity, int limit) {
+        return findSimilar(QuestionSignature.project(text), minSimilarity, limit);
+    }
+
+    public List<Match> findSimilar(float[] projection, double minSimilarity, int limit) {
+        long[] signature = QuestionSignature.pack(projection);
+        int maxDistance = minSimilarity > 1.0 ? -1 : QuestionSignature.maxDistance(minSimilarity);
+        Probe probe = new Probe(signature, maxDistance, maxCheckDistance(minSimilarity), maxCandidates);
+        lock.readLock().lock();
+        try {
+            // The bucket of each band value first, where true neighbours are most likely
+            int[] keys = new int[BANDS];
+            for (int band = 0; band < BANDS; band++) {
+                keys[band] = bandKey(signature, band);
+                probe.scan(band, keys[band]);
+            }
+            // Then the buckets one flip away, most likely first: a near neighbour most likely differs in the bits
+            // whose projection was closest to zero. Past the scan budget the least likely buckets are skipped.
+            int[][] flips = new int[BANDS][];
+            for (int band = 0; band < BANDS; band++) {
+                flips[band] = leastCertainBits(projection, band);
+            }
+            for (int i = 0; i < PROBES_PER_BAND && probe.budget > 0; i++) {
+                for (int band = 0; band < BANDS; band++) {
+                    probe.scan(band, keys[band] ^ (1 << flips[band][i]));
+                }
+            }
+            // Distance in the high half, so sorting puts the most similar first and a question found in several
+            // buckets next to itself
+            long[] found = Arrays.copyOf(probe.found, probe.foundCount);
+            Arrays.sort(found);
+            List<Match> matches = new ArrayList<>(Math.min(limit, found.length));
+            for (int i = 0; i < found.length && matches.size() < limit; i++) {
+                if (i > 0 && found[i] == found[i - 1]) {
+                    continue;
+                }
+                int position = (int) found[i];
+                matches.add(new Match(questionIds[position], hashPrefixes[position],
+                        QuestionSignature.similarity((int) (found[i] >>> 32))));
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int[] leastCertainBits(float[] projection, int band) {
+        int[] bits = new int[PROBES_PER_BAND];
+        float[] magnitudes = new float[PROBES_PER_BAND];
+        Arrays.fill(magnitudes, Float.MAX_VALUE);
+        int first = band * BAND_BITS;
+        for (int bit = 0; bit < BAND_BITS; bit++) {
+            float magnitude = Math.abs(projection[first + bit]);
+            for (int i = 0; i < PROBES_PER_BAND; i++) {
+                if (magnitude < magnitudes[i]) {
+                    System.arraycopy(magnitudes, i, magnitudes, i + 1, PROBES_PER_BAND - i - 1);
+                    System.arraycopy(bits, i, bits, i + 1, PROBES_PER_BAND - i - 1);
+                    magnitudes[i] = magnitude;
+                    bits[i] = bit;
+                    break;
+                }
+            }
+        }
+        return bits;
+    }
+
+    // 32 signature bits from outside the band, kept in each bucket entry for the pre-check
+    private static long checkBits(long[] signature, int band) {
+        long word = signature[(band / BANDS_PER_WORD + 1) % QuestionSignature.WORDS];
+        return (band % 2 == 0 ? word : word >>> 32) & 0xFFFFFFFFL;
+    }
+
+    // Differing check bits a true neighbour stays within with high probability: mean plus about three
+    // standard deviations of the binomial count at the angle matching minSimilarity
+    private static int maxCheckDistance(double minSimilarity) {
+        double p = (double) QuestionSignature.maxDistance(minSimilarity) / QuestionSignature.BITS;
+        return (int) Math.ceil(32 * p + 3 * Math.sqrt(32 * p * (1 - p)));
+    }
+
+    /**
+     * Stored question texts similar to the given text, for the similar-questions endpoint.
+     */
+    public List<SimilarQuestion> similarQuestions(String text, double minSimilarity, int limit) {
+        List<Match> matches = findSimilar(text, minSimilarity, limit);
+        List<Long> ids = new ArrayList<>(matches.size());
+        matches.forEach(match -> ids.add(match.getQuestionId()));
+        Map<Long, String> texts = new HashMap<>();
+        for (StoredQuestion question : storedQuestionRepository.findAllById(ids)) {
+            texts.put(question.getId(), question.getQuestionText());
+        }
+        List<SimilarQuestion> result = new ArrayList<>(matches.size());
+        for (Match match : matches) {
+            String questionText = texts.get(match.getQuestionId());
+            if (questionText != null) {
+                result.add(new SimilarQuestion(match.getQuestionId(), questionText, match.getSimilarity()));
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int bandKey(long[] signature, int band) {
+        long word = signature[band / BANDS_PER_WORD];
+        return (int) (word >>> ((band % BANDS_PER_WORD) * BAND_BITS)) & ((1 << BAND_BITS) - 1);
+    }
+
+    /** Leading 64 bits of a question text hash (hex SHA-256), enough to tell stored questions apart. */
+    static long hashPrefix(String textHash) {
+        return Long.parseUnsignedLong(textHash.substring(0, 16), 16);
+    }
+
+    /**
+     * State of one query: how many more bucket entries it may scan, and the matches so far.
+     */
+    private final class Probe {
+        private final long[] signature;
+        private final int maxDistance;
+        private final int maxCheckDistance;
+        private final long[] checks = new long[BANDS];
+        private int budget;
+
+        // Matches as distance in the high 32 bits, position in the low 32
+        private long[] found = new long[32];
+        private int foundCount;
+
+        Probe(long[] signature, int maxDistance, int maxCheckDistance, int budget) {
+            this.signature = signature;
+            this.maxDistance = maxDistance;
+            this.maxCheckDistance = maxCheckDistance;
+            this.budget = budget;
+            for (int band = 0; band < BANDS; band++) {
+                checks[band] = checkBits(signature, band);
+            }
+        }
+
+        void scan(int band, int key) {
+            long[] bucket = buckets[band][key];
+            int count = Math.min(bucketSizes[band][key], budget);
+            budget -= count;
+            long check = checks[band];
+            for (int i = 0; i < count; i++) {
+                long entry = bucket[i];
+                // Cheap rejection on bits stored in the bucket itself, before touching the full signature
+                if (Long.bitCount((entry ^ check) & 0xFFFFFFFFL) > maxCheckDistance) {
+                    continue;
+                }
+                int position = (int) (entry >>> 32);
+                int distance = QuestionSignature.distance(signature, 0, signatures, position * QuestionSignature.WORDS);
+                // A candidate can turn up in several buckets; re-comparing it is cheaper than tracking visits
+                if (distance <= maxDistance) {
+                    if (foundCount == found.length) {
+                        found = Arrays.copyOf(found, foundCount * 2);
+                    }
+                    found[foundCount++] = ((long) distance << 32) | position;
+                }
+            }
+        }
+    }
+
+    /**
+     * A stored question found near a query signature.
+     */
+    public static final class Match {
+        private final long questionId;
+        private final long hashPrefix;
+        private final double similarity;
+
+        Match(long questionId, long hashPrefix, double similarity) {
+            this.questionId = questionId;
+            this.hashPrefix = hashPrefix;
+            this.similarity = similarity;
+        }
+
+        public long getQuestionId() {
+            return questionId;
+        }
+
+        public long getHashPrefix() {
+            return hashPrefix;
+        }
+
+        public double getSimilarity() {
+            return similarity;
+        }
+    }
+}
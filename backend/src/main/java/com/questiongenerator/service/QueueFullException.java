@@ -0,0 +1,22 @@
+package com.questiongenerator.service;
+
+import java.time.Duration;
+
+/**
+ * Thrown (as the failure of the returned future) when the {@link GenerationScheduler} turns a generation away
+ * because its lane or tenant queue is full, or because it waited in the queue longer than allowed.
+ * Callers should come back after {@link #getRetryAfter()}.
+ */
+public class QueueFullException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public QueueFullException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
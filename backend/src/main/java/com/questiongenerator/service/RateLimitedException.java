@@ -0,0 +1,32 @@
+package com.questiongenerator.service;
+
+import java.time.Duration;
+
+/**
+ * A provider call that was not made, or was refused upstream with 429, because the provider's request or token
+ * quota is used up (see {@link ProviderQuota}). Like any unavailable provider it is failed over and answered with
+ * 503, but it also says when to come back.
+ */
+public class RateLimitedException extends ProviderUnavailableException {
+
+    private final Duration retryAfter;
+
+    public RateLimitedException(String providerName, String reason, Duration retryAfter) {
+        super(providerName, reason);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    /** The rate limit anywhere in the cause chain, or null. */
+    public static RateLimitedException find(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof RateLimitedException rateLimited) {
+                return rateLimited;
+            }
+        }
+        return null;
+    }
+}
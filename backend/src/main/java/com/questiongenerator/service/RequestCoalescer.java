@@ -0,0 +1,156 @@
+package com.questiongenerator.service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.questiongenerator.dto.QuestionResponse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Single-flight layer for generation requests: concurrent callers with the same normalized request share
+ * one upstream call and all receive its result.
+ *
+ * Waiters beyond {@code max-waiters} get their own upstream call. A waiter that exceeds {@code wait-timeout}
+ * either fails or falls through to its own call, depending on {@code on-timeout}.
+ */
+@Component
+public class RequestCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestCoalescer.class);
+
+    private final ConcurrentMap<QuestionCacheKey, Flight> inFlight = new ConcurrentHashMap<>();
+
+    private final boolean enabled;
+    private final int maxWaiters;
+    private final Duration waitTimeout;
+    private final boolean fallThroughOnTimeout;
+
+    private final Counter coalesced;
+    private final Counter overflow;
+    private final Counter timeouts;
+
+    public RequestCoalescer(
+            @Value("${question.coalescing.enabled:true}") boolean enabled,
+            @Value("${question.coalescing.max-waiters:100}") int maxWaiters,
+            @Value("${question.coalescing.wait-timeout:PT2M}") Duration waitTimeout,
+            @Value("${question.coalescing.on-timeout:fail}") String onTimeout,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxWaiters = maxWaiters;
+        this.waitTimeout = waitTimeout;
+        this.fallThroughOnTimeout = "fallthrough".equalsIgnoreCase(onTimeout);
+
+        this.coalesced = Counter.builder("question.coalescing.requests")
+                .tag("result", "coalesced")
+                .description("Requests that shared an identical in-flight generation")
+                .register(meterRegistry);
+        this.overflow = Counter.builder("question.coalescing.requests")
+                .tag("result", "overflow")
+                .description("Requests that went upstream because the in-flight generation had too many waiters")
+                .register(meterRegistry);
+        this.timeouts = Counter.builder("question.coalescing.requests")
+                .tag("result", "timeout")
+                .description("Waiters that gave up on a shared generation")
+                .register(meterRegistry);
+        Gauge.builder("question.coalescing.inflight", inFlight, ConcurrentMap::size)
+                .description("Distinct generations currently in flight")
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<QuestionResponse> execute(QuestionCacheKey key,
+            Supplier<CompletableFuture<QuestionResponse>> call) {
+        if (!enabled) {
+            return call.get();
+        }
+
+        while (true) {
+            Flight existing = inFlight.get(key);
+            if (existing != null) {
+                if (!existing.tryJoin(maxWaiters)) {
+                    overflow.increment();
+                    logger.debug("Coalescing limit reached for {}, calling provider directly", key);
+                    return call.get();
+                }
+                coalesced.increment();
+                logger.info("Coalesced request for {} onto in-flight generation", key);
+                return awaitShared(existing, call);
+            }
+
+            Flight flight = new Flight();
+            if (inFlight.putIfAbsent(key, flight) != null) {
+                // Lost the race to another leader; join it instead
+                continue;
+            }
+
+            try {
+                call.get().whenComplete((result, e) -> {
+                    inFlight.remove(key, flight);
+                    if (e != null) {
+                        flight.future.completeExceptionally(e);
+                    } else {
+                        flight.future.complete(result);
+                    }
+                });
+            } catch (RuntimeException e) {
+                inFlight.remove(key, flight);
+                flight.future.completeExceptionally(e);
+            }
+            // Hand out a copy so callers cannot complete the shared future themselves
+            return flight.future.copy();
+        }
+    }
+
+    private CompletableFuture<QuestionResponse> awaitShared(Flight flight,
+            Supplier<CompletableFuture<QuestionResponse>> call) {
+        CompletableFuture<QuestionResponse> waiter = flight.future.copy();
+        if (waitTimeout.isZero() || waitTimeout.isNegative()) {
+            return waiter;
+        }
+        return waiter.orTimeout(waitTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionallyCompose(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (!(cause instanceof TimeoutException)) {
+                        return CompletableFuture.failedFuture(cause);
+                    }
+                    timeouts.increment();
+                    if (fallThroughOnTimeout) {
+                        logger.warn("Timed out waiting for shared generation, calling provider directly");
+                        return call.get();
+                    }
+                    return CompletableFuture.failedFuture(
+                            new TimeoutException("Timed out waiting for an identical in-flight generation"));
+                });
+    }
+
+    private static final class Flight {
+        private final CompletableFuture<QuestionResponse> future = new CompletableFuture<>();
+        private final AtomicInteger waiters = new AtomicInteger();
+
+        private boolean tryJoin(int maxWaiters) {
+            while (true) {
+                int current = waiters.get();
+                if (current >= maxWaiters) {
+                    return false;
+                }
+                if (waiters.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
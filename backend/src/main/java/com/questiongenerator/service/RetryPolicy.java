@@ -0,0 +1,390 @@
+package com.questiongenerator.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Decides whether a failed provider call is sent again, and when. Transport errors, timeouts, 408, 429, 5xx and
+ * unavailable providers are retried; other 4xx and unknown errors are not. Retries back off exponentially from
+ * {@code ai.retry.initial-backoff} with full jitter (a random delay up to the backoff), and a 429 waits at least
+ * its Retry-After; one asking for longer than {@code max-backoff} is not retried here but passed on to the client.
+ * <p>
+ * All retries draw on one budget, so they cannot multiply the load on a provider that is already failing: within
+ * {@code ai.retry.budget.window}, retries may add {@code budget.ratio} of the calls made, plus
+ * {@code budget.min-per-second} so that a quiet service can still retry. A router failover to another provider is
+ * a retry too: it takes from the budget and counts towards {@code max-attempts} for the prompt. A provider whose
+ * circuit breaker is open is not retried unless another provider is available.
+ */
+@Component
+public class RetryPolicy {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetryPolicy.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ProviderGuardRegistry guardRegistry;
+
+    @Value("${ai.retry.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${ai.retry.initial-backoff:PT0.5S}")
+    private Duration initialBackoff;
+
+    @Value("${ai.retry.max-backoff:PT8S}")
+    private Duration maxBackoff;
+
+    @Value("${ai.retry.multiplier:2.0}")
+    private double multiplier;
+
+    @Value("${ai.retry.budget.ratio:0.2}")
+    private double budgetRatio;
+
+    @Value("${ai.retry.budget.min-per-second:1}")
+    private double budgetMinPerSecond;
+
+    @Value("${ai.retry.budget.window:PT10S}")
+    private Duration budgetWindow;
+
+    private Budget budget;
+
+    private Counter errorRetries;
+    private Counter shortResponseRetries;
+    private Counter failoverRetries;
+    private Counter permanentGiveUps;
+    private Counter exhaustedGiveUps;
+    private Counter budgetGiveUps;
+    private Counter rateLimitedGiveUps;
+    private Counter circuitOpenGiveUps;
+
+    @PostConstruct
+    void init() {
+        budget = new Budget((int) Math.max(1, budgetWindow.toSeconds()));
+        errorRetries = retryCounter("error", "Calls sent again after a retryable failure");
+        shortResponseRetries = retryCounter("short-response", "Prompts sent again because the response yielded too few questions");
+        failoverRetries = retryCounter("failover", "Calls the router sent to another provider after the first one failed");
+        permanentGiveUps = giveUpCounter("permanent", "Failures not retried because retrying cannot help");
+        exhaustedGiveUps = giveUpCounter("exhausted", "Failures still failing after the last attempt");
+        budgetGiveUps = giveUpCounter("budget", "Retries not made because the retry budget was spent");
+        rateLimitedGiveUps = giveUpCounter("rate-limited", "429s not retried because Retry-After exceeds the maximum backoff");
+        circuitOpenGiveUps = giveUpCounter("circuit-open", "Breaker rejections not retried because no other provider is available");
+    }
+
+    private Counter retryCounter(String reason, String description) {
+        return Counter.builder("ai.retry.attempts").tag("reason", reason).description(description)
+                .register(meterRegistry);
+    }
+
+    private Counter giveUpCounter(String reason, String description) {
+        return Counter.builder("ai.retry.giveups").tag("reason", reason).description(description)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code call} until it succeeds with a result whose {@code yield} (the fraction of what was asked for
+     * that came back) reaches {@code minYield}, it fails for good, or attempts or budget run out. Failures are
+     * retried after a backoff, short results at once. When retries stop after a short result, the best result
+     * seen is returned; a failure after a short result returns that result too. No thread waits during backoff.
+     */
+    public <T> CompletableFuture<T> execute(Function<Attempt, CompletableFuture<T>> call, ToDoubleFunction<T> yield,
+                                            double minYield) {
+        Execution<T> execution = new Execution<>(call, yield, minYield);
+        recordCall();
+        execution.attempt();
+        return execution.result;
+    }
+
+    /** Counts a first attempt towards the retry budget; {@link #execute} does this itself. */
+    public void recordCall() {
+        budget.recordCall();
+    }
+
+    /**
+     * For callers that retry on their own thread (streams): milliseconds to wait before sending the call again
+     * after {@code calls} calls (attempts and failovers) have been made for it, or -1 if {@code failure} should
+     * not be retried.
+     */
+    public long retryDelay(Throwable failure, int calls) {
+        if (!isRetryable(failure)) {
+            permanentGiveUps.increment();
+            return -1;
+        }
+        ProviderUnavailableException unavailable = find(failure, ProviderUnavailableException.class);
+        if (unavailable != null && unavailable.isCircuitOpen()
+                && !isOtherProviderAvailable(unavailable.getProviderName())) {
+            // Every provider would reject the call again without trying it
+            circuitOpenGiveUps.increment();
+            return -1;
+        }
+        if (!enabled || calls >= maxAttempts) {
+            exhaustedGiveUps.increment();
+            return -1;
+        }
+        long delay = backoffMillis(calls);
+        RateLimitedException rateLimited = RateLimitedException.find(failure);
+        if (rateLimited != null) {
+            if (rateLimited.getRetryAfter().compareTo(maxBackoff) > 0) {
+                rateLimitedGiveUps.increment();
+                return -1;
+            }
+            delay = Math.max(delay, rateLimited.getRetryAfter().toMillis());
+        }
+        if (!budget.tryRetry()) {
+            budgetGiveUps.increment();
+            return -1;
+        }
+        errorRetries.increment();
+        return delay;
+    }
+
+    /**
+     * For a router failover: whether the failed call may go to another provider, after {@code calls} calls were
+     * made for the prompt. Takes a retry from the budget, and counts the failover in {@code calls}.
+     */
+    public boolean tryFailover(AtomicInteger calls) {
+        if (calls.get() >= maxAttempts) {
+            exhaustedGiveUps.increment();
+            return false;
+        }
+        if (!budget.tryRetry()) {
+            budgetGiveUps.increment();
+            return false;
+        }
+        calls.incrementAndGet();
+        failoverRetries.increment();
+        return true;
+    }
+
+    /**
+     * Whether the failure is transient, so the call may succeed later: the first classifiable error in the cause
+     * chain decides. {@link #retryDelay} also decides whether retrying now can help.
+     */
+    public boolean isRetryable(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof CancellationException || t instanceof QueueFullException) {
+                return false;
+            }
+            if (t instanceof ProviderResponseException response) {
+                return response.isRetryable();
+            }
+            if (t instanceof ProviderUnavailableException || t instanceof IOException
+                    || t instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isOtherProviderAvailable(String providerName) {
+        return guardRegistry.getGuards().stream()
+                .anyMatch(guard -> !guard.getProviderName().equals(providerName) && guard.isAvailable());
+    }
+
+    private static <E extends Throwable> E find(Throwable failure, Class<E> type) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (type.isInstance(t)) {
+                return type.cast(t);
+            }
+        }
+        return null;
+    }
+
+    /** How long a client should wait before retrying a generation that failed with a retryable error. */
+    public Duration getClientRetryAfter() {
+        return maxBackoff;
+    }
+
+    // Full jitter: uniformly random up to the exponential backoff for this attempt
+    private long backoffMillis(int attempt) {
+        double backoff = initialBackoff.toMillis() * Math.pow(multiplier, attempt - 1);
+        long capped = (long) Math.min(maxBackoff.toMillis(), backoff);
+        return capped <= 0 ? 0 : ThreadLocalRandom.current().nextLong(capped + 1);
+    }
+
+    /** One attempt at a call: its number (from 1) and how many earlier attempts came back short. */
+    public static final class Attempt {
+        private final int number;
+        private final int shortResponses;
+        private final BooleanSupplier failover;
+
+        private Attempt(int number, int shortResponses, BooleanSupplier failover) {
+            this.number = number;
+            this.shortResponses = shortResponses;
+            this.failover = failover;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        public int getShortResponses() {
+            return shortResponses;
+        }
+
+        /** Asked by the router before failing over within this attempt; see {@link RetryPolicy#tryFailover}. */
+        public BooleanSupplier getFailover() {
+            return failover;
+        }
+    }
+
+    private final class Execution<T> {
+        private final Function<Attempt, CompletableFuture<T>> call;
+        private final ToDoubleFunction<T> yield;
+        private final double minYield;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private int number;
+        private int shortResponses;
+        // Calls made so far, attempts and router failovers alike
+        private final AtomicInteger calls = new AtomicInteger();
+        private T best;
+        private double bestYield = -1;
+        private volatile CompletableFuture<T> current;
+
+        private Execution(Function<Attempt, CompletableFuture<T>> call, ToDoubleFunction<T> yield, double minYield) {
+            this.call = call;
+            this.yield = yield;
+            this.minYield = minYield;
+            // If the caller gives up, so does the attempt in flight
+            result.whenComplete((value, e) -> {
+                CompletableFuture<T> running = current;
+                if (result.isCancelled() && running != null) {
+                    running.cancel(true);
+                }
+            });
+        }
+
+        private void attempt() {
+            if (result.isDone()) {
+                return;
+            }
+            number++;
+            calls.incrementAndGet();
+            CompletableFuture<T> future;
+            try {
+                future = call.apply(new Attempt(number, shortResponses, () -> tryFailover(calls)));
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            current = future;
+            future.whenComplete((value, e) -> {
+                if (e == null) {
+                    onResult(value);
+                } else {
+                    onFailure(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                }
+            });
+        }
+
+        private void onResult(T value) {
+            double valueYield = yield.applyAsDouble(value);
+            if (valueYield > bestYield) {
+                best = value;
+                bestYield = valueYield;
+            }
+            if (valueYield >= minYield || !enabled || calls.get() >= maxAttempts) {
+                result.complete(best);
+                return;
+            }
+            if (!budget.tryRetry()) {
+                budgetGiveUps.increment();
+                result.complete(best);
+                return;
+            }
+            shortResponses++;
+            shortResponseRetries.increment();
+            logger.info("Response yielded {}% of the requested questions, sending the prompt again (call {} of {})",
+                    Math.round(valueYield * 100), calls.get() + 1, maxAttempts);
+            attempt();
+        }
+
+        private void onFailure(Throwable e) {
+            if (result.isDone()) {
+                return;
+            }
+            long delay = retryDelay(e, calls.get());
+            if (delay < 0) {
+                if (best != null) {
+                    result.complete(best);
+                } else {
+                    result.completeExceptionally(e);
+                }
+                return;
+            }
+            logger.warn("Provider call failed, retrying in {} ms (call {} of {}): {}", delay, calls.get() + 1,
+                    maxAttempts, e.getMessage());
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(this::attempt);
+        }
+    }
+
+    /** First attempts and retries in one-second slots over the budget window. */
+    private final class Budget {
+        private final long[] calls;
+        private final long[] retries;
+        private final long[] slotSeconds;
+
+        private Budget(int windowSeconds) {
+            calls = new long[windowSeconds];
+            retries = new long[windowSeconds];
+            slotSeconds = new long[windowSeconds];
+        }
+
+        private synchronized void recordCall() {
+            calls[slot(System.currentTimeMillis() / 1000)]++;
+        }
+
+        private synchronized boolean tryRetry() {
+            long now = System.currentTimeMillis() / 1000;
+            int current = slot(now);
+            long windowCalls = 0;
+            long windowRetries = 0;
+            for (int i = 0; i < calls.length; i++) {
+                if (now - slotSeconds[i] < calls.length) {
+                    windowCalls += calls[i];
+                    windowRetries += retries[i];
+                }
+            }
+            double allowed = budgetMinPerSecond * calls.length + budgetRatio * windowCalls;
+            if (windowRetries + 1 > allowed) {
+                return false;
+            }
+            retries[current]++;
+            return true;
+        }
+
+        // The slot for this second, cleared if it still holds an older second
+        private int slot(long second) {
+            int index = (int) (second % calls.length);
+            if (slotSeconds[index] != second) {
+                slotSeconds[index] = second;
+                calls[index] = 0;
+                retries[index] = 0;
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,586 @@
+package com.questiongenerator.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.questiongenerator.dto.HealthResponse;
+import com.questiongenerator.dto.ProviderHealth;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Entry point for all AI calls. With {@code ai.provider=router} it spreads requests over the providers in
+ * {@code ai.router.providers}, preferring the one with the lowest median latency whose circuit breaker
+ * is not open. Every call goes through the provider's {@link ProviderGuard} and is paced by its
+ * {@link ProviderQuota}; a provider the quota has stopped after a 429 ranks with the unavailable ones.
+ * It can fail over to the next provider on error and, if hedging is enabled, race a second provider once the first has
+ * run past its p95 latency, cancelling whichever loses. With a single configured provider it just
+ * passes calls through, still recording latency and error statistics.
+ */
+@Component
+public class RoutingAIProvider implements StreamingAIProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoutingAIProvider.class);
+
+    @Autowired
+    private HuggingFaceAIProvider huggingFaceAIProvider;
+
+    @Autowired
+    private OpenAIAIProvider openAIAIProvider;
+
+    @Autowired
+    private ProviderGuardRegistry guardRegistry;
+
+    @Autowired
+    private ProviderQuotaRegistry quotaRegistry;
+
+    @Autowired
+    private RetryPolicy retryPolicy;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TokenEstimator tokenEstimator;
+
+    @Value("${ai.provider:huggingface}")
+    private String aiProvider;
+
+    @Value("${ai.router.providers:huggingface,openai}")
+    private List<String> routedProviders;
+
+    @Value("${ai.router.window-size:100}")
+    private int windowSize;
+
+    @Value("${ai.router.failover:true}")
+    private boolean failover;
+
+    @Value("${ai.router.hedging.enabled:false}")
+    private boolean hedgingEnabled;
+
+    @Value("${ai.router.hedging.percentile:0.95}")
+    private double hedgingPercentile;
+
+    @Value("${ai.router.hedging.min-delay:PT2S}")
+    private Duration hedgingMinDelay;
+
+    private final List<AIProvider> candidates = new ArrayList<>();
+    private final Map<String, ProviderStats> stats = new LinkedHashMap<>();
+    private final Map<String, ProviderMeters> meters = new LinkedHashMap<>();
+
+    private Counter hedgesFired;
+    private Counter hedgesWon;
+    private Counter failovers;
+
+    @PostConstruct
+    void init() {
+        if (aiProvider.equalsIgnoreCase("router") || aiProvider.equalsIgnoreCase("auto")) {
+            for (String name : routedProviders) {
+                AIProvider provider = resolve(name.trim());
+                if (!candidates.contains(provider)) {
+                    candidates.add(provider);
+                }
+            }
+        } else {
+            candidates.add(resolve(aiProvider));
+        }
+
+        for (AIProvider provider : candidates) {
+            ProviderStats providerStats = new ProviderStats(provider.getName(), windowSize);
+            stats.put(provider.getName(), providerStats);
+            Gauge.builder("ai.provider.latency", providerStats, s -> s.percentile(0.5))
+                    .tag("provider", provider.getName()).tag("quantile", "0.5")
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            Gauge.builder("ai.provider.latency", providerStats, s -> s.percentile(0.95))
+                    .tag("provider", provider.getName()).tag("quantile", "0.95")
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            Gauge.builder("ai.provider.error.rate", providerStats, ProviderStats::errorRate)
+                    .tag("provider", provider.getName())
+                    .register(meterRegistry);
+            meters.put(provider.getName(), new ProviderMeters(provider.getName()));
+            // Created up front so every node shares (and counts towards) the quota before its first call
+            quotaRegistry.quotaFor(provider.getName());
+        }
+
+        hedgesFired = Counter.builder("ai.router.hedges").tag("result", "fired").register(meterRegistry);
+        hedgesWon = Counter.builder("ai.router.hedges").tag("result", "won").register(meterRegistry);
+        failovers = Counter.builder("ai.router.failovers").register(meterRegistry);
+
+        logger.info("AI router candidates: {} (failover={}, hedging={})",
+                candidates.stream().map(AIProvider::getName).toList(), failover, hedgingEnabled);
+    }
+
+    private AIProvider resolve(String name) {
+        return switch (name.toLowerCase()) {
+            case "openai" -> openAIAIProvider;
+            case "huggingface", "hf" -> huggingFaceAIProvider;
+            default -> {
+                logger.warn("Unknown AI provider '{}', falling back to Hugging Face provider", name);
+                yield huggingFaceAIProvider;
+            }
+        };
+    }
+
+    @Override
+    public String getName() {
+        return "router";
+    }
+
+    public Map<String, ProviderStats> getStats() {
+        return stats;
+    }
+
+    public HealthResponse getHealth() {
+        List<ProviderHealth> providers = new ArrayList<>();
+        int available = 0;
+        for (AIProvider provider : candidates) {
+            ProviderGuard guard = guardRegistry.guardFor(provider.getName());
+            ProviderStats providerStats = stats.get(provider.getName());
+            ProviderHealth health = new ProviderHealth();
+            health.setProvider(provider.getName());
+            health.setCircuitState(guard.getState().name());
+            health.setInFlight(guard.getInFlight());
+            health.setConcurrencyLimit(guard.getLimit());
+            health.setMaxConcurrent(guard.getMaxConcurrent());
+            health.setFailureRate(guard.failureRate());
+            health.setLatencyP50Millis(providerStats.percentile(0.5));
+            health.setLatencyP95Millis(providerStats.percentile(0.95));
+            providers.add(health);
+            if (guard.isAvailable()) {
+                available++;
+            }
+        }
+
+        if (available == candidates.size()) {
+            return new HealthResponse("UP", "Service is running", providers);
+        }
+        if (available > 0) {
+            return new HealthResponse("DEGRADED", "Service is running with degraded AI providers", providers);
+        }
+        return new HealthResponse("DOWN", "No AI provider is accepting requests", providers);
+    }
+
+    @Override
+    public String generateResponse(Prompt prompt) throws Exception {
+        try {
+            return generateResponseAsync(prompt).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> generateResponseAsync(Prompt prompt) {
+        AtomicInteger calls = new AtomicInteger(1);
+        return generateResponseAsync(prompt, 0, () -> retryPolicy.tryFailover(calls));
+    }
+
+    /**
+     * As {@link #generateResponseAsync(Prompt)}, for the given retry of a call (0 for the first attempt). Each
+     * retry starts from the next available provider in rank order, so it does not go back to the provider that
+     * just failed or answered badly. A failover to the second provider only happens if {@code mayFailOver}
+     * allows it, so that it counts against the caller's retries (see {@link RetryPolicy#tryFailover}).
+     */
+    public CompletableFuture<String> generateResponseAsync(Prompt prompt, int retry, BooleanSupplier mayFailOver) {
+        List<AIProvider> ranked = rankCandidates();
+        long available = ranked.stream().filter(this::isAvailable).count();
+        if (retry > 0 && available > 1) {
+            Collections.rotate(ranked.subList(0, (int) available), -(int) (retry % available));
+        }
+        AIProvider primary = ranked.get(0);
+        AIProvider secondary = ranked.size() > 1 ? ranked.get(1) : null;
+        logger.debug("Routing request to AI provider: {}", primary.getName());
+
+        if (secondary == null || (!failover && !hedgingEnabled)) {
+            return call(primary, prompt);
+        }
+
+        HedgedCall hedged = new HedgedCall(primary, secondary, prompt, mayFailOver);
+        hedged.start();
+        return hedged.result;
+    }
+
+    @Override
+    public String streamResponse(Prompt prompt, Consumer<String> onChunk) throws Exception {
+        AtomicInteger calls = new AtomicInteger(1);
+        return streamResponse(prompt, onChunk, () -> retryPolicy.tryFailover(calls));
+    }
+
+    /** As {@link #streamResponse(Prompt, Consumer)}, failing over only when {@code mayFailOver} allows it. */
+    public String streamResponse(Prompt prompt, Consumer<String> onChunk, BooleanSupplier mayFailOver) throws Exception {
+        Exception lastError = null;
+        for (AIProvider provider : rankCandidates()) {
+            if (!(provider instanceof StreamingAIProvider streamingProvider)) {
+                continue;
+            }
+            ProviderGuard guard = guardRegistry.guardFor(provider.getName());
+            ProviderGuard.Permit permit;
+            try {
+                permit = guard.tryAcquire();
+            } catch (ProviderUnavailableException e) {
+                lastError = e;
+                continue;
+            }
+            try {
+                // Streams already hold a generation thread, so pacing can simply wait
+                long wait = quotaRegistry.reserve(provider.getName(), cost(prompt));
+                if (wait > 0) {
+                    Thread.sleep(wait);
+                }
+            } catch (RateLimitedException e) {
+                guard.onCancel(permit);
+                lastError = e;
+                continue;
+            } catch (InterruptedException e) {
+                guard.onCancel(permit);
+                Thread.currentThread().interrupt();
+                throw e;
+            }
+
+            boolean[] emitted = {false};
+            long start = System.nanoTime();
+            ProviderMeters providerMeters = meters.get(provider.getName());
+            providerMeters.recordRequest(prompt);
+            try {
+                logger.debug("Routing stream to AI provider: {}", provider.getName());
+                String text = streamingProvider.streamResponse(prompt, chunk -> {
+                    emitted[0] = true;
+                    onChunk.accept(chunk);
+                });
+                long latency = elapsedMillis(start);
+                int tokens = tokenEstimator.count(text);
+                guard.onSuccess(permit, latency, tokens);
+                stats.get(provider.getName()).recordSuccess(latency);
+                providerMeters.recordSuccess(start, tokens);
+                return text;
+            } catch (Exception e) {
+                if (RateLimitedException.find(e) != null) {
+                    // Quota, not health: the quota now holds calls back, the breaker and limit are left alone
+                    guard.onCancel(permit);
+                } else {
+                    guard.onFailure(permit);
+                    stats.get(provider.getName()).recordFailure();
+                }
+                providerMeters.recordFailure(start);
+                lastError = e;
+                // Once the client has seen output we cannot transparently switch providers
+                if (emitted[0] || !failover || !mayFailOver.getAsBoolean()) {
+                    throw e;
+                }
+                failovers.increment();
+                logger.warn("Stream from {} failed before any output, failing over: {}", provider.getName(), e.getMessage());
+            }
+        }
+        if (lastError != null) {
+            throw lastError;
+        }
+        throw new IllegalStateException("No streaming-capable AI provider configured");
+    }
+
+    /** Calls the provider a request would be routed to can take right now without being rejected. */
+    public int availableConcurrency() {
+        AIProvider primary = rankCandidates().get(0);
+        return guardRegistry.guardFor(primary.getName()).availablePermits();
+    }
+
+    /**
+     * Providers whose circuit breaker lets calls through first, fastest median latency first (providers
+     * without samples are tried early so they get measured); providers with an open breaker last.
+     */
+    List<AIProvider> rankCandidates() {
+        List<AIProvider> available = new ArrayList<>();
+        List<AIProvider> unavailable = new ArrayList<>();
+        for (AIProvider provider : candidates) {
+            if (isAvailable(provider)) {
+                available.add(provider);
+            } else {
+                unavailable.add(provider);
+            }
+        }
+        available.sort(Comparator.comparingLong(p -> Math.max(0, stats.get(p.getName()).percentile(0.5))));
+        available.addAll(unavailable);
+        return available;
+    }
+
+    private boolean isAvailable(AIProvider provider) {
+        return guardRegistry.guardFor(provider.getName()).isAvailable()
+                && !quotaRegistry.quotaFor(provider.getName()).isBlocked();
+    }
+
+    private CompletableFuture<String> call(AIProvider provider, Prompt prompt) {
+        ProviderGuard guard = guardRegistry.guardFor(provider.getName());
+        ProviderGuard.Permit permit;
+        try {
+            permit = guard.tryAcquire();
+        } catch (ProviderUnavailableException e) {
+            // Rejected locally; not a provider failure, so stats are left alone
+            return CompletableFuture.failedFuture(e);
+        }
+        int cost = cost(prompt);
+        long wait;
+        try {
+            wait = quotaRegistry.reserve(provider.getName(), cost);
+        } catch (RateLimitedException e) {
+            guard.onCancel(permit);
+            return CompletableFuture.failedFuture(e);
+        }
+        if (wait == 0) {
+            return send(provider, prompt, guard, permit);
+        }
+
+        // Paced: sent after the wait without holding a thread; the permit is held meanwhile so the scheduler
+        // sees the provider as busy
+        CompletableFuture<String> paced = new CompletableFuture<>();
+        CompletableFuture.delayedExecutor(wait, TimeUnit.MILLISECONDS).execute(() -> {
+            if (paced.isDone()) {
+                // Cancelled while waiting (e.g. a hedge that lost): nothing was sent
+                guard.onCancel(permit);
+                quotaRegistry.refund(provider.getName(), cost);
+                return;
+            }
+            CompletableFuture<String> sent = send(provider, prompt, guard, permit);
+            sent.whenComplete((text, e) -> {
+                if (e == null) {
+                    paced.complete(text);
+                } else {
+                    paced.completeExceptionally(e);
+                }
+            });
+            paced.whenComplete((text, e) -> {
+                if (paced.isCancelled()) {
+                    sent.cancel(true);
+                }
+            });
+        });
+        return paced;
+    }
+
+    // Quota cost of a call: the prompt plus every completion token it may use
+    private static int cost(Prompt prompt) {
+        return prompt.getPromptTokens() + Math.max(0, prompt.getMaxTokens());
+    }
+
+    private CompletableFuture<String> send(AIProvider provider, Prompt prompt, ProviderGuard guard,
+                                           ProviderGuard.Permit permit) {
+        ProviderStats providerStats = stats.get(provider.getName());
+        long start = System.nanoTime();
+        ProviderMeters providerMeters = meters.get(provider.getName());
+        providerMeters.recordRequest(prompt);
+        CompletableFuture<String> future;
+        try {
+            future = provider.generateResponseAsync(prompt);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((text, e) -> {
+            if (e == null) {
+                long latency = elapsedMillis(start);
+                int tokens = tokenEstimator.count(text);
+                guard.onSuccess(permit, latency, tokens);
+                providerStats.recordSuccess(latency);
+                providerMeters.recordSuccess(start, tokens);
+            } else if (e instanceof CancellationException) {
+                guard.onCancel(permit);
+                providerMeters.recordCancel(start);
+            } else if (RateLimitedException.find(e) != null) {
+                // Quota, not health: the quota now holds calls back, the breaker and limit are left alone
+                guard.onCancel(permit);
+                providerMeters.recordFailure(start);
+            } else {
+                guard.onFailure(permit);
+                providerStats.recordFailure();
+                providerMeters.recordFailure(start);
+            }
+        });
+        // Returned as-is (not a dependent stage) so cancelling it reaches the provider's HTTP call
+        return future;
+    }
+
+    private long hedgeDelayMillis(AIProvider provider) {
+        long percentile = stats.get(provider.getName()).percentile(hedgingPercentile);
+        return Math.max(hedgingMinDelay.toMillis(), percentile);
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Call timers and token accounting for one provider. Every request sent counts its prompt and the completion
+     * tokens reserved for it; successful completions count the tokens actually generated. Token counts are local
+     * estimates. Meters are registered once, so recording a call is a few atomic updates.
+     */
+    private final class ProviderMeters {
+        private final Timer succeeded;
+        private final Timer failed;
+        private final Timer cancelled;
+        private final Counter prompt;
+        private final Counter reserved;
+        private final Counter completion;
+
+        private ProviderMeters(String provider) {
+            succeeded = callTimer(provider, "success");
+            failed = callTimer(provider, "failure");
+            cancelled = callTimer(provider, "cancelled");
+            prompt = Counter.builder("ai.provider.tokens").tag("provider", provider).tag("type", "prompt")
+                    .description("Estimated prompt tokens sent").register(meterRegistry);
+            reserved = Counter.builder("ai.provider.tokens").tag("provider", provider).tag("type", "reserved")
+                    .description("Completion tokens requested through max_tokens").register(meterRegistry);
+            completion = Counter.builder("ai.provider.tokens").tag("provider", provider).tag("type", "completion")
+                    .description("Estimated completion tokens received").register(meterRegistry);
+        }
+
+        private Timer callTimer(String provider, String outcome) {
+            return Timer.builder("ai.provider.call").tag("provider", provider).tag("outcome", outcome)
+                    .description("Provider calls, from sending the request to the full response")
+                    .register(meterRegistry);
+        }
+
+        private void recordRequest(Prompt request) {
+            prompt.increment(request.getPromptTokens());
+            reserved.increment(Math.max(0, request.getMaxTokens()));
+        }
+
+        private void recordSuccess(long startNanos, int completionTokens) {
+            succeeded.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            completion.increment(completionTokens);
+        }
+
+        private void recordFailure(long startNanos) {
+            failed.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+
+        private void recordCancel(long startNanos) {
+            cancelled.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * One routed request: the primary call, plus at most one secondary started either on primary failure
+     * (failover) or after the hedge delay. The first success wins and the other call is cancelled.
+     */
+    private final class HedgedCall {
+        private final AIProvider primary;
+        private final AIProvider secondary;
+        private final Prompt prompt;
+        private final BooleanSupplier mayFailOver;
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+
+        private CompletableFuture<String> first;
+        private CompletableFuture<String> second;
+        private boolean secondHedged;
+
+        private HedgedCall(AIProvider primary, AIProvider secondary, Prompt prompt, BooleanSupplier mayFailOver) {
+            this.primary = primary;
+            this.secondary = secondary;
+            this.prompt = prompt;
+            this.mayFailOver = mayFailOver;
+        }
+
+        private void start() {
+            first = call(primary, prompt);
+
+            if (hedgingEnabled) {
+                long delay = hedgeDelayMillis(primary);
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+                    if (!result.isDone() && startSecond(true)) {
+                        hedgesFired.increment();
+                        logger.info("{} exceeded {} ms, hedging with {}", primary.getName(), delay, secondary.getName());
+                    }
+                });
+            }
+
+            first.whenComplete((text, e) -> {
+                if (e == null) {
+                    if (result.complete(text)) {
+                        cancelSecond();
+                    }
+                    return;
+                }
+                // Only asked while no secondary is running, so a hedge already in flight takes no retry
+                if (failover && currentSecond() == null && !result.isDone() && mayFailOver.getAsBoolean()
+                        && startSecond(false)) {
+                    failovers.increment();
+                    logger.warn("{} failed, failing over to {}: {}", primary.getName(), secondary.getName(), e.getMessage());
+                    return;
+                }
+                CompletableFuture<String> running = currentSecond();
+                if (running == null || running.isCompletedExceptionally()) {
+                    result.completeExceptionally(e);
+                }
+                // otherwise the running secondary decides the outcome
+            });
+
+            // If the caller gives up, stop both calls
+            result.whenComplete((text, e) -> {
+                if (result.isCancelled()) {
+                    first.cancel(true);
+                    cancelSecond();
+                }
+            });
+        }
+
+        private boolean startSecond(boolean hedge) {
+            CompletableFuture<String> started;
+            synchronized (this) {
+                if (second != null || result.isDone()) {
+                    return false;
+                }
+                second = call(secondary, prompt);
+                secondHedged = hedge;
+                started = second;
+            }
+            started.whenComplete((text, e) -> {
+                if (e == null) {
+                    if (result.complete(text)) {
+                        if (secondHedged) {
+                            hedgesWon.increment();
+                        }
+                        first.cancel(true);
+                    }
+                } else if (first.isDone()) {
+                    result.completeExceptionally(e);
+                }
+            });
+            return true;
+        }
+
+        private synchronized CompletableFuture<String> currentSecond() {
+            return second;
+        }
+
+        private void cancelSecond() {
+            CompletableFuture<String> running = currentSecond();
+            if (running != null) {
+                running.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.questiongenerator.service;
+
+import java.util.function.Consumer;
+
+/**
+ * An {@link AIProvider} that can deliver the completion incrementally as the model produces it.
+ */
+public interface StreamingAIProvider extends AIProvider {
+
+    /**
+     * Streams the completion for the prompt, invoking {@code onChunk} with each content delta
+     * in order. Blocks until the stream ends and returns the full concatenated text.
+     */
+    String streamResponse(Prompt prompt, Consumer<String> onChunk) throws Exception;
+}
@@ -0,0 +1,26 @@
+package com.questiongenerator.service;
+
+import org.springframework.stereotype.Component;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+
+/**
+ * Counts tokens locally with the cl100k_base byte-pair encoding used by the OpenAI chat models. Other providers'
+ * models use their own vocabularies, so for them the counts are estimates; they are used for sizing and
+ * accounting, never for anything that must be exact.
+ */
+@Component
+public class TokenEstimator {
+
+    // Only cl100k_base is loaded; the encoding is immutable and safe to share between threads
+    private final Encoding encoding = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+
+    public int count(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return encoding.countTokens(text);
+    }
+}
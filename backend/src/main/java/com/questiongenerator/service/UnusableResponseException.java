@@ -0,0 +1,12 @@
+package com.questiongenerator.service;
+
+/**
+ * The provider answered, but not a single question could be read from the answer, even after the retries.
+ * Reported to the client as 502: the upstream reply was unusable, and nothing is stored for it.
+ */
+public class UnusableResponseException extends ProviderResponseException {
+
+    public UnusableResponseException(String message) {
+        super(null, 502, message);
+    }
+}
@@ -0,0 +1,33 @@
+-- PostgreSQL id sequence and search indexes for question_history.
+-- Runs on every startup after Hibernate has created/updated the tables
+-- (spring.jpa.defer-datasource-initialization=true), so every statement must be idempotent.
+
+-- question_history ids come from a pooled sequence (allocationSize 50) instead of IDENTITY. On a database
+-- created before the switch, ddl-auto=update creates the sequence at 1, below the existing ids: move it past
+-- them. It only ever moves forward, so once ahead of max(id) this does nothing and no id is handed out twice.
+CREATE SEQUENCE IF NOT EXISTS question_history_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE question_history_seq INCREMENT BY 50;
+SELECT setval('question_history_seq', h.max_id)
+    FROM (SELECT max(id) AS max_id FROM question_history) h
+    WHERE h.max_id > (SELECT last_value FROM question_history_seq);
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Substring search on role/topic: lower(col) LIKE '%term%' can use a trigram index
+CREATE INDEX IF NOT EXISTS idx_question_history_role_trgm
+    ON question_history USING gin (lower(role) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_question_history_topic_trgm
+    ON question_history USING gin (lower(topic) gin_trgm_ops);
+
+-- Exact difficulty filter, already in keyset order
+CREATE INDEX IF NOT EXISTS idx_question_history_difficulty_created_at
+    ON question_history (lower(difficulty), created_at DESC, id DESC);
+
+-- Free-text search across role, topic and the question bodies.
+-- Adding the generated column rewrites the table once on existing databases.
+ALTER TABLE question_history ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (to_tsvector('english',
+        coalesce(role, '') || ' ' || coalesce(topic, '') || ' ' ||
+        coalesce(technical_questions, '') || ' ' || coalesce(behavioral_questions, ''))) STORED;
+CREATE INDEX IF NOT EXISTS idx_question_history_search_vector
+    ON question_history USING gin (search_vector);
@@ -0,0 +1,94 @@
+package com.questiongenerator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.questiongenerator.service.ProviderGuard;
+import com.questiongenerator.service.ProviderGuardRegistry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Drives the service against the stub LLM with the fault mix of the load benchmark (10% malformed, 5% truncated
+ * responses). Truncated sets are topped up with much smaller calls. No call fails, so the adaptive limit must
+ * not back off, and every exchange must have left the client's active-request gauge. The stub runs four times
+ * faster than its defaults, keeping the ratio of first-token latency to generation time, and so the ratio of
+ * small to full-size call latency.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT, properties = {
+        "server.port=18181",
+        "ai.provider=huggingface",
+        "question.bank.enabled=false",
+        "stub.llm.first-token-latency=PT0.075S",
+        "stub.llm.tokens-per-second=320",
+        "stub.llm.malformed-ratio=0.1",
+        "stub.llm.truncate-ratio=0.05"
+})
+@ActiveProfiles({"stub-llm", "test"})
+class StubLlmLoadTest {
+
+    private static final int CLIENTS = 16;
+    private static final int REQUESTS_PER_CLIENT = 6;
+
+    @Autowired
+    private ProviderGuardRegistry guardRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void adaptiveLimitHoldsWhileAllCallsSucceed() {
+        ProviderGuard guard = guardRegistry.guardFor("huggingface");
+        int initialLimit = guard.getLimit();
+        HttpClient client = HttpClient.newHttpClient();
+        ConcurrentMap<Integer, AtomicInteger> statuses = new ConcurrentHashMap<>();
+
+        List<CompletableFuture<Void>> clients = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            clients.add(CompletableFuture.runAsync(() -> {
+                for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                    statuses.computeIfAbsent(generate(client), s -> new AtomicInteger()).incrementAndGet();
+                }
+            }));
+        }
+        clients.forEach(CompletableFuture::join);
+
+        assertThat(statuses.keySet()).containsOnly(200);
+        assertThat(guard.getRejected()).isZero();
+        assertThat(guard.getLimit()).isGreaterThanOrEqualTo(initialLimit);
+        assertThat(meterRegistry.get("ai.client.requests.active").tag("provider", "huggingface").gauge().value())
+                .isZero();
+    }
+
+    private static int generate(HttpClient client) {
+        String body = "{\"role\":\"Backend Engineer\",\"topic\":\"topic-" + UUID.randomUUID()
+                + "\",\"difficulty\":\"medium\",\"includeAnswers\":false}";
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:18181/api/questions/generate"))
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+}
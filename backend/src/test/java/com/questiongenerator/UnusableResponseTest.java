@@ -0,0 +1,73 @@
+package com.questiongenerator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.questiongenerator.dto.QuestionRequest;
+import com.questiongenerator.service.HistoryWriter;
+import com.questiongenerator.service.QuestionService;
+
+/**
+ * Every stub response is prose with no JSON in it. The request must fail with 502 rather than answer an empty
+ * set, and nothing may reach the history, where the question bank would pick it up.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT, properties = {
+        "server.port=18183",
+        "ai.provider=huggingface",
+        "question.bank.enabled=false",
+        "stub.llm.first-token-latency=PT0.01S",
+        "stub.llm.tokens-per-second=5000",
+        "stub.llm.prose-ratio=1"
+})
+@ActiveProfiles({"stub-llm", "test"})
+class UnusableResponseTest {
+
+    @Autowired
+    private QuestionService questionService;
+
+    @Autowired
+    private HistoryWriter historyWriter;
+
+    @Test
+    void unparseableResponseIsABadGatewayAndIsNotSaved() throws Exception {
+        String body = "{\"role\":\"Backend Engineer\",\"topic\":\"prose\",\"difficulty\":\"medium\",\"includeAnswers\":false}";
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:18183/api/questions/generate"))
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+
+        HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(502);
+        assertThat(historyWriter.queueSize()).isZero();
+        assertThat(historyWriter.writtenCount()).isZero();
+    }
+
+    @Test
+    void unparseableStreamFailsWithoutEmittingPlaceholders() {
+        QuestionRequest request = new QuestionRequest("Backend Engineer", "prose stream", "medium", false);
+        List<String> emitted = new ArrayList<>();
+
+        assertThatThrownBy(() -> questionService.generateQuestionsStreaming(request,
+                (section, index, question) -> emitted.add(question.getQuestion())))
+                .hasMessageContaining("No questions could be read");
+
+        assertThat(emitted).isEmpty();
+        assertThat(historyWriter.queueSize()).isZero();
+        assertThat(historyWriter.writtenCount()).isZero();
+    }
+}
@@ -0,0 +1,70 @@
+package com.questiongenerator.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Callback URLs must not let a caller make the service POST into its own network: hosts resolving to private
+ * addresses are refused unless an operator lists them.
+ */
+class GenerationJobCallbackUrlTest {
+
+    private GenerationJobService service(String... allowedHosts) {
+        GenerationJobService service = new GenerationJobService();
+        ReflectionTestUtils.setField(service, "allowedCallbackHosts", Set.of(allowedHosts));
+        return service;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "http://localhost:8080/hook",
+            "http://127.0.0.1/hook",
+            "http://0.0.0.0/hook",
+            "http://169.254.169.254/latest/meta-data/",
+            "http://10.1.2.3/hook",
+            "http://172.16.0.1/hook",
+            "https://192.168.1.10/hook",
+            "http://[::1]/hook",
+            "http://[fd00::1]/hook",
+            "http://[fe80::1]/hook",
+            "http://[::ffff:127.0.0.1]/hook"
+    })
+    void privateHostsAreRefused(String url) {
+        assertThatThrownBy(() -> service().validateCallbackUrl(url))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Callback host is not allowed");
+    }
+
+    @Test
+    void publicAddressesAreAccepted() {
+        assertThat(service().validateCallbackUrl("https://93.184.215.14/hook")).isEqualTo("https://93.184.215.14/hook");
+    }
+
+    @Test
+    void allowListedPrivateHostsAreAccepted() {
+        GenerationJobService service = service("localhost", "10.0.0.5");
+
+        assertThat(service.validateCallbackUrl("http://localhost:9000/hook")).isEqualTo("http://localhost:9000/hook");
+        assertThat(service.validateCallbackUrl("http://10.0.0.5/hook")).isEqualTo("http://10.0.0.5/hook");
+    }
+
+    @Test
+    void hostsOffANonEmptyAllowListAreRefused() {
+        assertThatThrownBy(() -> service("hooks.example.com").validateCallbackUrl("https://93.184.215.14/hook"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void unresolvableHostsAreRefused() {
+        assertThatThrownBy(() -> service().validateCallbackUrl("https://no-such-host.invalid/hook"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Unknown callback host");
+    }
+}
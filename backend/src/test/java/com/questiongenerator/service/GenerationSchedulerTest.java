@@ -0,0 +1,86 @@
+package com.questiongenerator.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Queued generations whose work fails at once must drain in a loop, each result handed over before the next
+ * generation starts, rather than by a nested dispatch per finished generation.
+ */
+class GenerationSchedulerTest {
+
+    private static final int QUEUED = 5000;
+
+    private GenerationScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new GenerationScheduler();
+        ReflectionTestUtils.setField(scheduler, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(scheduler, "enabled", true);
+        ReflectionTestUtils.setField(scheduler, "maxConcurrent", 1);
+        ReflectionTestUtils.setField(scheduler, "followProviderLimit", false);
+        ReflectionTestUtils.setField(scheduler, "interactiveBurst", 4);
+        ReflectionTestUtils.setField(scheduler, "interactiveMaxQueued", QUEUED);
+        ReflectionTestUtils.setField(scheduler, "interactiveMaxQueuedPerTenant", QUEUED);
+        ReflectionTestUtils.setField(scheduler, "batchMaxQueued", QUEUED);
+        ReflectionTestUtils.setField(scheduler, "batchMaxQueuedPerTenant", QUEUED);
+        ReflectionTestUtils.setField(scheduler, "maxWait", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(scheduler, "tenantWeightSpec", "");
+        scheduler.init();
+    }
+
+    @Test
+    void synchronousFailuresDrainInOrderWithoutNesting() {
+        CompletableFuture<String> blocker = new CompletableFuture<>();
+        CompletableFuture<String> first = scheduler.submit(Caller.interactive("a"), () -> blocker);
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        AtomicInteger startedBeforePreviousResult = new AtomicInteger();
+        AtomicInteger maxDepth = new AtomicInteger();
+        int baseDepth = Thread.currentThread().getStackTrace().length;
+        for (int i = 0; i < QUEUED; i++) {
+            int index = i;
+            results.add(scheduler.submit(Caller.interactive("a"), () -> {
+                if (index > 0 && !results.get(index - 1).isDone()) {
+                    startedBeforePreviousResult.incrementAndGet();
+                }
+                maxDepth.accumulateAndGet(Thread.currentThread().getStackTrace().length - baseDepth, Math::max);
+                throw new IllegalStateException("provider rejected generation " + index);
+            }));
+        }
+        assertThat(results).noneMatch(CompletableFuture::isDone);
+
+        blocker.complete("done");
+
+        assertThat(first).isCompletedWithValue("done");
+        assertThat(results).allMatch(CompletableFuture::isCompletedExceptionally);
+        assertThat(startedBeforePreviousResult).hasValue(0);
+        // The same few frames for the last generation as for the first
+        assertThat(maxDepth.get()).isLessThan(100);
+    }
+
+    @Test
+    void slotFreedByAnotherThreadIsNotLost() throws Exception {
+        CompletableFuture<String> running = new CompletableFuture<>();
+        scheduler.submit(Caller.interactive("a"), () -> running);
+        CompletableFuture<String> waiting = scheduler.submit(Caller.batch("b"), () -> CompletableFuture.completedFuture("ran"));
+
+        Thread other = new Thread(() -> running.complete("done"));
+        other.start();
+        other.join();
+
+        assertThat(waiting).isCompletedWithValue("ran");
+    }
+}
@@ -0,0 +1,114 @@
+package com.questiongenerator.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.questiongenerator.dto.HistorySearchCriteria;
+
+/**
+ * Checks on a real PostgreSQL that schema-postgresql.sql is applied at startup and that the planner uses its
+ * indexes for the queries HistorySearchService and the history listing issue. Needs Docker; skipped without it.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = "ai.provider=huggingface")
+@ActiveProfiles("stub-llm")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class HistorySearchIndexTest {
+
+    private static final int ROWS = 50000;
+
+    private static final String SUMMARY = "SELECT id, role, topic, difficulty, include_answers, technical_count, "
+            + "behavioral_count, created_at FROM question_history";
+    private static final String NEWEST_FIRST = " ORDER BY created_at DESC, id DESC LIMIT 20";
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private HistorySearchService searchService;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.update("INSERT INTO question_history (id, role, topic, difficulty, include_answers, "
+                + "technical_questions, behavioral_questions, technical_count, behavioral_count, created_at) "
+                + "SELECT nextval('question_history_seq'), 'Backend Engineer ' || (g % 1000), 'Topic ' || (g % 2000), "
+                + "CASE WHEN g % 100 = 0 THEN 'expert' ELSE (ARRAY['easy', 'medium', 'hard'])[g % 3 + 1] END, false, "
+                + "'[{\"question\":\"How would you scale component' || g || ' under load?\"}]', "
+                + "'[{\"question\":\"Tell me about incident' || (g % 5000) || '.\"}]', 1, 1, "
+                + "timestamp '2026-01-01' + g * interval '1 minute' FROM generate_series(1, " + ROWS + ") g");
+        jdbcTemplate.execute("ANALYZE question_history");
+    }
+
+    @Test
+    void schemaScriptRunsOnPostgres() {
+        List<String> indexes = jdbcTemplate.queryForList(
+                "SELECT indexname FROM pg_indexes WHERE tablename = 'question_history'", String.class);
+
+        assertThat(indexes).contains("idx_question_history_role_trgm", "idx_question_history_topic_trgm",
+                "idx_question_history_difficulty_created_at", "idx_question_history_search_vector",
+                "idx_question_history_created_at_id");
+        assertThat(searchService.usePostgresFullText()).isTrue();
+    }
+
+    @Test
+    void roleAndTopicSubstringsUseTheTrigramIndexes() {
+        assertThat(plan(SUMMARY + " WHERE lower(role) LIKE '%engineer 417%'" + NEWEST_FIRST))
+                .contains("idx_question_history_role_trgm");
+        assertThat(plan(SUMMARY + " WHERE lower(topic) LIKE '%topic 1234%'" + NEWEST_FIRST))
+                .contains("idx_question_history_topic_trgm");
+    }
+
+    @Test
+    void freeTextUsesTheSearchVectorIndex() {
+        assertThat(plan(SUMMARY + " WHERE search_vector @@ websearch_to_tsquery('english', 'incident4242')"
+                + NEWEST_FIRST)).contains("idx_question_history_search_vector");
+
+        List<?> found = searchService.search(new HistorySearchCriteria(null, null, null, null, null, "incident4242"),
+                null, 20);
+        assertThat(found).hasSize(ROWS / 5000);
+    }
+
+    @Test
+    void difficultyFilterWalksItsKeysetIndex() {
+        assertThat(plan(SUMMARY + " WHERE lower(difficulty) = 'expert'"
+                + " AND (created_at, id) < (timestamp '2026-01-20', 30000)" + NEWEST_FIRST))
+                .contains("Index Scan using idx_question_history_difficulty_created_at")
+                .doesNotContain("Sort");
+    }
+
+    @Test
+    void historyListingWalksTheKeysetIndex() {
+        assertThat(plan(SUMMARY + " WHERE created_at <= timestamp '2026-01-20'"
+                + " AND (created_at < timestamp '2026-01-20' OR id < 30000)" + NEWEST_FIRST))
+                .contains("Index Scan Backward using idx_question_history_created_at_id")
+                .doesNotContain("Sort");
+    }
+
+    private String plan(String sql) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+    }
+}
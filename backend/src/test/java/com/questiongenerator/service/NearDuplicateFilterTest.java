@@ -0,0 +1,175 @@
+package com.questiongenerator.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.questiongenerator.dto.QuestionRequest;
+import com.questiongenerator.dto.QuestionResponse;
+import com.questiongenerator.entity.HistoryQuestion;
+import com.questiongenerator.entity.QuestionHistory;
+import com.questiongenerator.entity.StoredQuestion;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class NearDuplicateFilterTest {
+
+    private static final QuestionRequest JAVA = new QuestionRequest("Backend Engineer", "Java", "Medium", false);
+    private static final QuestionRequest GO = new QuestionRequest("Backend Engineer", "Go", "Medium", false);
+
+    private static final String HASHMAP = "How does HashMap work internally?";
+    // Estimated similarity to HASHMAP about 0.85
+    private static final String HASHMAP_IN_JAVA = "How does a HashMap work internally in Java?";
+    // Same content words as HASHMAP, so similarity 1.0
+    private static final String HASHMAP_INTERNALS = "Explain HashMap internals";
+    private static final String RATE_LIMITER = "How would you design a rate limiter for an API?";
+    private static final String DISAGREEMENT = "Tell me about a time you disagreed with your manager.";
+    private static final String DISAGREEMENT_AGAIN = "Describe a time when you disagreed with a manager.";
+
+    private QuestionSimilarityIndex index;
+    private QuestionBank bank;
+
+    @BeforeEach
+    void setUp() {
+        index = new QuestionSimilarityIndex();
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "maxCandidates", 10000);
+
+        bank = new QuestionBank();
+        ReflectionTestUtils.setField(bank, "enabled", true);
+        ReflectionTestUtils.setField(bank, "maxPerSection", 200);
+        ReflectionTestUtils.setField(bank, "maxUsers", 1000);
+    }
+
+    private NearDuplicateFilter filter(double threshold, String scope) {
+        return new NearDuplicateFilter(index, bank, true, threshold, scope, true, new SimpleMeterRegistry());
+    }
+
+    /** Stores a question for the request's combination in both the index and the bank, as a saved history would. */
+    private void store(long id, QuestionRequest request, String text) {
+        StoredQuestion question = new StoredQuestion(QuestionCatalog.hash(text), text);
+        question.setId(id);
+        HistoryQuestion item = new HistoryQuestion(IncrementalQuestionParser.TECHNICAL, 0, text, null);
+        item.setQuestion(question);
+        QuestionHistory history = new QuestionHistory(request.getRole(), request.getTopic(), request.getDifficulty(),
+                "[]", "[]", false);
+        history.addItem(item);
+        index.onHistorySaved(List.of(history));
+        bank.onHistorySaved(List.of(history));
+    }
+
+    private static QuestionResponse response(List<String> technical, List<String> behavioral) {
+        return new QuestionResponse(questions(technical), questions(behavioral));
+    }
+
+    private static List<QuestionResponse.Question> questions(List<String> texts) {
+        List<QuestionResponse.Question> questions = new ArrayList<>();
+        texts.forEach(text -> questions.add(new QuestionResponse.Question(text, null)));
+        return questions;
+    }
+
+    private static List<String> texts(List<QuestionResponse.Question> questions) {
+        List<String> texts = new ArrayList<>();
+        questions.forEach(question -> texts.add(question.getQuestion()));
+        return texts;
+    }
+
+    @Test
+    void questionAboveTheThresholdIsDropped() {
+        QuestionResponse response = response(List.of(HASHMAP, HASHMAP_IN_JAVA, RATE_LIMITER), List.of());
+
+        QuestionResponse removed = filter(0.75, "response").filter(JAVA, response, List.of());
+
+        assertThat(texts(response.getTechnicalQuestions())).containsExactly(HASHMAP, RATE_LIMITER);
+        assertThat(texts(removed.getTechnicalQuestions())).containsExactly(HASHMAP_IN_JAVA);
+    }
+
+    @Test
+    void questionBelowTheThresholdIsKept() {
+        QuestionResponse response = response(List.of(HASHMAP, HASHMAP_IN_JAVA, HASHMAP_INTERNALS), List.of());
+
+        QuestionResponse removed = filter(0.9, "response").filter(JAVA, response, List.of());
+
+        assertThat(texts(response.getTechnicalQuestions())).containsExactly(HASHMAP, HASHMAP_IN_JAVA);
+        assertThat(texts(removed.getTechnicalQuestions())).containsExactly(HASHMAP_INTERNALS);
+    }
+
+    @Test
+    void duplicatesAcrossSectionsAndOfExistingQuestionsAreDropped() {
+        QuestionResponse response = response(List.of(HASHMAP_INTERNALS, RATE_LIMITER), List.of(DISAGREEMENT_AGAIN));
+
+        QuestionResponse removed = filter(0.75, "response").filter(JAVA, response, List.of(HASHMAP, DISAGREEMENT));
+
+        assertThat(texts(response.getTechnicalQuestions())).containsExactly(RATE_LIMITER);
+        assertThat(response.getBehavioralQuestions()).isEmpty();
+        assertThat(texts(removed.getTechnicalQuestions())).containsExactly(HASHMAP_INTERNALS);
+        assertThat(texts(removed.getBehavioralQuestions())).containsExactly(DISAGREEMENT_AGAIN);
+    }
+
+    @Test
+    void scopeDecidesWhichStoredQuestionsCount() {
+        store(1, GO, HASHMAP);
+
+        QuestionResponse own = response(List.of(HASHMAP_INTERNALS), List.of());
+        QuestionResponse combination = response(List.of(HASHMAP_INTERNALS), List.of());
+        QuestionResponse global = response(List.of(HASHMAP_INTERNALS), List.of());
+        filter(0.75, "response").filter(JAVA, own, List.of());
+        filter(0.75, "combination").filter(JAVA, combination, List.of());
+        filter(0.75, "global").filter(JAVA, global, List.of());
+
+        // Stored for Go only: a repeat within Java's combination scope is still allowed
+        assertThat(texts(own.getTechnicalQuestions())).containsExactly(HASHMAP_INTERNALS);
+        assertThat(texts(combination.getTechnicalQuestions())).containsExactly(HASHMAP_INTERNALS);
+        assertThat(global.getTechnicalQuestions()).isEmpty();
+
+        store(2, JAVA, HASHMAP_IN_JAVA);
+        QuestionResponse sameCombination = response(List.of(HASHMAP_INTERNALS), List.of());
+        filter(0.75, "combination").filter(JAVA, sameCombination, List.of());
+
+        assertThat(sameCombination.getTechnicalQuestions()).isEmpty();
+    }
+
+    @Test
+    void storedQuestionsAreMatchedAtTheThreshold() {
+        store(1, JAVA, HASHMAP_IN_JAVA);
+
+        QuestionResponse loose = response(List.of(HASHMAP), List.of());
+        QuestionResponse strict = response(List.of(HASHMAP), List.of());
+        filter(0.75, "combination").filter(JAVA, loose, List.of());
+        filter(0.9, "combination").filter(JAVA, strict, List.of());
+
+        assertThat(loose.getTechnicalQuestions()).isEmpty();
+        assertThat(texts(strict.getTechnicalQuestions())).containsExactly(HASHMAP);
+    }
+
+    @Test
+    void restoreRefillsAShortSetWithoutRepeatingItsOwnQuestions() {
+        NearDuplicateFilter filter = filter(0.75, "global");
+        store(1, JAVA, RATE_LIMITER);
+        QuestionResponse response = response(List.of(HASHMAP, HASHMAP_INTERNALS, RATE_LIMITER), List.of());
+        QuestionResponse removed = filter.filter(JAVA, response, List.of());
+
+        filter.restore(response, removed, List.of(), 3, 0);
+
+        // The stored repeat comes back to fill the set; the repeat of a question in the set does not
+        assertThat(texts(response.getTechnicalQuestions())).containsExactly(HASHMAP, RATE_LIMITER);
+    }
+
+    @Test
+    void disabledFilterKeepsEverything() {
+        NearDuplicateFilter filter = new NearDuplicateFilter(index, bank, false, 0.75, "global", true,
+                new SimpleMeterRegistry());
+        QuestionResponse response = response(List.of(HASHMAP, HASHMAP_INTERNALS), List.of());
+
+        QuestionResponse removed = filter.filter(JAVA, response, List.of(HASHMAP));
+
+        assertThat(response.getTechnicalQuestions()).hasSize(2);
+        assertThat(removed.getTechnicalQuestions()).isEmpty();
+        assertThat(filter.isRefillEnabled()).isFalse();
+    }
+}
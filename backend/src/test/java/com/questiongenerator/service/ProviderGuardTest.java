@@ -0,0 +1,56 @@
+package com.questiongenerator.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class ProviderGuardTest {
+
+    // Stub defaults: 300 ms to the first token, then 80 tokens per second
+    private static long stubLatency(int tokens) {
+        return 300 + tokens * 1000L / 80;
+    }
+
+    private static ProviderGuard guard() {
+        return new ProviderGuard("stub", 200, 20, 2, 0.9, 3.0, 0.5, 10, 50, 30_000, 2);
+    }
+
+    private static void succeed(ProviderGuard guard, long latencyMillis, int tokens) {
+        guard.onSuccess(guard.tryAcquire(), latencyMillis, tokens);
+    }
+
+    @Test
+    void smallCallsDoNotMakeFullSizeCallsLookSlow() {
+        ProviderGuard guard = guard();
+        for (int i = 0; i < 200; i++) {
+            // A one-question top-up every fifth call, full sets otherwise
+            int tokens = i % 5 == 0 ? 60 : 480;
+            succeed(guard, stubLatency(tokens), tokens);
+        }
+        assertThat(guard.getLimit()).isGreaterThanOrEqualTo(20);
+    }
+
+    @Test
+    void backsOffWhenCallsSlowDownPerToken() {
+        ProviderGuard guard = guard();
+        for (int i = 0; i < 50; i++) {
+            succeed(guard, stubLatency(480), 480);
+        }
+        int settled = guard.getLimit();
+        for (int i = 0; i < 20; i++) {
+            // Queueing upstream: four times the usual time for the same output
+            succeed(guard, stubLatency(480) * 4, 480);
+        }
+        assertThat(guard.getLimit()).isLessThan(settled);
+    }
+
+    @Test
+    void failuresShrinkTheLimitAndOpenTheBreaker() {
+        ProviderGuard guard = guard();
+        for (int i = 0; i < 10; i++) {
+            guard.onFailure(guard.tryAcquire());
+        }
+        assertThat(guard.getLimit()).isLessThan(20);
+        assertThat(guard.getState()).isEqualTo(ProviderGuard.State.OPEN);
+    }
+}
@@ -0,0 +1,212 @@
+package com.questiongenerator.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.questiongenerator.dto.QuestionRequest;
+import com.questiongenerator.dto.QuestionResponse;
+import com.questiongenerator.entity.HistoryQuestion;
+import com.questiongenerator.entity.QuestionHistory;
+import com.questiongenerator.entity.StoredQuestion;
+
+class QuestionBankTest {
+
+    private static final QuestionRequest REQUEST = new QuestionRequest("Backend Engineer", "Java", "Medium", false);
+
+    private QuestionBank bank;
+
+    @BeforeEach
+    void setUp() {
+        bank = new QuestionBank();
+        ReflectionTestUtils.setField(bank, "enabled", true);
+        ReflectionTestUtils.setField(bank, "minCoverage", 0.5);
+        ReflectionTestUtils.setField(bank, "maxPerSection", 200);
+        ReflectionTestUtils.setField(bank, "userHistorySize", 500);
+        ReflectionTestUtils.setField(bank, "maxUsers", 1000);
+        ReflectionTestUtils.setField(bank, "tokensPerQuestion", 40);
+        ReflectionTestUtils.setField(bank, "tokensPerAnswer", 120);
+    }
+
+    /** Stores a generated set of the given size for a combination, as the history writer would. */
+    private void store(String role, String topic, String difficulty, int technical, int behavioral, boolean answers) {
+        QuestionHistory history = new QuestionHistory(role, topic, difficulty, "[]", "[]", answers);
+        for (int i = 0; i < technical; i++) {
+            history.addItem(item(IncrementalQuestionParser.TECHNICAL, i, topic + " technical question " + i, answers));
+        }
+        for (int i = 0; i < behavioral; i++) {
+            history.addItem(item(IncrementalQuestionParser.BEHAVIORAL, i, topic + " behavioral question " + i, answers));
+        }
+        bank.onHistorySaved(List.of(history));
+    }
+
+    private static HistoryQuestion item(String section, int position, String text, boolean answer) {
+        HistoryQuestion item = new HistoryQuestion(section, position, text, answer ? "Answer to " + text : null);
+        item.setQuestion(new StoredQuestion(QuestionCatalog.hash(text), text));
+        return item;
+    }
+
+    private static List<String> texts(QuestionResponse response) {
+        List<String> texts = new ArrayList<>();
+        response.getTechnicalQuestions().forEach(question -> texts.add(question.getQuestion()));
+        response.getBehavioralQuestions().forEach(question -> texts.add(question.getQuestion()));
+        return texts;
+    }
+
+    @Test
+    void fullSetIsAssembledFromTheSameCombination() {
+        store("Backend Engineer", "Java", "Medium", 7, 4, false);
+        store("Backend Engineer", "Go", "Medium", 7, 4, false);
+
+        QuestionBank.Selection selection = bank.select(
+                new QuestionRequest("  backend   ENGINEER ", "java", "medium", false), null);
+        bank.recordServed(REQUEST, selection);
+
+        assertThat(selection.isComplete()).isTrue();
+        QuestionResponse response = selection.toResponse(false);
+        assertThat(response.getTechnicalQuestions()).hasSize(QuestionService.EXPECTED_TECHNICAL)
+                .allMatch(question -> question.getQuestion().startsWith("Java technical"));
+        assertThat(response.getBehavioralQuestions()).hasSize(QuestionService.EXPECTED_BEHAVIORAL)
+                .allMatch(question -> question.getQuestion().startsWith("Java behavioral"));
+        assertThat(texts(response)).doesNotHaveDuplicates();
+        assertThat(bank.fullHitCount()).isEqualTo(1);
+        assertThat(bank.questionsFromBankCount()).isEqualTo(8);
+        assertThat(bank.estimatedTokensSaved()).isEqualTo(8 * 40);
+    }
+
+    @Test
+    void unknownCombinationIsAMiss() {
+        store("Backend Engineer", "Java", "Medium", 7, 4, false);
+
+        QuestionBank.Selection selection = bank.select(new QuestionRequest("Backend Engineer", "Java", "Hard", false), null);
+        bank.recordServed(REQUEST, selection);
+
+        assertThat(selection.isEmpty()).isTrue();
+        assertThat(bank.missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void partialSetIsKeptOnlyAboveMinimumCoverage() {
+        store("Backend Engineer", "Java", "Medium", 3, 1, false);
+        store("Backend Engineer", "Go", "Medium", 2, 1, false);
+
+        QuestionBank.Selection partial = bank.select(REQUEST, null);
+        QuestionBank.Selection tooFew = bank.select(new QuestionRequest("Backend Engineer", "Go", "Medium", false), null);
+        bank.recordServed(REQUEST, partial);
+        bank.recordServed(REQUEST, tooFew);
+
+        // 4 of 8 questions meets the 0.5 coverage, 3 of 8 does not
+        assertThat(partial.isComplete()).isFalse();
+        assertThat(partial.missingTechnical()).isEqualTo(2);
+        assertThat(partial.missingBehavioral()).isEqualTo(2);
+        assertThat(tooFew.isEmpty()).isTrue();
+        assertThat(bank.partialHitCount()).isEqualTo(1);
+        assertThat(bank.missCount()).isEqualTo(1);
+        assertThat(bank.questionsFromBankCount()).isEqualTo(4);
+    }
+
+    @Test
+    void selectionIsOnlyCountedOnceServed() {
+        store("Backend Engineer", "Java", "Medium", 3, 1, false);
+
+        // A caller that only serves full sets (the stream) discards the partial pick and generates the whole set
+        QuestionBank.Selection partial = bank.select(REQUEST, null);
+        bank.recordServed(REQUEST, QuestionBank.Selection.EMPTY);
+
+        assertThat(partial.isEmpty()).isFalse();
+        assertThat(bank.partialHitCount()).isZero();
+        assertThat(bank.missCount()).isEqualTo(1);
+        assertThat(bank.questionsFromBankCount()).isZero();
+        assertThat(bank.estimatedTokensSaved()).isZero();
+    }
+
+    @Test
+    void questionsWithoutAnswersAreSkippedWhenAnswersAreRequested() {
+        store("Backend Engineer", "Java", "Medium", 5, 3, false);
+        QuestionRequest withAnswers = new QuestionRequest("Backend Engineer", "Java", "Medium", true);
+
+        assertThat(bank.select(withAnswers, null).isEmpty()).isTrue();
+
+        store("Backend Engineer", "Java", "Medium", 5, 3, true);
+        QuestionResponse response = bank.select(withAnswers, null).toResponse(true);
+
+        assertThat(response.getTechnicalQuestions()).hasSize(5)
+                .allMatch(question -> question.getAnswer().equals("Answer to " + question.getQuestion()));
+        // The copy stored with answers replaced the one without
+        assertThat(bank.getStats().getQuestions()).isEqualTo(8);
+    }
+
+    @Test
+    void questionsServedToAUserAreNotPickedForThemAgain() {
+        store("Backend Engineer", "Java", "Medium", 10, 6, false);
+
+        QuestionBank.Selection first = bank.select(REQUEST, "alice");
+        bank.markServed("alice", first.toResponse(false));
+        QuestionBank.Selection second = bank.select(REQUEST, "alice");
+        bank.markServed("alice", second.toResponse(false));
+        QuestionBank.Selection third = bank.select(REQUEST, "alice");
+
+        assertThat(first.isComplete()).isTrue();
+        assertThat(second.isComplete()).isTrue();
+        assertThat(second.questionTexts()).doesNotContainAnyElementsOf(first.questionTexts());
+        // Every stored question has now been served to alice
+        assertThat(third.isEmpty()).isTrue();
+        assertThat(bank.select(REQUEST, "bob").isComplete()).isTrue();
+        assertThat(bank.select(REQUEST, null).isComplete()).isTrue();
+    }
+
+    @Test
+    void oldestServedQuestionsAreForgottenFirst() {
+        ReflectionTestUtils.setField(bank, "userHistorySize", 8);
+        store("Backend Engineer", "Java", "Medium", 10, 6, false);
+
+        QuestionBank.Selection first = bank.select(REQUEST, "alice");
+        bank.markServed("alice", first.toResponse(false));
+        QuestionBank.Selection second = bank.select(REQUEST, "alice");
+        bank.markServed("alice", second.toResponse(false));
+        QuestionBank.Selection third = bank.select(REQUEST, "alice");
+
+        // Only the second set is remembered, so the third is the first set again
+        assertThat(third.isComplete()).isTrue();
+        assertThat(third.questionTexts()).containsExactlyInAnyOrderElementsOf(first.questionTexts());
+    }
+
+    @Test
+    void parseErrorPlaceholdersAreNeitherStoredNorBanked() {
+        QuestionResponse unreadable = new QuestionResponse(
+                new ArrayList<>(List.of(new QuestionResponse.Question("Java technical question 0", null))),
+                new ArrayList<>(List.of(new QuestionResponse.Question(QuestionService.PARSE_ERROR_QUESTION, null))));
+        assertThat(QuestionCatalog.buildItems(unreadable)).extracting(HistoryQuestion::getQuestionText)
+                .containsExactly("Java technical question 0");
+
+        // A row stored by an older version, as load() or a migrated history would hand it over
+        QuestionHistory legacy = new QuestionHistory("Backend Engineer", "Java", "Medium", "[]", "[]", false);
+        legacy.addItem(item(IncrementalQuestionParser.BEHAVIORAL, 0, QuestionService.PARSE_ERROR_QUESTION, false));
+        bank.onHistorySaved(List.of(legacy));
+        store("Backend Engineer", "Java", "Medium", 5, 2, false);
+
+        QuestionBank.Selection selection = bank.select(REQUEST, null);
+
+        assertThat(selection.questionTexts()).doesNotContain(QuestionService.PARSE_ERROR_QUESTION);
+        assertThat(selection.missingBehavioral()).isEqualTo(1);
+    }
+
+    @Test
+    void sectionsAreBoundedAndKnowTheirQuestions() {
+        ReflectionTestUtils.setField(bank, "maxPerSection", 3);
+        store("Backend Engineer", "Java", "Medium", 5, 1, false);
+
+        long kept = QuestionSimilarityIndex.hashPrefix(QuestionCatalog.hash("Java technical question 4"));
+        long evicted = QuestionSimilarityIndex.hashPrefix(QuestionCatalog.hash("Java technical question 0"));
+
+        assertThat(bank.getStats().getQuestions()).isEqualTo(4);
+        assertThat(bank.contains(REQUEST, kept)).isTrue();
+        assertThat(bank.contains(REQUEST, evicted)).isFalse();
+        assertThat(bank.contains(new QuestionRequest("Backend Engineer", "Go", "Medium", false), kept)).isFalse();
+    }
+}
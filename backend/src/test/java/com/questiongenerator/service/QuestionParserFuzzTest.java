@@ -0,0 +1,295 @@
+package com.questiongenerator.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.questiongenerator.dto.QuestionResponse;
+
+/**
+ * Property tests for both response parsers over a generated corpus of model output: prose and code fences around
+ * the JSON, comments between elements, raw control characters, invalid and cut-off escapes, and extra fields.
+ * Every response is also cut at every offset. Whatever the cut, each question whose object closed before it must
+ * be kept with its exact text, and the one being written when it came must be dropped.
+ */
+class QuestionParserFuzzTest {
+
+    private static final int CASES = 150;
+
+    private static final String TECHNICAL = "technicalQuestions";
+    private static final String BEHAVIORAL = "behavioralQuestions";
+
+    private static final String[] WORDS = {"How", "would", "you", "design", "a", "cache", "for", "Kafka", "consumers",
+            "under", "load", "latency", "p99", "é", "日本", "🙂"};
+
+    @Test
+    void completeResponsesKeepEveryQuestion() throws IOException {
+        for (int seed = 0; seed < CASES; seed++) {
+            Case sample = generate(new Random(seed));
+
+            List<QuestionResponse.Question> technical = new ArrayList<>();
+            List<QuestionResponse.Question> behavioral = new ArrayList<>();
+            QuestionResponseParser.Outcome outcome = QuestionResponseParser.parse(sample.response, technical, behavioral);
+
+            assertThat(texts(technical)).as("technical, seed %d", seed).isEqualTo(sample.expected(TECHNICAL, Integer.MAX_VALUE));
+            assertThat(texts(behavioral)).as("behavioral, seed %d", seed).isEqualTo(sample.expected(BEHAVIORAL, Integer.MAX_VALUE));
+            assertThat(outcome.isTruncated()).as("seed %d", seed).isFalse();
+            assertThat(outcome.getDroppedPartial()).as("seed %d", seed).isZero();
+        }
+    }
+
+    @Test
+    void streamedResponsesKeepEveryQuestionWhateverTheChunking() {
+        for (int seed = 0; seed < CASES; seed++) {
+            Random random = new Random(seed);
+            Case sample = generate(random);
+
+            IncrementalQuestionParser parser = new IncrementalQuestionParser((section, index, question) -> { });
+            for (int i = 0; i < sample.response.length(); ) {
+                int end = Math.min(sample.response.length(), i + 1 + random.nextInt(40));
+                parser.feed(sample.response.substring(i, end));
+                i = end;
+            }
+
+            QuestionResponse response = parser.toResponse();
+            assertThat(parser.isRootClosed()).as("seed %d", seed).isTrue();
+            assertThat(texts(response.getTechnicalQuestions())).as("technical, seed %d", seed)
+                    .isEqualTo(sample.expected(TECHNICAL, Integer.MAX_VALUE));
+            assertThat(texts(response.getBehavioralQuestions())).as("behavioral, seed %d", seed)
+                    .isEqualTo(sample.expected(BEHAVIORAL, Integer.MAX_VALUE));
+        }
+    }
+
+    @Test
+    void everyPrefixKeepsTheCompleteQuestionsAndDropsThePartialOne() throws IOException {
+        for (int seed = 0; seed < CASES; seed++) {
+            Case sample = generate(new Random(seed));
+            for (int cut = 0; cut <= sample.response.length(); cut++) {
+                String prefix = sample.response.substring(0, cut);
+                List<QuestionResponse.Question> technical = new ArrayList<>();
+                List<QuestionResponse.Question> behavioral = new ArrayList<>();
+
+                if (cut <= sample.rootStart) {
+                    assertThatThrownBy(() -> QuestionResponseParser.parse(prefix, technical, behavioral))
+                            .as("seed %d, cut %d", seed, cut)
+                            .isInstanceOf(IOException.class);
+                    continue;
+                }
+                QuestionResponseParser.Outcome outcome = QuestionResponseParser.parse(prefix, technical, behavioral);
+
+                assertThat(texts(technical)).as("technical, seed %d, cut %d", seed, cut)
+                        .isEqualTo(sample.expected(TECHNICAL, cut));
+                assertThat(texts(behavioral)).as("behavioral, seed %d, cut %d", seed, cut)
+                        .isEqualTo(sample.expected(BEHAVIORAL, cut));
+                assertThat(outcome.isTruncated()).as("seed %d, cut %d", seed, cut).isEqualTo(cut < sample.rootEnd);
+                assertThat(outcome.getDroppedPartial()).as("seed %d, cut %d", seed, cut)
+                        .isEqualTo(sample.partialAt(cut) ? 1 : 0);
+            }
+        }
+    }
+
+    @Test
+    void everyStreamedPrefixEmitsExactlyTheCompleteQuestions() {
+        for (int seed = 0; seed < CASES; seed++) {
+            Case sample = generate(new Random(seed));
+            for (int cut = 0; cut <= sample.response.length(); cut++) {
+                List<String> technical = new ArrayList<>();
+                List<String> behavioral = new ArrayList<>();
+                IncrementalQuestionParser parser = new IncrementalQuestionParser((section, index, question) ->
+                        (IncrementalQuestionParser.TECHNICAL.equals(section) ? technical : behavioral).add(text(question)));
+                parser.feed(sample.response.substring(0, cut));
+
+                assertThat(technical).as("technical, seed %d, cut %d", seed, cut)
+                        .isEqualTo(sample.expected(TECHNICAL, cut));
+                assertThat(behavioral).as("behavioral, seed %d, cut %d", seed, cut)
+                        .isEqualTo(sample.expected(BEHAVIORAL, cut));
+                assertThat(parser.isRootClosed()).as("seed %d, cut %d", seed, cut).isEqualTo(cut >= sample.rootEnd);
+            }
+        }
+    }
+
+    private static Case generate(Random random) {
+        Case sample = new Case();
+        StringBuilder out = sample.out;
+        switch (random.nextInt(4)) {
+            case 0 -> out.append("Here are your questions:\n\n```json\n");
+            case 1 -> out.append("```json\n");
+            case 2 -> out.append("Sure! Below is the JSON you asked for.\n");
+            default -> { }
+        }
+        sample.rootStart = out.length();
+        out.append("{\n");
+        if (random.nextInt(4) == 0) {
+            out.append("  \"role\": \"Backend Engineer\", \"count\": 8, \"meta\": {\"tags\": [\"a\", {\"b\": null}]},\n");
+        }
+        section(random, sample, TECHNICAL);
+        out.append(",\n");
+        comment(random, out);
+        section(random, sample, BEHAVIORAL);
+        out.append(random.nextBoolean() ? "\n}" : ",\n}");
+        sample.rootEnd = out.length();
+        switch (random.nextInt(3)) {
+            case 0 -> out.append("\n```\nLet me know if you want more {questions} or [answers].");
+            case 1 -> out.append("\n```");
+            default -> { }
+        }
+        sample.response = out.toString();
+        return sample;
+    }
+
+    private static void section(Random random, Case sample, String name) {
+        StringBuilder out = sample.out;
+        out.append("  \"").append(name).append("\": [");
+        int count = random.nextInt(6);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append("\n    ");
+            comment(random, out);
+            Expected question = new Expected(name);
+            question.start = out.length();
+            out.append('{');
+            StringBuilder text = new StringBuilder();
+            String encoded = string(random, text);
+            StringBuilder answerText = new StringBuilder();
+            String answer = random.nextInt(3) == 0 ? null : string(random, answerText);
+            boolean answerFirst = answer != null && random.nextInt(4) == 0;
+            if (answerFirst) {
+                out.append("\"answer\": ").append(answer).append(", ");
+            }
+            out.append("\"question\": ").append(encoded);
+            if (answer != null && !answerFirst) {
+                out.append(", \"answer\": ").append(answer);
+            }
+            if (random.nextInt(4) == 0) {
+                out.append(", \"difficulty\": ").append(random.nextBoolean() ? "\"hard\"" : "3.5e1");
+            }
+            if (random.nextInt(6) == 0) {
+                out.append(", \"followUps\": [\"Why?\", {\"q\": \"And then?\"}], \"reviewed\": true");
+            }
+            out.append('}');
+            question.end = out.length();
+            question.text = text + "|" + (answer == null ? null : answerText.toString());
+            sample.questions.add(question);
+        }
+        if (count > 0 && random.nextInt(4) == 0) {
+            out.append(',');
+        }
+        out.append("\n  ]");
+    }
+
+    // Appends a comment between elements, sometimes
+    private static void comment(Random random, StringBuilder out) {
+        switch (random.nextInt(5)) {
+            case 0 -> out.append("// next one is harder: { [ \"\n    ");
+            case 1 -> out.append("/* a block comment with } and ] */ ");
+            default -> { }
+        }
+    }
+
+    /** A JSON string literal as a model might write it; the text a parser should read from it goes to {@code text}. */
+    private static String string(Random random, StringBuilder text) {
+        StringBuilder literal = new StringBuilder("\"");
+        String first = WORDS[random.nextInt(WORDS.length)];
+        literal.append(first);
+        text.append(first);
+        int pieces = 1 + random.nextInt(8);
+        for (int i = 0; i < pieces; i++) {
+            switch (random.nextInt(12)) {
+                case 0 -> {
+                    literal.append("\\\"quoted\\\"");
+                    text.append("\"quoted\"");
+                }
+                case 1 -> {
+                    literal.append("C:\\\\temp");
+                    text.append("C:\\temp");
+                }
+                case 2 -> {
+                    literal.append("\\n");
+                    text.append('\n');
+                }
+                case 3 -> {
+                    // Raw control characters the model did not escape
+                    literal.append("line\nbreak\ttab\u0001");
+                    text.append("line\nbreak\ttab\u0001");
+                }
+                case 4 -> {
+                    // Invalid escapes are read as a literal backslash
+                    literal.append("\\S+ and \\d");
+                    text.append("\\S+ and \\d");
+                }
+                case 5 -> {
+                    literal.append("caf\\u00e9");
+                    text.append("café");
+                }
+                case 6 -> {
+                    literal.append("{not: [structure]} // nor a comment /* */");
+                    text.append("{not: [structure]} // nor a comment /* */");
+                }
+                case 7 -> {
+                    literal.append("a/b \\/ c");
+                    text.append("a/b / c");
+                }
+                default -> {
+                    String word = WORDS[random.nextInt(WORDS.length)];
+                    literal.append(' ').append(word);
+                    text.append(' ').append(word);
+                }
+            }
+        }
+        text.append('?');
+        return literal.append("?\"").toString();
+    }
+
+    private static List<String> texts(List<QuestionResponse.Question> questions) {
+        List<String> texts = new ArrayList<>();
+        questions.forEach(question -> texts.add(text(question)));
+        return texts;
+    }
+
+    private static String text(QuestionResponse.Question question) {
+        return question.getQuestion() + "|" + question.getAnswer();
+    }
+
+    private static final class Case {
+        private final StringBuilder out = new StringBuilder();
+        private final List<Expected> questions = new ArrayList<>();
+        private String response;
+        private int rootStart;
+        private int rootEnd;
+
+        /** The questions of a section whose object closed within the first {@code cut} characters. */
+        private List<String> expected(String section, int cut) {
+            List<String> texts = new ArrayList<>();
+            for (Expected question : questions) {
+                if (question.section.equals(section) && question.end <= cut) {
+                    texts.add(question.text);
+                }
+            }
+            return texts;
+        }
+
+        /** Whether the cut falls inside a question object. */
+        private boolean partialAt(int cut) {
+            return questions.stream().anyMatch(question -> question.start < cut && cut < question.end);
+        }
+    }
+
+    private static final class Expected {
+        private final String section;
+        private int start;
+        private int end;
+        private String text;
+
+        private Expected(String section) {
+            this.section = section;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.questiongenerator.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.questiongenerator.dto.QuestionRequest;
+import com.questiongenerator.dto.QuestionResponse;
+
+/**
+ * The streaming path must keep the question bank's per-user no-repeat guarantee: a cached set is only served to
+ * anonymous callers, since the cache does not know what a user has already seen.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT, properties = {
+        "server.port=18182",
+        "ai.provider=huggingface",
+        "stub.llm.first-token-latency=PT0.01S",
+        "stub.llm.tokens-per-second=5000"
+})
+@ActiveProfiles({"stub-llm", "test"})
+class QuestionStreamCacheTest {
+
+    @Autowired
+    private QuestionService questionService;
+
+    @Test
+    void streamDoesNotServeAUserACachedSetTheyHaveSeen() {
+        QuestionRequest request = new QuestionRequest("Site Reliability Engineer", "incident response", "hard", false);
+
+        List<String> first = questions(questionService.generateQuestionsStreaming(request, "user-1", (s, i, q) -> { }));
+        List<String> second = questions(questionService.generateQuestionsStreaming(request, "user-1", (s, i, q) -> { }));
+
+        assertThat(first).hasSize(8);
+        assertThat(second).doesNotContainAnyElementsOf(first);
+    }
+
+    @Test
+    void anonymousStreamsStillUseTheCache() {
+        QuestionRequest request = new QuestionRequest("Data Engineer", "stream processing", "medium", false);
+
+        List<String> first = questions(questionService.generateQuestionsStreaming(request, null, (s, i, q) -> { }));
+        List<String> second = questions(questionService.generateQuestionsStreaming(request, null, (s, i, q) -> { }));
+
+        assertThat(second).containsExactlyElementsOf(first);
+    }
+
+    private static List<String> questions(QuestionResponse response) {
+        List<String> texts = new ArrayList<>();
+        response.getTechnicalQuestions().forEach(q -> texts.add(q.getQuestion()));
+        response.getBehavioralQuestions().forEach(q -> texts.add(q.getQuestion()));
+        return texts;
+    }
+}
@@ -0,0 +1,122 @@
+package com.questiongenerator.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RetryPolicyTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ProviderGuardRegistry guardRegistry;
+    private RetryPolicy retryPolicy;
+
+    @BeforeEach
+    void setUp() {
+        guardRegistry = new ProviderGuardRegistry();
+        ReflectionTestUtils.setField(guardRegistry, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(guardRegistry, "maxConcurrent", 200);
+        ReflectionTestUtils.setField(guardRegistry, "initialLimit", 20);
+        ReflectionTestUtils.setField(guardRegistry, "minLimit", 2);
+        ReflectionTestUtils.setField(guardRegistry, "backoffRatio", 0.9);
+        ReflectionTestUtils.setField(guardRegistry, "latencyTolerance", 3.0);
+        ReflectionTestUtils.setField(guardRegistry, "failureRateThreshold", 0.5);
+        ReflectionTestUtils.setField(guardRegistry, "minimumCalls", 10);
+        ReflectionTestUtils.setField(guardRegistry, "windowSize", 50);
+        ReflectionTestUtils.setField(guardRegistry, "openDuration", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(guardRegistry, "halfOpenProbes", 2);
+
+        retryPolicy = retryPolicy(1.0);
+    }
+
+    private RetryPolicy retryPolicy(double budgetMinPerSecond) {
+        RetryPolicy policy = new RetryPolicy();
+        ReflectionTestUtils.setField(policy, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(policy, "guardRegistry", guardRegistry);
+        ReflectionTestUtils.setField(policy, "enabled", true);
+        ReflectionTestUtils.setField(policy, "maxAttempts", 3);
+        ReflectionTestUtils.setField(policy, "initialBackoff", Duration.ZERO);
+        ReflectionTestUtils.setField(policy, "maxBackoff", Duration.ofSeconds(8));
+        ReflectionTestUtils.setField(policy, "multiplier", 2.0);
+        ReflectionTestUtils.setField(policy, "budgetRatio", 0.0);
+        ReflectionTestUtils.setField(policy, "budgetMinPerSecond", budgetMinPerSecond);
+        ReflectionTestUtils.setField(policy, "budgetWindow", Duration.ofSeconds(10));
+        policy.init();
+        return policy;
+    }
+
+    private ProviderUnavailableException openBreaker(String provider) {
+        ProviderGuard guard = guardRegistry.guardFor(provider);
+        for (int i = 0; i < 10; i++) {
+            guard.onFailure(guard.tryAcquire());
+        }
+        try {
+            guard.tryAcquire();
+        } catch (ProviderUnavailableException e) {
+            return e;
+        }
+        throw new AssertionError("breaker did not open");
+    }
+
+    @Test
+    void openBreakerIsNotRetriedWithoutAnotherProvider() {
+        ProviderUnavailableException rejection = openBreaker("huggingface");
+
+        assertThat(rejection.isCircuitOpen()).isTrue();
+        assertThat(retryPolicy.retryDelay(rejection, 1)).isNegative();
+        // Still transient for the client, which is told when to come back
+        assertThat(retryPolicy.isRetryable(rejection)).isTrue();
+    }
+
+    @Test
+    void openBreakerIsRetriedWhenAnotherProviderIsAvailable() {
+        guardRegistry.guardFor("openai");
+        ProviderUnavailableException rejection = openBreaker("huggingface");
+
+        assertThat(retryPolicy.retryDelay(rejection, 1)).isNotNegative();
+    }
+
+    @Test
+    void concurrencyLimitRejectionIsRetried() {
+        ProviderUnavailableException rejection = new ProviderUnavailableException("huggingface",
+                "concurrency limit reached (20)");
+
+        assertThat(retryPolicy.retryDelay(rejection, 1)).isNotNegative();
+    }
+
+    @Test
+    void failoversCountTowardsMaxAttempts() {
+        AtomicInteger sent = new AtomicInteger();
+
+        CompletableFuture<String> result = retryPolicy.execute(attempt -> {
+            // As the router does: the primary fails, then the secondary if a failover is allowed
+            sent.incrementAndGet();
+            if (attempt.getFailover().getAsBoolean()) {
+                sent.incrementAndGet();
+            }
+            return CompletableFuture.failedFuture(new IOException("connection reset"));
+        }, value -> 1.0, 0.5);
+
+        assertThat(result).failsWithin(Duration.ofSeconds(5));
+        assertThat(sent).hasValue(3);
+    }
+
+    @Test
+    void failoversDrawOnTheRetryBudget() {
+        // 0.1 per second over a 10 second window: one retry in all
+        RetryPolicy policy = retryPolicy(0.1);
+
+        assertThat(policy.tryFailover(new AtomicInteger(1))).isTrue();
+        assertThat(policy.tryFailover(new AtomicInteger(1))).isFalse();
+        assertThat(policy.retryDelay(new IOException("connection reset"), 1)).isNegative();
+    }
+}
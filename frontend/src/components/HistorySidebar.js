@@ -3,7 +3,9 @@ import './HistorySidebar.css';
 
 function HistorySidebar({ onLoadHistory, isOpen, onClose, showToast }) {
     const [history, setHistory] = useState([]);
+    const [nextCursor, setNextCursor] = useState(null);
     const [loading, setLoading] = useState(false);
+    const [loadingMore, setLoadingMore] = useState(false);
     const [searchTerm, setSearchTerm] = useState('');
 
     useEffect(() => {
@@ -19,7 +21,8 @@ function HistorySidebar({ onLoadHistory, isOpen, onClose, showToast }) {
             const response = await fetch('http://localhost:8080/api/history');
             if (response.ok) {
                 const data = await response.json();
-                setHistory(data);
+                setHistory(data.items);
+                setNextCursor(data.nextCursor);
             }
         } catch (error) {
             console.error('Failed to fetch history:', error);
@@ -31,6 +34,23 @@ function HistorySidebar({ onLoadHistory, isOpen, onClose, showToast }) {
         }
     };
 
+    const fetchMore = async () => {
+        if (!nextCursor) return;
+        setLoadingMore(true);
+        try {
+            const response = await fetch(`http://localhost:8080/api/history?cursor=${encodeURIComponent(nextCursor)}`);
+            if (response.ok) {
+                const data = await response.json();
+                setHistory([...history, ...data.items]);
+                setNextCursor(data.nextCursor);
+            }
+        } catch (error) {
+            console.error('Failed to fetch more history:', error);
+        } finally {
+            setLoadingMore(false);
+        }
+    };
+
     const handleDelete = async (id, e) => {
         e.stopPropagation();
         try {
@@ -48,15 +68,28 @@ function HistorySidebar({ onLoadHistory, isOpen, onClose, showToast }) {
         }
     };
 
-    const handleLoad = (item) => {
-        onLoadHistory({
-            technicalQuestions: item.technicalQuestions,
-            behavioralQuestions: item.behavioralQuestions
-        });
-        if (showToast) {
-            showToast('Previous questions loaded!', 'success');
+    // The list only carries summaries; the questions themselves are fetched on demand
+    const handleLoad = async (item) => {
+        try {
+            const response = await fetch(`http://localhost:8080/api/history/${item.id}`);
+            if (!response.ok) {
+                throw new Error(`HTTP ${response.status}`);
+            }
+            const data = await response.json();
+            onLoadHistory({
+                technicalQuestions: data.technicalQuestions,
+                behavioralQuestions: data.behavioralQuestions
+            });
+            if (showToast) {
+                showToast('Previous questions loaded!', 'success');
+            }
+            onClose();
+        } catch (error) {
+            console.error('Failed to load history item:', error);
+            if (showToast) {
+                showToast('Failed to load questions', 'error');
+            }
         }
-        onClose();
     };
 
     const filteredHistory = history.filter(item =>
@@ -137,13 +170,18 @@ function HistorySidebar({ onLoadHistory, isOpen, onClose, showToast }) {
                                         {getDifficultyEmoji(item.difficulty)} {item.difficulty}
                                     </span>
                                     <span className="item-count">
-                                        {item.technicalQuestions?.length || 0}T + {item.behavioralQuestions?.length || 0}B
+                                        {item.technicalCount ?? 0}T + {item.behavioralCount ?? 0}B
                                     </span>
                                 </div>
                                 <div className="item-date">{formatDate(item.createdAt)}</div>
                             </div>
                         ))
                     )}
+                    {nextCursor && !loading && (
+                        <button className="refresh-button" onClick={fetchMore} disabled={loadingMore}>
+                            {loadingMore ? 'Loading...' : 'Load more'}
+                        </button>
+                    )}
                 </div>
 
                 <div className="sidebar-footer">